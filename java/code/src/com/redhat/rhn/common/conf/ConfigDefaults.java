@@ -190,6 +190,9 @@ public class ConfigDefaults {
      * Taskomatic defaults
      */
     private static final String TASKOMATIC_CHANNEL_REPODATA_WORKERS = "java.taskomatic_channel_repodata_workers";
+    private static final String TASKOMATIC_INCREMENTAL_REPODATA = "java.taskomatic_incremental_repodata";
+    private static final String REPODATA_COMPRESSION = "java.repodata_compression";
+    private static final String REPODATA_COMPRESSION_THREADS = "java.repodata_compression_threads";
 
     /**
      * HTTP proxy defaults
@@ -206,6 +209,19 @@ public class ConfigDefaults {
 
     public static final String MESSAGE_QUEUE_THREAD_POOL_SIZE = "java.message_queue_thread_pool_size";
 
+    /**
+     * Message queue dispatcher mode: "default" (single dispatcher thread) or "sharded"
+     */
+    public static final String MESSAGE_QUEUE_DISPATCHER = "java.message_queue_dispatcher";
+    public static final String MESSAGE_QUEUE_SHARDS = "java.message_queue_shards";
+    public static final String MESSAGE_QUEUE_SHARD_CAPACITY = "java.message_queue_shard_capacity";
+    public static final String MESSAGE_QUEUE_OVERFLOW_POLICY = "java.message_queue_overflow_policy";
+
+    /**
+     * Interval in milliseconds between writes of buffered server check-ins, 0 to disable buffering
+     */
+    public static final String CHECKIN_FLUSH_INTERVAL = "java.checkin_flush_interval";
+
     public static final String VIRTPOLLER_CACHE_EXPIRATION = "server.susemanager.virtpoller.expire_time";
     public static final String VIRTPOLLER_CACHE_FILE = "server.susemanager.virtpoller.cache_file";
     public static final String VIRTPOLLER_INTERVAL = "server.susemanager.virtpoller.interval";
@@ -224,6 +240,21 @@ public class ConfigDefaults {
 
     public static final String SALT_SSH_CONNECT_TIMEOUT = "java.salt_ssh_connect_timeout";
 
+    /**
+     * Number of salt-ssh minions an action is executed on in parallel
+     */
+    public static final String SALT_SSH_ACTION_THREADS = "java.salt_ssh_action_threads";
+
+    /**
+     * Sharding of salt-ssh calls: number of roster batches run at the same time, number
+     * of minions per batch, number of batches at the same time behind one proxy and
+     * deadline in seconds after which the minions of a batch are given up (0 for none)
+     */
+    public static final String SALT_SSH_CONCURRENCY = "java.salt_ssh_concurrency";
+    public static final String SALT_SSH_BATCH_SIZE = "java.salt_ssh_batch_size";
+    public static final String SALT_SSH_PROXY_CONCURRENCY = "java.salt_ssh_proxy_concurrency";
+    public static final String SALT_SSH_HOST_DEADLINE = "java.salt_ssh_host_deadline";
+
     /**
      * Duration in hours of the time window for Salt minions to stage
      * packages in advance of scheduled installations or upgrades
@@ -730,6 +761,34 @@ public class ConfigDefaults {
         return Config.get().getInt(TASKOMATIC_CHANNEL_REPODATA_WORKERS, 1);
     }
 
+    /**
+     * Returns true if channel metadata should be updated incrementally, by splicing
+     * added and removed packages into the existing files. Disabled by default.
+     * @return true if incremental channel metadata updates are enabled
+     */
+    public boolean isTaskoIncrementalRepodata() {
+        return Config.get().getBoolean(TASKOMATIC_INCREMENTAL_REPODATA);
+    }
+
+    /**
+     * Returns the compression used for the metadata files of channels without one of
+     * their own: "gzip", "parallel_gzip" or "zstd"
+     * @return the repository metadata compression
+     */
+    public String getRepodataCompression() {
+        return Config.get().getString(REPODATA_COMPRESSION, "gzip");
+    }
+
+    /**
+     * Returns the number of threads compressing channel metadata with "parallel_gzip",
+     * shared by all channels
+     * @return the number of compression threads
+     */
+    public int getRepodataCompressionThreads() {
+        return Config.get().getInt(REPODATA_COMPRESSION_THREADS,
+                Runtime.getRuntime().availableProcessors());
+    }
+
     /**
      * Gets the proxy host.
      * @return the proxy host
@@ -820,6 +879,112 @@ public class ConfigDefaults {
         return Config.get().getInt(SALT_SSH_CONNECT_TIMEOUT, 180);
     }
 
+    /**
+     * @return number of salt-ssh minions an action is executed on in parallel
+     */
+    public int getSaltSSHActionThreads() {
+        return Math.max(1, Config.get().getInt(SALT_SSH_ACTION_THREADS, 5));
+    }
+
+    /**
+     * @return number of salt-ssh roster batches run at the same time
+     */
+    public int getSaltSSHConcurrency() {
+        return Math.max(1, Config.get().getInt(SALT_SSH_CONCURRENCY, 4));
+    }
+
+    /**
+     * @return maximum number of minions in one salt-ssh roster batch
+     */
+    public int getSaltSSHBatchSize() {
+        return Math.max(1, Config.get().getInt(SALT_SSH_BATCH_SIZE, 50));
+    }
+
+    /**
+     * @return number of salt-ssh roster batches run at the same time behind one proxy
+     */
+    public int getSaltSSHProxyConcurrency() {
+        return Math.max(1, Config.get().getInt(SALT_SSH_PROXY_CONCURRENCY, 2));
+    }
+
+    /**
+     * @return seconds after which salt-ssh minions that did not return are given up,
+     * 0 to wait for salt-ssh to return
+     */
+    public int getSaltSSHHostDeadline() {
+        return Math.max(0, Config.get().getInt(SALT_SSH_HOST_DEADLINE, 0));
+    }
+
+    /**
+     * API sessions: seconds a validated session key is trusted without looking it up
+     * again (0 to look it up on every call) and minimum number of seconds an expiry
+     * extension has to add before it is written
+     */
+    public static final String API_SESSION_CACHE_TTL = "java.api_session_cache_ttl";
+    public static final String API_SESSION_EXTEND_THRESHOLD = "java.api_session_extend_threshold";
+
+    /**
+     * @return seconds a validated API session key is trusted without a lookup
+     */
+    public int getApiSessionCacheTtl() {
+        return Math.max(0, Config.get().getInt(API_SESSION_CACHE_TTL, 5));
+    }
+
+    /**
+     * @return minimum number of seconds an API session expiry extension has to add
+     * before it is written
+     */
+    public int getApiSessionExtendThreshold() {
+        return Math.max(0, Config.get().getInt(API_SESSION_EXTEND_THRESHOLD, 60));
+    }
+
+    /**
+     * Number of hosts reported by a Virtual Host Manager that are reconciled in one
+     * transaction and maximum number of statements sent to the database in one batch
+     */
+    public static final String VHM_RECONCILE_CHUNK_SIZE = "java.vhm_reconcile_chunk_size";
+    public static final String VHM_RECONCILE_BATCH_SIZE = "java.vhm_reconcile_batch_size";
+
+    /**
+     * Number of result pages fetched at the same time from SCC
+     */
+    public static final String SCC_PAGE_CONCURRENCY = "java.scc_page_concurrency";
+
+    /**
+     * Maximum number of package paths kept in memory to serve package downloads
+     */
+    public static final String DOWNLOAD_PATH_INDEX_MAX_ENTRIES = "java.download_path_index_max_entries";
+
+    /**
+     * @return number of Virtual Host Manager hosts reconciled in one transaction
+     */
+    public int getVhmReconcileChunkSize() {
+        return Math.max(1, Config.get().getInt(VHM_RECONCILE_CHUNK_SIZE, 100));
+    }
+
+    /**
+     * @return maximum number of statements sent in one batch when reconciling Virtual
+     * Host Manager hosts
+     */
+    public int getVhmReconcileBatchSize() {
+        return Math.max(1, Config.get().getInt(VHM_RECONCILE_BATCH_SIZE, 50));
+    }
+
+    /**
+     * @return number of result pages fetched at the same time from SCC
+     */
+    public int getSCCPageConcurrency() {
+        return Math.max(1, Config.get().getInt(SCC_PAGE_CONCURRENCY, 4));
+    }
+
+    /**
+     * @return maximum number of package paths kept in memory to serve package downloads,
+     * 0 disables the index
+     */
+    public int getDownloadPathIndexMaxEntries() {
+        return Math.max(0, Config.get().getInt(DOWNLOAD_PATH_INDEX_MAX_ENTRIES, 200000));
+    }
+
     /**
      * Returns salt presence ping job timeout
      * @return salt presence ping job timeout
@@ -873,4 +1038,48 @@ public class ConfigDefaults {
     public boolean isMetadataSigningEnabled() {
         return Config.get().getBoolean(SIGN_METADATA);
     }
+
+    /**
+     * Returns true if the sharded message queue dispatcher is enabled.
+     * @return true if the sharded dispatcher should be used
+     */
+    public boolean isMessageQueueSharded() {
+        return "sharded".equalsIgnoreCase(
+                Config.get().getString(MESSAGE_QUEUE_DISPATCHER, "default"));
+    }
+
+    /**
+     * Returns the number of shards used by the sharded message queue dispatcher.
+     * @return the number of shards
+     */
+    public int getMessageQueueShards() {
+        return Config.get().getInt(MESSAGE_QUEUE_SHARDS,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns the maximum number of pending messages per shard.
+     * @return the shard capacity
+     */
+    public int getMessageQueueShardCapacity() {
+        return Config.get().getInt(MESSAGE_QUEUE_SHARD_CAPACITY, 10000);
+    }
+
+    /**
+     * Returns the policy applied when a message queue shard is full:
+     * "block", "caller_runs" or "discard".
+     * @return the overflow policy
+     */
+    public String getMessageQueueOverflowPolicy() {
+        return Config.get().getString(MESSAGE_QUEUE_OVERFLOW_POLICY, "block");
+    }
+
+    /**
+     * Returns the interval in milliseconds between writes of buffered server check-ins.
+     * A value of 0 disables buffering.
+     * @return the flush interval
+     */
+    public long getCheckinFlushInterval() {
+        return Config.get().getInt(CHECKIN_FLUSH_INTERVAL, 5000);
+    }
 }
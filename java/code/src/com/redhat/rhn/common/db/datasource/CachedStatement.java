@@ -40,12 +40,15 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A cached set of query/elaborator strings and the parameterMap hash maps.
@@ -68,6 +71,11 @@ public class CachedStatement implements Serializable {
      */
     public static final int BATCH_SIZE = 500;
 
+    /**
+     * Name of the parameter binding the filter of paginated queries.
+     */
+    private static final String PAGINATION_FILTER = "pagination_filter";
+
     /*
      * This is the original config for this query as specified in the mode query
      * xml file. It is intended to be immutable.
@@ -228,20 +236,35 @@ public class CachedStatement implements Serializable {
     }
 
     /**
-     * Executes multiple updates with one only prepared statement.
+     * Executes multiple updates with one only prepared statement, sending them to
+     * the database in JDBC batches of at most {@link #BATCH_SIZE} statements.
      *
      * @param parameterList a list of parameter maps
      * @return a list of affected rows counts
      */
     List<Integer> executeUpdates(List<Map<String, Object>> parameterList) {
         return doWithStolenConnection(connection -> {
+            PreparedStatement ps = null;
             try {
                 List<Integer> result = new ArrayList<Integer>(parameterList.size());
 
                 sqlStatement = NamedPreparedStatement.replaceBindParams(sqlStatement, qMap);
+                if (log.isDebugEnabled()) {
+                    log.debug("executeUpdates() - Executing: " + sqlStatement);
+                    log.debug("executeUpdates() - With " + parameterList.size() + " parameter sets");
+                }
+                ps = prepareStatement(connection, sqlStatement, null);
+                int pending = 0;
                 for (Map<String, Object> parameters : parameterList) {
-                    result.add((Integer) execute(connection, sqlStatement, qMap, parameters,
-                            null, null));
+                    NamedPreparedStatement.addBatch(ps, qMap, setupParamMap(parameters));
+                    pending++;
+                    if (pending == BATCH_SIZE) {
+                        addCounts(result, ps.executeBatch());
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    addCounts(result, ps.executeBatch());
                 }
                 return result;
             }
@@ -258,9 +281,18 @@ public class CachedStatement implements Serializable {
                 log.error("Error while processing cached statement sql: " + getQuery(), e);
                 throw e;
             }
+            finally {
+                HibernateHelper.cleanupDB(ps);
+            }
         });
     }
 
+    private static void addCounts(List<Integer> result, int[] counts) {
+        for (int count : counts) {
+            result.add(count);
+        }
+    }
+
 
     @SuppressWarnings("unchecked")
     DataResult<Object> execute(Map<String, ?> parameters, Mode mode) {
@@ -278,6 +310,200 @@ public class CachedStatement implements Serializable {
         return (DataResult<Object>) internalExecute(parameters, inClause, mode);
     }
 
+    /**
+     * Executes the query leaving its results on an open cursor, to be read and
+     * elaborated in chunks of fetchSize rows by the returned iterator.
+     * @param parameters named parameters for the query
+     * @param mode the mode to be streamed
+     * @param fetchSize the number of rows to fetch from the cursor at once
+     * @return the iterator over the results
+     */
+    DataResultIterator<Object> stream(Map<String, ?> parameters, SelectMode mode,
+            int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetchSize must be > 0");
+        }
+        this.sqlStatement = NamedPreparedStatement.replaceBindParams(sqlStatement, qMap);
+        if (sqlStatement.indexOf("%s") > 0) {
+            throw new IllegalArgumentException(
+                    "Queries with an IN clause cannot be streamed: " + getName());
+        }
+        String sql = sqlStatement;
+        return doWithStolenConnection(connection -> {
+            PreparedStatement ps = null;
+            try {
+                // the driver only uses a cursor if the fetch size is set and
+                // the statement runs inside the current transaction
+                ps = prepareStatement(connection, sql, mode);
+                ps.setFetchSize(fetchSize);
+                NamedPreparedStatement.execute(ps, qMap, setupParamMap(parameters));
+                return new DataResultIterator<Object>(mode, parameters, fetchSize, ps,
+                        ps.getResultSet());
+            }
+            catch (SQLException e) {
+                HibernateHelper.cleanupDB(ps);
+                throw SqlExceptionTranslator.sqlException(e);
+            }
+            catch (RuntimeException e) {
+                HibernateHelper.cleanupDB(ps);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Executes the query returning one page of its results, filtered and sorted by
+     * the database. The query is wrapped in an outer query, so the columns of the
+     * pagination are the names of columns in the select list of the query.
+     * @param parameters named parameters for the query
+     * @param mode the mode to be executed
+     * @param page the page to return
+     * @return the rows of the page
+     */
+    @SuppressWarnings("unchecked")
+    DataResult<Object> executePage(Map<String, ?> parameters, SelectMode mode,
+            Pagination page) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM (")
+                .append(getPaginatedStatement())
+                .append(") paginated");
+        appendFilter(sql, page);
+
+        List<String> order = new ArrayList<String>();
+        if (page.getSortColumn() != null) {
+            order.add("paginated." + page.getSortColumn() +
+                    (page.isAscending() ? " ASC" : " DESC"));
+        }
+        if (page.getKeyColumn() != null) {
+            order.add("paginated." + page.getKeyColumn());
+        }
+        if (!order.isEmpty()) {
+            sql.append(" ORDER BY ").append(StringUtil.join(", ", order));
+        }
+        if (page.getLimit() > 0) {
+            sql.append(" LIMIT ").append(page.getLimit());
+        }
+        sql.append(" OFFSET ").append(page.getOffset());
+
+        Map<String, List<Integer>> parameterMap = new HashMap<String, List<Integer>>();
+        String finalQuery = NamedPreparedStatement.replaceBindParams(sql.toString(),
+                parameterMap);
+        DataResult<Object> dr = (DataResult<Object>) executeChecking(finalQuery,
+                parameterMap, bindFilter(parameters, page), mode, null);
+        dr.setStart(page.getOffset() + 1);
+        dr.setEnd(page.getOffset() + dr.size());
+        return dr;
+    }
+
+    /**
+     * Counts the rows of the query, filtered by the database.
+     * @param parameters named parameters for the query
+     * @param page the filter to apply, sorting and limits are ignored
+     * @return the number of rows
+     */
+    int executeCount(Map<String, ?> parameters, Pagination page) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM (")
+                .append(getPaginatedStatement())
+                .append(") paginated");
+        appendFilter(sql, page);
+        List<Object> result = executeScalars(sql.toString(), bindFilter(parameters, page));
+        return ((Number) result.get(0)).intValue();
+    }
+
+    /**
+     * Returns the distinct first characters of a column of the query, in upper case.
+     * @param parameters named parameters for the query
+     * @param page the filter to apply, sorting and limits are ignored
+     * @param column the column
+     * @return the first characters
+     */
+    Set<Character> executeInitials(Map<String, ?> parameters, Pagination page,
+            String column) {
+        Pagination columnCheck = new Pagination();
+        columnCheck.setSortColumn(column);
+        StringBuilder sql = new StringBuilder("SELECT DISTINCT UPPER(SUBSTR(paginated.")
+                .append(columnCheck.getSortColumn())
+                .append(", 1, 1)) FROM (")
+                .append(getPaginatedStatement())
+                .append(") paginated");
+        appendFilter(sql, page);
+        Set<Character> initials = new HashSet<Character>();
+        for (Object initial : executeScalars(sql.toString(),
+                bindFilter(parameters, page))) {
+            if (initial != null && !initial.toString().isEmpty()) {
+                initials.add(initial.toString().charAt(0));
+            }
+        }
+        return initials;
+    }
+
+    private String getPaginatedStatement() {
+        if (!qMap.isEmpty()) {
+            throw new IllegalStateException(
+                    "Query was already executed, use a new mode: " + getName());
+        }
+        if (sqlStatement.indexOf("%s") > 0) {
+            throw new IllegalArgumentException(
+                    "Queries with an IN clause cannot be paginated: " + getName());
+        }
+        return sqlStatement;
+    }
+
+    private static void appendFilter(StringBuilder sql, Pagination page) {
+        if (page.getFilterColumn() != null) {
+            sql.append(" WHERE UPPER(CAST(paginated.")
+                    .append(page.getFilterColumn())
+                    .append(" AS VARCHAR)) LIKE :" + PAGINATION_FILTER);
+        }
+    }
+
+    private static Map<String, ?> bindFilter(Map<String, ?> parameters,
+            Pagination page) {
+        if (page.getFilterColumn() == null) {
+            return parameters;
+        }
+        Map<String, Object> result = new HashMap<String, Object>();
+        if (parameters != null) {
+            result.putAll(parameters);
+        }
+        result.put(PAGINATION_FILTER, page.getFilterPattern());
+        return result;
+    }
+
+    private List<Object> executeScalars(String sql, Map<String, ?> parameters) {
+        Map<String, List<Integer>> parameterMap = new HashMap<String, List<Integer>>();
+        String finalQuery = NamedPreparedStatement.replaceBindParams(sql, parameterMap);
+        return doWithStolenConnection(connection -> {
+            PreparedStatement ps = null;
+            try {
+                ps = prepareStatement(connection, finalQuery, null);
+                NamedPreparedStatement.execute(ps, parameterMap,
+                        setupParamMap(parameters));
+                List<Object> result = new ArrayList<Object>();
+                ResultSet rs = ps.getResultSet();
+                while (rs.next()) {
+                    result.add(rs.getObject(1));
+                }
+                return result;
+            }
+            catch (SQLException e) {
+                throw SqlExceptionTranslator.sqlException(e);
+            }
+            finally {
+                HibernateHelper.cleanupDB(ps);
+            }
+        });
+    }
+
+    /**
+     * Stores the parameters to run the query with when it is restarted, without
+     * running it now.
+     * @param parameters named parameters for the query
+     * @param mode the mode to be restarted
+     */
+    void prepareRestart(Map<String, ?> parameters, Mode mode) {
+        storeForRestart(parameters, null, mode);
+    }
+
     @SuppressWarnings("unchecked")
     private Object internalExecute(Map<String, ?> parameters, List<?> inClause,
             Mode mode) {
@@ -429,6 +655,10 @@ public class CachedStatement implements Serializable {
             }
             intersection.put(curr, parameters.get(curr));
         }
+        // the filter of a paginated query is not a parameter of the original query
+        if (parameters != null && parameters.containsKey(PAGINATION_FILTER)) {
+            intersection.put(PAGINATION_FILTER, parameters.get(PAGINATION_FILTER));
+        }
         return intersection;
     }
 
@@ -601,6 +831,14 @@ public class CachedStatement implements Serializable {
                         "Column, " + getColumn() + ", not found in elaborator results");
             }
 
+            // Resolve the DTO class and its setters once for all rows
+            Class<?> clazz = null;
+            RowMapper mapper = null;
+            if (className != null && !className.equals("java.util.Map")) {
+                clazz = Class.forName(className);
+                mapper = RowMapper.forClass(clazz, columns);
+            }
+
             // loop through the results, adding them to the displayMap
             while (rs.next()) {
                 /*
@@ -637,7 +875,6 @@ public class CachedStatement implements Serializable {
                  * Otherwise, try to set the results to the class given.
                  */
                 else {
-                    Class<?> clazz = Class.forName(className);
                     Object obj;
                     if (pointers == null) {
                         obj = clazz.newInstance();
@@ -652,7 +889,7 @@ public class CachedStatement implements Serializable {
                         obj = currentResults.get(pos.intValue());
                     }
                     // if pointers are null, we are doing an elaborator.
-                    addToObject(columns, rs, obj, (pointers != null));
+                    addToObject(mapper, rs, obj, (pointers != null));
                     // bug 141664: Don't add to the DataResult if we are
                     // elaborating the data.
                     if (pointers == null) {
@@ -736,8 +973,7 @@ public class CachedStatement implements Serializable {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void addToObject(List<String> columns, ResultSet rs, Object obj,
+    private void addToObject(RowMapper mapper, ResultSet rs, Object obj,
             boolean elaborator)
         throws SQLException {
 
@@ -748,59 +984,15 @@ public class CachedStatement implements Serializable {
             columnSkip = cb.getCallBackColumns();
         }
         else {
-            columnSkip = new ArrayList<String>();
+            columnSkip = Collections.emptyList();
         }
 
-        Iterator<String> i = columns.iterator();
-        while (i.hasNext()) {
-            String columnName = i.next();
-            if (columnSkip.contains(columnName.toLowerCase())) {
-                continue;
-            }
-
-            String setName = StringUtil.beanify("set " + columnName.toLowerCase());
-            String getName = StringUtil.beanify("get " + columnName.toLowerCase());
-
-            boolean isList = false;
-            Method[] methods = obj.getClass().getMethods();
-            /*
-             * Now loop through the methods and find the set method for this
-             * column then decide if it takes a collection Note: This action
-             * might not complete correctly if there are two set methods with
-             * the same name
-             */
-            for (int j = 0; j < methods.length; j++) {
-                // getName() gets the name of the set method
-                // setName is the name of the set method
-                if (methods[j].getName().equals(setName)) {
-                    Class<?> paramType = methods[j].getParameterTypes()[0];
-                    if (Collection.class.isAssignableFrom(paramType)) {
-                        isList = true;
-                    }
-                    break;
-                }
-            }
-
-            if (isList) { // requires matching get method returning the same
-                          // list
-                Collection<Object> c = (Collection<Object>) MethodUtil.callMethod(obj,
-                        getName, new Object[0]);
-                if (c == null) {
-                    c = new ArrayList<Object>();
-                }
-                c.add(getObject(rs, columnName));
-                MethodUtil.callMethod(obj, setName, c);
-                continue;
-            }
-            /*
-             * Just call the set method. This will call the same set method
-             * multiple times. If the result set should be a list, but has a
-             * non-Collection set method, the attribute corresponding to this
-             * column will ultimately contain the last item found for this
-             * column.
-             */
-            MethodUtil.callMethod(obj, setName, getObject(rs, columnName));
-        } // while
+        /*
+         * The mapper calls the set method for each column, as MethodUtil would.
+         * If the set method takes a Collection, the value is added to the
+         * collection returned by the matching get method.
+         */
+        mapper.map(rs, obj, columnSkip);
     }
 
     /**
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.db.datasource;
+
+import com.redhat.rhn.common.ObjectCreateWrapperException;
+import com.redhat.rhn.common.hibernate.HibernateHelper;
+import com.redhat.rhn.common.translation.SqlExceptionTranslator;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the results of a streamed {@link SelectMode} query.
+ *
+ * Rows are fetched from an open server-side cursor in chunks of the configured fetch
+ * size, and every chunk is elaborated before it is handed out, so at most one chunk of
+ * results is held in memory at any time. The iterator must be closed to release the
+ * underlying cursor, which happens automatically once the last row has been read.
+ *
+ * @param <T> the type of the result rows
+ */
+public class DataResultIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private final SelectMode mode;
+    private final Map<String, ?> elabParams;
+    private final int fetchSize;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final List<String> columns;
+    private final Class<?> clazz;
+    private final RowMapper mapper;
+
+    private List<T> chunk = Collections.emptyList();
+    private int position;
+    private boolean exhausted;
+
+    /**
+     * Wraps an executed statement.
+     * @param modeIn the mode the statement was executed for
+     * @param elabParamsIn the parameters for the elaborators
+     * @param fetchSizeIn the number of rows to fetch and elaborate at once
+     * @param statementIn the executed statement, closed with the iterator
+     * @param resultSetIn the result set of the statement
+     */
+    DataResultIterator(SelectMode modeIn, Map<String, ?> elabParamsIn, int fetchSizeIn,
+            PreparedStatement statementIn, ResultSet resultSetIn) {
+        mode = modeIn;
+        elabParams = elabParamsIn != null ? elabParamsIn : Collections.emptyMap();
+        fetchSize = fetchSizeIn;
+        statement = statementIn;
+        resultSet = resultSetIn;
+        String className = mode.getClassString();
+        try {
+            ResultSetMetaData rsmd = resultSet.getMetaData();
+            columns = new ArrayList<String>(rsmd.getColumnCount());
+            for (int i = 1; i <= rsmd.getColumnCount(); i++) {
+                columns.add(rsmd.getColumnName(i).toLowerCase());
+            }
+            if (className != null && !className.equals("java.util.Map")) {
+                clazz = Class.forName(className);
+                mapper = RowMapper.forClass(clazz, columns);
+            }
+            else {
+                clazz = null;
+                mapper = null;
+            }
+        }
+        catch (SQLException e) {
+            close();
+            throw SqlExceptionTranslator.sqlException(e);
+        }
+        catch (ClassNotFoundException e) {
+            close();
+            throw new ObjectCreateWrapperException("Could not create " + className, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        if (position < chunk.size()) {
+            return true;
+        }
+        if (exhausted) {
+            return false;
+        }
+        fetchChunk();
+        return position < chunk.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return chunk.get(position++);
+    }
+
+    /**
+     * Releases the cursor and the statement. Rows already handed out stay valid.
+     */
+    @Override
+    public void close() {
+        if (!exhausted) {
+            exhausted = true;
+            HibernateHelper.cleanupDB(resultSet, statement);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fetchChunk() {
+        List<T> rows = new ArrayList<T>(fetchSize);
+        try {
+            while (rows.size() < fetchSize && resultSet.next()) {
+                rows.add((T) readRow());
+            }
+        }
+        catch (SQLException e) {
+            close();
+            throw SqlExceptionTranslator.sqlException(e);
+        }
+        if (rows.size() < fetchSize) {
+            close();
+        }
+        if (!rows.isEmpty()) {
+            mode.elaborate(rows, elabParams);
+        }
+        chunk = rows;
+        position = 0;
+    }
+
+    private Object readRow() throws SQLException {
+        if (mapper == null) {
+            Map<String, Object> row = new HashMap<String, Object>();
+            for (int i = 0; i < columns.size(); i++) {
+                row.put(columns.get(i), RowMapper.getObject(resultSet, i + 1));
+            }
+            return row;
+        }
+        try {
+            Object obj = clazz.newInstance();
+            mapper.map(resultSet, obj, Collections.<String>emptyList());
+            return obj;
+        }
+        catch (InstantiationException | IllegalAccessException e) {
+            close();
+            throw new ObjectCreateWrapperException("Could not create " + clazz.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.db.datasource;
+
+import java.util.regex.Pattern;
+
+/**
+ * The page of a query to be returned by the database, along with how it is filtered
+ * and sorted. Columns are the names of columns in the select list of the query.
+ *
+ * @version $Rev$
+ */
+public class Pagination {
+
+    private static final Pattern COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private String sortColumn;
+    private boolean ascending = true;
+    private String keyColumn;
+    private String filterColumn;
+    private String filterValue;
+    private int offset;
+    private int limit;
+
+    /**
+     * @return the column to sort by, or null for no sorting
+     */
+    public String getSortColumn() {
+        return sortColumn;
+    }
+
+    /**
+     * @param column the column to sort by, or null for no sorting
+     */
+    public void setSortColumn(String column) {
+        sortColumn = checkColumn(column);
+    }
+
+    /**
+     * @return true if sorting in ascending order
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * @param ascendingIn true to sort in ascending order
+     */
+    public void setAscending(boolean ascendingIn) {
+        ascending = ascendingIn;
+    }
+
+    /**
+     * @return the unique column sorted by last, so that pages do not overlap
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    /**
+     * @param column the unique column sorted by last, so that pages do not overlap
+     */
+    public void setKeyColumn(String column) {
+        keyColumn = checkColumn(column);
+    }
+
+    /**
+     * @return the column to filter on, or null for no filtering
+     */
+    public String getFilterColumn() {
+        return filterColumn;
+    }
+
+    /**
+     * @return the text the filter column has to contain, ignoring case
+     */
+    public String getFilterValue() {
+        return filterValue;
+    }
+
+    /**
+     * Only keeps the rows whose column contains the given text, ignoring case.
+     * @param column the column to filter on, or null for no filtering
+     * @param value the text the column has to contain
+     */
+    public void setFilter(String column, String value) {
+        filterColumn = checkColumn(column);
+        filterValue = value;
+    }
+
+    /**
+     * @return the number of rows skipped
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @param offsetIn the number of rows skipped
+     */
+    public void setOffset(int offsetIn) {
+        if (offsetIn < 0) {
+            throw new IllegalArgumentException("offset must be >= 0");
+        }
+        offset = offsetIn;
+    }
+
+    /**
+     * @return the maximum number of rows returned, zero (0) is unlimited
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param limitIn the maximum number of rows returned, zero (0) is unlimited
+     */
+    public void setLimit(int limitIn) {
+        if (limitIn < 0) {
+            throw new IllegalArgumentException("limit must be >= 0");
+        }
+        limit = limitIn;
+    }
+
+    /**
+     * Returns the LIKE pattern matching the filter value anywhere in a column
+     * @return the pattern
+     */
+    String getFilterPattern() {
+        String escaped = filterValue.replace("\\", "\\\\").replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped.toUpperCase() + "%";
+    }
+
+    // columns are concatenated into the SQL statement, so they must be plain names
+    private static String checkColumn(String column) {
+        if (column != null && !COLUMN.matcher(column).matches()) {
+            throw new IllegalArgumentException("Invalid column name: " + column);
+        }
+        return column;
+    }
+}
@@ -0,0 +1,297 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.db.datasource;
+
+import com.redhat.rhn.common.MethodInvocationException;
+import com.redhat.rhn.common.translation.TranslationException;
+import com.redhat.rhn.common.translation.Translator;
+import com.redhat.rhn.common.util.MethodUtil;
+import com.redhat.rhn.common.util.StringUtil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps result set rows to DTO objects without per-row reflection.
+ *
+ * A mapper is built once per DTO class and list of result columns and is cached. It binds
+ * each column ordinal to the setter that {@link MethodUtil#callMethod} would pick for the
+ * column ("set" + beanified column name) and invokes it through a {@link MethodHandle}.
+ * Setters are resolved lazily for each runtime type of the column values, so overloaded
+ * setters and {@link Translator} conversions behave exactly as with MethodUtil, which is
+ * still used as a fallback for values that cannot be handled by the cached resolution.
+ */
+public class RowMapper {
+
+    private static final Map<String, RowMapper> MAPPERS = new ConcurrentHashMap<>();
+    private static final MethodType SETTER_TYPE =
+            MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType GETTER_TYPE =
+            MethodType.methodType(Object.class, Object.class);
+
+    private final Class<?> clazz;
+    private final ColumnMapper[] columns;
+
+    private RowMapper(Class<?> clazzIn, List<String> columnNames) {
+        clazz = clazzIn;
+        Method[] methods = clazzIn.getMethods();
+        columns = new ColumnMapper[columnNames.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnMapper(i + 1, columnNames.get(i).toLowerCase(), methods);
+        }
+    }
+
+    /**
+     * Returns the mapper for the given class and result columns, building it if needed.
+     * @param clazz the DTO class
+     * @param columnNames the lower case column names, in result set order
+     * @return the mapper
+     */
+    public static RowMapper forClass(Class<?> clazz, List<String> columnNames) {
+        String key = clazz.getName() + ":" + String.join(",", columnNames);
+        RowMapper mapper = MAPPERS.get(key);
+        if (mapper == null || mapper.clazz != clazz) {
+            mapper = new RowMapper(clazz, columnNames);
+            MAPPERS.put(key, mapper);
+        }
+        return mapper;
+    }
+
+    /**
+     * Sets the values of the current row on the given object.
+     * @param rs the result set, positioned on a row
+     * @param obj the object to populate
+     * @param columnSkip lower case names of the columns to skip
+     * @throws SQLException if reading the result set fails
+     */
+    public void map(ResultSet rs, Object obj, List<String> columnSkip) throws SQLException {
+        for (ColumnMapper column : columns) {
+            if (!columnSkip.isEmpty() && columnSkip.contains(column.name)) {
+                continue;
+            }
+            column.map(rs, obj);
+        }
+    }
+
+    /**
+     * Basically a wrapper to rs.getObject, except that it returns a timestamp
+     * if the column returned is a date and a Long if the column returned is a
+     * BigDecimal. Same as CachedStatement does for column names.
+     * @param rs the sql result set
+     * @param index the index of the column to be returned
+     * @return the column value
+     * @throws SQLException if rs.getObject/rs.getTimestamp raise an exception.
+     */
+    public static Object getObject(ResultSet rs, int index) throws SQLException {
+        Object columnValue = rs.getObject(index);
+        if (columnValue == null) {
+            return null;
+        }
+
+        String className = columnValue.getClass().getCanonicalName();
+        if (columnValue instanceof Date ||
+                "oracle.sql.TIMESTAMPLTZ".equals(className) ||
+                "oracle.sql.TIMESTAMP".equals(className) ||
+                "oracle.sql.TIMESTAMPTZ".equals(className)) {
+            return rs.getTimestamp(index);
+        }
+        else if (columnValue instanceof BigDecimal) {
+            return rs.getLong(index);
+        }
+        return columnValue;
+    }
+
+    /**
+     * A setter bound to a parameter type, possibly requiring a value conversion.
+     */
+    private static final class Setter {
+        private final MethodHandle handle;
+        private final Class<?> paramType;
+        private final boolean convert;
+
+        Setter(MethodHandle handleIn, Class<?> paramTypeIn, boolean convertIn) {
+            handle = handleIn;
+            paramType = paramTypeIn;
+            convert = convertIn;
+        }
+    }
+
+    /* Marks value types for which no setter could be resolved in advance */
+    private static final Setter UNRESOLVED = new Setter(null, null, false);
+
+    /**
+     * Maps a single column.
+     */
+    private static final class ColumnMapper {
+        private final int index;
+        private final String name;
+        private final String setName;
+        private final String getName;
+        private final Method[] setters;
+        private final MethodHandle getter;
+        private final boolean isList;
+        private final Map<Class<?>, Setter> resolved = new ConcurrentHashMap<>();
+        private volatile Setter nullSetter;
+
+        ColumnMapper(int indexIn, String nameIn, Method[] methods) {
+            index = indexIn;
+            name = nameIn;
+            setName = StringUtil.beanify("set " + nameIn);
+            getName = StringUtil.beanify("get " + nameIn);
+
+            // keep getMethods() order, as MethodUtil picks the first compatible method
+            List<Method> candidates = new ArrayList<>();
+            Method firstSetter = null;
+            MethodHandle getterHandle = null;
+            for (Method m : methods) {
+                if (m.getName().equals(setName)) {
+                    if (firstSetter == null) {
+                        firstSetter = m;
+                    }
+                    if (m.getParameterCount() == 1) {
+                        candidates.add(m);
+                    }
+                }
+                else if (getterHandle == null && m.getName().equals(getName) &&
+                        m.getParameterCount() == 0) {
+                    getterHandle = unreflect(m, GETTER_TYPE);
+                }
+            }
+            setters = candidates.toArray(new Method[candidates.size()]);
+            getter = getterHandle;
+            isList = firstSetter != null && firstSetter.getParameterCount() > 0 &&
+                    Collection.class.isAssignableFrom(firstSetter.getParameterTypes()[0]);
+        }
+
+        @SuppressWarnings("unchecked")
+        void map(ResultSet rs, Object obj) throws SQLException {
+            Object value = getObject(rs, index);
+            if (isList && getter != null) {
+                Collection<Object> c = (Collection<Object>) invokeGetter(obj);
+                if (c == null) {
+                    c = new ArrayList<Object>();
+                }
+                c.add(value);
+                set(obj, c);
+            }
+            else if (isList) {
+                // no getter: let MethodUtil report the problem as before
+                MethodUtil.callMethod(obj, getName, new Object[0]);
+            }
+            else {
+                set(obj, value);
+            }
+        }
+
+        private Object invokeGetter(Object obj) {
+            try {
+                return (Object) getter.invokeExact(obj);
+            }
+            catch (RuntimeException | Error e) {
+                throw e;
+            }
+            catch (Throwable t) {
+                throw new MethodInvocationException("Something bad happened when " +
+                        "calling " + getName, t);
+            }
+        }
+
+        private void set(Object obj, Object value) {
+            Setter setter = value == null ? nullSetter : resolved.get(value.getClass());
+            if (setter == null) {
+                setter = resolve(value);
+                if (value == null) {
+                    nullSetter = setter;
+                }
+                else {
+                    resolved.put(value.getClass(), setter);
+                }
+            }
+            if (setter == UNRESOLVED) {
+                MethodUtil.callMethod(obj, setName, value);
+                return;
+            }
+
+            Object arg = value;
+            if (setter.convert) {
+                try {
+                    arg = Translator.convert(value, setter.paramType);
+                }
+                catch (TranslationException e) {
+                    // the conversion depends on the value, do the full lookup
+                    MethodUtil.callMethod(obj, setName, value);
+                    return;
+                }
+            }
+            try {
+                setter.handle.invokeExact(obj, arg);
+            }
+            catch (ClassCastException e) {
+                if (!setter.convert) {
+                    throw e;
+                }
+                // the converted value does not fit the parameter, do the full lookup
+                MethodUtil.callMethod(obj, setName, value);
+            }
+            catch (RuntimeException | Error e) {
+                throw e;
+            }
+            catch (Throwable t) {
+                throw new MethodInvocationException("Something bad happened when " +
+                        "calling " + setName, t);
+            }
+        }
+
+        /**
+         * Finds the setter MethodUtil would call for a value of this runtime type: the
+         * first setter, either directly or with a conversion of the value.
+         */
+        private Setter resolve(Object value) {
+            if (setters.length == 0) {
+                return UNRESOLVED;
+            }
+            Method m = setters[0];
+            Class<?> type = m.getParameterTypes()[0];
+            if ((value == null && !type.isPrimitive()) || type.isInstance(value)) {
+                return new Setter(unreflect(m, SETTER_TYPE), type, false);
+            }
+            if (value == null) {
+                // conversions of null values are left to MethodUtil
+                return UNRESOLVED;
+            }
+            return new Setter(unreflect(m, SETTER_TYPE), type, true);
+        }
+
+        private static MethodHandle unreflect(Method m, MethodType type) {
+            try {
+                return MethodHandles.publicLookup().unreflect(m).asType(type);
+            }
+            catch (IllegalAccessException e) {
+                throw new MethodInvocationException("Could not access " + m.getName(), e);
+            }
+        }
+    }
+}
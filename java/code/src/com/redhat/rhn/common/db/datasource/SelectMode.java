@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A cached set of query/elaborator strings and the parameterMap hash maps.
@@ -117,6 +118,68 @@ public class SelectMode extends BaseMode implements Serializable {
         return getQuery().execute(parameters, inClause, this);
     }
 
+    /**
+     * Executes the query using the given parameters, streaming its results.
+     * Rows are read from a server side cursor and elaborated fetchSize rows at a
+     * time, so memory usage does not depend on the size of the result. The
+     * returned iterator must be closed, and it is only valid while the current
+     * transaction is open.
+     * @param parameters Query parameters, also used for elaboration.
+     * @param fetchSize number of rows to be fetched and elaborated at once.
+     * @param <T> the type of the result rows
+     * @return closeable iterator over the results of the query.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> DataResultIterator<T> stream(Map<String, ?> parameters, int fetchSize) {
+        return (DataResultIterator<T>) getQuery().stream(parameters, this, fetchSize);
+    }
+
+    /**
+     * Executes the query using the given parameters, letting the database filter,
+     * sort and cut the results to the given page. Rows are not elaborated.
+     * @param parameters Query parameters.
+     * @param page the page of the results to return.
+     * @return DataResult containing the rows of the page.
+     */
+    public DataResult executePage(Map<String, ?> parameters, Pagination page) {
+        return getQuery().executePage(parameters, this, page);
+    }
+
+    /**
+     * Counts the results of the query using the given parameters, filtered by
+     * the database.
+     * @param parameters Query parameters.
+     * @param page the filter to apply, sorting and limits are ignored.
+     * @return the number of rows the query returns.
+     */
+    public int executeCount(Map<String, ?> parameters, Pagination page) {
+        return getQuery().executeCount(parameters, page);
+    }
+
+    /**
+     * Returns the distinct first characters of a column of the query results,
+     * in upper case, as used by alphabetical navigation.
+     * @param parameters Query parameters.
+     * @param page the filter to apply, sorting and limits are ignored.
+     * @param column the column.
+     * @return the first characters of the column.
+     */
+    public Set<Character> executeInitials(Map<String, ?> parameters, Pagination page,
+            String column) {
+        return getQuery().executeInitials(parameters, page, column);
+    }
+
+    /**
+     * Prepares the query to be run later with the given parameters, for consumers
+     * that restart the query of a DataResult, like the CSV export.
+     * @param parameters Query parameters.
+     * @return an empty DataResult of this mode.
+     */
+    public DataResult prepare(Map<String, ?> parameters) {
+        getQuery().prepareRestart(parameters, this);
+        return new DataResult(this);
+    }
+
     /**
      * Elaborates a list by calling the elaboration queries with the given
      * parameters.
@@ -36,7 +36,9 @@ import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.db.datasource.CallableMode;
 import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.DataResultIterator;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.Pagination;
 import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
@@ -317,6 +319,85 @@ public class AdvDataSourceTest extends RhnBaseTestCase {
         }
     }
 
+    public void testStreamWithElaboration() throws Exception {
+        int startId = 1000;
+        int endId = startId + 250;
+
+        for (int i = startId; i < endId; i++) {
+            insert("foobar" + TestUtils.randomString(), i);
+        }
+        SelectMode m = ModeFactory.getMode("test_queries", "find_all_in_table");
+        DataResult<AdvDataSourceDto> dr = m.execute(Collections.EMPTY_MAP);
+
+        List<AdvDataSourceDto> streamed = new ArrayList<AdvDataSourceDto>();
+        try (DataResultIterator<AdvDataSourceDto> it =
+                m.stream(Collections.emptyMap(), 100)) {
+            while (it.hasNext()) {
+                AdvDataSourceDto row = it.next();
+                assertNotNull(row.getTestColumn());
+                assertNotNull(row.getPin());
+                assertNotNull(row.getFoobar());
+                streamed.add(row);
+            }
+            assertFalse(it.hasNext());
+        }
+        assertEquals(dr.size(), streamed.size());
+    }
+
+    public void testStreamInvalidFetchSize() {
+        SelectMode m = ModeFactory.getMode("test_queries", "find_all_in_table");
+        try {
+            m.stream(Collections.emptyMap(), 0);
+            fail("stream should NOT allow a fetch size of 0.");
+        }
+        catch (IllegalArgumentException e) {
+            // expected.
+        }
+    }
+
+    public void testPaginatedQueries() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            insert(String.format("paged_%02d", i), 1000 + i);
+        }
+        insert("unpaged", 1030);
+
+        SelectMode m = ModeFactory.getMode("test_queries", "find_all_in_table");
+        Pagination page = new Pagination();
+        page.setFilter("foobar", "PAGED_");
+        page.setSortColumn("foobar");
+        page.setAscending(false);
+        page.setKeyColumn("id");
+        page.setOffset(10);
+        page.setLimit(5);
+
+        assertEquals(30, m.executeCount(Collections.emptyMap(), page));
+        DataResult<AdvDataSourceDto> dr = m.executePage(Collections.emptyMap(), page);
+        assertEquals(5, dr.size());
+        assertEquals("paged_19", dr.get(0).getFoobar());
+        assertEquals("paged_15", dr.get(4).getFoobar());
+        assertEquals(11, dr.getStart());
+        assertEquals(15, dr.getEnd());
+
+        Set<Character> initials = m.executeInitials(Collections.emptyMap(), page,
+                "foobar");
+        assertEquals(Collections.singleton('P'), initials);
+
+        // a filter with wildcards only matches them literally
+        page.setFilter("foobar", "%");
+        assertEquals(0, m.executeCount(Collections.emptyMap(), page));
+    }
+
+    public void testPaginationInvalidColumn() {
+        Pagination page = new Pagination();
+        try {
+            page.setSortColumn("foobar; DROP TABLE adv_datasource");
+            fail("setSortColumn should NOT allow anything but a column name.");
+        }
+        catch (IllegalArgumentException e) {
+            // expected.
+        }
+    }
+
     public void testSelectInWithParams() throws Exception {
         SelectMode m = ModeFactory.getMode("test_queries", "select_in_withparams");
         List inclause = new ArrayList();
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.db.datasource.test;
+
+import com.redhat.rhn.common.db.datasource.RowMapper;
+import com.redhat.rhn.testing.RhnBaseTestCase;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link RowMapper}.
+ */
+public class RowMapperTest extends RhnBaseTestCase {
+
+    private static final List<String> COLUMNS =
+            Arrays.asList("id", "name", "created", "count", "tag", "flag");
+
+    public void testMapping() throws Exception {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        ResultSet rs = resultSet(new Object[] {
+                new BigDecimal(42), "foo", now, 3L, "tag1", 1L});
+
+        Dto dto = new Dto();
+        RowMapper.forClass(Dto.class, COLUMNS).map(rs, dto, Collections.emptyList());
+
+        assertEquals(Long.valueOf(42), dto.getId());
+        assertEquals("foo", dto.getName());
+        assertEquals(now, dto.getCreated());
+        assertEquals(3, dto.getCount());
+        assertEquals(Collections.singletonList("tag1"), dto.getTag());
+        assertTrue(dto.isFlag());
+    }
+
+    public void testNullsAndSkippedColumns() throws Exception {
+        ResultSet rs = resultSet(new Object[] {7L, null, null, 1L, "tag1", 0L});
+
+        Dto dto = new Dto();
+        dto.setName("keep");
+        RowMapper.forClass(Dto.class, COLUMNS).map(rs, dto, Arrays.asList("name"));
+
+        assertEquals(Long.valueOf(7), dto.getId());
+        assertEquals("keep", dto.getName());
+        assertNull(dto.getCreated());
+        assertFalse(dto.isFlag());
+    }
+
+    public void testListColumnsAccumulate() throws Exception {
+        RowMapper mapper = RowMapper.forClass(Dto.class, COLUMNS);
+        Dto dto = new Dto();
+        mapper.map(resultSet(new Object[] {1L, "a", null, 1L, "tag1", 0L}), dto,
+                Collections.emptyList());
+        mapper.map(resultSet(new Object[] {1L, "a", null, 1L, "tag2", 0L}), dto,
+                Collections.emptyList());
+        assertEquals(Arrays.asList("tag1", "tag2"), dto.getTag());
+    }
+
+    public void testMapperIsCached() {
+        assertSame(RowMapper.forClass(Dto.class, COLUMNS),
+                RowMapper.forClass(Dto.class, new ArrayList<>(COLUMNS)));
+        assertNotSame(RowMapper.forClass(Dto.class, COLUMNS),
+                RowMapper.forClass(Dto.class, Arrays.asList("id")));
+    }
+
+    /**
+     * Returns a result set positioned on a single row with the given values.
+     */
+    private static ResultSet resultSet(Object[] values) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    Object value = values[(Integer) args[0] - 1];
+                    switch (method.getName()) {
+                        case "getObject":
+                            return value;
+                        case "getTimestamp":
+                            return value;
+                        case "getLong":
+                            return ((Number) value).longValue();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * DTO with the kinds of setters found in the data source DTOs.
+     */
+    public static class Dto {
+        private Long id;
+        private String name;
+        private java.util.Date created;
+        private int count;
+        private List<String> tag;
+        private boolean flag;
+
+        /** @return the id */
+        public Long getId() {
+            return id;
+        }
+        /** @param idIn the id */
+        public void setId(Long idIn) {
+            id = idIn;
+        }
+        /** @return the name */
+        public String getName() {
+            return name;
+        }
+        /** @param nameIn the name */
+        public void setName(String nameIn) {
+            name = nameIn;
+        }
+        /** @return the creation date */
+        public java.util.Date getCreated() {
+            return created;
+        }
+        /** @param createdIn the creation date */
+        public void setCreated(java.util.Date createdIn) {
+            created = createdIn;
+        }
+        /** @return the count */
+        public int getCount() {
+            return count;
+        }
+        /** @param countIn the count */
+        public void setCount(int countIn) {
+            count = countIn;
+        }
+        /** @return the tags */
+        public List<String> getTag() {
+            return tag;
+        }
+        /** @param tagIn the tags */
+        public void setTag(List<String> tagIn) {
+            tag = tagIn;
+        }
+        /** @return the flag */
+        public boolean isFlag() {
+            return flag;
+        }
+        /** @param flagIn the flag */
+        public void setFlag(boolean flagIn) {
+            flag = flagIn;
+        }
+    }
+}
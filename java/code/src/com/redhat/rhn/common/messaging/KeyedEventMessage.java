@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.messaging;
+
+/**
+ * An {@link EventMessage} carrying a dispatch key. When the sharded dispatcher is in use,
+ * all messages with equal keys are routed to the same shard and therefore handled one
+ * at a time and in publishing order. Messages without a key are keyed by their class.
+ */
+public interface KeyedEventMessage extends EventMessage {
+
+    /**
+     * Returns the key used to select the dispatcher shard for this message.
+     * @return the dispatch key, or null to fall back to the message class
+     */
+    Object getDispatchKey();
+}
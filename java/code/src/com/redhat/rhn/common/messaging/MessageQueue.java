@@ -25,6 +25,8 @@ import EDU.oswego.cs.dl.util.concurrent.LinkedQueue;
 
 import com.redhat.rhn.frontend.events.CloneErrataAction;
 import com.redhat.rhn.frontend.events.CloneErrataEvent;
+import com.redhat.rhn.frontend.events.ExtendSessionsAction;
+import com.redhat.rhn.frontend.events.ExtendSessionsEvent;
 import com.redhat.rhn.frontend.events.NewCloneErrataAction;
 import com.redhat.rhn.frontend.events.NewCloneErrataEvent;
 import com.redhat.rhn.frontend.events.NewUserAction;
@@ -56,15 +58,20 @@ import com.redhat.rhn.frontend.events.SsmSystemRebootEvent;
 import com.redhat.rhn.frontend.events.SsmVerifyPackagesAction;
 import com.redhat.rhn.frontend.events.SsmVerifyPackagesEvent;
 
+import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.suse.manager.reactor.messaging.ChannelsChangedEventMessage;
 import com.suse.manager.reactor.messaging.ChannelsChangedEventMessageAction;
+import com.suse.manager.reactor.messaging.RegeneratePillarEventMessage;
+import com.suse.manager.reactor.messaging.RegeneratePillarEventMessageAction;
 import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A class that passes messages from the sender to an action class
@@ -77,12 +84,14 @@ public class MessageQueue {
      */
     private static Logger logger = Logger.getLogger(MessageQueue.class);
 
+    /* Handler lists are copy-on-write, so publishing never needs to lock */
     private static final Map<Class, List<MessageAction>> ACTIONS =
-            new HashMap<Class, List<MessageAction>>();
+            new ConcurrentHashMap<Class, List<MessageAction>>();
     private static Channel messages = new LinkedQueue();
     private static Thread dispatcherThread = null;
     private static MessageDispatcher dispatcher = null;
-    private static int messageCount;
+    private static volatile ShardedMessageDispatcher shardedDispatcher = null;
+    private static final AtomicInteger MESSAGE_COUNT = new AtomicInteger();
 
     /**
      * Util class so we don't have a usable constructor
@@ -103,22 +112,26 @@ public class MessageQueue {
             startMessaging();
         }
         if (msg != null) {
-            synchronized (ACTIONS) {
-                List<MessageAction> handlers = ACTIONS.get(msg.getClass());
-                if (handlers != null && handlers.size() > 0) {
-                    logger.debug("creating ActionExecutor");
-                    ActionExecutor executor = new ActionExecutor(handlers, msg);
+            List<MessageAction> handlers = ACTIONS.get(msg.getClass());
+            if (handlers != null && handlers.size() > 0) {
+                logger.debug("creating ActionExecutor");
+                ActionExecutor executor = new ActionExecutor(handlers, msg);
+                ShardedMessageDispatcher sharded = shardedDispatcher;
+                if (sharded != null) {
+                    sharded.dispatch(executor, msg);
+                }
+                else {
                     try {
                         messages.put(executor);
-                        messageCount++;
+                        MESSAGE_COUNT.incrementAndGet();
                     }
                     catch (InterruptedException e) {
                         logger.error(e.getMessage(), e);
                     }
                 }
-                else {
-                    logger.debug("handlers is null, not processing!");
-                }
+            }
+            else {
+                logger.debug("handlers is null, not processing!");
             }
         }
 
@@ -130,9 +143,7 @@ public class MessageQueue {
     static ActionExecutor popEventMessage() throws InterruptedException {
         ActionExecutor retval = (ActionExecutor) messages.poll(500);
         if (retval != null) {
-            synchronized (ACTIONS) {
-                messageCount--;
-            }
+            MESSAGE_COUNT.decrementAndGet();
         }
         return retval;
     }
@@ -147,6 +158,17 @@ public class MessageQueue {
         if (isMessaging()) {
             return;
         }
+        ConfigDefaults config = ConfigDefaults.get();
+        if (config.isMessageQueueSharded()) {
+            ShardedMessageDispatcher sharded = new ShardedMessageDispatcher(
+                    config.getMessageQueueShards(),
+                    config.getMessageQueueShardCapacity(),
+                    ShardedMessageDispatcher.OverflowPolicy.parse(
+                            config.getMessageQueueOverflowPolicy()));
+            sharded.start();
+            shardedDispatcher = sharded;
+            return;
+        }
         dispatcher = new MessageDispatcher();
         dispatcherThread = new Thread(dispatcher);
         dispatcherThread.setName("RHN Message Dispatcher");
@@ -164,7 +186,13 @@ public class MessageQueue {
         if (logger.isDebugEnabled()) {
             logger.debug("stopMessaging() - start");
         }
-        dispatcher.stop();
+        if (shardedDispatcher != null) {
+            shardedDispatcher.stop();
+            shardedDispatcher = null;
+        }
+        else if (dispatcher != null) {
+            dispatcher.stop();
+        }
         if (logger.isDebugEnabled()) {
             logger.debug("stopMessaging() - end");
         }
@@ -175,7 +203,16 @@ public class MessageQueue {
      * @return int number of messages in queue.
      */
     public static int getMessageCount() {
-        return messageCount;
+        ShardedMessageDispatcher sharded = shardedDispatcher;
+        return sharded != null ? sharded.getPendingCount() : MESSAGE_COUNT.get();
+    }
+
+    /**
+     * Get the sharded dispatcher, if the queue is running in sharded mode.
+     * @return the sharded dispatcher or null
+     */
+    public static ShardedMessageDispatcher getShardedDispatcher() {
+        return shardedDispatcher;
     }
 
     /**
@@ -188,14 +225,8 @@ public class MessageQueue {
             logger.debug("registerAction(MessageAction, Class) - : " + act +
                     " class: " + eventType.getName());
         }
-        synchronized (ACTIONS) {
-            List<MessageAction> handlers = ACTIONS.get(eventType);
-            if (handlers == null) {
-                handlers = new ArrayList<MessageAction>();
-                ACTIONS.put(eventType, handlers);
-            }
-            handlers.add(act);
-        }
+        ACTIONS.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<MessageAction>())
+                .add(act);
     }
 
     /**
@@ -207,8 +238,8 @@ public class MessageQueue {
         if (logger.isDebugEnabled()) {
             logger.debug("deRegisterAction(MessageAction, Class) - start");
         }
-        synchronized (ACTIONS) {
-            List<MessageAction> handlers = ACTIONS.get(eventType);
+        List<MessageAction> handlers = ACTIONS.get(eventType);
+        if (handlers != null) {
             handlers.remove(act);
         }
         if (logger.isDebugEnabled()) {
@@ -226,15 +257,14 @@ public class MessageQueue {
             logger.debug("getRegisteredEventNames() - start");
         }
         String[] retval = null;
-        synchronized (ACTIONS) {
-            if (ACTIONS.keySet().size() > 0) {
-                retval = new String[ACTIONS.keySet().size()];
-                int index = 0;
-                for (Iterator<Class> iter = ACTIONS.keySet().iterator(); iter.hasNext();) {
-                    Class klazz = iter.next();
-                    retval[index] = klazz.getName();
-                    index++;
-                }
+        List<Class> eventTypes = new ArrayList<Class>(ACTIONS.keySet());
+        if (eventTypes.size() > 0) {
+            retval = new String[eventTypes.size()];
+            int index = 0;
+            for (Iterator<Class> iter = eventTypes.iterator(); iter.hasNext();) {
+                Class klazz = iter.next();
+                retval[index] = klazz.getName();
+                index++;
             }
         }
 
@@ -250,6 +280,10 @@ public class MessageQueue {
      * @return boolean true if MessageQueue is running.
      */
     public static boolean isMessaging() {
+        ShardedMessageDispatcher sharded = shardedDispatcher;
+        if (sharded != null) {
+            return !sharded.isStopped();
+        }
         return (dispatcher != null && !dispatcher.isStopped());
     }
 
@@ -322,6 +356,14 @@ public class MessageQueue {
         // Handle changes of channel assignments on minions
         MessageQueue.registerAction(new ChannelsChangedEventMessageAction(),
                 ChannelsChangedEventMessage.class);
+
+        // Regenerate the pillars of minions in bulk
+        MessageQueue.registerAction(new RegeneratePillarEventMessageAction(),
+                RegeneratePillarEventMessage.class);
+
+        // Write the lifetime extensions of API sessions in bulk
+        MessageQueue.registerAction(new ExtendSessionsAction(),
+                ExtendSessionsEvent.class);
     }
 }
 
@@ -0,0 +1,358 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.messaging;
+
+import com.redhat.rhn.frontend.events.TraceBackAction;
+import com.redhat.rhn.frontend.events.TraceBackEvent;
+
+import com.suse.manager.metrics.PrometheusExporter;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Alternative to {@link MessageDispatcher} spreading messages over a fixed number of
+ * shards, each one with its own bounded queue and worker thread.
+ *
+ * Messages are assigned to shards by key (see {@link KeyedEventMessage}), so messages
+ * sharing a key are executed sequentially and in publishing order, while messages with
+ * different keys can be executed in parallel. Messages whose actions cannot run
+ * concurrently are always routed to the first shard, so they never overlap each other
+ * as with the single threaded dispatcher.
+ *
+ * When a shard queue is full the configured {@link OverflowPolicy} is applied.
+ */
+public class ShardedMessageDispatcher {
+
+    private static Logger log = Logger.getLogger(ShardedMessageDispatcher.class);
+
+    /* A warning is logged if a shard queue is growing bigger than this */
+    private static final int QUEUE_SIZE_WARNING_THRESHOLD = 100;
+
+    /**
+     * What to do with a message when the target shard queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait until there is room in the shard queue */
+        BLOCK,
+        /** Execute the message in the publishing thread */
+        CALLER_RUNS,
+        /** Log and drop the message */
+        DISCARD;
+
+        /**
+         * Parses a policy from its configuration value, defaulting to BLOCK.
+         * @param value the configuration value
+         * @return the policy
+         */
+        public static OverflowPolicy parse(String value) {
+            for (OverflowPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value)) {
+                    return policy;
+                }
+            }
+            log.warn("Unknown message queue overflow policy: " + value + ", using BLOCK");
+            return BLOCK;
+        }
+    }
+
+    private final Shard[] shards;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean isStopped = true;
+
+    /**
+     * Constructor.
+     * @param shardCount the number of shards (and worker threads)
+     * @param capacity the maximum number of pending messages per shard
+     * @param overflowPolicyIn the policy to apply when a shard is full
+     */
+    public ShardedMessageDispatcher(int shardCount, int capacity,
+            OverflowPolicy overflowPolicyIn) {
+        if (shardCount < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Shard count and capacity must be positive");
+        }
+        overflowPolicy = overflowPolicyIn;
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, capacity);
+        }
+    }
+
+    /**
+     * Starts the shard worker threads.
+     */
+    public synchronized void start() {
+        if (!isStopped) {
+            return;
+        }
+        isStopped = false;
+        for (Shard shard : shards) {
+            shard.start();
+        }
+
+        // register the dispatcher for exporting metrics, as the single queue dispatcher does
+        PrometheusExporter.INSTANCE.registerShardedMessageDispatcher(this, "message_queue");
+        log.info("Started sharded message dispatcher (shards: " + shards.length +
+                ", overflow policy: " + overflowPolicy + ")");
+    }
+
+    /**
+     * Signals the dispatcher to stop. Pending messages are still executed, waiting
+     * for at most one minute.
+     */
+    public synchronized void stop() {
+        isStopped = true;
+        log.info("Awaiting termination of shards (for 1 minute)");
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        try {
+            for (Shard shard : shards) {
+                shard.join(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        }
+        catch (InterruptedException e) {
+            log.error("Interrupted while awaiting termination", e);
+        }
+    }
+
+    /**
+     * Returns the current stop state
+     * @return true if stopped, else false
+     */
+    public boolean isStopped() {
+        return isStopped;
+    }
+
+    /**
+     * Returns the number of shards.
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the number of messages waiting to be executed in the given shard.
+     * @param shard the shard index
+     * @return the number of pending messages
+     */
+    public int getPendingCount(int shard) {
+        return shards[shard].queue.size();
+    }
+
+    /**
+     * Returns the number of messages waiting to be executed in all shards.
+     * @return the number of pending messages
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of messages dropped because of full shard queues.
+     * @return the number of discarded messages
+     */
+    public long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    /**
+     * Returns the number of messages ever queued or executed by a publishing thread.
+     * @return the number of submitted messages
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * Returns the number of messages ever executed.
+     * @return the number of completed messages
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * Returns the number of messages being executed right now.
+     * @return the number of running messages
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * Returns the index of the shard handling messages with the given key.
+     * @param key the dispatch key
+     * @return the shard index
+     */
+    public int shardFor(Object key) {
+        // spread the hash bits as HashMap does, then map to a non-negative index
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return (h & Integer.MAX_VALUE) % shards.length;
+    }
+
+    /**
+     * Queues an executor for the given message.
+     * @param executor the executor wrapping message and handlers
+     * @param msg the published message
+     */
+    void dispatch(ActionExecutor executor, EventMessage msg) {
+        Shard shard = executor.canRunConcurrently() ? shards[shardFor(keyOf(msg))] : shards[0];
+        if (shard.queue.offer(executor)) {
+            submitted.incrementAndGet();
+            int queueSize = shard.queue.size();
+            if (queueSize >= QUEUE_SIZE_WARNING_THRESHOLD && log.isDebugEnabled()) {
+                log.debug("Shard " + shard.index + " queue size is: " + queueSize);
+            }
+            return;
+        }
+
+        OverflowPolicy policy = overflowPolicy;
+        if (policy == OverflowPolicy.BLOCK && isShardThread()) {
+            // blocking a shard on a (possibly its own) full queue could deadlock
+            policy = OverflowPolicy.CALLER_RUNS;
+        }
+        switch (policy) {
+            case BLOCK:
+                try {
+                    shard.queue.put(executor);
+                    submitted.incrementAndGet();
+                }
+                catch (InterruptedException e) {
+                    log.error("Interrupted while waiting for shard " + shard.index, e);
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            case CALLER_RUNS:
+                log.warn("Shard " + shard.index + " is full, executing in caller: " +
+                        executor);
+                submitted.incrementAndGet();
+                execute(executor);
+                break;
+            default:
+                discarded.incrementAndGet();
+                log.error("Shard " + shard.index + " is full, discarding: " + executor);
+                break;
+        }
+    }
+
+    private static Object keyOf(EventMessage msg) {
+        Object key = null;
+        if (msg instanceof KeyedEventMessage) {
+            key = ((KeyedEventMessage) msg).getDispatchKey();
+        }
+        return key != null ? key : msg.getClass();
+    }
+
+    private boolean isShardThread() {
+        Thread current = Thread.currentThread();
+        for (Shard shard : shards) {
+            if (shard.thread == current) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void execute(ActionExecutor executor) {
+        active.incrementAndGet();
+        try {
+            executor.run();
+        }
+        catch (Throwable t) {
+            // better log this puppy to let folks know we have a problem
+            // but keep the shard running.
+            log.error("Error occurred with an event in the MessageQueue", t);
+
+            try {
+                // WARNING! DO NOT PUBLISH THE EVENT TO THE QUEUE!
+                TraceBackEvent evt = new TraceBackEvent();
+                evt.setUser(null);
+                evt.setRequest(null);
+                evt.setException(t);
+
+                TraceBackAction tba = new TraceBackAction();
+                tba.execute(evt);
+            }
+            catch (Throwable t1) {
+                log.error("Error sending traceback email, logging for posterity.", t1);
+            }
+        }
+        finally {
+            active.decrementAndGet();
+            completed.incrementAndGet();
+        }
+    }
+
+    /**
+     * A single shard: a bounded queue drained by one worker thread.
+     */
+    private class Shard implements Runnable {
+
+        private final int index;
+        private final BlockingQueue<ActionExecutor> queue;
+        private volatile Thread thread;
+
+        Shard(int indexIn, int capacity) {
+            index = indexIn;
+            queue = new ArrayBlockingQueue<ActionExecutor>(capacity);
+        }
+
+        void start() {
+            thread = new Thread(this);
+            thread.setName("RHN Message Dispatcher-" + index);
+            thread.setDaemon(false);
+            thread.start();
+        }
+
+        void join(long millis) throws InterruptedException {
+            Thread t = thread;
+            if (t != null) {
+                t.join(millis);
+            }
+        }
+
+        /**
+         * Executes messages until the dispatcher is stopped and the queue is drained.
+         */
+        public void run() {
+            while (!isStopped || !queue.isEmpty()) {
+                try {
+                    ActionExecutor executor = queue.poll(500, TimeUnit.MILLISECONDS);
+                    if (executor != null) {
+                        execute(executor);
+                    }
+                }
+                catch (InterruptedException e) {
+                    log.error("Error occurred in the MessageQueue shard " + index, e);
+                    return;
+                }
+            }
+        }
+    }
+}
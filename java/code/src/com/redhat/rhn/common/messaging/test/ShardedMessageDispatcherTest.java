@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.messaging.test;
+
+import com.redhat.rhn.common.conf.Config;
+import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.common.messaging.EventMessage;
+import com.redhat.rhn.common.messaging.KeyedEventMessage;
+import com.redhat.rhn.common.messaging.MessageAction;
+import com.redhat.rhn.common.messaging.MessageQueue;
+import com.redhat.rhn.common.messaging.ShardedMessageDispatcher;
+import com.redhat.rhn.common.messaging.ShardedMessageDispatcher.OverflowPolicy;
+import com.redhat.rhn.testing.RhnBaseTestCase;
+
+import com.suse.manager.metrics.ShardedMessageDispatcherCollector;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link ShardedMessageDispatcher}.
+ */
+public class ShardedMessageDispatcherTest extends RhnBaseTestCase {
+
+    private static final int KEYS = 8;
+    private static final int MESSAGES_PER_KEY = 50;
+
+    private final Map<String, List<Integer>> received = new HashMap<String, List<Integer>>();
+    private final MessageAction action = new KeyedAction();
+    private String previousDispatcher;
+    private String previousShards;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        MessageQueue.stopMessaging();
+        previousDispatcher = Config.get().getString(ConfigDefaults.MESSAGE_QUEUE_DISPATCHER);
+        previousShards = Config.get().getString(ConfigDefaults.MESSAGE_QUEUE_SHARDS);
+        Config.get().setString(ConfigDefaults.MESSAGE_QUEUE_DISPATCHER, "sharded");
+        Config.get().setString(ConfigDefaults.MESSAGE_QUEUE_SHARDS, "4");
+        MessageQueue.registerAction(action, KeyedMessage.class);
+        MessageQueue.startMessaging();
+    }
+
+    protected void tearDown() throws Exception {
+        MessageQueue.deRegisterAction(action, KeyedMessage.class);
+        MessageQueue.stopMessaging();
+        restore(ConfigDefaults.MESSAGE_QUEUE_DISPATCHER, previousDispatcher);
+        restore(ConfigDefaults.MESSAGE_QUEUE_SHARDS, previousShards);
+        super.tearDown();
+    }
+
+    private static void restore(String key, String value) {
+        if (value == null) {
+            Config.get().remove(key);
+        }
+        else {
+            Config.get().setString(key, value);
+        }
+    }
+
+    public void testShardedModeSelected() {
+        assertTrue(MessageQueue.isMessaging());
+        assertNotNull(MessageQueue.getShardedDispatcher());
+        assertEquals(4, MessageQueue.getShardedDispatcher().getShardCount());
+    }
+
+    public void testOrderingPerKey() throws Exception {
+        for (int i = 0; i < MESSAGES_PER_KEY; i++) {
+            for (int k = 0; k < KEYS; k++) {
+                MessageQueue.publish(new KeyedMessage("minion" + k, i));
+            }
+        }
+
+        int wait = 0;
+        while (countReceived() < KEYS * MESSAGES_PER_KEY && wait++ < 100) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(KEYS * MESSAGES_PER_KEY, countReceived());
+        synchronized (received) {
+            for (List<Integer> sequence : received.values()) {
+                List<Integer> sorted = new ArrayList<Integer>(sequence);
+                Collections.sort(sorted);
+                assertEquals(sorted, sequence);
+            }
+        }
+    }
+
+    public void testMetrics() throws Exception {
+        for (int k = 0; k < KEYS; k++) {
+            MessageQueue.publish(new KeyedMessage("minion" + k, 0));
+        }
+        ShardedMessageDispatcher dispatcher = MessageQueue.getShardedDispatcher();
+        int wait = 0;
+        while (dispatcher.getCompletedCount() < KEYS && wait++ < 100) {
+            Thread.sleep(100);
+        }
+
+        Map<String, Double> samples = new HashMap<String, Double>();
+        for (MetricFamilySamples family :
+                new ShardedMessageDispatcherCollector(dispatcher, "message_queue").collect()) {
+            for (MetricFamilySamples.Sample sample : family.samples) {
+                samples.put(sample.name + sample.labelValues, sample.value);
+            }
+        }
+        assertEquals(4.0, samples.get("message_queue_thread_pool_threads[]"));
+        assertEquals((double) KEYS, samples.get("message_queue_thread_pool_task_count[]"));
+        assertEquals((double) KEYS, samples.get("message_queue_thread_pool_completed_task_count[]"));
+        assertEquals(0.0, samples.get("message_queue_thread_pool_threads_active[]"));
+        assertEquals(0.0, samples.get("message_queue_discarded_task_count[]"));
+        assertEquals(0.0, samples.get("message_queue_shard_tasks_pending[3]"));
+    }
+
+    public void testShardForIsStable() {
+        ShardedMessageDispatcher dispatcher = MessageQueue.getShardedDispatcher();
+        int shard = dispatcher.shardFor("minion1");
+        assertEquals(shard, dispatcher.shardFor(new String("minion1")));
+        assertTrue(shard >= 0 && shard < dispatcher.getShardCount());
+        // negative hash codes must map to a valid shard too
+        int negative = dispatcher.shardFor(Integer.MIN_VALUE);
+        assertTrue(negative >= 0 && negative < dispatcher.getShardCount());
+    }
+
+    public void testParseOverflowPolicy() {
+        assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.parse("block"));
+        assertEquals(OverflowPolicy.CALLER_RUNS, OverflowPolicy.parse("CALLER_RUNS"));
+        assertEquals(OverflowPolicy.DISCARD, OverflowPolicy.parse("discard"));
+        assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.parse("whatever"));
+    }
+
+    private int countReceived() {
+        synchronized (received) {
+            int count = 0;
+            for (List<Integer> sequence : received.values()) {
+                count += sequence.size();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Message carrying a key and a sequence number.
+     */
+    public static class KeyedMessage implements KeyedEventMessage {
+
+        private final String key;
+        private final int sequence;
+
+        KeyedMessage(String keyIn, int sequenceIn) {
+            key = keyIn;
+            sequence = sequenceIn;
+        }
+
+        public Object getDispatchKey() {
+            return key;
+        }
+
+        public String toText() {
+            return key + ":" + sequence;
+        }
+
+        public Long getUserId() {
+            return null;
+        }
+    }
+
+    /**
+     * Concurrent action recording the sequence numbers it receives per key.
+     */
+    private class KeyedAction implements MessageAction {
+
+        public void execute(EventMessage msg) {
+            KeyedMessage keyed = (KeyedMessage) msg;
+            synchronized (received) {
+                List<Integer> sequence = received.get(keyed.key);
+                if (sequence == null) {
+                    sequence = new ArrayList<Integer>();
+                    received.put(keyed.key, sequence);
+                }
+                sequence.add(keyed.sequence);
+            }
+        }
+
+        @Override
+        public boolean canRunConcurrently() {
+            return true;
+        }
+    }
+}
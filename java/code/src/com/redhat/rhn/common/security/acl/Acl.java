@@ -32,11 +32,16 @@ import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.MethodDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class for handling ACLs.
@@ -157,6 +162,9 @@ import java.util.TreeSet;
  *      }
  *  }
  *  </pre>
+ *  ACL strings are parsed once and shared by all the Acl instances. Handler
+ *  results can be remembered for the duration of a request with
+ *  {@link #setResultCache(Map)}.
  * @version $Rev$
  */
 public class Acl {
@@ -189,7 +197,15 @@ public class Acl {
     private static Logger log = Logger.getLogger(Acl.class);
 
     /** Store acl handlers against keys referenced in acl statements */
-    private Map handlers = new HashMap();
+    private Map<String, InstanceMethodPair> handlers =
+            new HashMap<String, InstanceMethodPair>();
+
+    /** ACL strings already parsed into expressions of statements */
+    private static final Map<String, Statement[][]> PARSED_ACLS =
+            new ConcurrentHashMap<String, Statement[][]>();
+
+    /** Handler results by method, params and context, null to always call handlers */
+    private Map<Object, Boolean> resultCache;
 
     /** store the compiled regex that will be re-used for evalAcl invocations */
     private static Pattern parsePattern = null;
@@ -213,6 +229,14 @@ public class Acl {
         // default constructor with no acl handlers
     }
 
+    /**
+     * Creates a new Acl instance with the same ACL handlers as the given one.
+     * @param template the Acl whose handlers are registered
+     */
+    Acl(Acl template) {
+        handlers.putAll(template.handlers);
+    }
+
     /** Creates a new Acl instance with the specified default ACL handler
      * classes.
      * @param defaultHandlerClasses an array of handler classes. Each entry
@@ -374,6 +398,17 @@ public class Acl {
         return new TreeSet(handlers.keySet());
     }
 
+    /**
+     * Remembers the handler results of the following evaluations, so that a handler
+     * is called once for the same parameters and an equal context. The map is meant to
+     * live as long as the request the ACLs are evaluated for.
+     * @param resultCacheIn map to store the results in, null to always call the
+     * handlers
+     */
+    public void setResultCache(Map<Object, Boolean> resultCacheIn) {
+        resultCache = resultCacheIn;
+    }
+
     /** Evaluates an ACL string within a given context.
      *  See class description for sample usage.
      *  @param context context in which the acl string is evaluated
@@ -395,133 +430,180 @@ public class Acl {
                              "bad-syntax", acl));
         }
 
-        String[] expressions = acl.split(ACL_SPLIT_REGEX);
-        int exprLen = expressions.length;
-
+        Statement[][] expressions = PARSED_ACLS.computeIfAbsent(acl, Acl::parseAcl);
+        Object contextKey = resultCache == null ? null : contextKey(context);
         boolean result = false;
 
-        PatternMatcher matcher = new Perl5Matcher();
-
-        for (int exprIdx = 0; exprIdx < exprLen; ++exprIdx) {
-
-            String expression = expressions[exprIdx];
-
-            if (log.isDebugEnabled()) {
-                log.debug("expression[" + exprIdx + "]: " + expression);
-            }
-
-            String[] statements = expression.split(EXPR_SPLIT_REGEX);
-            int statementLen = statements.length;
-
-            for (int stmtIdx = 0; stmtIdx < statementLen; ++stmtIdx) {
+        for (Statement[] statements : expressions) {
 
-                String statement = statements[stmtIdx];
+            for (Statement statement : statements) {
 
                 if (log.isDebugEnabled()) {
-                    log.debug("statement[" + stmtIdx + "]: " + statement);
+                    log.debug("statement: " + statement.text);
                 }
 
-                boolean itMatches = matcher.matches(statement, parsePattern);
-                MatchResult matchResult = matcher.getMatch();
-                if (!itMatches || matchResult == null || matchResult.groups() <
-                        EXPECTED_GROUPS) {
-                    throw new IllegalArgumentException(
-                                  LocalizationService.getInstance().getMessage(
-                                     "bad-syntax", statement));
+                result = evalStatement(statement, context, contextKey);
+
+                if (statement.negated) {
+                    result = !result;
                 }
 
-                if (log.isDebugEnabled()) {
-                    log.debug("num groups: " + matchResult.groups());
-                    log.debug("not: " + matchResult.group(NEGATION_GROUP));
-                    log.debug("handler: " +
-                            matchResult.group(HANDLERNAME_GROUP));
-                    log.debug("params: " + matchResult.group(PARAM_GROUP));
+                // break if we hit true, since we're in an or's loop
+                if (result) {
+                    break;
                 }
+            }
 
-                boolean negated = matchResult.group(NEGATION_GROUP) != null;
+            // if we got a false, then return that, because we're in an
+            // and loop
+            if (!result) {
+                return result;
+            }
 
-                String func = matchResult.group(HANDLERNAME_GROUP);
+        }
 
-                String params = matchResult.group(PARAM_GROUP);
+        // if we got this far, all acl's passed
+        if (log.isDebugEnabled()) {
+            log.debug("acl: " + acl + " returning true");
+        }
+        return true;
 
-                InstanceMethodPair pair =
-                    (InstanceMethodPair)handlers.get(func);
+    }
 
-                if (pair == null) {
-                    Object[] args = new Object[3];
-                    args[0] = func;
-                    args[1] = statement;
-                    args[2] = new TreeSet(handlers.keySet()).toString();
-                    throw new IllegalArgumentException(
-                        LocalizationService.getInstance().getMessage(
-                            "bad-handler", args));
-                }
+    private boolean evalStatement(Statement statement, Object context, Object contextKey) {
+        if (statement.handlerName == null) {
+            throw new IllegalArgumentException(
+                          LocalizationService.getInstance().getMessage(
+                             "bad-syntax", statement.text));
+        }
 
-                Method handler = pair.getMethod();
+        InstanceMethodPair pair = handlers.get(statement.handlerName);
 
-                String[] paramArray = params.split(PARAM_SPLIT_REGEX);
+        if (pair == null) {
+            Object[] args = new Object[3];
+            args[0] = statement.handlerName;
+            args[1] = statement.text;
+            args[2] = new TreeSet(handlers.keySet()).toString();
+            throw new IllegalArgumentException(
+                LocalizationService.getInstance().getMessage(
+                    "bad-handler", args));
+        }
 
-                // if no args were givien, make sure we pass a 0-length array
-                if (paramArray.length == 1 && paramArray[0].trim().equals("")) {
-                    paramArray = new String[0];
-                }
+        if (resultCache == null) {
+            return pair.invoke(context, statement);
+        }
+        Object key = Arrays.asList(pair.getMethod(), Arrays.asList(statement.params),
+                contextKey);
+        Boolean result = resultCache.get(key);
+        if (result == null) {
+            result = pair.invoke(context, statement);
+            resultCache.put(key, result);
+        }
+        else if (log.isDebugEnabled()) {
+            log.debug("cached result for statement: " + statement.text);
+        }
+        return result;
+    }
 
-                try {
-                    result = ((Boolean)handler.invoke(pair.getInstance(),
-                        new Object[] {context, paramArray })).booleanValue();
-                }
-                // we shouldn't hit any of these exceptions, because the
-                // handler classes should have been adequately junit-tested
-                catch (IllegalAccessException iae) {
-                    Object[] args = new Object[3];
-                    args[0] = handler.getName();
-                    args[1] = statement;
-                    args[2] = iae.getMessage();
+    /**
+     * The context as part of a result cache key: maps are copied, as they might be
+     * changed between evaluations.
+     */
+    private static Object contextKey(Object context) {
+        if (context instanceof Map) {
+            return new HashMap((Map) context);
+        }
+        return context;
+    }
 
-                    throw new MethodInvocationException(
-                        LocalizationService.getInstance().getMessage(
-                        "illegal-access", args), iae);
-                }
-                catch (InvocationTargetException ite) {
-                    Object[] args = new Object[3];
-                    args[0] = handler.getName();
-                    args[1] = statement;
-                    args[2] = ite.getMessage();
+    /**
+     * Splits an ACL string into expressions of statements. Statements with a bad
+     * syntax are kept, so that they fail only if they are evaluated.
+     */
+    private static Statement[][] parseAcl(String acl) {
+        String[] expressions = acl.split(ACL_SPLIT_REGEX);
+        Statement[][] parsed = new Statement[expressions.length][];
+        PatternMatcher matcher = new Perl5Matcher();
 
-                    throw new MethodInvocationException(
-                        LocalizationService.getInstance().getMessage(
-                        "invocation-target-exception", args), ite);
-                }
+        for (int exprIdx = 0; exprIdx < expressions.length; ++exprIdx) {
 
-                if (negated) {
-                    result = !result;
-                }
+            String expression = expressions[exprIdx];
 
-                // break if we hit true, since we're in an or's loop
-                if (result) {
-                    break;
-                }
+            if (log.isDebugEnabled()) {
+                log.debug("expression[" + exprIdx + "]: " + expression);
             }
 
-            // if we got a false, then return that, because we're in an
-            // and loop
-            if (!result) {
-                return result;
+            String[] statements = expression.split(EXPR_SPLIT_REGEX);
+            parsed[exprIdx] = new Statement[statements.length];
+
+            for (int stmtIdx = 0; stmtIdx < statements.length; ++stmtIdx) {
+                parsed[exprIdx][stmtIdx] = parseStatement(statements[stmtIdx], matcher);
             }
+        }
+        return parsed;
+    }
 
+    private static Statement parseStatement(String statement, PatternMatcher matcher) {
+        boolean itMatches = matcher.matches(statement, parsePattern);
+        MatchResult matchResult = matcher.getMatch();
+        if (!itMatches || matchResult == null || matchResult.groups() <
+                EXPECTED_GROUPS) {
+            return new Statement(statement, false, null, null);
         }
 
-        // if we got this far, all acl's passed
         if (log.isDebugEnabled()) {
-            log.debug("acl: " + acl + " returning true");
+            log.debug("num groups: " + matchResult.groups());
+            log.debug("not: " + matchResult.group(NEGATION_GROUP));
+            log.debug("handler: " +
+                    matchResult.group(HANDLERNAME_GROUP));
+            log.debug("params: " + matchResult.group(PARAM_GROUP));
         }
-        return true;
 
+        boolean negated = matchResult.group(NEGATION_GROUP) != null;
+
+        String func = matchResult.group(HANDLERNAME_GROUP);
+
+        String params = matchResult.group(PARAM_GROUP);
+
+        String[] paramArray = params.split(PARAM_SPLIT_REGEX);
+
+        // if no args were givien, make sure we pass a 0-length array
+        if (paramArray.length == 1 && paramArray[0].trim().equals("")) {
+            paramArray = new String[0];
+        }
+
+        return new Statement(statement, negated, func, paramArray);
+    }
+
+    /**
+     * A parsed ACL statement, like "not handler(param1, param2)".
+     */
+    private static final class Statement {
+        private final String text;
+        private final boolean negated;
+        private final String handlerName;
+        private final String[] params;
+
+        /**
+         * Create a new Statement
+         * @param textIn the statement as written in the ACL string
+         * @param negatedIn whether the handler result is negated
+         * @param handlerNameIn the handler name, null if the syntax is bad
+         * @param paramsIn the handler params
+         */
+        Statement(String textIn, boolean negatedIn, String handlerNameIn,
+                String[] paramsIn) {
+            text = textIn;
+            negated = negatedIn;
+            handlerName = handlerNameIn;
+            params = paramsIn;
+        }
     }
 
     private static class InstanceMethodPair {
         private Method method;
         private Object instance;
+        private MethodHandle handle;
         /**
          * Create a new InstanceMethodPair
          * @param obj The object on which to call the method
@@ -530,6 +612,10 @@ public class Acl {
         InstanceMethodPair(Object obj, Method meth) {
             instance = obj;
             method = meth;
+            handle = unreflect(meth);
+            if (!Modifier.isStatic(meth.getModifiers())) {
+                handle = handle.bindTo(obj);
+            }
         }
         /**
          * Get the object on which to invoke the method
@@ -545,5 +631,53 @@ public class Acl {
         public Method getMethod() {
             return method;
         }
+
+        /**
+         * Invoke the method for a statement
+         * @param context context in which the statement is evaluated
+         * @param statement the statement
+         * @return the method result
+         */
+        boolean invoke(Object context, Statement statement) {
+            try {
+                return (boolean) handle.invokeExact(context, statement.params.clone());
+            }
+            // we shouldn't hit this exception, because the
+            // handler classes should have been adequately junit-tested
+            catch (Throwable t) {
+                InvocationTargetException ite = new InvocationTargetException(t);
+                Object[] args = new Object[3];
+                args[0] = method.getName();
+                args[1] = statement.text;
+                args[2] = ite.getMessage();
+
+                throw new MethodInvocationException(
+                    LocalizationService.getInstance().getMessage(
+                    "invocation-target-exception", args), ite);
+            }
+        }
+
+        private static MethodHandle unreflect(Method meth) {
+            try {
+                return MethodHandles.publicLookup().unreflect(meth);
+            }
+            catch (IllegalAccessException iae) {
+                // public method inherited from a non public class
+                meth.setAccessible(true);
+                try {
+                    return MethodHandles.lookup().unreflect(meth);
+                }
+                catch (IllegalAccessException e) {
+                    Object[] args = new Object[3];
+                    args[0] = meth.getName();
+                    args[1] = meth.toString();
+                    args[2] = e.getMessage();
+
+                    throw new MethodInvocationException(
+                        LocalizationService.getInstance().getMessage(
+                        "illegal-access", args), e);
+                }
+            }
+        }
     }
 }
@@ -17,13 +17,17 @@ package com.redhat.rhn.common.security.acl;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Class to assist with creating Acls.  This Factory will setup
  * the Acl class as well as setup the default as well as the mixin AclHandlers
  * associated with the Acl.
  *
- * TODO - consider caching the Acl instances within the Factory so we don't have to
- * instantiate new ones each time. Not sure how to do this yet.
+ * The handlers of each list of mixins are registered once: Acl instances are copies of
+ * a cached template, as handlers are stateless but callers can register more handlers
+ * or set a result cache on the returned instance.
  *
  * @version $Rev$
  */
@@ -32,6 +36,9 @@ public class AclFactory {
     // private instance of the service.
     private static AclFactory instance = new AclFactory();
 
+    // Acl instances with the handlers registered, by mixins
+    private final Map<String, Acl> templates = new ConcurrentHashMap<String, Acl>();
+
     /**
      * hidden constructor
      */
@@ -53,6 +60,12 @@ public class AclFactory {
      * @return Acl created
      */
     public Acl getAcl(String mixinsIn) {
+        Acl template = templates.computeIfAbsent(mixinsIn == null ? "" : mixinsIn,
+                k -> createAcl(mixinsIn));
+        return new Acl(template);
+    }
+
+    private Acl createAcl(String mixinsIn) {
         Acl aclObj = new Acl();
         Access access = new Access();
         aclObj.registerHandler(access);
@@ -294,6 +294,42 @@ public class AclTest extends RhnBaseTestCase {
         assertTrue(localAcl.evalAcl(context, "xml_test()"));
     }
 
+    public void testResultCache() {
+        Acl localAcl = new Acl();
+        CountingAclHandler counting = new CountingAclHandler();
+        localAcl.registerHandler(counting);
+        localAcl.setResultCache(new HashMap<Object, Boolean>());
+
+        Map localContext = new HashMap();
+        localContext.put("sid", "1");
+        assertTrue(localAcl.evalAcl(localContext, "counted(true)"));
+        assertFalse(localAcl.evalAcl(localContext, "not counted(true)"));
+        assertFalse(localAcl.evalAcl(localContext, "counted(false)"));
+        assertEquals(2, counting.getCalls());
+
+        // the same statement in a different context is evaluated again
+        localContext.put("sid", "2");
+        assertTrue(localAcl.evalAcl(localContext, "counted(true)"));
+        assertEquals(3, counting.getCalls());
+
+        // without result cache, handlers are always called
+        localAcl.setResultCache(null);
+        assertTrue(localAcl.evalAcl(localContext, "counted(true)"));
+        assertEquals(4, counting.getCalls());
+    }
+
+    public void testUnreachedBadSyntax() {
+        // statements are only checked when evaluated
+        assertTrue(acl.evalAcl(context, "handler_zero(true) or bad syntax"));
+        try {
+            acl.evalAcl(context, "handler_zero(false) or bad syntax");
+            fail("expected to fail");
+        }
+        catch (IllegalArgumentException e) {
+            // good
+        }
+    }
+
     public void testGetAclHandlerNames() {
         Acl localAcl = new Acl();
         localAcl.registerHandler(MockAclHandler.class.getName());
@@ -411,4 +447,18 @@ public class AclTest extends RhnBaseTestCase {
            return true;
        }
    }
+
+   /** A handler counting its calls, to check the result cache. */
+   public static class CountingAclHandler implements AclHandler {
+       private int calls = 0;
+
+       public boolean aclCounted(Object ctx, String[] params) {
+           calls++;
+           return params[0].equals("true");
+       }
+
+       public int getCalls() {
+           return calls;
+       }
+   }
 }
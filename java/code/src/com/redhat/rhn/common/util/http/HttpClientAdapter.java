@@ -94,6 +94,18 @@ public class HttpClientAdapter {
      * be read from the configuration and applied transparently.
      */
     public HttpClientAdapter() {
+        this(0);
+    }
+
+    /**
+     * Initialize an {@link HttpClient} for performing requests, allowing a given number
+     * of concurrent connections to the same host. Proxy settings will be read from the
+     * configuration and applied transparently.
+     *
+     * @param maxConnectionsPerRoute maximum number of concurrent connections to the same
+     * host, 0 for the HttpClient default
+     */
+    public HttpClientAdapter(int maxConnectionsPerRoute) {
         Optional<SSLConnectionSocketFactory> sslSocketFactory = Optional.empty();
         try {
             SSLContext sslContext = SSLContext.getDefault();
@@ -109,6 +121,10 @@ public class HttpClientAdapter {
 
         HttpClientBuilder clientBuilder = HttpClientBuilder.create();
         sslSocketFactory.ifPresent(sf -> clientBuilder.setSSLSocketFactory(sf));
+        if (maxConnectionsPerRoute > 0) {
+            clientBuilder.setMaxConnPerRoute(maxConnectionsPerRoute);
+            clientBuilder.setMaxConnTotal(Math.max(maxConnectionsPerRoute, 20));
+        }
 
         clientBuilder.setDefaultCredentialsProvider(credentialsProvider);
         Builder requestConfigBuilder = RequestConfig.custom()
@@ -99,6 +99,9 @@ public class ActionFactory extends HibernateFactory {
     private static Set actionArchTypes;
     private static final TaskomaticApi TASKOMATIC_API = new TaskomaticApi();
 
+    /* Maximum number of server ids bound in one bulk server action update */
+    private static final int SERVER_ID_BATCH_SIZE = 1000;
+
     private ActionFactory() {
         super();
         setupActionArchTypes();
@@ -856,6 +859,58 @@ public class ActionFactory extends HibernateFactory {
         }
     }
 
+    /**
+     * Mark the queued server actions of the given servers as picked up, with one
+     * update per batch of servers. Server actions which already moved on (e.g. because
+     * the job returned in the meantime) are left alone.
+     * Note that loaded ServerAction instances are not refreshed.
+     * @param action the action whose server actions are updated
+     * @param serverIds ids of the servers the action was sent to
+     * @return number of server actions updated
+     */
+    public static int pickUpServerActions(Action action, List<Long> serverIds) {
+        int updated = 0;
+        for (int i = 0; i < serverIds.size(); i += SERVER_ID_BATCH_SIZE) {
+            updated += HibernateFactory.getSession()
+                    .getNamedQuery("Action.pickUpQueuedServerActions")
+                    .setParameter("action", action)
+                    .setParameter("queued", STATUS_QUEUED)
+                    .setParameter("pickedUp", STATUS_PICKED_UP)
+                    .setParameterList("servers", serverIds.subList(i,
+                            Math.min(i + SERVER_ID_BATCH_SIZE, serverIds.size())))
+                    .executeUpdate();
+        }
+        return updated;
+    }
+
+    /**
+     * Mark the queued server actions of the given servers as failed, with one
+     * update per batch of servers.
+     * Note that loaded ServerAction instances are not refreshed.
+     * @param action the action whose server actions are updated
+     * @param serverIds ids of the servers the action could not be sent to
+     * @param message the result message to store
+     * @return number of server actions updated
+     */
+    public static int failServerActions(Action action, List<Long> serverIds, String message) {
+        int updated = 0;
+        Date now = new Date();
+        for (int i = 0; i < serverIds.size(); i += SERVER_ID_BATCH_SIZE) {
+            updated += HibernateFactory.getSession()
+                    .getNamedQuery("Action.failQueuedServerActions")
+                    .setParameter("action", action)
+                    .setParameter("queued", STATUS_QUEUED)
+                    .setParameter("failed", STATUS_FAILED)
+                    .setParameter("now", now)
+                    .setParameter("code", -1L)
+                    .setParameter("message", message)
+                    .setParameterList("servers", serverIds.subList(i,
+                            Math.min(i + SERVER_ID_BATCH_SIZE, serverIds.size())))
+                    .executeUpdate();
+        }
+        return updated;
+    }
+
     /**
      * Save a {@link ServerAction} object.
      * @param serverActionIn the server action to save
@@ -57,8 +57,10 @@ import com.redhat.rhn.testing.RhnBaseTestCase;
 import com.redhat.rhn.testing.TestUtils;
 import com.redhat.rhn.testing.UserTestUtils;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * ActionFactoryTest
@@ -326,8 +328,31 @@ public class ActionFactoryTest extends RhnBaseTestCase {
 
     }
 
+    public void testPickUpAndFailServerActions() throws Exception {
+        User user1 = UserTestUtils.findNewUser("testUser",
+            "testOrg" + this.getClass().getSimpleName());
+        Action a1 = ActionFactoryTest.createAction(user1, ActionFactory.TYPE_REBOOT);
+        ServerAction sa = (ServerAction) a1.getServerActions().toArray()[0];
+        ActionFactory.save(a1);
+        flushAndEvict(sa);
+        List<Long> sids = Collections.singletonList(sa.getServerId());
 
+        assertEquals(1, ActionFactory.pickUpServerActions(a1, sids));
+        // only queued server actions are updated
+        assertEquals(0, ActionFactory.failServerActions(a1, sids, "test"));
+        sa = (ServerAction) ActionFactory.reload(sa);
+        assertEquals(ActionFactory.STATUS_PICKED_UP, sa.getStatus());
 
+        sa.setStatus(ActionFactory.STATUS_QUEUED);
+        ActionFactory.save(sa);
+        flushAndEvict(sa);
+        assertEquals(1, ActionFactory.failServerActions(a1, sids, "test"));
+        sa = (ServerAction) ActionFactory.reload(sa);
+        assertEquals(ActionFactory.STATUS_FAILED, sa.getStatus());
+        assertEquals("test", sa.getResultMsg());
+        assertEquals(Long.valueOf(-1L), sa.getResultCode());
+        assertNotNull(sa.getCompletionTime());
+    }
 
     public void testCreateAction() throws Exception {
         Action a = createAction(UserTestUtils.createUser("testUser", UserTestUtils
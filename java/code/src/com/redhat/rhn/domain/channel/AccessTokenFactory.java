@@ -16,6 +16,7 @@ package com.redhat.rhn.domain.channel;
 
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.server.MinionServer;
+import com.suse.manager.webui.utils.DownloadTokenCache;
 import com.suse.manager.webui.utils.TokenBuilder;
 import com.suse.utils.Opt;
 import org.apache.log4j.Logger;
@@ -149,6 +150,7 @@ public class AccessTokenFactory extends HibernateFactory {
             token.setMinion(null);
             token.setValid(false);
             AccessTokenFactory.save(token);
+            DownloadTokenCache.INSTANCE.invalidateAfterTransaction(token.getToken());
         });
 
         Map<Boolean, List<AccessToken>> collect = all.stream()
@@ -226,6 +228,7 @@ public class AccessTokenFactory extends HibernateFactory {
      */
     public static void delete(AccessToken token) {
         HibernateFactory.getSession().delete(token);
+        DownloadTokenCache.INSTANCE.invalidateAfterTransaction(token.getToken());
     }
 
     /**
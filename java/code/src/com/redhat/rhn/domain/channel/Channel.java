@@ -57,6 +57,7 @@ public class Channel extends BaseDomainHelper implements Comparable<Channel> {
     private String baseDir;
     private ChannelArch channelArch;
     private ChecksumType checksumType;
+    private String repodataCompression;
 
     private String description;
     private Date endOfLife;
@@ -197,6 +198,22 @@ public class Channel extends BaseDomainHelper implements Comparable<Channel> {
         this.checksumType = checksumTypeIn;
     }
 
+    /**
+     * @return Returns the compression of the repository metadata ("gzip",
+     * "parallel_gzip" or "zstd"), null for the configured default.
+     */
+    public String getRepodataCompression() {
+        return repodataCompression;
+    }
+
+    /**
+     * @param repodataCompressionIn The repository metadata compression to set, null for
+     * the configured default.
+     */
+    public void setRepodataCompression(String repodataCompressionIn) {
+        this.repodataCompression = repodataCompressionIn;
+    }
+
 
     /**
      * @param compsIn The Comps to set.
@@ -545,6 +545,16 @@ public class SUSEProductFactory extends HibernateFactory {
         return c.list().stream().findFirst();
     }
 
+    /**
+     * Returns all installed products, that is every distinct product installed on
+     * at least one system at some point.
+     * @return the installed products
+     */
+    @SuppressWarnings("unchecked")
+    public static List<InstalledProduct> listInstalledProducts() {
+        return getSession().createCriteria(InstalledProduct.class).list();
+    }
+
     /**
      * {@inheritDoc}
      */
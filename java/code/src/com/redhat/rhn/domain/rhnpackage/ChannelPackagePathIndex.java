@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.domain.rhnpackage;
+
+import com.redhat.rhn.common.conf.ConfigDefaults;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+/**
+ * In-memory index of the package paths of channels, keyed by the file names clients
+ * download packages with (name-version-release.arch), so that serving a package does
+ * not need a query.
+ *
+ * The index of a channel is built on first use and rebuilt whenever the version of the
+ * channel content, as given by the caller, is newer than the indexed one. Concurrent
+ * requests for a channel whose index is missing or outdated wait for a single rebuild.
+ * The total number of paths kept is bounded: the indexes of the least recently used
+ * channels are dropped first, and channels with more packages than the bound are not
+ * indexed at all. A package missing from the index is not necessarily missing from the
+ * channel: callers must fall back to the database.
+ */
+public class ChannelPackagePathIndex {
+
+    /** The instance loading package paths from the database */
+    public static final ChannelPackagePathIndex INSTANCE = new ChannelPackagePathIndex(
+            PackageFactory::listPathsByChannelLabel, () -> ConfigDefaults.get().getDownloadPathIndexMaxEntries());
+
+    /**
+     * Package paths of one channel, for one version of its content.
+     */
+    private static class ChannelIndex {
+        private final long version;
+        // null if the channel has too many packages to be indexed
+        private final Map<String, String> paths;
+        private volatile long lastUsed;
+
+        ChannelIndex(long versionIn, Map<String, String> pathsIn) {
+            this.version = versionIn;
+            this.paths = pathsIn;
+            this.lastUsed = System.nanoTime();
+        }
+
+        int size() {
+            return paths == null ? 0 : paths.size();
+        }
+    }
+
+    private final Map<String, ChannelIndex> indexes = new ConcurrentHashMap<>();
+    private final Function<String, Map<String, String>> loader;
+    private final IntSupplier maxEntries;
+
+    /**
+     * Standard constructor.
+     * @param loaderIn returns the package paths of a channel by file name, given its label
+     * @param maxEntriesIn returns the maximum number of paths kept for all channels
+     */
+    public ChannelPackagePathIndex(Function<String, Map<String, String>> loaderIn, IntSupplier maxEntriesIn) {
+        this.loader = loaderIn;
+        this.maxEntries = maxEntriesIn;
+    }
+
+    /**
+     * Returns the path of a package of a channel, building or rebuilding the index of
+     * the channel if needed.
+     * @param channelLabel the channel label
+     * @param nvraFileName the package file name without extension, see
+     * {@link PackageFactory#nvraFileName}
+     * @param contentVersion the version of the channel content, e.g. the modification
+     * time of its metadata
+     * @return the path relative to the mount point, or empty if the package is not in
+     * the index
+     */
+    public Optional<String> getPath(String channelLabel, String nvraFileName, long contentVersion) {
+        if (maxEntries.getAsInt() == 0) {
+            return Optional.empty();
+        }
+        ChannelIndex index = indexes.get(channelLabel);
+        if (index == null || index.version < contentVersion) {
+            index = indexes.compute(channelLabel, (label, current) ->
+                    current != null && current.version >= contentVersion ? current :
+                    load(label, contentVersion));
+            evictLeastRecentlyUsed();
+        }
+        index.lastUsed = System.nanoTime();
+        return index.paths == null ? Optional.empty() : Optional.ofNullable(index.paths.get(nvraFileName));
+    }
+
+    private ChannelIndex load(String channelLabel, long contentVersion) {
+        Map<String, String> paths = loader.apply(channelLabel);
+        return new ChannelIndex(contentVersion, paths.size() > maxEntries.getAsInt() ? null : paths);
+    }
+
+    private synchronized void evictLeastRecentlyUsed() {
+        long max = maxEntries.getAsInt();
+        while (size() > max) {
+            indexes.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().lastUsed))
+                    .ifPresent(e -> indexes.remove(e.getKey(), e.getValue()));
+        }
+    }
+
+    /**
+     * @return the number of package paths kept for all channels
+     */
+    public long size() {
+        return indexes.values().stream().mapToLong(ChannelIndex::size).sum();
+    }
+
+    /**
+     * Forgets the index of a channel, to be called when the channel is deleted.
+     * @param channelLabel the channel label
+     */
+    public void invalidate(String channelLabel) {
+        indexes.remove(channelLabel);
+    }
+
+    /**
+     * Forgets all the indexes.
+     */
+    public void invalidateAll() {
+        indexes.clear();
+    }
+}
@@ -316,6 +316,39 @@ public class PackageFactory extends HibernateFactory {
         return packages.get(0);
     }
 
+    /**
+     * Returns the paths of all the packages of a channel, by their file name without
+     * extension (name-version-release.arch), as used in download URLs.
+     * @param channel label of the channel
+     * @return map of name-version-release.arch to the package path
+     */
+    public static Map<String, String> listPathsByChannelLabel(String channel) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = HibernateFactory.getSession()
+                .getNamedQuery("Package.listNevraPathsByChannelLabel")
+                .setString("channel", channel)
+                .list();
+
+        Map<String, String> paths = new HashMap<String, String>(rows.size() * 2);
+        for (Object[] row : rows) {
+            paths.putIfAbsent(nvraFileName((String) row[0], (String) row[1],
+                    (String) row[2], (String) row[3]), (String) row[4]);
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the file name without extension of a package, as used in download URLs.
+     * @param name package name
+     * @param version package version
+     * @param release package release
+     * @param arch package arch label
+     * @return name-version-release.arch
+     */
+    public static String nvraFileName(String name, String version, String release, String arch) {
+        return name + "-" + version + "-" + release + "." + arch;
+    }
+
     /**
      * Returns an InstalledPackage object, given a server and package name to
      * lookup the latest version of the package. Return null if the package
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.domain.rhnpackage.test;
+
+import com.redhat.rhn.domain.rhnpackage.ChannelPackagePathIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ChannelPackagePathIndex}.
+ */
+public class ChannelPackagePathIndexTest extends TestCase {
+
+    private final Map<String, Map<String, String>> channels = new HashMap<>();
+    private final List<String> loads = new ArrayList<>();
+    private int maxEntries = 5;
+    private ChannelPackagePathIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        channels.put("small", paths("small", 2));
+        channels.put("medium", paths("medium", 3));
+        channels.put("large", paths("large", 6));
+        index = new ChannelPackagePathIndex(label -> {
+            loads.add(label);
+            return new HashMap<>(channels.get(label));
+        }, () -> maxEntries);
+    }
+
+    public void testLoadsOncePerVersion() {
+        assertEquals(Optional.of("small/pkg0.rpm"), index.getPath("small", "pkg0", 1L));
+        assertEquals(Optional.of("small/pkg1.rpm"), index.getPath("small", "pkg1", 1L));
+        assertEquals(Optional.empty(), index.getPath("small", "missing", 1L));
+        // an older version does not trigger a reload either
+        assertEquals(Optional.of("small/pkg0.rpm"), index.getPath("small", "pkg0", 0L));
+        assertEquals(1, loads.size());
+        assertEquals(2, index.size());
+    }
+
+    public void testNewerVersionRefreshes() {
+        assertEquals(Optional.empty(), index.getPath("small", "pkg2", 1L));
+        channels.put("small", paths("small", 3));
+        assertEquals(Optional.empty(), index.getPath("small", "pkg2", 1L));
+        assertEquals(Optional.of("small/pkg2.rpm"), index.getPath("small", "pkg2", 2L));
+        assertEquals(2, loads.size());
+        assertEquals(3, index.size());
+    }
+
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        index.getPath("small", "pkg0", 1L);
+        Thread.sleep(1);
+        index.getPath("medium", "pkg0", 1L);
+        assertEquals(5, index.size());
+        Thread.sleep(1);
+        // using the small channel again makes the medium one the least recently used
+        index.getPath("small", "pkg0", 1L);
+
+        channels.put("other", paths("other", 1));
+        index.getPath("other", "pkg0", 1L);
+        assertEquals(3, index.size());
+
+        index.getPath("small", "pkg0", 1L);
+        index.getPath("medium", "pkg0", 1L);
+        assertEquals(4, loads.size());
+        assertEquals("medium", loads.get(3));
+    }
+
+    public void testChannelsLargerThanTheLimitAreNotIndexed() {
+        assertEquals(Optional.empty(), index.getPath("large", "pkg0", 1L));
+        assertEquals(0, index.size());
+        // the decision is kept until the content changes
+        index.getPath("large", "pkg0", 1L);
+        assertEquals(1, loads.size());
+    }
+
+    public void testDisabled() {
+        maxEntries = 0;
+        assertEquals(Optional.empty(), index.getPath("small", "pkg0", 1L));
+        assertTrue(loads.isEmpty());
+    }
+
+    private static Map<String, String> paths(String channel, int count) {
+        Map<String, String> paths = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            paths.put("pkg" + i, channel + "/pkg" + i + ".rpm");
+        }
+        return paths;
+    }
+}
@@ -24,6 +24,8 @@ import com.redhat.rhn.common.hibernate.HibernateFactory;
 
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -113,26 +115,21 @@ public class RhnSetFactory extends HibernateFactory {
     }
 
     /**
-     * Persists the given RhnSet to the database.
+     * Persists the given RhnSet to the database. Removed and added elements are
+     * written in JDBC batches.
      * @param set RhnSet to be persisted.
      */
     public static void save(RhnSet set) {
         RhnSetImpl simpl = (RhnSetImpl) set;
-        // The updates really need to be batched
         if (simpl.isSynced() && !simpl.getElements().isEmpty()) {
-            WriteMode deleteEl3 = writeMode("delete_from_set_el3");
-            WriteMode deleteEl2 = writeMode("delete_from_set_el2");
-            WriteMode deleteEl1 = writeMode("delete_from_set_el1");
-            for (Iterator i = simpl.getRemoved().iterator(); i.hasNext();) {
-                RhnSetElement current = (RhnSetElement) i.next();
-                executeMode(current, deleteEl3, deleteEl2, deleteEl1);
-            }
+            executeBatches(simpl.getRemoved(), writeMode("delete_from_set_el3"),
+                    writeMode("delete_from_set_el2"), writeMode("delete_from_set_el1"));
         }
         else {
             removeByLabel(simpl.getUserId(), simpl.getLabel());
         }
 
-        Set added;
+        Set<RhnSetElement> added;
         if (!simpl.isSynced()) {
             added = simpl.getElements();
         }
@@ -143,19 +140,22 @@ public class RhnSetFactory extends HibernateFactory {
         WriteMode insertEl2 = ModeFactory.getWriteMode(CATALOG, "add_to_set_el2", true);
         WriteMode insertEl1 = ModeFactory.getWriteMode(CATALOG, "add_to_set_el1", true);
 
-        for (Iterator i = added.iterator(); i.hasNext();) {
-            RhnSetElement current = (RhnSetElement) i.next();
-            try {
-                executeMode(current, insertEl3, insertEl2, insertEl1);
-            }
-            catch (ConstraintViolationException e) {
-                // a concurrent transaction has already inserted this row
-                // and COMMITted. This is tolerable and can happen because
-                // the default transaction isolation level is READ
-                // COMMITTED, thus this exception can be safely ignored
-            }
-            catch (WrappedSQLException e) {
-                // see ConstraintViolationException
+        try {
+            executeBatches(added, insertEl3, insertEl2, insertEl1);
+        }
+        catch (ConstraintViolationException | WrappedSQLException e) {
+            // a concurrent transaction has already inserted some of the rows
+            // and COMMITted. This is tolerable and can happen because the
+            // default transaction isolation level is READ COMMITTED. Where
+            // inserts do not ignore conflicts, retry the rows one at a time
+            // to skip the ones already there
+            for (RhnSetElement current : added) {
+                try {
+                    executeMode(current, insertEl3, insertEl2, insertEl1);
+                }
+                catch (ConstraintViolationException | WrappedSQLException e1) {
+                    // see above
+                }
             }
         }
         if (!added.isEmpty()) {
@@ -164,6 +164,40 @@ public class RhnSetFactory extends HibernateFactory {
         simpl.sync();
     }
 
+    /**
+     * Adds to a set the elements selected by a write mode of the Set_queries, with an
+     * INSERT ... SELECT statement, so that they are never loaded in memory. The mode
+     * takes the user_id and label parameters of the set and the given parameters,
+     * and has a variant for each database.
+     * Pending changes of the set are stored first, and the set is reloaded after.
+     * @param set RhnSet to add the elements to.
+     * @param modeName the name of the write mode.
+     * @param params further parameters of the write mode.
+     */
+    public static void addFromQuery(RhnSet set, String modeName,
+            Map<String, Object> params) {
+        RhnSetImpl simpl = (RhnSetImpl) set;
+        save(simpl);
+
+        Map<String, Object> queryParams = new HashMap<String, Object>(params);
+        queryParams.put("user_id", simpl.getUserId());
+        queryParams.put("label", simpl.getLabel());
+        int count = ModeFactory.getWriteMode(CATALOG, modeName, true)
+                .executeUpdate(queryParams);
+        if (count > 0) {
+            simpl.getCleanup().cleanup(simpl);
+        }
+
+        Map<String, Object> lookupParams = new HashMap<String, Object>();
+        lookupParams.put("user_id", simpl.getUserId());
+        lookupParams.put("label", simpl.getLabel());
+        DataResult<RhnSetElement> elements =
+                ModeFactory.getMode(CATALOG, "lookup_set").execute(lookupParams);
+        simpl.getElements().clear();
+        simpl.getElements().addAll(elements);
+        simpl.sync();
+    }
+
     /**
      * Cleanup the set. That is useful, when some of the items included in the set were
      * removed from database. That might have invalidated part of the set.
@@ -180,26 +214,51 @@ public class RhnSetFactory extends HibernateFactory {
 
     private static void executeMode(RhnSetElement elem,
             WriteMode el3, WriteMode el2, WriteMode el1) {
-        Map<String, Object> params = new HashMap<String, Object>();
-        params.put("user_id", elem.getUserId());
-        params.put("label", elem.getLabel());
-        params.put("el_one", elem.getElement());
-        int count;
+        int count = modeFor(elem, el3, el2, el1).executeUpdate(toParams(elem));
+        assert count == 1 : "Failed to update row";
+    }
+
+    private static void executeBatches(Collection<RhnSetElement> elems,
+            WriteMode el3, WriteMode el2, WriteMode el1) {
+        Map<WriteMode, List<Map<String, Object>>> batches =
+                new HashMap<WriteMode, List<Map<String, Object>>>();
+        for (RhnSetElement elem : elems) {
+            WriteMode mode = modeFor(elem, el3, el2, el1);
+            List<Map<String, Object>> batch = batches.get(mode);
+            if (batch == null) {
+                batch = new ArrayList<Map<String, Object>>();
+                batches.put(mode, batch);
+            }
+            batch.add(toParams(elem));
+        }
+        for (Map.Entry<WriteMode, List<Map<String, Object>>> batch : batches.entrySet()) {
+            batch.getKey().executeUpdates(batch.getValue());
+        }
+    }
 
+    private static WriteMode modeFor(RhnSetElement elem,
+            WriteMode el3, WriteMode el2, WriteMode el1) {
         if (elem.getElementThree() == null && elem.getElementTwo() == null) {
-            count = el1.executeUpdate(params);
+            return el1;
         }
         else if (elem.getElementThree() == null) {
+            return el2;
+        }
+        return el3;
+    }
+
+    private static Map<String, Object> toParams(RhnSetElement elem) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("user_id", elem.getUserId());
+        params.put("label", elem.getLabel());
+        params.put("el_one", elem.getElement());
+        if (elem.getElementTwo() != null) {
             params.put("el_two", elem.getElementTwo());
-            count = el2.executeUpdate(params);
         }
-        else {
+        if (elem.getElementThree() != null) {
             params.put("el_three", elem.getElementThree());
-            params.put("el_two", elem.getElementTwo());
-            count = el3.executeUpdate(params);
         }
-
-        assert count == 1 : "Failed to update row";
+        return params;
     }
 
     /**
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.domain.server;
+
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory directory of registered minions, keyed by minion id. It holds what the
+ * Salt code paths need to know to target a minion (server id, contact method, proxy
+ * path and OS family) so that a call to thousands of minions does not need one
+ * query per minion.
+ *
+ * Entries are filled on demand and must be invalidated when a minion is registered,
+ * deleted or changes its contact method. As other processes (e.g. Taskomatic) can
+ * change minions too, entries also expire after a short time.
+ */
+public enum MinionDirectory {
+    INSTANCE;
+
+    /* Time after which an entry is reloaded from the database */
+    private static final long TTL_MILLIS = 60_000L;
+
+    /* Maximum number of ids bound in one lookup query */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * What is known about a registered minion.
+     */
+    public static class MinionEntry {
+
+        private final Long serverId;
+        private final String minionId;
+        private final String contactMethod;
+        private final List<String> proxyPath;
+        private final String osFamily;
+        private final long loaded = System.currentTimeMillis();
+
+        /**
+         * Standard constructor.
+         * @param serverIdIn the server id
+         * @param minionIdIn the minion id
+         * @param contactMethodIn the contact method label
+         * @param proxyPathIn the hostnames of the proxies, the last one being
+         * connected directly to the minion
+         * @param osFamilyIn the OS family
+         */
+        public MinionEntry(Long serverIdIn, String minionIdIn, String contactMethodIn,
+                List<String> proxyPathIn, String osFamilyIn) {
+            this.serverId = serverIdIn;
+            this.minionId = minionIdIn;
+            this.contactMethod = contactMethodIn;
+            this.proxyPath = Collections.unmodifiableList(proxyPathIn);
+            this.osFamily = osFamilyIn;
+        }
+
+        /**
+         * @return the server id
+         */
+        public Long getServerId() {
+            return serverId;
+        }
+
+        /**
+         * @return the minion id
+         */
+        public String getMinionId() {
+            return minionId;
+        }
+
+        /**
+         * @return the contact method label
+         */
+        public String getContactMethod() {
+            return contactMethod;
+        }
+
+        /**
+         * @return the proxy hostnames, the last one being connected directly to the minion
+         */
+        public List<String> getProxyPath() {
+            return proxyPath;
+        }
+
+        /**
+         * @return the OS family
+         */
+        public String getOsFamily() {
+            return osFamily;
+        }
+
+        private boolean isExpired(long now) {
+            return now - loaded > TTL_MILLIS;
+        }
+    }
+
+    private final Map<String, MinionEntry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the entry of a registered minion, loading it if needed.
+     * @param minionId the minion id
+     * @return the entry, or empty if no minion is registered with this id
+     */
+    public Optional<MinionEntry> get(String minionId) {
+        return Optional.ofNullable(getAll(Collections.singletonList(minionId)).get(minionId));
+    }
+
+    /**
+     * Returns the entries of registered minions, loading the missing ones with
+     * one query per batch of minions.
+     * @param minionIds the minion ids
+     * @return map of minion ids to their entries, unknown minion ids are left out
+     */
+    public Map<String, MinionEntry> getAll(Collection<String> minionIds) {
+        long now = System.currentTimeMillis();
+        Map<String, MinionEntry> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String minionId : minionIds) {
+            MinionEntry entry = entries.get(minionId);
+            if (entry == null || entry.isExpired(now)) {
+                missing.add(minionId);
+            }
+            else {
+                result.put(minionId, entry);
+            }
+        }
+        for (int i = 0; i < missing.size(); i += BATCH_SIZE) {
+            for (MinionEntry entry : load(missing.subList(i, Math.min(i + BATCH_SIZE, missing.size())))) {
+                entries.put(entry.getMinionId(), entry);
+                result.put(entry.getMinionId(), entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets a minion, to be called whenever it is registered, deleted or
+     * changes its contact method or proxy.
+     * @param minionId the minion id
+     */
+    public void invalidate(String minionId) {
+        if (minionId != null) {
+            entries.remove(minionId);
+        }
+    }
+
+    /**
+     * Forgets all minions.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<MinionEntry> load(List<String> minionIds) {
+        List<Object[]> rows = HibernateFactory.getSession()
+                .getNamedQuery("MinionServer.listDirectoryEntries")
+                .setParameterList("minionIds", minionIds)
+                .list();
+        if (rows.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> serverIds = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            serverIds.add((Long) row[0]);
+        }
+        Map<Long, List<String>> proxyPaths = new HashMap<>();
+        List<Object[]> paths = HibernateFactory.getSession()
+                .getNamedQuery("ServerPath.listHostnamesForServers")
+                .setParameterList("serverIds", serverIds)
+                .list();
+        for (Object[] path : paths) {
+            proxyPaths.computeIfAbsent((Long) path[0], id -> new ArrayList<>()).add((String) path[1]);
+        }
+
+        List<MinionEntry> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Long serverId = (Long) row[0];
+            result.add(new MinionEntry(serverId, (String) row[1], (String) row[2],
+                    proxyPaths.getOrDefault(serverId, Collections.emptyList()), (String) row[3]));
+        }
+        return result;
+    }
+}
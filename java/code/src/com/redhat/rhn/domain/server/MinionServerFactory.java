@@ -22,6 +22,7 @@ import org.hibernate.Session;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -85,6 +86,13 @@ public class MinionServerFactory extends HibernateFactory {
      * @return server corresponding to the given machine_id
      */
     public static Optional<MinionServer> findByMinionId(String minionId) {
+        Optional<MinionServer> known = MinionDirectory.INSTANCE.get(minionId)
+                .flatMap(entry -> lookupById(entry.getServerId()))
+                .filter(minion -> minionId.equals(minion.getMinionId()));
+        if (known.isPresent()) {
+            return known;
+        }
+        MinionDirectory.INSTANCE.invalidate(minionId);
         Session session = getSession();
         Criteria criteria = session.createCriteria(MinionServer.class);
         criteria.add(Restrictions.eq("minionId", minionId));
@@ -138,6 +146,23 @@ public class MinionServerFactory extends HibernateFactory {
         );
     }
 
+    /**
+     * Lookup multiple minions by id, together with their access tokens, the channels
+     * of these tokens and their proxy paths, which are needed to generate their pillar.
+     * @param ids ids of the minions
+     * @return the minions found
+     */
+    @SuppressWarnings("unchecked")
+    public static List<MinionServer> lookupByIdsWithPillarData(List<Long> ids) {
+        List<MinionServer> result = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i += 1000) {
+            result.addAll(getSession().getNamedQuery("MinionServer.findByIdsWithPillarData")
+                    .setParameterList("serverIds", ids.subList(i, Math.min(i + 1000, ids.size())))
+                    .list());
+        }
+        return result;
+    }
+
     /**
      * List all the minions by there minionIds
      * @param minionIds set of minion ids
@@ -2025,18 +2025,29 @@ public class Server extends BaseDomainHelper implements Identifiable {
 
     /**
      * Update the corresponding {@link ServerInfo} with the current
-     * time and increment the checkin counter.
+     * time and increment the checkin counter, through the
+     * {@link ServerCheckinAccumulator} if it exists.
      * If {@link ServerInfo} does not exist it will create it.
      */
     public void updateServerInfo() {
-        ServerInfo srvInfo = getServerInfo();
-        if (srvInfo == null) {
-            srvInfo = new ServerInfo();
+        if (getServerInfo() == null) {
+            ServerInfo srvInfo = new ServerInfo();
             srvInfo.setServer(this);
             setServerInfo(srvInfo);
             srvInfo.setCheckinCounter(0L);
+            incrementCheckin();
+        }
+        else {
+            ServerCheckinAccumulator.INSTANCE.checkin(this);
         }
+    }
 
+    /**
+     * Update the {@link ServerInfo} with the current time and increment the
+     * checkin counter.
+     */
+    void incrementCheckin() {
+        ServerInfo srvInfo = getServerInfo();
         srvInfo.setCheckin(new Date());
         srvInfo.setCheckinCounter(
                 Optional.ofNullable(srvInfo.getCheckinCounter()).orElse(0L) + 1);
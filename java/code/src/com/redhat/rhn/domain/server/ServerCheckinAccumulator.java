@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.domain.server;
+
+import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.WriteMode;
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.common.util.NamedThreadFactory;
+
+import org.apache.log4j.Logger;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+/**
+ * Write-behind buffer for server check-ins.
+ *
+ * Check-ins are coalesced in memory per server id and written to rhnServerInfo every
+ * java.checkin_flush_interval milliseconds with a few multi-row statements, instead of
+ * one Hibernate update per check-in. Readers see check-in times that are at most one
+ * flush interval old. An interval of 0 disables buffering and updates the ServerInfo of
+ * the server immediately with Hibernate.
+ *
+ * While buffering, all check-ins of servers with a ServerInfo must go through this class
+ * ({@link Server#updateServerInfo()} does): a ServerInfo changed with Hibernate in a
+ * session that loaded it before a flush would write outdated values back.
+ */
+public enum ServerCheckinAccumulator {
+    INSTANCE;
+
+    private static final Logger LOG = Logger.getLogger(ServerCheckinAccumulator.class);
+
+    private final long flushInterval = ConfigDefaults.get().getCheckinFlushInterval();
+    private final Map<Long, Checkin> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Coalesced check-ins of a single server.
+     */
+    private static class Checkin {
+        private final long latest;
+        private final long count;
+
+        Checkin(long latestIn, long countIn) {
+            latest = latestIn;
+            count = countIn;
+        }
+
+        Checkin merge(Checkin other) {
+            return new Checkin(Math.max(latest, other.latest), count + other.count);
+        }
+    }
+
+    /**
+     * Records a check-in of the given server.
+     * @param server the server checking in
+     */
+    public void checkin(Server server) {
+        if (flushInterval <= 0) {
+            server.incrementCheckin();
+            return;
+        }
+        ensureStarted();
+        pending.merge(server.getId(), new Checkin(System.currentTimeMillis(), 1), Checkin::merge);
+    }
+
+    /**
+     * @return the number of servers with check-ins not yet written
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private synchronized void ensureStarted() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory("server-checkin-flusher-"));
+        scheduler.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes all pending check-ins. When called within a transaction, they are written
+     * in it and are queued again if it does not commit. Otherwise they are written in a
+     * transaction of their own, which is committed, and are kept for the next flush if
+     * writing fails.
+     */
+    public synchronized void flush() {
+        Map<Long, Checkin> batch = drain();
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (HibernateFactory.inTransaction()) {
+            HibernateFactory.getSession().getTransaction().registerSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    // nothing to do
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != Status.STATUS_COMMITTED) {
+                        LOG.warn("Transaction did not commit, queueing check-ins of " +
+                                batch.size() + " servers again");
+                        requeue(batch);
+                    }
+                }
+            });
+            write(batch);
+            return;
+        }
+        boolean committed = false;
+        try {
+            write(batch);
+            HibernateFactory.commitTransaction();
+            committed = true;
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Flushed check-ins of " + batch.size() + " servers");
+            }
+        }
+        catch (Exception e) {
+            LOG.error("Error writing server check-ins, retrying on next flush", e);
+        }
+        finally {
+            if (!committed) {
+                try {
+                    HibernateFactory.rollbackTransaction();
+                }
+                catch (Exception e) {
+                    LOG.warn("Additional error during rollback", e);
+                }
+                requeue(batch);
+            }
+            HibernateFactory.closeSession();
+        }
+    }
+
+    private void requeue(Map<Long, Checkin> batch) {
+        batch.forEach((sid, checkin) -> pending.merge(sid, checkin, Checkin::merge));
+    }
+
+    /**
+     * Removes the pending check-ins one by one, so that concurrent check-ins are either
+     * part of the returned batch or left for the next flush.
+     */
+    private Map<Long, Checkin> drain() {
+        Map<Long, Checkin> batch = new HashMap<>();
+        for (Long sid : pending.keySet()) {
+            Checkin checkin = pending.remove(sid);
+            if (checkin != null) {
+                batch.put(sid, checkin);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Writes check-ins with one update and one insert statement per distinct check-in
+     * count (large IN clauses are split by the data source layer).
+     */
+    private static void write(Map<Long, Checkin> batch) {
+        // most servers check in once per flush interval, so group by count only and use the
+        // most recent check-in time of each group: the error is bounded by the interval
+        Map<Long, List<Long>> idsByCount = new TreeMap<>();
+        Map<Long, Long> latestByCount = new HashMap<>();
+        batch.forEach((sid, checkin) -> {
+            idsByCount.computeIfAbsent(checkin.count, c -> new ArrayList<>()).add(sid);
+            latestByCount.merge(checkin.count, checkin.latest, Math::max);
+        });
+
+        WriteMode update = ModeFactory.getWriteMode("System_queries", "update_checkin_bulk");
+        WriteMode insert = ModeFactory.getWriteMode("System_queries", "insert_checkin_bulk");
+        idsByCount.forEach((count, sids) -> {
+            Map<String, Object> params = new HashMap<>();
+            params.put("checkin", new Timestamp(latestByCount.get(count)));
+            params.put("increment", count);
+            update.executeUpdate(params, sids);
+            insert.executeUpdate(params, sids);
+        });
+    }
+}
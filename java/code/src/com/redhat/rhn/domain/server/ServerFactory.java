@@ -36,6 +36,7 @@ import com.redhat.rhn.manager.system.UpdateBaseChannelCommand;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.DetachedCriteria;
@@ -147,6 +148,73 @@ public class ServerFactory extends HibernateFactory {
                 "Server.listMinionsByChannel", params);
     }
 
+    /**
+     * List the installed packages of a server without loading them as
+     * {@link InstalledPackage} objects.
+     * @param server the server
+     * @return maps with name_id, evr_id, arch_id, name, epoch, version, release and arch
+     */
+    public static List<Map<String, Object>> listInstalledPackageIds(Server server) {
+        SelectMode m = ModeFactory.getMode("System_queries", "system_installed_package_ids");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("sid", server.getId());
+        return m.execute(params);
+    }
+
+    /**
+     * List the package names installed on a server.
+     * @param server the server
+     * @return map of package names to their ids
+     */
+    public static Map<String, Long> listInstalledPackageNameIds(Server server) {
+        SelectMode m = ModeFactory.getMode("System_queries",
+                "system_installed_package_name_ids");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("sid", server.getId());
+        List<Map<String, Object>> rows = m.execute(params);
+        return rows.stream().collect(Collectors.toMap(
+                row -> (String) row.get("name"),
+                row -> (Long) row.get("id")));
+    }
+
+    /**
+     * Remove installed packages from a server with batched statements. The packages
+     * collection of the server is not updated, so it must not be in use.
+     * @param server the server
+     * @param packages maps with name_id, evr_id and arch_id, as returned by
+     * {@link #listInstalledPackageIds(Server)}
+     */
+    public static void removeInstalledPackages(Server server,
+            Collection<Map<String, Object>> packages) {
+        executeInstalledPackageUpdates(server, "delete_installed_package", packages);
+    }
+
+    /**
+     * Add installed packages to a server with batched statements, resolving their
+     * names, EVRs and architectures in the database. The packages collection of the
+     * server is not updated, so it must not be in use.
+     * @param server the server
+     * @param packages maps with name, epoch, version, release, arch (label) and
+     * installtime
+     */
+    public static void addInstalledPackages(Server server,
+            Collection<Map<String, Object>> packages) {
+        executeInstalledPackageUpdates(server, "insert_installed_package", packages);
+    }
+
+    private static void executeInstalledPackageUpdates(Server server, String mode,
+            Collection<Map<String, Object>> packages) {
+        if (packages.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> params = packages.stream().map(pkg -> {
+            Map<String, Object> row = new HashMap<String, Object>(pkg);
+            row.put("sid", server.getId());
+            return row;
+        }).collect(Collectors.toList());
+        ModeFactory.getWriteMode("System_queries", mode).executeUpdates(params);
+    }
+
     /**
      * Lookup all the systems with the specified CustomDataKey.
      * @param userId The User ID of the user doing the query
@@ -426,6 +494,29 @@ public class ServerFactory extends HibernateFactory {
         return null;
     }
 
+    /**
+     * Looks up foreign entitled servers by digital server ids.
+     *
+     * @param ids the digital server ids
+     * @return the servers found, by digital server id
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Server> lookupForeignSystemsByDigitalServerIds(List<String> ids) {
+        Map<String, Server> result = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += 1000) {
+            Criteria criteria = getSession().createCriteria(Server.class);
+            criteria.add(Restrictions.in("digitalServerId", ids.subList(i, Math.min(i + 1000, ids.size()))));
+            criteria.setFetchMode("groups", FetchMode.JOIN);
+            criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+            for (Server server : (List<Server>) criteria.list()) {
+                if (server.hasEntitlement(EntitlementManager.getByName("foreign_entitled"))) {
+                    result.putIfAbsent(server.getDigitalServerId(), server);
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Lookup Servers by their ids
      * @param ids the ids to search for
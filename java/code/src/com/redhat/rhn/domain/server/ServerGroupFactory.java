@@ -268,6 +268,27 @@ public class ServerGroupFactory extends HibernateFactory {
                 "ServerGroup.lookupManagedGroupsByServer");
     }
 
+    /**
+     * Returns the ServerGroups, managed and entitlement ones, of many servers at once.
+     * @param serverIds ids of the servers to find the server groups of
+     * @return map of the server ids to their server groups, servers without any group
+     * not being part of it
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<Long, List<ServerGroup>> listServerGroups(List<Long> serverIds) {
+        Map<Long, List<ServerGroup>> result = new HashMap<>();
+        for (int i = 0; i < serverIds.size(); i += 1000) {
+            List<Object[]> rows = HibernateFactory.getSession()
+                    .getNamedQuery("ServerGroup.lookupGroupsByServers")
+                    .setParameterList("ids", serverIds.subList(i, Math.min(i + 1000, serverIds.size())))
+                    .list();
+            for (Object[] row : rows) {
+                result.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((ServerGroup) row[1]);
+            }
+        }
+        return result;
+    }
+
     private static List listServerGroups(Server s, String queryName) {
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("id", s.getId());
@@ -358,6 +358,41 @@ public class VirtualInstanceFactory extends HibernateFactory {
             .list();
     }
 
+    /**
+     * Returns the VirtualInstances with any of the given uuids
+     * @param uuids - uuids of the vms
+     * @return VirtualInstances with the given uuids
+     */
+    @SuppressWarnings("unchecked")
+    public List<VirtualInstance> lookupVirtualInstancesByUuids(List<String> uuids) {
+        List<VirtualInstance> result = new ArrayList<>();
+        for (int i = 0; i < uuids.size(); i += 1000) {
+            result.addAll(getSession()
+                    .getNamedQuery("VirtualInstance.lookupVirtualInstancesByUuids")
+                    .setParameterList("uuids", uuids.subList(i, Math.min(i + 1000, uuids.size())))
+                .list());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the VirtualInstances linked to any of the host systems with given ids,
+     * that is both the VirtualInstances of the hosts themselves and of their guests.
+     * @param hostIds - ids of the host systems
+     * @return VirtualInstances linked to the hosts with given ids
+     */
+    @SuppressWarnings("unchecked")
+    public List<VirtualInstance> lookupVirtualInstancesByHostIds(List<Long> hostIds) {
+        List<VirtualInstance> result = new ArrayList<>();
+        for (int i = 0; i < hostIds.size(); i += 1000) {
+            result.addAll(getSession()
+                    .getNamedQuery("VirtualInstance.lookupVirtualInstancesByHostIds")
+                    .setParameterList("hostIds", hostIds.subList(i, Math.min(i + 1000, hostIds.size())))
+                .list());
+        }
+        return result;
+    }
+
     /**
      * Returns a VirtualInstance that is linked to the host system with given id.
      * @param hostId - id of the host system
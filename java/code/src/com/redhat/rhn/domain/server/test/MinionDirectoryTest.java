@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.domain.server.test;
+
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.domain.server.MinionDirectory;
+import com.redhat.rhn.domain.server.MinionServer;
+import com.redhat.rhn.domain.server.ServerFactory;
+import com.redhat.rhn.domain.server.ServerPath;
+import com.redhat.rhn.testing.BaseTestCaseWithUser;
+import com.redhat.rhn.testing.ServerTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for {@link MinionDirectory}.
+ */
+public class MinionDirectoryTest extends BaseTestCaseWithUser {
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        MinionDirectory.INSTANCE.invalidateAll();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        MinionDirectory.INSTANCE.invalidateAll();
+        super.tearDown();
+    }
+
+    public void testGetAll() throws Exception {
+        MinionServer regular = MinionServerFactoryTest.createTestMinionServer(user);
+        MinionServer ssh = MinionServerFactoryTest.createTestMinionServer(user);
+        ssh.setContactMethod(ServerFactory.findContactMethodByLabel("ssh-push"));
+        HibernateFactory.getSession().flush();
+
+        Map<String, MinionDirectory.MinionEntry> entries = MinionDirectory.INSTANCE.getAll(
+                Arrays.asList(regular.getMinionId(), ssh.getMinionId(), "unknown-minion"));
+
+        assertEquals(2, entries.size());
+        assertEquals(regular.getId(), entries.get(regular.getMinionId()).getServerId());
+        assertEquals("default", entries.get(regular.getMinionId()).getContactMethod());
+        assertEquals(ssh.getId(), entries.get(ssh.getMinionId()).getServerId());
+        assertEquals("ssh-push", entries.get(ssh.getMinionId()).getContactMethod());
+        assertTrue(entries.get(ssh.getMinionId()).getProxyPath().isEmpty());
+        assertFalse(entries.containsKey("unknown-minion"));
+    }
+
+    public void testProxyPath() throws Exception {
+        MinionServer minion = MinionServerFactoryTest.createTestMinionServer(user);
+        Set<ServerPath> paths = ServerFactory.createServerPaths(minion,
+                ServerTestUtils.createTestSystem(user), "proxy.example.com");
+        minion.getServerPaths().addAll(paths);
+        HibernateFactory.getSession().flush();
+
+        MinionDirectory.MinionEntry entry = MinionDirectory.INSTANCE.get(minion.getMinionId()).get();
+        assertEquals(Collections.singletonList("proxy.example.com"), entry.getProxyPath());
+    }
+
+    public void testInvalidate() throws Exception {
+        MinionServer minion = MinionServerFactoryTest.createTestMinionServer(user);
+        HibernateFactory.getSession().flush();
+        assertEquals("default", MinionDirectory.INSTANCE.get(minion.getMinionId()).get().getContactMethod());
+
+        minion.setContactMethod(ServerFactory.findContactMethodByLabel("ssh-push-tunnel"));
+        HibernateFactory.getSession().flush();
+        assertEquals("default", MinionDirectory.INSTANCE.get(minion.getMinionId()).get().getContactMethod());
+
+        MinionDirectory.INSTANCE.invalidate(minion.getMinionId());
+        assertEquals("ssh-push-tunnel",
+                MinionDirectory.INSTANCE.get(minion.getMinionId()).get().getContactMethod());
+    }
+}
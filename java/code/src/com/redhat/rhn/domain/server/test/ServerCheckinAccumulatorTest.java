@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.domain.server.test;
+
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.domain.server.Server;
+import com.redhat.rhn.domain.server.ServerCheckinAccumulator;
+import com.redhat.rhn.domain.server.ServerFactory;
+import com.redhat.rhn.testing.BaseTestCaseWithUser;
+import com.redhat.rhn.testing.ServerTestUtils;
+
+import java.util.Date;
+
+/**
+ * Tests for {@link ServerCheckinAccumulator}.
+ */
+public class ServerCheckinAccumulatorTest extends BaseTestCaseWithUser {
+
+    public void testCheckinsAreCoalesced() throws Exception {
+        Server server = ServerTestUtils.createTestSystem(user);
+        server.getServerInfo().setCheckinCounter(5L);
+        HibernateFactory.getSession().flush();
+
+        ServerCheckinAccumulator.INSTANCE.checkin(server);
+        ServerCheckinAccumulator.INSTANCE.checkin(server);
+        ServerCheckinAccumulator.INSTANCE.flush();
+
+        HibernateFactory.getSession().clear();
+        server = ServerFactory.lookupById(server.getId());
+        assertEquals(7L, server.getServerInfo().getCheckinCounter().longValue());
+        assertEquals(0, ServerCheckinAccumulator.INSTANCE.getPendingCount());
+    }
+
+    public void testCheckinTimeIsUpdated() throws Exception {
+        Server server = ServerTestUtils.createTestSystem(user);
+        server.getServerInfo().setCheckin(new Date(0));
+        HibernateFactory.getSession().flush();
+
+        Date now = new Date();
+        ServerCheckinAccumulator.INSTANCE.checkin(server);
+        ServerCheckinAccumulator.INSTANCE.flush();
+
+        HibernateFactory.getSession().clear();
+        server = ServerFactory.lookupById(server.getId());
+        assertFalse(server.getServerInfo().getCheckin().before(new Date(now.getTime() - 1000)));
+    }
+
+    public void testLoadedServerInfoDoesNotOverwriteFlushedCheckins() throws Exception {
+        Server server = ServerTestUtils.createTestSystem(user);
+        server.getServerInfo().setCheckinCounter(5L);
+        HibernateFactory.getSession().flush();
+
+        // the entity loaded in this session is outdated after each flush
+        ServerCheckinAccumulator.INSTANCE.checkin(server);
+        ServerCheckinAccumulator.INSTANCE.flush();
+        server.updateServerInfo();
+        HibernateFactory.getSession().flush();
+        ServerCheckinAccumulator.INSTANCE.flush();
+
+        HibernateFactory.getSession().clear();
+        server = ServerFactory.lookupById(server.getId());
+        assertEquals(7L, server.getServerInfo().getCheckinCounter().longValue());
+    }
+
+    public void testCheckinsAreQueuedAgainOnRollback() throws Exception {
+        Server server = ServerTestUtils.createTestSystem(user);
+        HibernateFactory.getSession().flush();
+
+        ServerCheckinAccumulator.INSTANCE.checkin(server);
+        ServerCheckinAccumulator.INSTANCE.flush();
+        assertEquals(0, ServerCheckinAccumulator.INSTANCE.getPendingCount());
+
+        HibernateFactory.rollbackTransaction();
+        assertEquals(1, ServerCheckinAccumulator.INSTANCE.getPendingCount());
+
+        // outside of a transaction the accumulator commits on its own
+        ServerCheckinAccumulator.INSTANCE.flush();
+        assertEquals(0, ServerCheckinAccumulator.INSTANCE.getPendingCount());
+    }
+}
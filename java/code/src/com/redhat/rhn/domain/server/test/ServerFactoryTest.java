@@ -82,6 +82,7 @@ import com.redhat.rhn.testing.UserTestUtils;
 import com.suse.manager.webui.services.SaltServerActionService;
 import com.suse.salt.netapi.calls.LocalCall;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -1318,4 +1319,31 @@ public class ServerFactoryTest extends BaseTestCaseWithUser {
         assertEquals(server.getId(), servers.stream().findFirst().get());
 
     }
+
+    /**
+     * Tests that packages with an architecture unknown to the database are added
+     * without architecture, like with Hibernate.
+     * @throws Exception if anything goes wrong
+     */
+    public void testAddInstalledPackagesUnknownArch() throws Exception {
+        Server server = createTestServer(user);
+        Long sid = server.getId();
+        Map<String, Object> pkg = new HashMap<>();
+        pkg.put("name", "unknown-arch-package");
+        pkg.put("epoch", null);
+        pkg.put("version", "1.0");
+        pkg.put("release", "1");
+        pkg.put("arch", "no-such-arch");
+        pkg.put("installtime", new Timestamp(System.currentTimeMillis()));
+        ServerFactory.addInstalledPackages(server, Collections.singletonList(pkg));
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+
+        server = ServerFactory.lookupById(sid);
+        InstalledPackage installed = server.getPackages().stream()
+                .filter(p -> p.getName().getName().equals("unknown-arch-package"))
+                .findFirst().get();
+        assertEquals("1.0", installed.getEvr().getVersion());
+        assertNull(installed.getArch());
+    }
 }
@@ -25,6 +25,7 @@ import com.redhat.rhn.frontend.struts.RhnHelper;
 import com.redhat.rhn.manager.channel.ChannelManager;
 import com.redhat.rhn.manager.system.SystemManager;
 import com.redhat.rhn.manager.user.UserManager;
+import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.ServerFactory;
 import com.suse.manager.webui.services.SaltStateGeneratorService;
 
@@ -34,8 +35,8 @@ import org.apache.struts.action.ActionForward;
 import org.apache.struts.action.ActionMapping;
 import org.apache.struts.action.DynaActionForm;
 
-import java.util.Collections;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -83,10 +84,10 @@ public class ChannelDetailsAction extends RhnAction {
             chan = (Channel) ChannelFactory.reload(chan);
             params.put("cid", cid);
             fwd = "success";
-            ServerFactory.listMinionsByChannel(cid).stream().forEach(ms -> {
-                SaltStateGeneratorService.INSTANCE.generatePillar(ms, false,
-                        Collections.emptySet());
-            });
+            SaltStateGeneratorService.INSTANCE.schedulePillarRegeneration(
+                    ServerFactory.listMinionsByChannel(cid).stream()
+                            .map(MinionServer::getId)
+                            .collect(Collectors.toList()));
         }
 
         request.setAttribute("systems_subscribed",
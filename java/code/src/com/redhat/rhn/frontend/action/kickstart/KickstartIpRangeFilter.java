@@ -46,6 +46,15 @@ public class KickstartIpRangeFilter extends BaseListFilter {
         map.put(label, "iprange.range");
     }
 
+    /**
+     * ${@inheritDoc}
+     */
+    @Override
+    public String getFilterProperty(String field) {
+        // ranges are matched by containment, not by substring
+        return null;
+    }
+
     /**
      * ${@inheritDoc}
      */
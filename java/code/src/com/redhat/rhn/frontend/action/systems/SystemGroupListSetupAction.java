@@ -15,7 +15,7 @@
 package com.redhat.rhn.frontend.action.systems;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,7 +30,6 @@ import org.apache.struts.action.ActionMapping;
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.domain.rhnset.RhnSet;
-import com.redhat.rhn.domain.rhnset.RhnSetElement;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.dto.SystemGroupOverview;
 import com.redhat.rhn.frontend.dto.SystemOverview;
@@ -174,21 +173,12 @@ public class SystemGroupListSetupAction extends RhnAction
         RhnSet systemSet = RhnSetDecl.SYSTEMS.create(user);
         RhnSet groupSet = getSetDecl().get(user);
 
-        Iterator<RhnSetElement> groups = groupSet.getElements().iterator();
-        while (groups.hasNext()) { //for every group
-            Long sgid = groups.next().getElement();
-            Iterator<SystemOverview> systems =
-                    SystemManager.systemsInGroup(sgid, null).iterator();
-
-            while (systems.hasNext()) { //for every system in a group
-                Long id = systems.next().getId();
-                if (!systemSet.contains(id)) {
-                    systemSet.addElement(id);
-                }
-            }
-        }
-
         RhnSetManager.store(systemSet);
+        for (Long sgid : groupSet.getElementValues()) { //for every group
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("sgid", sgid);
+            RhnSetManager.addFromQuery(systemSet, "add_group_systems_to_set", params);
+        }
     }
 
     @Override
@@ -17,19 +17,18 @@ package com.redhat.rhn.frontend.action.systems;
 import com.redhat.rhn.domain.rhnset.RhnSet;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.domain.server.ManagedServerGroup;
-import com.redhat.rhn.frontend.dto.SystemOverview;
 import com.redhat.rhn.frontend.struts.RequestContext;
 import com.redhat.rhn.frontend.struts.RhnAction;
 import com.redhat.rhn.frontend.struts.RhnHelper;
 import com.redhat.rhn.manager.rhnset.RhnSetDecl;
 import com.redhat.rhn.manager.rhnset.RhnSetManager;
-import com.redhat.rhn.manager.system.SystemManager;
 
 import org.apache.struts.action.ActionForm;
 import org.apache.struts.action.ActionForward;
 import org.apache.struts.action.ActionMapping;
 
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -52,14 +51,9 @@ public class WorkWithGroupAction extends RhnAction {
 
         RhnSet systemSet = RhnSetDecl.SYSTEMS.create(user);
 
-        Iterator systems = SystemManager.systemsInGroup(serverGroup.getId(), null)
-                                .iterator();
-        while (systems.hasNext()) { //for every system in a group
-            Long id = ((SystemOverview)systems.next()).getId();
-            systemSet.addElement(id);
-        }
-
-        RhnSetManager.store(systemSet);
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("sgid", serverGroup.getId());
+        RhnSetManager.addFromQuery(systemSet, "add_group_systems_to_set", params);
 
         //response.sendRedirect("/rhn/systems/ssm/ListSystems.do");
         return mapping.findForward(RhnHelper.DEFAULT_FORWARD);
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.events;
+
+import com.redhat.rhn.common.messaging.EventMessage;
+import com.redhat.rhn.manager.session.SessionManager;
+
+import org.apache.log4j.Logger;
+
+/**
+ * ExtendSessionsAction - writes all the pending session lifetime extensions at once,
+ * so that a session used by many API calls is extended once.
+ */
+public class ExtendSessionsAction extends AbstractDatabaseAction {
+
+    private static Logger log = Logger.getLogger(ExtendSessionsAction.class);
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void doExecute(EventMessage msg) {
+        int extended = SessionManager.extendPendingSessions();
+        if (log.isDebugEnabled()) {
+            log.debug("Extended the lifetime of " + extended + " sessions");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canRunConcurrently() {
+        return true;
+    }
+}
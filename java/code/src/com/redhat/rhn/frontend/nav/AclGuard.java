@@ -26,6 +26,7 @@ import java.util.Map;
 public class AclGuard implements RenderGuard {
     private Map context;
     private String mixins;
+    private Map<Object, Boolean> resultCache;
 
 
     /**
@@ -34,9 +35,21 @@ public class AclGuard implements RenderGuard {
      * @param mixinsIn The string of classnames used to add extra Acl Handlers
      */
     public AclGuard(Map ctx, String mixinsIn) {
+        this(ctx, mixinsIn, null);
+    }
+
+    /**
+     * Constructor
+     * @param ctx Acl Context
+     * @param mixinsIn The string of classnames used to add extra Acl Handlers
+     * @param resultCacheIn handler results to share with the other ACLs of the
+     * request, null to always call the handlers
+     */
+    public AclGuard(Map ctx, String mixinsIn, Map<Object, Boolean> resultCacheIn) {
         super();
         context = ctx;
         this.mixins = mixinsIn;
+        this.resultCache = resultCacheIn;
     }
 
     /**
@@ -66,6 +79,7 @@ public class AclGuard implements RenderGuard {
         }
 
         Acl acl = AclFactory.getInstance().getAcl(mixins);
+        acl.setResultCache(resultCache);
         return acl.evalAcl(context, aclStr);
     }
 }
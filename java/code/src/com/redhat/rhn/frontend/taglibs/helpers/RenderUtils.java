@@ -26,6 +26,7 @@ import com.redhat.rhn.frontend.nav.RenderGuard;
 import com.redhat.rhn.frontend.nav.RenderGuardComposite;
 import com.redhat.rhn.frontend.nav.Renderable;
 import com.redhat.rhn.frontend.struts.RequestContext;
+import com.redhat.rhn.manager.acl.AclManager;
 
 import java.net.URL;
 import java.util.HashMap;
@@ -108,7 +109,8 @@ public enum RenderUtils {
                 aclContext.put(token, req.getParameter(token));
             }
         }
-        AclGuard guard = new AclGuard(aclContext, navTree.getAclMixins());
+        AclGuard guard = new AclGuard(aclContext, navTree.getAclMixins(),
+                AclManager.getResultCache(req));
         navTree.setGuard(guard);
 
         // We try to fetch the previously successful navigation match from the Session.
@@ -59,6 +59,17 @@ public abstract class BaseListFilter implements ListFilter {
         return false;
     }
 
+    /**
+     * Returns the bean property a field is matched against, for data sets filtered
+     * where they are stored. Filters with their own matching logic return null.
+     * @param field the field to filter by
+     * @return the bean property, or null if the filter cannot be pushed down
+     */
+    public String getFilterProperty(String field) {
+        // same as filter(), the first mapped property is used whatever the field
+        return fieldMap.isEmpty() ? null : (String) fieldMap.values().iterator().next();
+    }
+
     /**
      * ${@inheritDoc}
      */
@@ -127,10 +127,14 @@ public class CSVTag extends BodyTagSupport {
             if (d instanceof List) {
                 pageData = (List) d;
             }
+            else if (d instanceof PageableDataSource) {
+                pageData = ((PageableDataSource) d).getExportData();
+            }
             else {
                 throw new JspException("Dataset named \'" + dataSetName +
                         "\' is incompatible." +
-                        " Must be an an instance of java.util.List.");
+                        " Must be an an instance of java.util.List or" +
+                        " PageableDataSource.");
             }
         }
     }
@@ -15,6 +15,7 @@
 
 package com.redhat.rhn.frontend.taglibs.list;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -52,6 +53,8 @@ public class DataSetManipulator {
 
     private final int pageSize;
     private List dataset;
+    private PageableDataSource source;
+    private String sourceFilterProperty;
     private ListFilter filter;
     private String filterBy;
     private String filterValue;
@@ -91,6 +94,28 @@ public class DataSetManipulator {
         parentIsAnElement = parentIsElement;
     }
 
+    /**
+     * Constructor for data sets that can be filtered, sorted and paginated by their
+     * data source. Rows are only loaded in memory when the list needs something the
+     * data source cannot do.
+     * @param pageSizeIn page size of the list
+     * @param sourceIn data source of the list
+     * @param requestIn HttpServletRequest of the caller
+     * @param listNameIn name of the list
+     * @param parentIsElement true of the parent value in the list should be
+     * considered as an element this is useful for tree like data
+     */
+    public DataSetManipulator(int pageSizeIn, PageableDataSource sourceIn,
+            HttpServletRequest requestIn, String listNameIn, boolean parentIsElement) {
+        pageSize = pageSizeIn;
+        source = sourceIn;
+        request = requestIn;
+        uniqueName = listNameIn;
+        totalDataSetSize = source.getSize(null, null);
+        unfilteredDataSize = totalDataSetSize;
+        parentIsAnElement = parentIsElement;
+    }
+
     /**
      * Filters the dataset based on filter criteria
      * @param f ListFilter instance
@@ -114,6 +139,18 @@ public class DataSetManipulator {
         filterClass.setAttribute("value", f.getClass().getCanonicalName());
         ListTagUtil.write(context, filterClass.render());
 
+        if (isPushedDown()) {
+            String property = f instanceof BaseListFilter ?
+                    ((BaseListFilter) f).getFilterProperty(filterBy) : null;
+            if (property != null && source.isFilterable(property)) {
+                sourceFilterProperty = property;
+                totalDataSetSize = source.getSize(property, filterValue);
+                return;
+            }
+            // loads the rows and filters them in memory
+            getDataset();
+            return;
+        }
         dataset = ListFilterHelper.filter(dataset, f, filterBy, filterValue);
         totalDataSetSize = dataset.size();
     }
@@ -127,9 +164,14 @@ public class DataSetManipulator {
             return;
         }
 
+        if (isPushedDown() && source.isSortable(sortAttr) &&
+                !AlphaBarHelper.getInstance().isSelected(uniqueName, request)) {
+            return;
+        }
+
         String sortDir = getActiveSortDirection();
         try {
-            Collections.sort(dataset, new DynamicComparator(sortAttr, sortDir));
+            Collections.sort(getDataset(), new DynamicComparator(sortAttr, sortDir));
         }
         catch (IllegalArgumentException iae) {
             log.warn("Unable to sort dataset according to: " + sortAttr);
@@ -150,6 +192,9 @@ public class DataSetManipulator {
      * @return list representing one page of data
      */
     public List getPage() {
+        if (isPushedDown()) {
+            return getSourcePage();
+        }
         List retval = new LinkedList();
         if (pageSize > 0) {
             int startOffset = getCurrentPageNumber() * pageSize;
@@ -177,7 +222,7 @@ public class DataSetManipulator {
      */
     public List getAllData() {
         List retval = new LinkedList();
-        retval.addAll(dataset);
+        retval.addAll(getDataset());
         return expand(retval);
     }
 
@@ -248,10 +293,10 @@ public class DataSetManipulator {
      * @return answer to that burning question
      */
     public boolean isLastPage() {
-        int maxPage = (dataset.size() / pageSize) - 1;
+        int maxPage = (totalDataSetSize / pageSize) - 1;
         // Add a page for overflow, since the dataset is not
         // evenly divisible by the pagesize
-        if (dataset.size() % pageSize > 0) {
+        if (totalDataSetSize % pageSize > 0) {
             maxPage++;
         }
         return getCurrentPageNumber() == maxPage;
@@ -300,7 +345,7 @@ public class DataSetManipulator {
      */
     public Map getPaginationLinks() {
         Map links = new HashMap();
-        if (pageSize > 0 && dataset.size() > 0 && getTotalDataSetSize() > pageSize) {
+        if (pageSize > 0 && getTotalDataSetSize() > pageSize) {
             String pageLinkName = "list_" + uniqueName + "_page";
             String[] data = new String[4];
             if (!isFirstPage()) {
@@ -365,7 +410,7 @@ public class DataSetManipulator {
      * @return boolean
      */
     public boolean isListEmpty() {
-        return dataset == null || dataset.size() == 0;
+        return totalDataSetSize == 0;
     }
 
     /**
@@ -373,9 +418,12 @@ public class DataSetManipulator {
      * @return the set of characters that are active
      */
     public Set<Character> getAlphaBarIndex() {
+        if (isPushedDown() && source.isSortable(alphaCol)) {
+            return source.getInitials(alphaCol, sourceFilterProperty, filterValue);
+        }
         Set<Character> chars = new HashSet<Character>();
         int i = 0;
-        for (Object inputRow : dataset) {
+        for (Object inputRow : getDataset()) {
             String value = getAlphaValue(inputRow);
             if (!StringUtils.isBlank(value)) {
                 // Make sure that the alpha inputs are converted
@@ -414,7 +462,7 @@ public class DataSetManipulator {
             char alpha = Character
                     .toUpperCase(helper.getAlphaValue(uniqueName, request).charAt(0));
             int i = 0;
-            for (Object inputRow : dataset) {
+            for (Object inputRow : getDataset()) {
                 String value = getAlphaValue(inputRow);
                 if (!StringUtils.isBlank(value)) {
                     char val = value.charAt(0);
@@ -507,6 +555,46 @@ public class DataSetManipulator {
         return value;
     }
 
+    /**
+     * Returns true while filtering, sorting and pagination are left to the data
+     * source, false once the rows are handled in memory.
+     */
+    private boolean isPushedDown() {
+        return source != null && dataset == null;
+    }
+
+    /**
+     * Returns the rows handled in memory, loading them from the data source first
+     * if needed.
+     */
+    private List getDataset() {
+        if (dataset == null) {
+            dataset = new ArrayList(source.getAll());
+            if (filter != null) {
+                dataset = ListFilterHelper.filter(dataset, filter, filterBy, filterValue);
+            }
+            totalDataSetSize = dataset.size();
+            sourceFilterProperty = null;
+        }
+        return dataset;
+    }
+
+    private List getSourcePage() {
+        int offset = 0;
+        int limit = 0;
+        if (pageSize > 0) {
+            offset = getCurrentPageNumber() * pageSize;
+            if (offset >= totalDataSetSize) {
+                offset = Math.max(totalDataSetSize - 1, 0) / pageSize * pageSize;
+            }
+            limit = pageSize;
+        }
+        String sortAttr = StringUtils.trimToNull(getActiveSortAttribute());
+        return source.getPage(sortAttr, RequestContext.SORT_ASC.equals(
+                getActiveSortDirection()), sourceFilterProperty,
+                sourceFilterProperty == null ? null : filterValue, offset, limit);
+    }
+
     private List expand(List data) {
         List expanded = new LinkedList();
         for (Object obj : data) {
@@ -536,6 +624,9 @@ public class DataSetManipulator {
         if (startOffset < 0) {
             startOffset = 0;
         }
+        if (isPushedDown()) {
+            return Math.min(startOffset, totalDataSetSize - 1) + 1;
+        }
         List parentList = dataset.subList(0, startOffset);
         List data = expand(parentList);
         int ret = data.size() + 1;
@@ -557,6 +648,9 @@ public class DataSetManipulator {
         }
 
         int endOffset = startOffset + pageSize;
+        if (isPushedDown()) {
+            return Math.min(endOffset, totalDataSetSize);
+        }
         if (endOffset > dataset.size()) {
             endOffset = dataset.size();
         }
@@ -571,6 +665,9 @@ public class DataSetManipulator {
     }
 
     private int getExpandedDataSize() {
+        if (isPushedDown()) {
+            return totalDataSetSize;
+        }
         if (!parentIsAnElement) {
             return expand(dataset).size() - dataset.size();
         }
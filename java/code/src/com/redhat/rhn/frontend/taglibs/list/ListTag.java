@@ -72,6 +72,7 @@ public class ListTag extends BodyTagSupport {
     private String name = ListHelper.LIST;
     private String uniqueName;
     private List pageData;
+    private PageableDataSource dataSource;
     private Iterator iterator;
     private Object currentObject;
     private Object parentObject;
@@ -340,14 +341,20 @@ public class ListTag extends BodyTagSupport {
                     .getRequest();
             d = request.getSession(true).getAttribute(nameIn);
         }
+        dataSource = null;
         if (d != null) {
             if (d instanceof List) {
                 pageData = (List) d;
             }
+            else if (d instanceof PageableDataSource) {
+                dataSource = (PageableDataSource) d;
+                pageData = Collections.EMPTY_LIST;
+            }
             else {
                 throw new JspException("Dataset named \'" + nameIn +
                          "\' is incompatible." +
-                         " Must be an an instance of java.util.List.");
+                         " Must be an an instance of java.util.List or" +
+                         " PageableDataSource.");
             }
         }
         else {
@@ -831,14 +838,20 @@ public class ListTag extends BodyTagSupport {
                     .getRequest();
             d = request.getSession(true).getAttribute(dataSetName);
         }
+        dataSource = null;
         if (d != null) {
             if (d instanceof List) {
                 pageData = (List) d;
             }
+            else if (d instanceof PageableDataSource) {
+                dataSource = (PageableDataSource) d;
+                pageData = Collections.EMPTY_LIST;
+            }
             else {
                 throw new JspException("Dataset named \'" + dataSetName +
                          "\' is incompatible." +
-                         " Must be an an instance of java.util.List.");
+                         " Must be an an instance of java.util.List or" +
+                         " PageableDataSource.");
             }
         }
         else {
@@ -854,9 +867,16 @@ public class ListTag extends BodyTagSupport {
         addDecorator(decoratorName);
         setupPageData();
         setPageSize();
-        manip = new DataSetManipulator(pageSize, pageData,
-                (HttpServletRequest) pageContext.getRequest(),
-                getUniqueName(), isParentAnElement());
+        if (dataSource != null) {
+            manip = new DataSetManipulator(pageSize, dataSource,
+                    (HttpServletRequest) pageContext.getRequest(),
+                    getUniqueName(), isParentAnElement());
+        }
+        else {
+            manip = new DataSetManipulator(pageSize, pageData,
+                    (HttpServletRequest) pageContext.getRequest(),
+                    getUniqueName(), isParentAnElement());
+        }
         ListTagUtil.setCurrentCommand(pageContext, getUniqueName(),
                     ListCommand.ENUMERATE);
         return BodyTagSupport.EVAL_BODY_INCLUDE;
@@ -875,7 +895,7 @@ public class ListTag extends BodyTagSupport {
             ListTagUtil.write(pageContext, "<div class=\"site-info\">");
 
             if (manip.getTotalDataSetSize() != manip.getUnfilteredDataSize()) {
-                if (manip.getAllData().size() == 0) {
+                if (manip.getTotalDataSetSize() == 0) {
                     ListTagUtil.write(pageContext, ls.getMessage(
                             "listtag.filteredmessageempty",
                             new Integer(manip.getTotalDataSetSize())));
@@ -929,6 +949,7 @@ public class ListTag extends BodyTagSupport {
         name = ListHelper.LIST;
         uniqueName = null;
         pageData = null;
+        dataSource = null;
         iterator = null;
         currentObject = null;
         parentObject = null;
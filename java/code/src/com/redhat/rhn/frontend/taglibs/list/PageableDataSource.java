@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.taglibs.list;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A list data set that can be filtered, sorted and paginated where it is stored
+ * (typically by the database), so that the ListTag only loads the rows it renders.
+ *
+ * It can be put in the request in place of a List, as dataset of a list and its
+ * CSV export. Lists filtered or sorted by properties the data source does not
+ * support fall back to loading all rows and handling them in memory. Rows must not
+ * be Expandable.
+ *
+ * @param <T> the type of the rows
+ */
+public interface PageableDataSource<T> {
+
+    /**
+     * @param property the bean property of the rows
+     * @return true if rows can be sorted by the property
+     */
+    boolean isSortable(String property);
+
+    /**
+     * @param property the bean property of the rows
+     * @return true if rows can be filtered by the property
+     */
+    boolean isFilterable(String property);
+
+    /**
+     * Counts the rows matching a filter.
+     * @param filterProperty the property to filter by, or null for all rows
+     * @param filterValue the case insensitive substring the property must contain
+     * @return the number of rows
+     */
+    int getSize(String filterProperty, String filterValue);
+
+    /**
+     * Returns a page of the rows matching a filter, ready to be rendered.
+     * @param sortProperty the property to sort by, or null for no particular order
+     * @param ascending true to sort in ascending order
+     * @param filterProperty the property to filter by, or null for all rows
+     * @param filterValue the case insensitive substring the property must contain
+     * @param offset the number of rows to skip
+     * @param limit the maximum number of rows, 0 for no limit
+     * @return the rows of the page
+     */
+    List<T> getPage(String sortProperty, boolean ascending, String filterProperty,
+            String filterValue, int offset, int limit);
+
+    /**
+     * Returns the distinct first characters, in upper case, of a property of the
+     * rows matching a filter.
+     * @param property the property, as used by the alphabar
+     * @param filterProperty the property to filter by, or null for all rows
+     * @param filterValue the case insensitive substring the property must contain
+     * @return the first characters
+     */
+    Set<Character> getInitials(String property, String filterProperty,
+            String filterValue);
+
+    /**
+     * Returns all rows, ready to be rendered, for lists handled in memory.
+     * @return all rows
+     */
+    List<T> getAll();
+
+    /**
+     * Returns the rows to be exported to CSV.
+     * @return the rows, or a DataResult whose query is restarted by the export
+     */
+    List<T> getExportData();
+}
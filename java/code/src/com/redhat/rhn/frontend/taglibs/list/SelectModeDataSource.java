@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.taglibs.list;
+
+import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.Pagination;
+import com.redhat.rhn.common.db.datasource.SelectMode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A PageableDataSource running a SelectMode query, which the database filters,
+ * sorts and paginates. Properties of the rows are mapped to the columns of the
+ * query they are read from, and only mapped properties are pushed down.
+ *
+ * Elaborators of the mode only run on the rows of the returned page.
+ *
+ * @param <T> the type of the rows
+ */
+public class SelectModeDataSource<T> implements PageableDataSource<T> {
+
+    private final String fileName;
+    private final String modeName;
+    private final Map<String, Object> params;
+    private final Map<String, String> columns = new HashMap<String, String>();
+    private String keyColumn;
+    private Map<String, Object> elaborationParams;
+
+    /**
+     * Standard constructor.
+     * @param fileNameIn the name of the mode file
+     * @param modeNameIn the name of the mode
+     * @param paramsIn the parameters of the query
+     */
+    public SelectModeDataSource(String fileNameIn, String modeNameIn,
+            Map<String, Object> paramsIn) {
+        fileName = fileNameIn;
+        modeName = modeNameIn;
+        params = paramsIn;
+    }
+
+    /**
+     * Maps a property of the rows to the query column it is read from, allowing
+     * to sort and filter by it.
+     * @param property the bean property
+     * @param column the column in the select list of the query
+     * @return this data source
+     */
+    public SelectModeDataSource<T> addColumn(String property, String column) {
+        columns.put(property, column);
+        return this;
+    }
+
+    /**
+     * Sets a unique column that rows are sorted by after the sort property, so that
+     * pages are stable when the sort property has duplicates.
+     * @param column the column in the select list of the query
+     * @return this data source
+     */
+    public SelectModeDataSource<T> setKeyColumn(String column) {
+        keyColumn = column;
+        return this;
+    }
+
+    /**
+     * @param values the parameters of the elaborators of the mode
+     * @return this data source
+     */
+    public SelectModeDataSource<T> setElaborationParams(Map<String, Object> values) {
+        elaborationParams = values;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isSortable(String property) {
+        return columns.containsKey(property);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isFilterable(String property) {
+        return columns.containsKey(property);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getSize(String filterProperty, String filterValue) {
+        return getMode().executeCount(params, getPagination(filterProperty, filterValue));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getPage(String sortProperty, boolean ascending, String filterProperty,
+            String filterValue, int offset, int limit) {
+        Pagination page = getPagination(filterProperty, filterValue);
+        if (sortProperty != null) {
+            page.setSortColumn(getColumn(sortProperty));
+        }
+        page.setAscending(ascending);
+        page.setKeyColumn(keyColumn);
+        page.setOffset(offset);
+        page.setLimit(limit);
+        DataResult<T> result = getMode().executePage(params, page);
+        elaborate(result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Set<Character> getInitials(String property, String filterProperty,
+            String filterValue) {
+        return getMode().executeInitials(params,
+                getPagination(filterProperty, filterValue), getColumn(property));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getAll() {
+        DataResult<T> result = getMode().execute(params);
+        elaborate(result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getExportData() {
+        DataResult<T> result = getMode().prepare(params);
+        result.setElaborationParams(elaborationParams);
+        return result;
+    }
+
+    private SelectMode getMode() {
+        return ModeFactory.getMode(fileName, modeName);
+    }
+
+    private String getColumn(String property) {
+        String column = columns.get(property);
+        if (column == null) {
+            throw new IllegalArgumentException("Property is not mapped to a column: " +
+                    property);
+        }
+        return column;
+    }
+
+    private Pagination getPagination(String filterProperty, String filterValue) {
+        Pagination page = new Pagination();
+        if (filterProperty != null && filterValue != null) {
+            page.setFilter(getColumn(filterProperty), filterValue);
+        }
+        return page;
+    }
+
+    private void elaborate(DataResult<T> result) {
+        if (elaborationParams == null) {
+            result.elaborate();
+        }
+        else {
+            result.elaborate(elaborationParams);
+        }
+    }
+}
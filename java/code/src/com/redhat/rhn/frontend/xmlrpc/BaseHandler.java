@@ -17,15 +17,12 @@ package com.redhat.rhn.frontend.xmlrpc;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 import org.xml.sax.SAXException;
@@ -39,8 +36,6 @@ import com.redhat.rhn.common.client.ClientCertificate;
 import com.redhat.rhn.common.client.ClientCertificateDigester;
 import com.redhat.rhn.common.client.InvalidCertificateException;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
-import com.redhat.rhn.common.hibernate.LookupException;
-import com.redhat.rhn.common.translation.Translator;
 import com.redhat.rhn.common.util.MethodUtil;
 import com.redhat.rhn.common.util.StringUtil;
 import com.redhat.rhn.domain.entitlement.Entitlement;
@@ -49,7 +44,6 @@ import com.redhat.rhn.domain.org.OrgFactory;
 import com.redhat.rhn.domain.role.Role;
 import com.redhat.rhn.domain.role.RoleFactory;
 import com.redhat.rhn.domain.server.Server;
-import com.redhat.rhn.domain.session.WebSession;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.manager.session.SessionManager;
 import com.redhat.rhn.manager.system.SystemManager;
@@ -65,8 +59,8 @@ public class BaseHandler implements XmlRpcInvocationHandler {
 
     private static Logger log = Logger.getLogger(BaseHandler.class);
 
-    private static final String RO_REGEX = "^(list|get|is|find).*$";
-    private static final String KEY_REGEX = "^[1-9][0-9]*x[a-f0-9]{64}$";
+    private static final Pattern RO_PATTERN = Pattern.compile("^(list|get|is|find).*$");
+    private static final Pattern KEY_PATTERN = Pattern.compile("^[1-9][0-9]*x[a-f0-9]{64}$");
 
     protected boolean providesAuthentication() {
         return false;
@@ -84,29 +78,22 @@ public class BaseHandler implements XmlRpcInvocationHandler {
      */
     public Object invoke(String methodCalled, List params) throws XmlRpcFault {
         Class myClass = this.getClass();
-        Method[] methods;
-        try {
-            methods = myClass.getMethods();
-        }
-        catch (SecurityException e) {
-            // This should _never_ happen, because the Handler classes must
-            // have public classes if they're expected to work.
-            throw new XmlRpcFault(-1, "no public methods in class " + myClass);
-        }
+        HandlerMethods methods = HandlerMethods.forClass(myClass);
 
         String[] byNamespace = methodCalled.split("\\.");
         String beanifiedMethod = StringUtil.beanify(byNamespace[byNamespace.length - 1]);
-        WebSession session = null;
+        String sessionKey = null;
 
         if (params.size() > 0 && params.get(0) instanceof String &&
                 isSessionKey((String)params.get(0))) {
             if (!myClass.getName().endsWith("AuthHandler") &&
                 !myClass.getName().endsWith("SearchHandler")) {
-                session = SessionManager.loadSession((String)params.get(0));
-                params.set(0, getLoggedInUser((String)params.get(0)));
+                sessionKey = (String)params.get(0);
+                params.set(0, getLoggedInUser(sessionKey));
                 if (((User)params.get(0)).isReadOnly()) {
-                    if (!beanifiedMethod.matches(RO_REGEX) && !getReadonlyMethodNames()
-                            .stream().anyMatch(m -> m.equals(beanifiedMethod))) {
+                    if (!RO_PATTERN.matcher(beanifiedMethod).matches() &&
+                            !getReadonlyMethodNames().stream()
+                            .anyMatch(m -> m.equals(beanifiedMethod))) {
                         throw new SecurityException("The " + beanifiedMethod +
                                 " API is not available to read-only API users");
                     }
@@ -114,42 +101,16 @@ public class BaseHandler implements XmlRpcInvocationHandler {
             }
         }
 
-        //we've found all the methods that have the same number of parameters
-        List<Method> matchedMethods = findMethods(methods, params, beanifiedMethod);
-
-        //Attempt to find a perfect match
-        Method foundMethod = findPerfectMethod(params, matchedMethods);
-
-        Object[] converted = params.toArray();
-
-
-        //If we were not able to find the exact method match, let's just use the first one
-        //      This isn't the best method, but if you can figure out a better way
-        //      that is easy feel free to change.
-        //Since it is not an exact match, we have to translate the params.
-        if (foundMethod == null) {
-            foundMethod = matchedMethods.get(0);
-            Class[] types = foundMethod.getParameterTypes();
-
-            Iterator iter = params.iterator();
-            for (int i = 0; i < types.length; i++) {
-                Object curr = iter.next();
-                if (!types[i].equals(curr.getClass())) {
-                    converted[i] = Translator.convert(curr, types[i]);
-                }
-            }
-        }
+        //Find the method matching the name, the number and the types of the parameters.
+        //If no method matches the types exactly, the first one with the right number of
+        //parameters is used and the parameters are translated.
+        HandlerMethods.Resolution foundMethod = methods.resolve(beanifiedMethod, params);
 
         try {
-            return foundMethod.invoke(this, converted);
+            return foundMethod.invoke(this, params);
         }
-        catch (IllegalAccessException e) {
-            throw new XmlRpcFault(-1, "unhandled internal exception");
-        }
-        catch (InvocationTargetException e) {
-            Throwable t = e.getCause();
-            log.error("Error calling method: ", e);
-            log.error("Caused by: ", t);
+        catch (Throwable t) {
+            log.error("Error calling method: ", t);
 
             /*
              * HACK: this should really be handled by SessionFilter.doFilter,
@@ -174,93 +135,14 @@ public class BaseHandler implements XmlRpcInvocationHandler {
             }
             // If it isn't a FaultException that caused this, we still need to
             // send something to the client.
-            Throwable cause = e.getCause();
-            // If we can get the cause of the exception, then display the message
-            if (cause != null) {
-                throw new XmlRpcFault(-1, "unhandled internal exception: " +
-                      cause.getLocalizedMessage());
-            }
-            // Otherwise, throw the generic unhandled internal exception
-            throw new XmlRpcFault(-1, "unhandled internal exception");
+            throw new XmlRpcFault(-1, "unhandled internal exception: " +
+                  t.getLocalizedMessage());
         }
         finally {
-            if (session != null) {
-                SessionManager.extendSessionLifetime(session);
-            }
-        }
-    }
-
-    /**
-     * Finds the perfect match for a method based upon type
-     * @param params The parameters to find the match for.
-     * @param matchedMethods the list of methods to check for a perfect match
-     * @return null if no perfect match was found, otherwise the matched method.
-     */
-    private Method findPerfectMethod(List params, List<Method> matchedMethods) {
-        //now lets try to find one that matches parameters exactly
-        for (Method currMethod : matchedMethods) {
-            Class[] types = currMethod.getParameterTypes();
-            for (int i = 0; i < types.length; i++) {
-                //if we find a param that doesn't match, go to the next method
-                if (!types[i].isAssignableFrom(params.get(i).getClass())) {
-                    break;
-                }
-                //if we have gone through all of the params, and are here it is a
-                //      perfect match.
-                if (i == types.length - 1) {
-                    return currMethod;
-                }
+            if (sessionKey != null) {
+                SessionManager.extendSessionLifetimeLater(sessionKey);
             }
         }
-        return null;
-    }
-
-    /**
-     * Private method to find the method in the java class that is being called
-     * via xml-rpc
-     * @param methods The methods contained in the class
-     * @param params The parameters sent to us via xml-rpc
-     * @param beanifiedMethod The method name we are looking for
-     * @return The matching method we're looking for
-     * @throws XmlRpcFault Thrown if we can't find the method asked for
-     */
-    /*
-     * TODO: Make this method even smarterer.
-     *      Currently this finds methods that match the number of parameters and returns
-     *          those.
-     */
-    private List<Method> findMethods(Method[] methods, Collection params,
-            String beanifiedMethod) throws XmlRpcFault {
-
-        List<Method> toReturn = new ArrayList<Method>();
-
-        //Loop through the methods array and find the one we are trying to call.
-        for (int i = 0; i < methods.length; i++) {
-            if (methods[i].getName().equals(beanifiedMethod)) {
-                // We found a method with the right name, but does the parameter count
-                // match?
-                int numberOfParams = methods[i].getParameterTypes().length;
-                if (numberOfParams == params.size()) {
-                    //Method name and number of parameters match.
-                    toReturn.add(methods[i]);
-                }
-            }
-        }
-        if (toReturn.isEmpty()) {
-            //The caller didn't get the method name or number of parameters right
-            String message = "Could not find method: " + beanifiedMethod +
-            " in class: " + this.getClass().getName() + " with params: [";
-            for (Iterator iter = params.iterator(); iter.hasNext();) {
-                Object param = iter.next();
-                message += (param.getClass().getName());
-                    if (iter.hasNext()) {
-                        message = message + ", ";
-                    }
-            }
-            message = message + "]";
-            throw new XmlRpcFault(-1, message);
-        }
-        return toReturn;
     }
 
     /**
@@ -272,18 +154,8 @@ public class BaseHandler implements XmlRpcInvocationHandler {
      * sessionkey.
      */
     public static User getLoggedInUser(String sessionKey) {
-        //Load the session
-        WebSession session = SessionManager.loadSession(sessionKey);
-        User user = session.getUser();
-
-        //Make sure there was a valid user in the session. If not, the session is invalid.
-        if (user == null) {
-            throw new LookupException("Could not find a valid user for session with key: " +
-                                      sessionKey);
-        }
-
-        //Return the logged in user
-        return user;
+        //Session keys validated a few seconds ago are not looked up again
+        return SessionManager.loadUser(sessionKey);
     }
 
     /**
@@ -488,7 +360,7 @@ public class BaseHandler implements XmlRpcInvocationHandler {
     }
 
     private boolean isSessionKey(String string) {
-        return string.matches(KEY_REGEX);
+        return KEY_PATTERN.matcher(string).matches();
     }
 
 }
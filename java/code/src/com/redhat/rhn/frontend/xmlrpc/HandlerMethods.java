@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.xmlrpc;
+
+import com.redhat.rhn.common.translation.Translator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import redstone.xmlrpc.XmlRpcFault;
+
+/**
+ * Dispatch table of an xmlrpc handler class.
+ *
+ * The public methods of the class are grouped once by name and number of parameters,
+ * each with a {@link MethodHandle} to invoke it. Calls are resolved the same way
+ * {@link BaseHandler} always did (the first method whose parameter types accept the
+ * parameters, otherwise the first method with the right number of parameters and
+ * {@link Translator} conversions), but only once per distinct method name and
+ * parameter types.
+ */
+class HandlerMethods {
+
+    private static final ClassValue<HandlerMethods> TABLES = new ClassValue<HandlerMethods>() {
+        @Override
+        protected HandlerMethods computeValue(Class<?> type) {
+            return new HandlerMethods(type);
+        }
+    };
+
+    private final Class<?> handlerClass;
+    private final Map<String, List<Target>> byNameAndArity = new HashMap<>();
+    private final Map<List<Object>, Resolution> resolved = new ConcurrentHashMap<>();
+
+    private HandlerMethods(Class<?> handlerClassIn) {
+        handlerClass = handlerClassIn;
+        // keep getMethods() order, as the first matching method wins
+        for (Method m : handlerClassIn.getMethods()) {
+            byNameAndArity.computeIfAbsent(key(m.getName(), m.getParameterCount()),
+                    k -> new ArrayList<>()).add(new Target(m));
+        }
+    }
+
+    /**
+     * Returns the dispatch table of the given handler class, building it if needed.
+     * @param handlerClass the handler class
+     * @return the dispatch table
+     */
+    static HandlerMethods forClass(Class<?> handlerClass) {
+        return TABLES.get(handlerClass);
+    }
+
+    /**
+     * Finds the method to call for the given parameters.
+     * @param beanifiedMethod the beanified name of the called method
+     * @param params the parameters of the call
+     * @return the method to call
+     * @throws XmlRpcFault if no method has that name and number of parameters
+     */
+    Resolution resolve(String beanifiedMethod, List<?> params) throws XmlRpcFault {
+        List<Object> signature = new ArrayList<>(params.size() + 1);
+        signature.add(beanifiedMethod);
+        for (Object param : params) {
+            signature.add(param == null ? null : param.getClass());
+        }
+
+        Resolution resolution = resolved.get(signature);
+        if (resolution == null) {
+            List<Target> targets = byNameAndArity.get(key(beanifiedMethod, params.size()));
+            if (targets == null) {
+                throw noSuchMethod(beanifiedMethod, params);
+            }
+            resolution = new Resolution(targets.get(0), true);
+            for (Target target : targets) {
+                if (target.accepts(signature)) {
+                    resolution = new Resolution(target, false);
+                    break;
+                }
+            }
+            resolved.put(signature, resolution);
+        }
+        return resolution;
+    }
+
+    private XmlRpcFault noSuchMethod(String beanifiedMethod, List<?> params) {
+        StringBuilder message = new StringBuilder("Could not find method: ")
+                .append(beanifiedMethod)
+                .append(" in class: ")
+                .append(handlerClass.getName())
+                .append(" with params: [");
+        for (Iterator<?> iter = params.iterator(); iter.hasNext();) {
+            Object param = iter.next();
+            message.append(param == null ? "null" : param.getClass().getName());
+            if (iter.hasNext()) {
+                message.append(", ");
+            }
+        }
+        message.append("]");
+        return new XmlRpcFault(-1, message.toString());
+    }
+
+    private static String key(String name, int arity) {
+        return name + "/" + arity;
+    }
+
+    /**
+     * A handler method with its method handle.
+     */
+    private static final class Target {
+        private final Method method;
+        private final Class<?>[] types;
+        private final MethodHandle invoker;
+
+        Target(Method methodIn) {
+            method = methodIn;
+            types = methodIn.getParameterTypes();
+
+            MethodHandle handle = unreflect(methodIn).asFixedArity();
+            if (Modifier.isStatic(methodIn.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            // (Object handler, Object... params) -> Object
+            invoker = handle.asType(MethodType.genericMethodType(types.length + 1))
+                    .asSpreader(Object[].class, types.length + 1);
+        }
+
+        boolean accepts(List<Object> signature) {
+            for (int i = 0; i < types.length; i++) {
+                Class<?> paramClass = (Class<?>) signature.get(i + 1);
+                if (paramClass == null ? types[i].isPrimitive() :
+                        !types[i].isAssignableFrom(paramClass)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static MethodHandle unreflect(Method m) {
+            try {
+                return MethodHandles.publicLookup().unreflect(m);
+            }
+            catch (IllegalAccessException e) {
+                // public method inherited from a non public class
+                m.setAccessible(true);
+                try {
+                    return MethodHandles.lookup().unreflect(m);
+                }
+                catch (IllegalAccessException e1) {
+                    throw new IllegalStateException("Could not access " + m, e1);
+                }
+            }
+        }
+    }
+
+    /**
+     * The method resolved for a method name and list of parameter types.
+     */
+    static final class Resolution {
+        private final Target target;
+        private final boolean convert;
+
+        private Resolution(Target targetIn, boolean convertIn) {
+            target = targetIn;
+            convert = convertIn;
+        }
+
+        /**
+         * @return the resolved method
+         */
+        Method getMethod() {
+            return target.method;
+        }
+
+        /**
+         * Calls the resolved method, converting the parameters if they do not match its
+         * parameter types.
+         * @param handler the handler to call the method on
+         * @param params the parameters of the call
+         * @return the return value of the method, null for void methods
+         * @throws Throwable anything thrown by the method or by the conversions
+         */
+        Object invoke(Object handler, List<?> params) throws Throwable {
+            Object[] args = new Object[params.size() + 1];
+            args[0] = handler;
+            for (int i = 0; i < target.types.length; i++) {
+                Object param = params.get(i);
+                if (convert && param != null && !target.types[i].equals(param.getClass())) {
+                    param = Translator.convert(param, target.types[i]);
+                }
+                args[i + 1] = param;
+            }
+            return (Object) target.invoker.invokeExact(args);
+        }
+    }
+}
@@ -113,7 +113,10 @@ public class XmlRpcServlet extends HttpServlet {
                 log.debug("registerInvocationHandler: namespace [" + namespace +
                           "] handler [" + handlers.getHandler(namespace) + "]");
             }
-            srvr.addInvocationHandler(namespace, handlers.getHandler(namespace));
+            BaseHandler handler = handlers.getHandler(namespace);
+            // build the dispatch table now rather than on the first call
+            HandlerMethods.forClass(handler.getClass());
+            srvr.addInvocationHandler(namespace, handler);
         }
     }
 
@@ -39,6 +39,7 @@ import com.redhat.rhn.domain.rhnpackage.Package;
 import com.redhat.rhn.domain.rhnpackage.PackageFactory;
 import com.redhat.rhn.domain.role.Role;
 import com.redhat.rhn.domain.role.RoleFactory;
+import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.Server;
 import com.redhat.rhn.domain.server.ServerFactory;
 import com.redhat.rhn.domain.user.User;
@@ -79,6 +80,7 @@ import com.redhat.rhn.manager.user.UserManager;
 import com.redhat.rhn.taskomatic.TaskomaticApi;
 import com.redhat.rhn.taskomatic.task.TaskConstants;
 import com.redhat.rhn.taskomatic.task.errata.ErrataCacheWorker;
+import com.redhat.rhn.taskomatic.task.repomd.RepomdCompression;
 
 import com.suse.manager.webui.services.SaltStateGeneratorService;
 import org.apache.commons.lang3.BooleanUtils;
@@ -88,13 +90,13 @@ import org.apache.log4j.Logger;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * ChannelSoftwareHandler
@@ -629,6 +631,9 @@ public class ChannelSoftwareHandler extends BaseHandler {
      *      #prop_desc("string", "gpg_key_fp", "new channel gpg key fingerprint
      *          (optional)")
      *      #prop_desc("string", "gpg_check", "enable/disable gpg check (optional)")
+     *      #prop_desc("string", "repodata_compression", "compression of the repository
+     *          metadata: gzip, parallel_gzip or zstd, empty for the server default
+     *          (optional)")
      *
      *  #struct_end()
      *@xmlrpc.returntype #return_int_success()
@@ -666,6 +671,9 @@ public class ChannelSoftwareHandler extends BaseHandler {
      *          (optional)")
      *      #prop_desc("string", "gpg_check", "enable/disable gpg check
      *          (optional)")
+     *      #prop_desc("string", "repodata_compression", "compression of the repository
+     *          metadata: gzip, parallel_gzip or zstd, empty for the server default
+     *          (optional)")
      *  #struct_end()
 
      *@xmlrpc.returntype #return_int_success()
@@ -687,6 +695,7 @@ public class ChannelSoftwareHandler extends BaseHandler {
         validKeys.add("gpg_key_id");
         validKeys.add("gpg_key_fp");
         validKeys.add("gpg_check");
+        validKeys.add("repodata_compression");
         validateMap(validKeys, details);
 
         UpdateChannelCommand ucc = new UpdateChannelCommand(loggedInUser, channel);
@@ -694,13 +703,37 @@ public class ChannelSoftwareHandler extends BaseHandler {
         setChangedValues(ucc, details);
 
         ucc.update(channelId.longValue());
-        ServerFactory.listMinionsByChannel(channelId).stream().forEach(ms -> {
-            SaltStateGeneratorService.INSTANCE.generatePillar(ms, false,
-                    Collections.emptySet());
-        });
+        if (details.containsKey("repodata_compression")) {
+            setRepodataCompression(channel, details.get("repodata_compression"));
+        }
+        SaltStateGeneratorService.INSTANCE.schedulePillarRegeneration(
+                ServerFactory.listMinionsByChannel(channelId).stream()
+                        .map(MinionServer::getId)
+                        .collect(Collectors.toList()));
         return 1;
     }
 
+    /**
+     * Sets the compression of the repository metadata of a channel, and regenerates the
+     * metadata if it changed.
+     * @param channel the channel
+     * @param label the compression label, empty for the server default
+     */
+    private void setRepodataCompression(Channel channel, String label) {
+        String compression = StringUtils.isEmpty(label) ? null : label;
+        if (compression != null && !RepomdCompression.lookup(compression).isPresent()) {
+            throw new InvalidParameterException("Invalid repodata_compression: " + label);
+        }
+        if (!StringUtils.equals(compression, channel.getRepodataCompression())) {
+            channel.setRepodataCompression(compression);
+            ChannelFactory.save(channel);
+            if (channel.getPackageCount() > 0) {
+                ChannelManager.queueChannelChange(channel.getLabel(),
+                        "java::updateChannelCommon", null);
+            }
+        }
+    }
+
     /**
      * Set the values to the command.
      * @param command CreateChannelCommand command
@@ -37,6 +37,7 @@ import com.redhat.rhn.frontend.dto.PackageDto;
 import com.redhat.rhn.frontend.xmlrpc.InvalidChannelException;
 import com.redhat.rhn.frontend.xmlrpc.InvalidChannelLabelException;
 import com.redhat.rhn.frontend.xmlrpc.InvalidChannelNameException;
+import com.redhat.rhn.frontend.xmlrpc.InvalidParameterException;
 import com.redhat.rhn.frontend.xmlrpc.InvalidParentChannelException;
 import com.redhat.rhn.frontend.xmlrpc.NoSuchChannelException;
 import com.redhat.rhn.frontend.xmlrpc.NoSuchUserException;
@@ -495,6 +496,30 @@ public class ChannelSoftwareHandlerTest extends BaseHandlerTestCase {
         channelDetailsEquality(c, result);
     }
 
+    public void testSetDetailsRepodataCompression() throws Exception {
+        ChannelSoftwareHandler csh = new ChannelSoftwareHandler();
+        addRole(admin, RoleFactory.CHANNEL_ADMIN);
+        Channel c = ChannelFactoryTest.createTestChannel(admin);
+
+        Map<String, String> details = new HashMap<>();
+        details.put("repodata_compression", "zstd");
+        csh.setDetails(admin, c.getLabel(), details);
+        assertEquals("zstd", csh.getDetails(admin, c.getLabel()).getRepodataCompression());
+
+        details.put("repodata_compression", "");
+        csh.setDetails(admin, c.getLabel(), details);
+        assertNull(csh.getDetails(admin, c.getLabel()).getRepodataCompression());
+
+        details.put("repodata_compression", "bzip2");
+        try {
+            csh.setDetails(admin, c.getLabel(), details);
+            fail("unknown compressions should be rejected");
+        }
+        catch (InvalidParameterException e) {
+            // expected
+        }
+    }
+
    public void testGetChannelLastBuildById() throws Exception {
        ChannelSoftwareHandler csh = new ChannelSoftwareHandler();
        addRole(admin, RoleFactory.CHANNEL_ADMIN);
@@ -45,6 +45,7 @@ import com.redhat.rhn.frontend.xmlrpc.serializer.util.SerializerHelper;
  *      #prop("string", "summary")
  *      #prop("string", "description")
  *      #prop("string", "checksum_label")
+ *      #prop_desc("string", "repodata_compression", "empty for the server default")
  *      #prop("dateTime.iso8601", "last_modified")
  *      #prop("string", "maintainer_name")
  *      #prop("string", "maintainer_email")
@@ -97,6 +98,8 @@ public class ChannelSerializer extends RhnXmlRpcCustomSerializer {
         helper.add("description",
                 StringUtils.defaultString(c.getDescription()));
         helper.add("checksum_label", c.getChecksumTypeLabel());
+        helper.add("repodata_compression",
+                StringUtils.defaultString(c.getRepodataCompression()));
         helper.add("last_modified", c.getLastModified());
         helper.add("maintainer_name",
                 StringUtils.defaultString(c.getMaintainerName()));
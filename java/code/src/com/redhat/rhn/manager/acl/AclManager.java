@@ -30,6 +30,8 @@ import javax.servlet.http.HttpServletRequest;
  */
 public class AclManager {
 
+    private static final String RESULT_CACHE = AclManager.class.getName() + ".results";
+
     private AclManager() {
         // hidden constructor
     }
@@ -47,7 +49,7 @@ public class AclManager {
             return true;
         }
         return hasAcl(acl, new RequestContext(request).getCurrentUser(), mixins,
-                new HashMap(request.getParameterMap()));
+                new HashMap(request.getParameterMap()), getResultCache(request));
     }
 
     /**
@@ -61,15 +63,33 @@ public class AclManager {
      */
     public static boolean hasAcl(String acl, User user, String mixins,
             Map context) {
+        return hasAcl(acl, user, mixins, context, null);
+    }
+
+    /**
+     * Returns the ACL handler results remembered for the given request, creating them
+     * if needed.
+     * @param request The request
+     * @return the handler results of the request
+     * @see Acl#setResultCache(Map)
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<Object, Boolean> getResultCache(HttpServletRequest request) {
+        Map<Object, Boolean> results = (Map<Object, Boolean>) request.getAttribute(RESULT_CACHE);
+        if (results == null) {
+            results = new HashMap<Object, Boolean>();
+            request.setAttribute(RESULT_CACHE, results);
+        }
+        return results;
+    }
+
+    private static boolean hasAcl(String acl, User user, String mixins,
+            Map context, Map<Object, Boolean> resultCache) {
         if (acl == null || "".equals(acl)) {
             return true;
         }
-        // TODO: Lifecycle issue
-        // It's not cool that we're instantiating a new
-        // Acl everytime we need to use it. We should register
-        // the acl handlers at startup and simply call acl.evalAcl()
-        // when needed.
         Acl aclObj = AclFactory.getInstance().getAcl(mixins);
+        aclObj.setResultCache(resultCache);
         if (context == null) {
            context = new HashMap();
         }
@@ -45,6 +45,7 @@ import com.redhat.rhn.domain.product.SUSEProductChannel;
 import com.redhat.rhn.domain.product.SUSEProductExtension;
 import com.redhat.rhn.domain.product.SUSEProductFactory;
 import com.redhat.rhn.domain.product.SUSEProductSet;
+import com.redhat.rhn.domain.rhnpackage.ChannelPackagePathIndex;
 import com.redhat.rhn.domain.rhnpackage.PackageEvr;
 import com.redhat.rhn.domain.role.RoleFactory;
 import com.redhat.rhn.domain.server.Server;
@@ -665,6 +666,7 @@ public class ChannelManager extends BaseManager {
             ChannelManager.queueChannelChange(label,
                     user.getLogin(), "java::deleteChannel");
             ChannelFactory.remove(toRemove);
+            ChannelPackagePathIndex.INSTANCE.invalidate(label);
         }
     }
 
@@ -102,6 +102,7 @@ public class CloneChannelCommand extends CreateChannelCommand {
         // cloned channel stuff
         c.setProductName(original.getProductName());
         c.setUpdateTag(original.getUpdateTag());
+        c.setRepodataCompression(original.getRepodataCompression());
         c.setOriginal(original);
 
         // need to save before calling stored procs below
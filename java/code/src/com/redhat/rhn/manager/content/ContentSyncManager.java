@@ -873,7 +873,8 @@ public class ContentSyncManager {
         }
 
         // Read repos from SCC
-        List<SCCRepository> sccRepos = SCCCachingFactory.lookupRepositories();
+        Map<String, List<SCCRepository>> sccRepos =
+                indexRepositories(SCCCachingFactory.lookupRepositories());
 
         // Get all vendor channels from the database
         List<Channel> channelsDB = ChannelFactory.listVendorChannels();
@@ -1108,7 +1109,8 @@ public class ContentSyncManager {
      */
     public List<XMLChannel> getAvailableChannels(List<XMLChannel> allChannels)
             throws ContentSyncException {
-        List<SCCRepository> repositories = SCCCachingFactory.lookupRepositories();
+        Map<String, List<SCCRepository>> repositories =
+                indexRepositories(SCCCachingFactory.lookupRepositories());
 
         // Filter in all channels which we can mirror
         List<XMLChannel> availableChannels = new ArrayList<XMLChannel>();
@@ -1274,7 +1276,8 @@ public class ContentSyncManager {
         cachedOESRepo = null;
 
         // Get the cached list of repositories
-        List<SCCRepository> repositories = SCCCachingFactory.lookupRepositories();
+        Map<String, List<SCCRepository>> repositories =
+                indexRepositories(SCCCachingFactory.lookupRepositories());
 
         // Determine the channel status
         for (XMLChannel c : getAvailableChannels(readChannels())) {
@@ -1303,6 +1306,20 @@ public class ContentSyncManager {
      */
     public SCCRepository isMirrorable(XMLChannel channel,
             Collection<SCCRepository> repos) throws ContentSyncException {
+        return isMirrorable(channel, indexRepositories(repos));
+    }
+
+    /**
+     * For a given channel, check if it is mirrorable and return the repository object
+     * with the ID of the first pair of mirror credentials with access to the given channel.
+     * @param channel Channel
+     * @param repos repos from SCC to match against, as returned by
+     * {@link #indexRepositories(Collection)}
+     * @return repository object or null if the channel is not mirrorable
+     * @throws ContentSyncException in case of an IO error while verifying OES
+     */
+    public SCCRepository isMirrorable(XMLChannel channel,
+            Map<String, List<SCCRepository>> repos) throws ContentSyncException {
         // No source URL means it's mirrorable (return 0 in this case)
         String sourceUrl = channel.getSourceUrl();
         if (StringUtils.isBlank(sourceUrl)) {
@@ -1337,10 +1354,31 @@ public class ContentSyncManager {
      * @return the repository
      */
     public SCCRepository findMatchingRepo(Collection<SCCRepository> repos, String url) {
+        return findMatchingRepo(indexRepositories(repos), url);
+    }
+
+    /**
+     * Finds the repo corresponding to an URL, that is the first repo with the same URL
+     * apart from trailing slashes and the query string.
+     *
+     * @param repos the repos, as returned by {@link #indexRepositories(Collection)}
+     * @param url the source url
+     * @return the repository
+     */
+    public SCCRepository findMatchingRepo(Map<String, List<SCCRepository>> repos,
+            String url) {
+        List<SCCRepository> candidates = repos.get(normalizeRepoUrl(url));
+        if (candidates == null) {
+            return null;
+        }
+        if (url.indexOf('?') < 0) {
+            return candidates.get(0);
+        }
+
+        // the query string is part of the source url, compare it too
         String noTrailingSlashUrl = url.replaceFirst("/+$", "");
         Pattern p = Pattern.compile(Pattern.quote(noTrailingSlashUrl) + "/*(?:\\?.*)?$");
-
-        for (SCCRepository repo : repos) {
+        for (SCCRepository repo : candidates) {
             if (p.matcher(repo.getUrl()).matches()) {
                 return repo;
             }
@@ -1348,6 +1386,32 @@ public class ContentSyncManager {
         return null;
     }
 
+    /**
+     * Indexes repos by their URL without query string and trailing slashes, for lookups
+     * with {@link #findMatchingRepo(Map, String)}.
+     *
+     * @param repos the repos
+     * @return the repos by normalized URL, in their original order
+     */
+    public static Map<String, List<SCCRepository>> indexRepositories(
+            Collection<SCCRepository> repos) {
+        return repos.stream()
+                .filter(repo -> repo.getUrl() != null)
+                .collect(Collectors.groupingBy(repo -> normalizeRepoUrl(repo.getUrl())));
+    }
+
+    /**
+     * Strips the query string and trailing slashes from a repo URL.
+     *
+     * @param url the URL
+     * @return the normalized URL
+     */
+    private static String normalizeRepoUrl(String url) {
+        int queryStart = url.indexOf('?');
+        String path = queryStart < 0 ? url : url.substring(0, queryStart);
+        return path.replaceFirst("/+$", "");
+    }
+
     /**
      * Add a new channel to the database.
      * @param label the label of the channel to be added.
@@ -17,6 +17,7 @@ package com.redhat.rhn.manager.errata.cache;
 import com.redhat.rhn.common.db.datasource.CallableMode;
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.messaging.MessageQueue;
@@ -28,6 +29,8 @@ import com.redhat.rhn.frontend.events.UpdateErrataCacheEvent;
 
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -389,6 +392,107 @@ public class ErrataCacheManager extends HibernateFactory {
         m.execute(params, new HashMap<String, Integer>());
     }
 
+    /**
+     * Returns the ids of all servers subscribed to a channel, in ascending order.
+     * @param cid the channel id
+     * @return list of server ids
+     */
+    public static List<Long> listServerIdsForChannel(Long cid) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("channel_id", cid);
+        DataResult<Map<String, Object>> dr = executeSelectMode("ErrataCache_queries",
+                "channel_server_ids", params);
+        List<Long> ids = new ArrayList<Long>(dr.size());
+        for (Map<String, Object> row : dr) {
+            ids.add((Long) row.get("id"));
+        }
+        return ids;
+    }
+
+    /**
+     * Recompute rhnServerNeededCache for a batch of servers in one set-based pass.
+     * Only the rows which differ from the freshly computed needed set are deleted
+     * or inserted. Pending per-server cache tasks for these servers are removed,
+     * as they are covered by this computation.
+     * The server rows are locked in id order, like rhn_server.update_needed_cache
+     * does, so this can run concurrently with the per-server computation.
+     * @param sids the server ids, should not be more than a few hundred
+     * @return number of cache rows changed
+     */
+    public static int updateNeededCacheForServers(List<Long> sids) {
+        if (sids.isEmpty()) {
+            return 0;
+        }
+        SelectMode lock = ModeFactory.getMode("ErrataCache_queries",
+                "lock_servers_for_needed_cache");
+        lock.execute(sids);
+
+        WriteMode tasks = ModeFactory.getWriteMode("ErrataCache_queries",
+                "delete_server_errata_cache_tasks");
+        tasks.executeUpdate(new HashMap<String, Object>(), sids);
+
+        WriteMode delete = ModeFactory.getWriteMode("ErrataCache_queries",
+                "delete_stale_needed_cache_for_servers");
+        int deleted = delete.executeUpdate(new HashMap<String, Object>(), sids);
+
+        WriteMode insert = ModeFactory.getWriteMode("ErrataCache_queries",
+                "insert_missing_needed_cache_for_servers");
+        int inserted = insert.executeUpdate(new HashMap<String, Object>(), sids);
+
+        if (log.isDebugEnabled()) {
+            log.debug("updateNeededCacheForServers : " + sids.size() + " servers, " +
+                    deleted + " cache entries deleted, " + inserted + " inserted");
+        }
+        return deleted + inserted;
+    }
+
+    /**
+     * Recompute rhnServerNeededCache of a server for the given package names only,
+     * e.g. after a package profile update changed the installed versions of these.
+     * Entries of other packages are left untouched. The server row is locked like
+     * in {@link #updateNeededCacheForServers(List)}.
+     * @param sid the server id
+     * @param nameIds ids of the package names that were installed, removed or updated
+     * @return number of cache rows changed
+     */
+    public static int updateNeededCacheForServerPackages(Long sid, List<Long> nameIds) {
+        if (nameIds.isEmpty()) {
+            return 0;
+        }
+        SelectMode lock = ModeFactory.getMode("ErrataCache_queries",
+                "lock_servers_for_needed_cache");
+        lock.execute(Collections.singletonList(sid));
+
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("sid", sid);
+        WriteMode delete = ModeFactory.getWriteMode("ErrataCache_queries",
+                "delete_stale_needed_cache_for_server_packages");
+        int deleted = delete.executeUpdate(params, nameIds);
+
+        WriteMode insert = ModeFactory.getWriteMode("ErrataCache_queries",
+                "insert_missing_needed_cache_for_server_packages");
+        int inserted = insert.executeUpdate(params, nameIds);
+
+        if (log.isDebugEnabled()) {
+            log.debug("updateNeededCacheForServerPackages : server " + sid + ", " +
+                    nameIds.size() + " package names, " + deleted +
+                    " cache entries deleted, " + inserted + " inserted");
+        }
+        return deleted + inserted;
+    }
+
+    /**
+     * Queue errata cache tasks for all images built from a channel.
+     * @param cid the channel id
+     */
+    public static void queueImagesForChannel(Long cid) {
+        WriteMode m = ModeFactory.getWriteMode("ErrataCache_queries",
+                "queue_images_for_channel");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("channel_id", cid);
+        m.executeUpdate(params);
+    }
+
     /**
      * Remove cache entries for particular packages usefull if you are removing
      * packages from a channel
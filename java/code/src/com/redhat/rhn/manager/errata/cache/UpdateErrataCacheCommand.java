@@ -39,6 +39,9 @@ public class UpdateErrataCacheCommand extends BaseTransactionCommand {
     private static Logger log = Logger
     .getLogger(UpdateErrataCacheCommand.class);
 
+    /* Number of servers whose cache is recomputed in one statement */
+    private static final int SERVER_BATCH_SIZE = 200;
+
     /**
      * Default constructor
      */
@@ -194,6 +197,36 @@ public class UpdateErrataCacheCommand extends BaseTransactionCommand {
         log.info("Finished with servers in channel [" + cid + "]");
     }
 
+    /**
+     * Recomputes the errata cache for all the servers in the given channel with
+     * set-based queries, a batch of servers at a time. Each batch is committed on
+     * its own to keep lock times on rhnServerNeededCache short.
+     * Images built from the channel are queued for their own update.
+     * @param cid Channel id whose servers need their cache updated.
+     */
+    public void recomputeErrataCacheForChannel(Long cid) {
+        log.info("Recomputing errata cache for servers in channel [" + cid + "]");
+        List<Long> sids = ErrataCacheManager.listServerIdsForChannel(cid);
+        int changed = 0;
+        try {
+            for (int i = 0; i < sids.size(); i += SERVER_BATCH_SIZE) {
+                List<Long> batch = sids.subList(i, Math.min(i + SERVER_BATCH_SIZE, sids.size()));
+                changed += ErrataCacheManager.updateNeededCacheForServers(batch);
+                handleTransaction();
+            }
+            ErrataCacheManager.queueImagesForChannel(cid);
+        }
+        catch (Exception e) {
+            log.error("Problem recomputing cache for servers in channel", e);
+            HibernateFactory.rollbackTransaction();
+        }
+        finally {
+            handleTransaction();
+        }
+        log.info("Finished with " + sids.size() + " servers in channel [" + cid + "], " +
+                changed + " cache entries changed");
+    }
+
     private void processServer(Long serverId) {
         CallableMode m = ModeFactory.getCallableMode(
                 "System_queries", "update_needed_cache");
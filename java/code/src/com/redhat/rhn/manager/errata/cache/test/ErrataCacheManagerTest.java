@@ -31,16 +31,19 @@ import com.redhat.rhn.domain.server.InstalledPackage;
 import com.redhat.rhn.domain.server.Server;
 import com.redhat.rhn.domain.server.ServerFactory;
 import com.redhat.rhn.domain.server.test.ServerFactoryTest;
+import com.redhat.rhn.domain.task.TaskFactory;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.domain.user.UserFactory;
 import com.redhat.rhn.frontend.dto.ErrataCacheDto;
 import com.redhat.rhn.manager.errata.cache.ErrataCacheManager;
+import com.redhat.rhn.taskomatic.task.errata.ErrataCacheWorker;
 import com.redhat.rhn.testing.RhnBaseTestCase;
 import com.redhat.rhn.testing.TestUtils;
 import com.redhat.rhn.testing.UserTestUtils;
 
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -338,4 +341,31 @@ public class ErrataCacheManagerTest extends RhnBaseTestCase {
         assertFalse(dr.isEmpty());
         assertTrue(dr.size() >= 1);
     }
+
+    public void testUpdateNeededCacheForServers() throws Exception {
+        Long oid = UserTestUtils.createOrg("testOrg" + this.getClass().getSimpleName());
+        Org org = OrgFactory.lookupById(oid);
+        User user = UserTestUtils.createUser("testUser", oid);
+        Server server = ServerFactoryTest.createTestServer(user);
+        Package pkg = PackageTest.createTestPackage(org);
+        Errata e = ErrataFactoryTest.createTestErrata(oid);
+        Long sid = server.getId();
+
+        // the server has no package installed from any channel: the entry is stale
+        int rows = ErrataCacheManager.insertNeededErrataCache(sid, e.getId(), pkg.getId());
+        assertEquals(1, rows);
+        TaskFactory.createTask(org, ErrataCacheWorker.FOR_SERVER, sid);
+        HibernateFactory.getSession().flush();
+
+        int changed = ErrataCacheManager.updateNeededCacheForServers(
+                Collections.singletonList(sid));
+        assertEquals(1, changed);
+        assertTrue(ErrataCacheManager.packagesNeedingUpdates(sid).isEmpty());
+        assertNull(TaskFactory.lookup(org, ErrataCacheWorker.FOR_SERVER, sid));
+
+        // nothing left to change
+        changed = ErrataCacheManager.updateNeededCacheForServers(
+                Collections.singletonList(sid));
+        assertEquals(0, changed);
+    }
 }
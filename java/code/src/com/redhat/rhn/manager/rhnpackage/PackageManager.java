@@ -60,9 +60,11 @@ import com.redhat.rhn.domain.server.Server;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.dto.PackageComparison;
 import com.redhat.rhn.frontend.dto.PackageListItem;
+import com.redhat.rhn.frontend.dto.PackageOverview;
 import com.redhat.rhn.frontend.dto.PackageFileDto;
 import com.redhat.rhn.frontend.dto.UpgradablePackageListItem;
 import com.redhat.rhn.frontend.listview.PageControl;
+import com.redhat.rhn.frontend.taglibs.list.SelectModeDataSource;
 import com.redhat.rhn.frontend.xmlrpc.PermissionCheckFailureException;
 import com.redhat.rhn.manager.BaseManager;
 import com.redhat.rhn.manager.channel.ChannelManager;
@@ -216,6 +218,22 @@ public class PackageManager extends BaseManager {
         return m.execute(params);
     }
 
+    /**
+     * The packages in a channel for the web UI lists, filtered, sorted and
+     * paginated by the database
+     * @param cid the channel id
+     * @return the data source of the packages, sortable and filterable by nvrea
+     */
+    public static SelectModeDataSource<PackageOverview> listPackagesInChannelForPagedList(
+            Long cid) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("cid", cid);
+        return new SelectModeDataSource<PackageOverview>("Package_queries",
+                "packages_in_channel", params)
+                .addColumn("nvrea", "nvrea")
+                .setKeyColumn("id");
+    }
+
 
     /**
      * Runs Channel_queries.org_pkg_channels query.
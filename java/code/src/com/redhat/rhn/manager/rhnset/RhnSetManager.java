@@ -19,6 +19,8 @@ import com.redhat.rhn.domain.rhnset.RhnSetFactory;
 import com.redhat.rhn.domain.rhnset.SetCleanup;
 import com.redhat.rhn.manager.BaseManager;
 
+import java.util.Map;
+
 /**
  * RhnSetManager
  * offers management methods for RhnSet objects giving you the ability
@@ -87,4 +89,19 @@ public class RhnSetManager extends BaseManager {
         }
         RhnSetFactory.save(set);
     }
+
+    /**
+     * Adds to the RhnSet all elements selected by a Set_queries write mode, without
+     * loading them in memory, and stores it in the db.
+     * @param set The set to add elements to.
+     * @param modeName Name of the INSERT ... SELECT write mode.
+     * @param params Parameters of the write mode, besides user_id and label.
+     */
+    public static void addFromQuery(RhnSet set, String modeName,
+            Map<String, Object> params) {
+        if (set == null) {
+            return;
+        }
+        RhnSetFactory.addFromQuery(set, modeName, params);
+    }
 }
@@ -17,10 +17,20 @@ package com.redhat.rhn.manager.rhnset.test;
 import com.redhat.rhn.domain.rhnset.RhnSet;
 import com.redhat.rhn.domain.rhnset.RhnSetElement;
 import com.redhat.rhn.domain.rhnset.SetCleanup;
+import com.redhat.rhn.domain.server.Server;
+import com.redhat.rhn.domain.server.ServerConstants;
+import com.redhat.rhn.domain.server.ServerFactory;
+import com.redhat.rhn.domain.server.ServerGroup;
+import com.redhat.rhn.domain.server.test.ServerFactoryTest;
+import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.manager.rhnset.RhnSetManager;
 import com.redhat.rhn.testing.RhnBaseTestCase;
+import com.redhat.rhn.testing.ServerGroupTestUtils;
 import com.redhat.rhn.testing.UserTestUtils;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * RhnManagerTest
  * @version $Rev$
@@ -210,6 +220,52 @@ public class RhnSetManagerTest extends RhnBaseTestCase {
         assertEquals(new Long(33), element.getElementThree());
     }
 
+    public void testBatchedStore() throws Exception {
+        String label = "test_rhn_set_label_batched";
+
+        RhnSet set = RhnSetManager.createSet(userId, label, cleanup);
+        for (long i = 0; i < 1200; i++) {
+            set.addElement(i);
+            set.addElement(i + 10000, i);
+            set.addElement(i + 20000, i, i);
+        }
+        RhnSetManager.store(set);
+        assertEquals(1, cleanup.callbacks);
+        assertEquals(3600, RhnSetManager.findByLabel(userId, label, cleanup).size());
+
+        for (long i = 0; i < 600; i++) {
+            set.removeElement(i);
+            set.removeElement(i + 10000, i);
+        }
+        set.addElement(5000L);
+        RhnSetManager.store(set);
+        assertEquals(2, cleanup.callbacks);
+        assertEquals(2401, RhnSetManager.findByLabel(userId, label, cleanup).size());
+    }
+
+    public void testAddFromQuery() throws Exception {
+        User user = UserTestUtils.findNewUser("testUser",
+                "testOrg" + this.getClass().getSimpleName());
+        Server server = ServerFactoryTest.createTestServer(user, true,
+                ServerConstants.getServerGroupTypeEnterpriseEntitled());
+        ServerGroup group = ServerGroupTestUtils.createManaged(user);
+        ServerFactory.addServerToGroup(server, group);
+
+        RhnSet set = RhnSetManager.createSet(user.getId(), "test_rhn_set_query", cleanup);
+        set.addElement(42L);
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("sgid", group.getId());
+        RhnSetManager.addFromQuery(set, "add_group_systems_to_set", params);
+        // adding the same elements twice is tolerated
+        RhnSetManager.addFromQuery(set, "add_group_systems_to_set", params);
+
+        assertEquals(2, set.size());
+        assertTrue(set.contains(server.getId()));
+        assertTrue(set.contains(42L));
+        assertEquals(2, RhnSetManager.findByLabel(user.getId(), "test_rhn_set_query",
+                cleanup).size());
+    }
+
     public static final class TestSetCleanup extends SetCleanup {
         private int callbacks = 0;
 
@@ -16,13 +16,17 @@ package com.redhat.rhn.manager.session;
 
 import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.common.db.datasource.ModeFactory;
 import com.redhat.rhn.common.hibernate.LookupException;
+import com.redhat.rhn.common.messaging.MessageQueue;
 import com.redhat.rhn.common.security.HMAC;
 import com.redhat.rhn.common.util.TimeUtils;
 import com.redhat.rhn.domain.session.InvalidSessionIdException;
 import com.redhat.rhn.domain.session.WebSession;
 import com.redhat.rhn.domain.session.WebSessionFactory;
 import com.redhat.rhn.domain.user.User;
+import com.redhat.rhn.domain.user.UserFactory;
+import com.redhat.rhn.frontend.events.ExtendSessionsEvent;
 import com.redhat.rhn.manager.BaseManager;
 
 import org.apache.commons.lang3.StringUtils;
@@ -30,7 +34,12 @@ import org.apache.log4j.Logger;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * SessionManager is the helper class used to fetch configuration
@@ -49,6 +58,12 @@ public class SessionManager extends BaseManager {
     // Timeout value 900,000 = 15 min
     public static final long TIMEOUT_VAL = 900000;
 
+    /* Validated session keys, see loadUser() */
+    private static final Map<String, CachedSession> SESSION_CACHE =
+            new ConcurrentHashMap<String, CachedSession>();
+    /* Session expiry times waiting to be written, by session id */
+    private static final Map<Long, Long> PENDING_EXPIRES = new ConcurrentHashMap<Long, Long>();
+
     protected SessionManager() {
     }
 
@@ -94,6 +109,7 @@ public class SessionManager extends BaseManager {
      * @return number of sessions removed (typically 1 or 0).
      */
     public static int removeSession(WebSession s) {
+        evictSession(s.getId());
         return WebSessionFactory.remove(s);
     }
 
@@ -401,6 +417,7 @@ public class SessionManager extends BaseManager {
      * @param user the user whose sessions are to be purged.
      */
     public static void purgeUserSessions(User user) {
+        SESSION_CACHE.values().removeIf(cached -> user.getId().equals(cached.userId));
         WebSessionFactory.purgeUserSessions(user);
     }
 
@@ -412,5 +429,104 @@ public class SessionManager extends BaseManager {
                 SessionManager.lifetimeValue());
         WebSessionFactory.save(session);
     }
-}
 
+    /**
+     * Returns the user logged into the session identified by sessionKey. A key that
+     * was looked up less than {@link ConfigDefaults#getApiSessionCacheTtl()} seconds
+     * ago is not looked up again, only its user is loaded.
+     * @param sessionKey The key for the session
+     * @return the user logged into the session
+     */
+    public static User loadUser(String sessionKey) {
+        CachedSession cached = SESSION_CACHE.get(sessionKey);
+        if (cached == null || !cached.isFresh()) {
+            cached = new CachedSession(lookupByKey(sessionKey),
+                    ConfigDefaults.get().getApiSessionCacheTtl());
+            SESSION_CACHE.put(sessionKey, cached);
+        }
+
+        User user = cached.userId == null ? null : UserFactory.lookupById(cached.userId);
+        //Make sure there was a valid user in the session. If not, the session is invalid.
+        if (user == null) {
+            throw new LookupException("Could not find a valid user for session with key: " +
+                    sessionKey);
+        }
+        return user;
+    }
+
+    /**
+     * Extends the lifetime of a session loaded via {@link #loadUser(String)} without
+     * writing to the database. Extensions are collected and written together by
+     * {@link #extendPendingSessions()}; extensions adding less than
+     * {@link ConfigDefaults#getApiSessionExtendThreshold()} seconds are skipped.
+     * @param sessionKey The key for the session
+     */
+    public static void extendSessionLifetimeLater(String sessionKey) {
+        CachedSession cached = SESSION_CACHE.get(sessionKey);
+        if (cached == null) {
+            return;
+        }
+        long expires = TimeUtils.currentTimeSeconds() + lifetimeValue();
+        if (expires - cached.expires < ConfigDefaults.get().getApiSessionExtendThreshold()) {
+            return;
+        }
+        cached.expires = expires;
+        if (PENDING_EXPIRES.put(cached.sessionId, expires) == null) {
+            MessageQueue.publish(new ExtendSessionsEvent());
+        }
+    }
+
+    /**
+     * Writes the session lifetime extensions collected by
+     * {@link #extendSessionLifetimeLater(String)} and forgets the cached sessions
+     * that have expired.
+     * @return the number of sessions extended
+     */
+    public static int extendPendingSessions() {
+        List<Map<String, Object>> params = new ArrayList<Map<String, Object>>();
+        for (Long sessionId : PENDING_EXPIRES.keySet()) {
+            Long expires = PENDING_EXPIRES.remove(sessionId);
+            if (expires != null) {
+                Map<String, Object> row = new HashMap<String, Object>();
+                row.put("id", sessionId);
+                row.put("expires", expires);
+                params.add(row);
+            }
+        }
+        if (!params.isEmpty()) {
+            ModeFactory.getWriteMode("User_queries", "extend_session_expires")
+                    .executeUpdates(params);
+        }
+
+        long now = TimeUtils.currentTimeSeconds();
+        SESSION_CACHE.values().removeIf(cached -> cached.expires < now);
+        return params.size();
+    }
+
+    private static void evictSession(Long sessionId) {
+        SESSION_CACHE.values().removeIf(cached -> cached.sessionId.equals(sessionId));
+        PENDING_EXPIRES.remove(sessionId);
+    }
+
+    /**
+     * A session key that has been validated against the database.
+     */
+    private static final class CachedSession {
+        private final Long sessionId;
+        private final Long userId;
+        private final long validUntil;
+        private volatile long expires;
+
+        CachedSession(WebSession session, int ttlSeconds) {
+            sessionId = session.getId();
+            userId = session.getWebUserId();
+            validUntil = System.currentTimeMillis() + ttlSeconds * 1000L;
+            expires = session.getExpires();
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() < validUntil &&
+                    expires >= TimeUtils.currentTimeSeconds();
+        }
+    }
+}
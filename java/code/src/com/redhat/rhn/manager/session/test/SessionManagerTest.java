@@ -220,4 +220,52 @@ public class SessionManagerTest extends RhnBaseTestCase {
         }
 
     }
+
+    public void testLoadUserCachesKey() throws Exception {
+        Config.get().setString(ConfigDefaults.API_SESSION_CACHE_TTL, "600");
+        try {
+            User u = UserTestUtils.findNewUser("testUser",
+                    "testOrg" + this.getClass().getSimpleName());
+            WebSession s = SessionManager.makeSession(u.getId(), 3600L);
+            String key = s.getKey();
+            assertEquals(u, SessionManager.loadUser(key));
+
+            // a key validated recently is not looked up again
+            WebSessionFactory.remove(s);
+            flushAndEvict(s);
+            assertEquals(u, SessionManager.loadUser(key));
+
+            // purging the user sessions evicts the key
+            SessionManager.purgeUserSessions(u);
+            try {
+                SessionManager.loadUser(key);
+                fail("Lookup exception not thrown for a purged session");
+            }
+            catch (LookupException le) {
+                // expected
+            }
+        }
+        finally {
+            Config.get().remove(ConfigDefaults.API_SESSION_CACHE_TTL);
+        }
+    }
+
+    public void testExtendSessionLifetimeLater() throws Exception {
+        User u = UserTestUtils.findNewUser("testUser",
+                "testOrg" + this.getClass().getSimpleName());
+        WebSession s = SessionManager.makeSession(u.getId(), 0L);
+        flushAndEvict(s);
+        String key = s.getKey();
+        SessionManager.loadUser(key);
+
+        // extensions by many calls are written once
+        SessionManager.extendSessionLifetimeLater(key);
+        SessionManager.extendSessionLifetimeLater(key);
+        assertEquals(1, SessionManager.extendPendingSessions());
+        assertEquals(0, SessionManager.extendPendingSessions());
+
+        s = WebSessionFactory.lookupById(s.getId());
+        assertTrue(s.getExpires() >=
+                TimeUtils.currentTimeSeconds() + SessionManager.lifetimeValue() - 2);
+    }
 }
@@ -38,6 +38,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * ServerGroupManager
@@ -335,10 +336,8 @@ public class ServerGroupManager {
         validateAdminCredentials(loggedInUser);
         for (Server s : servers) {
             SystemManager.addServerToServerGroup(s, sg);
-            s.asMinionServer().ifPresent(
-                    SaltStateGeneratorService.INSTANCE::generatePillar);
         }
-
+        schedulePillarRegeneration(servers);
     }
 
     /**
@@ -364,9 +363,16 @@ public class ServerGroupManager {
     public void removeServers(ServerGroup sg, Collection<Server> servers) {
         for (Server s : servers) {
             SystemManager.removeServerFromServerGroup(s, sg);
-            s.asMinionServer().ifPresent(
-                    SaltStateGeneratorService.INSTANCE::generatePillar);
         }
+        schedulePillarRegeneration(servers);
+    }
+
+    private void schedulePillarRegeneration(Collection<Server> servers) {
+        // group membership affects channel access, so access tokens are refreshed too
+        SaltStateGeneratorService.INSTANCE.schedulePillarRegeneration(servers.stream()
+                .filter(s -> s.asMinionServer().isPresent())
+                .map(Server::getId)
+                .collect(Collectors.toList()), true);
     }
 
     /**
@@ -41,6 +41,7 @@ import com.redhat.rhn.domain.rhnpackage.PackageFactory;
 import com.redhat.rhn.domain.role.RoleFactory;
 import com.redhat.rhn.domain.server.CPU;
 import com.redhat.rhn.domain.server.InstalledPackage;
+import com.redhat.rhn.domain.server.MinionDirectory;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.Note;
 import com.redhat.rhn.domain.server.ProxyInfo;
@@ -89,6 +90,7 @@ import com.suse.manager.reactor.messaging.ChannelsChangedEventMessage;
 import com.suse.manager.webui.services.SaltStateGeneratorService;
 import com.suse.manager.webui.services.impl.SaltSSHService;
 import com.suse.manager.webui.services.impl.SaltService;
+import com.suse.manager.webui.utils.DownloadTokenCache;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.log4j.Logger;
@@ -504,7 +506,9 @@ public class SystemManager extends BaseManager {
             minion.getAccessTokens().forEach(token -> {
                 token.setValid(false);
                 AccessTokenFactory.save(token);
+                DownloadTokenCache.INSTANCE.invalidateAfterTransaction(token.getToken());
             });
+            MinionDirectory.INSTANCE.invalidate(minion.getMinionId());
         });
 
         // remove server itself
@@ -56,19 +56,29 @@ public class VirtualInstanceManager extends BaseManager {
      * @param type the virtual instance type
      */
     public static void updateHostVirtualInstance(Server server, VirtualInstanceType type) {
-        VirtualInstance serverVirtInstance = VirtualInstanceFactory.getInstance()
-                .lookupHostVirtInstanceByHostId(server.getId());
+        updateHostVirtualInstance(server, type, VirtualInstanceFactory.getInstance()
+                .lookupHostVirtInstanceByHostId(server.getId()));
+    }
 
+    /**
+     * Update Virtual Instance of type host, already looked up
+     *
+     * @param server the server
+     * @param type the virtual instance type
+     * @param serverVirtInstance the current virtual instance of the server or null
+     */
+    public static void updateHostVirtualInstance(Server server, VirtualInstanceType type,
+            VirtualInstance serverVirtInstance) {
         if (serverVirtInstance == null) {
-            serverVirtInstance = new VirtualInstance();
-            serverVirtInstance.setHostSystem(server);
-            serverVirtInstance.setConfirmed(1L);
+            VirtualInstance newVirtInstance = new VirtualInstance();
+            newVirtInstance.setHostSystem(server);
+            newVirtInstance.setConfirmed(1L);
 
-            serverVirtInstance.setState(
+            newVirtInstance.setState(
                     VirtualInstanceFactory.getInstance().getUnknownState());
-            serverVirtInstance.setType(type);
+            newVirtInstance.setType(type);
 
-            VirtualInstanceFactory.getInstance().saveVirtualInstance(serverVirtInstance);
+            VirtualInstanceFactory.getInstance().saveVirtualInstance(newVirtInstance);
         }
         else if (serverVirtInstance.getConfirmed() != 1L) {
             serverVirtInstance.setConfirmed(1L);
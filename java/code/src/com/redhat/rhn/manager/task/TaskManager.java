@@ -15,6 +15,7 @@
 package com.redhat.rhn.manager.task;
 
 import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.DataResultIterator;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
 import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.domain.channel.Channel;
@@ -23,6 +24,7 @@ import com.redhat.rhn.frontend.dto.PackageChangelogDto;
 import com.redhat.rhn.frontend.dto.PackageDto;
 import com.redhat.rhn.taskomatic.task.TaskConstants;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -54,6 +56,64 @@ public class TaskManager {
         return m.execute(params);
     }
 
+    /**
+     * Stream the elaborated channel package list for a channel, fetching and
+     * elaborating batchSize packages at a time
+     * @param channel channel info
+     * @param batchSize number of packages held in memory at once
+     * @return the iterator, to be closed by the caller
+     */
+    public static DataResultIterator<PackageDto> streamChannelPackageDtos(Channel channel,
+            int batchSize) {
+        SelectMode m = ModeFactory.getMode(TaskConstants.MODE_NAME,
+                TaskConstants.TASK_QUERY_REPOMD_GENERATOR_CHANNEL_PACKAGES);
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("channel_id", channel.getId());
+        return m.stream(params, batchSize);
+    }
+
+    /**
+     * Get the ids of the packages in a channel, in ascending order
+     * @param channel channel info
+     * @return the package ids
+     */
+    public static List<Long> getChannelPackageIds(Channel channel) {
+        List<Long> ids = new ArrayList<Long>();
+        for (PackageDto pkgDto : getChannelPackageDtos(channel)) {
+            ids.add(pkgDto.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Get the elaborated package list for some packages, in ascending id order
+     * @param packageIds the package ids
+     * @return the packages
+     */
+    public static DataResult<PackageDto> getPackageDtos(List<Long> packageIds) {
+        SelectMode m = ModeFactory.getMode(TaskConstants.MODE_NAME,
+                TaskConstants.TASK_QUERY_REPOMD_GENERATOR_PACKAGES);
+        DataResult<PackageDto> result = m.execute(packageIds);
+        result.elaborate();
+        return result;
+    }
+
+    /**
+     * Stream the packages of a channel in ascending id order, with only the basic
+     * identification details (NEVRA and checksum) and without elaboration
+     * @param channel channel info
+     * @param batchSize number of packages fetched at once
+     * @return the iterator, to be closed by the caller
+     */
+    public static DataResultIterator<PackageDto> streamChannelPackageBasics(
+            Channel channel, int batchSize) {
+        SelectMode m = ModeFactory.getMode(TaskConstants.MODE_NAME,
+                TaskConstants.TASK_QUERY_REPOMD_GENERATOR_CHANNEL_PACKAGE_BASICS);
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("channel_id", channel.getId());
+        return m.stream(params, batchSize);
+    }
+
     /**
      * Get capabilities of a certain type for a package
      * @param packageId the package's id
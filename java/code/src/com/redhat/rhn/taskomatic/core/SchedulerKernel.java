@@ -28,6 +28,7 @@ import com.redhat.rhn.taskomatic.TaskomaticApi;
 import com.redhat.rhn.taskomatic.domain.TaskoRun;
 import com.redhat.rhn.taskomatic.domain.TaskoSchedule;
 import com.suse.manager.metrics.PrometheusExporter;
+import com.suse.manager.webui.services.SaltServerActionService;
 import org.apache.log4j.Logger;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
@@ -122,6 +123,7 @@ public class SchedulerKernel {
 
             PrometheusExporter.INSTANCE.startHttpServer();
             PrometheusExporter.INSTANCE.registerScheduler(SchedulerKernel.scheduler, "taskomatic");
+            PrometheusExporter.INSTANCE.registerMatcherRunner("taskomatic");
         }
         catch (SchedulerException e) {
             e.printStackTrace();
@@ -196,6 +198,7 @@ public class SchedulerKernel {
         }
         finally {
             MessageQueue.stopMessaging();
+            SaltServerActionService.INSTANCE.shutdown();
             HibernateFactory.closeSessionFactory();
             // Wake up thread waiting in startup() so it can exit
             synchronized (this.shutdownLock) {
@@ -127,6 +127,12 @@ public class TaskConstants {
     public static final String TASK_QUERY_REPOMD_GENERATOR_CHANNEL_PACKAGES =
         "repomdgenerator_channel_packages";
 
+    public static final String TASK_QUERY_REPOMD_GENERATOR_PACKAGES =
+        "repomdgenerator_packages";
+
+    public static final String TASK_QUERY_REPOMD_GENERATOR_CHANNEL_PACKAGE_BASICS =
+        "repomdgenerator_channel_package_basics";
+
     public static final String TASK_QUERY_REPOMD_GENERATOR_CAPABILITY_FILES =
         "repomdgenerator_capability_files";
 
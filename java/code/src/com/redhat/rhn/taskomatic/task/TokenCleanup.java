@@ -20,7 +20,9 @@ import com.suse.manager.webui.services.SaltStateGeneratorService;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 
 /**
@@ -38,12 +40,12 @@ public class TokenCleanup extends RhnJavaJob {
             log.debug("start token cleanup");
         }
         try {
+            List<Long> refreshedMinionIds = new ArrayList<>();
             MinionServerFactory.listMinions().forEach(minionServer -> {
                 try {
                     if (AccessTokenFactory.refreshTokens(minionServer, Collections.emptySet())) {
                         // TODO schedule state.apply channels to refresh channels on minion ?
-                        SaltStateGeneratorService.INSTANCE.generatePillar(
-                                minionServer, false, Collections.emptySet());
+                        refreshedMinionIds.add(minionServer.getId());
                     }
                 }
                 catch (Exception e) {
@@ -51,6 +53,7 @@ public class TokenCleanup extends RhnJavaJob {
                             minionServer.getMinionId(), e);
                 }
             });
+            SaltStateGeneratorService.INSTANCE.schedulePillarRegeneration(refreshedMinionIds);
             AccessTokenFactory.cleanupUnusedExpired();
         }
         catch (Exception e) {
@@ -17,6 +17,7 @@ package com.redhat.rhn.taskomatic.task.errata;
 import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.domain.task.Task;
 import com.redhat.rhn.domain.task.TaskFactory;
+import com.redhat.rhn.manager.errata.cache.ErrataCacheManager;
 import com.redhat.rhn.taskomatic.task.threaded.QueueDriver;
 import com.redhat.rhn.taskomatic.task.threaded.QueueWorker;
 
@@ -46,9 +47,20 @@ public class ErrataCacheDriver implements QueueDriver {
      * {@inheritDoc}
      */
     public List<Task> getCandidates() {
-        List<Task> tasks = TaskFactory.getTaskListByNameLike(ErrataCacheWorker.BY_CHANNEL);
-        tasks.addAll(consolidateTasks(
-                TaskFactory.getTaskListByNameLike(ErrataCacheWorker.FOR_SERVER)));
+        List<Task> tasks = consolidateTasks(
+                TaskFactory.getTaskListByNameLike(ErrataCacheWorker.BY_CHANNEL));
+        // channel workers recompute all their servers at once and drop the
+        // pending server tasks they cover, so only schedule the other ones
+        Set<Long> coveredServerIds = new HashSet<Long>();
+        for (Task task : tasks) {
+            coveredServerIds.addAll(ErrataCacheManager.listServerIdsForChannel(task.getData()));
+        }
+        for (Task task : consolidateTasks(
+                TaskFactory.getTaskListByNameLike(ErrataCacheWorker.FOR_SERVER))) {
+            if (!coveredServerIds.contains(task.getData())) {
+                tasks.add(task);
+            }
+        }
         tasks.addAll(consolidateTasks(
                 TaskFactory.getTaskListByNameLike(ErrataCacheWorker.FOR_IMAGE)));
         return tasks;
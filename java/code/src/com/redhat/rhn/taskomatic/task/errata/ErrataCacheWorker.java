@@ -84,7 +84,7 @@ public class ErrataCacheWorker implements QueueWorker {
                 if (logger.isDebugEnabled()) {
                     logger.debug("Updating errata cache for cid [" + cid + "]");
                 }
-                uecc.updateErrataCacheForChannel(cid);
+                uecc.recomputeErrataCacheForChannel(cid);
                 if (logger.isDebugEnabled()) {
                     logger.debug("Finished errata cache for cid [" + cid + "]");
                 }
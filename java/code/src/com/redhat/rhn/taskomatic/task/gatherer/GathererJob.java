@@ -86,6 +86,8 @@ public class GathererJob extends RhnJavaJob {
                 log.debug("Processing " + label);
                 new VirtualHostManagerProcessor(manager, results.get(label))
                         .processMapping();
+                // the processor commits between chunks: keep each manager on its own
+                HibernateFactory.commitTransaction();
             }
         }
         catch (Throwable t) {
@@ -15,10 +15,16 @@
 
 package com.redhat.rhn.taskomatic.task.gatherer;
 
+import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.server.CPU;
+import com.redhat.rhn.domain.server.CPUArch;
 import com.redhat.rhn.domain.server.Server;
+import com.redhat.rhn.domain.server.ServerArch;
 import com.redhat.rhn.domain.server.ServerFactory;
+import com.redhat.rhn.domain.server.VirtualInstance;
 import com.redhat.rhn.domain.server.VirtualInstanceFactory;
+import com.redhat.rhn.domain.server.VirtualInstanceState;
 import com.redhat.rhn.domain.server.VirtualInstanceType;
 import com.redhat.rhn.domain.server.virtualhostmanager.VirtualHostManager;
 import com.redhat.rhn.domain.server.virtualhostmanager.VirtualHostManagerFactory;
@@ -29,25 +35,39 @@ import com.redhat.rhn.taskomatic.TaskomaticApiException;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import com.suse.manager.gatherer.HostJson;
+import com.suse.manager.utils.SaltUtils;
 import org.apache.log4j.Logger;
+import org.hibernate.Session;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Logic for processing Virtual Host Managers based on the gatherer output.
  * Handles mapping of virtual systems.
  *
  * Based on rhnVirtualization.py logic.
+ *
+ * Hosts are processed in chunks, each one in its own transaction. For every chunk the
+ * existing virtual instances of the hosts and of the reported guests are loaded with a
+ * few bulk queries and compared in memory to the gatherer data, so that only the actual
+ * inserts, updates and deletes are sent to the database, in JDBC batches.
  */
 public class VirtualHostManagerProcessor {
 
     private final VirtualHostManager virtualHostManager;
     private final Map<String, HostJson> virtualHosts;
-    private Set<Server> serversToDelete;
-    private Set<VirtualHostManagerNodeInfo> nodesToDelete;
+    private Map<String, Server> foreignServers;
+    private Map<String, ServerArch> serverArches;
+    private Map<String, CPUArch> cpuArches;
+    private Map<String, VirtualInstanceState> states;
     private Logger log;
 
     /**
@@ -62,16 +82,23 @@ public class VirtualHostManagerProcessor {
         this.log = Logger.getLogger(VirtualHostManagerProcessor.class);
         this.virtualHostManager = managerIn;
         this.virtualHosts = virtualHostsIn;
-        this.serversToDelete = new HashSet<>();
-        this.nodesToDelete = new HashSet<>();
+        this.serverArches = new HashMap<>();
+        this.cpuArches = new HashMap<>();
+        this.states = new HashMap<>();
     }
 
     /**
      * Process given map of Virtual Hosts for Virtual Host Manager.
      * (Mimics the logic of some handler methods from rhnVirtualization.py)
      *
-     * Goes through the map of Virtual Hosts, for each of calls method for updating
-     * mapping.
+     * Goes through the map of Virtual Hosts in chunks, for each of them calls method for
+     * updating mapping. All chunks but the last one are committed once processed, the
+     * last one is left to the caller: the current transaction must not contain any work
+     * that should not be committed with the first chunk.
+     *
+     * Links to servers and nodes not reported anymore are removed with the first chunk,
+     * so that they are gone even if a later chunk fails. Chunks committed before a
+     * failure are kept, the remaining hosts are updated by the next run.
      */
     public void processMapping() {
         log.debug("Processing Virtual Host Manager: " + virtualHostManager);
@@ -80,34 +107,90 @@ public class VirtualHostManagerProcessor {
                       ": Please check the virtual-host-gatherer logfile.");
             return;
         }
-        serversToDelete.addAll(virtualHostManager.getServers());
-        nodesToDelete.addAll(virtualHostManager.getNodes());
-        virtualHosts.entrySet().forEach(
-                virtualHost -> {
-                    log.debug("Processing host: " + virtualHost.getKey());
-                    processVirtualHost(virtualHost.getKey(), virtualHost.getValue());
+        foreignServers = ServerFactory.lookupForeignSystemsByDigitalServerIds(
+                virtualHosts.values().stream()
+                        .map(host -> buildServerFullDigitalId(host.getHostIdentifier()))
+                        .collect(Collectors.toList()));
+        removeStaleLinks();
+
+        List<Map.Entry<String, HostJson>> hosts = new ArrayList<>(virtualHosts.entrySet());
+        int chunkSize = ConfigDefaults.get().getVhmReconcileChunkSize();
+        Session session = HibernateFactory.getSession();
+        Integer jdbcBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(ConfigDefaults.get().getVhmReconcileBatchSize());
+        try {
+            for (int i = 0; i < hosts.size(); i += chunkSize) {
+                if (i > 0) {
+                    HibernateFactory.commitTransaction();
+                }
+                processVirtualHosts(hosts.subList(i, Math.min(i + chunkSize, hosts.size())));
+            }
+        }
+        finally {
+            session.setJdbcBatchSize(jdbcBatchSize);
+        }
+    }
+
+    /**
+     * Removes the links to the servers of hosts that are not reported anymore, and the
+     * nodes of hosts that are not reported anymore or now have a server.
+     */
+    private void removeStaleLinks() {
+        Set<String> nodeIdentifiers = virtualHosts.values().stream()
+                .filter(host -> VirtualHostManagerFactory.KUBERNETES.equalsIgnoreCase(host.getType()))
+                .map(HostJson::getHostIdentifier)
+                .filter(id -> !foreignServers.containsKey(buildServerFullDigitalId(id)))
+                .collect(Collectors.toSet());
+        Set<Long> serverIds = foreignServers.values().stream()
+                .map(Server::getId)
+                .collect(Collectors.toSet());
+
+        new ArrayList<>(virtualHostManager.getServers()).stream()
+                .filter(srv -> !serverIds.contains(srv.getId()))
+                .forEach(srv -> {
+                    log.debug("Removing link to virtual host: " + srv.getName());
+                    virtualHostManager.removeServer(srv);
                 });
-        serversToDelete.forEach(srv -> {
-            log.debug("Removing link to virtual host: " + srv.getName());
-            virtualHostManager.removeServer(srv);
-        });
-        nodesToDelete.forEach(node -> {
-            log.debug("Removing virtual host node: " + node.getName());
-            virtualHostManager.removeNode(node);
+        new ArrayList<>(virtualHostManager.getNodes()).stream()
+                .filter(node -> !nodeIdentifiers.contains(node.getIdentifier()))
+                .forEach(node -> {
+                    log.debug("Removing virtual host node: " + node.getName());
+                    virtualHostManager.removeNode(node);
+                });
+    }
+
+    /**
+     * Processes a chunk of Virtual Hosts, then updates the mapping between their
+     * Servers and VirtualInstances and the mapping of the VMs (guests) reported to be
+     * running on them.
+     *
+     * @param hosts the Virtual Hosts, by name
+     */
+    private void processVirtualHosts(List<Map.Entry<String, HostJson>> hosts) {
+        List<ReportedHost> reportedHosts = new ArrayList<>();
+        hosts.forEach(virtualHost -> {
+            log.debug("Processing host: " + virtualHost.getKey());
+            Server server = processVirtualHost(virtualHost.getKey(), virtualHost.getValue());
+            if (server != null) {
+                reportedHosts.add(new ReportedHost(server, virtualHost.getValue(),
+                        extractVirtualInstanceType(virtualHost.getValue().getType())));
+            }
         });
+        if (!reportedHosts.isEmpty()) {
+            updateVirtualInstances(reportedHosts);
+        }
     }
 
     /**
      * Processes Virtual Host:
      * - if there is no Server entry for given hostLabel, create a new Server
      * - if no server was created (e.f. for Kubernetes) then create a nodeInfo
-     * - for Server, update mapping between this new Server and its VirtualInstance
-     * - for each VM (guest) reported to be running on this host, update the mapping
      *
      * @param hostLabel name of the Server (corresponds to label of Virtual Host Manager)
      * @param host object containing the information about the host and its VMs
+     * @return the Server of the host, or null if there is none
      */
-    private void processVirtualHost(String hostLabel, HostJson host) {
+    private Server processVirtualHost(String hostLabel, HostJson host) {
         Server server = updateAndGetServer(hostLabel, host,
                 VirtualHostManagerFactory.KUBERNETES);
         if (server == null) {
@@ -115,24 +198,166 @@ public class VirtualHostManagerProcessor {
             if (!virtualHostManager.getNodes().contains(nodeInfo)) {
                 virtualHostManager.getNodes().add(nodeInfo);
             }
-            else {
-                nodesToDelete.remove(nodeInfo);
-            }
             // for Kubernetes we don't create a foreign entitled server
             // if one doesn't already exist
-            return;
+            return null;
         }
         if (!virtualHostManager.getServers().contains(server)) {
             virtualHostManager.addServer(server);
         }
-        else {
-            serversToDelete.remove(server);
+        return server;
+    }
+
+    /**
+     * Updates the VirtualInstances of the given hosts and of their guests:
+     * - creates or confirms the VirtualInstance of each host
+     * - creates a VirtualInstance for each reported VM that has none
+     * - links existing VirtualInstances of reported VMs to their host, updating name
+     *   and state, if they differ (duplicates for the same uuid are merged)
+     * - for guests of the hosts that are not reported anymore, removes the
+     *   VirtualInstance or only its link to the host for registered guests
+     *
+     * This function expects to always get a full list of guests running on the hosts.
+     *
+     * @param hosts the reported hosts
+     */
+    private void updateVirtualInstances(List<ReportedHost> hosts) {
+        VirtualInstanceFactory vinst = VirtualInstanceFactory.getInstance();
+
+        Map<Long, VirtualInstance> hostInstances = new HashMap<>();
+        Set<String> previousGuests = new HashSet<>();
+        vinst.lookupVirtualInstancesByHostIds(hosts.stream()
+                .map(host -> host.getServer().getId())
+                .collect(Collectors.toList()))
+                .forEach(vi -> {
+                    if (vi.getUuid() == null) {
+                        hostInstances.put(vi.getHostSystem().getId(), vi);
+                    }
+                    else {
+                        previousGuests.add(vi.getUuid());
+                    }
+                });
+
+        Set<String> uuids = new HashSet<>(previousGuests);
+        hosts.forEach(host -> host.getJson().getVms().values().forEach(vmUuid -> {
+            String uuid = vmUuid.replaceAll("-", "");
+            uuids.add(uuid);
+            uuids.add(SaltUtils.uuidToLittleEndian(uuid));
+        }));
+        Map<String, List<VirtualInstance>> instancesByUuid =
+                vinst.lookupVirtualInstancesByUuids(new ArrayList<>(uuids)).stream()
+                .collect(Collectors.groupingBy(VirtualInstance::getUuid));
+
+        Set<String> reportedGuests = new HashSet<>();
+        Set<Long> updatedHosts = new HashSet<>();
+        for (ReportedHost host : hosts) {
+            Server server = host.getServer();
+            // a host reported twice gets a single virtual instance
+            if (updatedHosts.add(server.getId())) {
+                VirtualInstanceManager.updateHostVirtualInstance(server, host.getType(),
+                        hostInstances.get(server.getId()));
+            }
+
+            Map<String, Map<String, String>> optionalVmData = host.getJson().getOptionalVmData();
+            host.getJson().getVms().forEach((name, vmUuid) -> {
+                String uuid = fixUuidIfSwapped(vmUuid.replaceAll("-", ""), instancesByUuid);
+                reportedGuests.add(uuid);
+
+                Map<String, String> vmData = optionalVmData.get(name);
+                VirtualInstanceState state = lookupState(
+                        vmData != null ? vmData.get("vmState") : null);
+
+                List<VirtualInstance> instances = instancesByUuid.get(uuid);
+                if (instances == null || instances.isEmpty()) {
+                    instancesByUuid.put(uuid, new ArrayList<>(Collections.singletonList(
+                            addGuestVirtualInstance(uuid, name, host.getType(), state, server))));
+                }
+                else {
+                    // merge duplicates into the last one, as a full update used to do
+                    VirtualInstance kept = instances.remove(instances.size() - 1);
+                    instances.forEach(vinst::deleteVirtualInstanceOnly);
+                    instances.clear();
+                    instances.add(kept);
+                    updateGuestVirtualInstance(kept, name, state, server);
+                }
+            });
+        }
+
+        previousGuests.stream()
+                .filter(uuid -> !reportedGuests.contains(uuid))
+                .flatMap(uuid -> instancesByUuid.getOrDefault(uuid, Collections.emptyList()).stream())
+                .forEach(virtualInstance -> {
+                    if (virtualInstance.isRegisteredGuest()) {
+                        if (virtualInstance.getHostSystem() != null) {
+                            virtualInstance.getHostSystem().removeGuest(virtualInstance);
+                        }
+                        virtualInstance.setHostSystem(null);
+                    }
+                    else {
+                        vinst.deleteVirtualInstanceOnly(virtualInstance);
+                    }
+                });
+    }
+
+    /**
+     * Returns the swapped uuid in case it already exists in a virtual instance,
+     * same as {@link VirtualInstanceManager#fixUuidIfSwappedUuidExists(String)}.
+     */
+    private String fixUuidIfSwapped(String uuid, Map<String, List<VirtualInstance>> instancesByUuid) {
+        String virtUuidSwapped = SaltUtils.uuidToLittleEndian(uuid);
+        List<VirtualInstance> swapped = instancesByUuid.get(virtUuidSwapped);
+        if (swapped != null && !swapped.isEmpty()) {
+            log.warn("Detected swapped UUID for a virtual instance: Coercing [" +
+                    uuid + "] -> [" + virtUuidSwapped + "]");
+            return virtUuidSwapped;
         }
+        return uuid;
+    }
 
-        VirtualInstanceType virtType = extractVirtualInstanceType(host.getType());
-        VirtualInstanceManager.updateHostVirtualInstance(server, virtType);
-        VirtualInstanceManager.updateGuestsVirtualInstances(server, virtType,
-                host.getVms(), host.getOptionalVmData());
+    private VirtualInstance addGuestVirtualInstance(String uuid, String name,
+            VirtualInstanceType type, VirtualInstanceState state, Server host) {
+        VirtualInstance virtualInstance = new VirtualInstance();
+        virtualInstance.setUuid(uuid);
+        virtualInstance.setConfirmed(1L);
+        virtualInstance.setState(state);
+        virtualInstance.setName(name);
+        virtualInstance.setType(type);
+        virtualInstance.setNumberOfCPUs(0);
+        virtualInstance.setTotalMemory(0L);
+        // will also set the hostSystem for virtualInstance
+        host.addGuest(virtualInstance);
+        VirtualInstanceFactory.getInstance().saveVirtualInstance(virtualInstance);
+        return virtualInstance;
+    }
+
+    /**
+     * Links a guest VirtualInstance to the given host and updates its name and state,
+     * leaving it untouched if nothing changed.
+     */
+    private void updateGuestVirtualInstance(VirtualInstance virtualInstance, String name,
+            VirtualInstanceState state, Server host) {
+        Server oldHost = virtualInstance.getHostSystem();
+        boolean moved = oldHost == null || !oldHost.getId().equals(host.getId());
+        if (!moved && name.equals(virtualInstance.getName()) &&
+                state.equals(virtualInstance.getState()) &&
+                Long.valueOf(1L).equals(virtualInstance.getConfirmed())) {
+            return;
+        }
+        if (moved) {
+            if (oldHost != null) {
+                oldHost.removeGuest(virtualInstance);
+            }
+            host.addGuest(virtualInstance);
+        }
+        virtualInstance.setName(name);
+        virtualInstance.setState(state);
+        virtualInstance.setConfirmed(1L);
+    }
+
+    private VirtualInstanceState lookupState(String label) {
+        VirtualInstanceFactory vinst = VirtualInstanceFactory.getInstance();
+        return states.computeIfAbsent(label == null ? "unknown" : label,
+                l -> vinst.getState(l).orElseGet(vinst::getUnknownState));
     }
 
     private VirtualHostManagerNodeInfo updateAndGetNodeInfo(String hostLabel,
@@ -146,7 +371,7 @@ public class VirtualHostManagerProcessor {
     private VirtualHostManagerNodeInfo updateNodeInfo(VirtualHostManagerNodeInfo info,
             String hostLabel, HostJson host) {
         info.setName(hostLabel);
-        info.setNodeArch(ServerFactory.lookupServerArchByName(host.getCpuArch()));
+        info.setNodeArch(lookupServerArch(host.getCpuArch()));
         info.setCpuSockets(host.getTotalCpuSockets());
         info.setCpuCores(host.getTotalCpuCores());
         info.setRam(host.getRamMb());
@@ -193,13 +418,14 @@ public class VirtualHostManagerProcessor {
     private Server updateAndGetServer(String hostId,
                                       HostJson host,
                                       String skipCreateForType) {
-        Server server = ServerFactory.lookupForeignSystemByDigitalServerId(
-                buildServerFullDigitalId(host.getHostIdentifier()));
+        Server server = foreignServers.get(buildServerFullDigitalId(host.getHostIdentifier()));
         if (server == null) {
             if (skipCreateForType.equalsIgnoreCase(host.getType())) {
                 return null;
             }
             server = createNewServer(hostId, host);
+            // hosts reported twice must find the server just created
+            foreignServers.put(server.getDigitalServerId(), server);
         }
         else {
             updateServerMiscFields(server, host);
@@ -268,7 +494,7 @@ public class VirtualHostManagerProcessor {
         // and update server
         server.setModified(new Date());
         server.setRam(host.getRamMb());
-        server.setServerArch(ServerFactory.lookupServerArchByName(host.getCpuArch()));
+        server.setServerArch(lookupServerArch(host.getCpuArch()));
     }
 
     private void updateServerCpu(Server server, HostJson host) {
@@ -277,7 +503,7 @@ public class VirtualHostManagerProcessor {
             cpu = new CPU();
         }
 
-        cpu.setArch(ServerFactory.lookupCPUArchByName(host.getCpuArch()));
+        cpu.setArch(cpuArches.computeIfAbsent(host.getCpuArch(), ServerFactory::lookupCPUArchByName));
         cpu.setMHz(new Long(Math.round(host.getCpuMhz())).toString());
         cpu.setNrCPU(host.getTotalCpuCores().longValue());
         cpu.setNrsocket(host.getTotalCpuSockets().longValue());
@@ -291,4 +517,35 @@ public class VirtualHostManagerProcessor {
     private void updateServerNetwork(Server server, String hostId) {
         server.setHostname(hostId);
     }
+
+    private ServerArch lookupServerArch(String name) {
+        return serverArches.computeIfAbsent(name, ServerFactory::lookupServerArchByName);
+    }
+
+    /**
+     * A host reported by the gatherer, with its Server.
+     */
+    private static class ReportedHost {
+        private final Server server;
+        private final HostJson json;
+        private final VirtualInstanceType type;
+
+        ReportedHost(Server serverIn, HostJson jsonIn, VirtualInstanceType typeIn) {
+            this.server = serverIn;
+            this.json = jsonIn;
+            this.type = typeIn;
+        }
+
+        Server getServer() {
+            return server;
+        }
+
+        HostJson getJson() {
+            return json;
+        }
+
+        VirtualInstanceType getType() {
+            return type;
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package com.redhat.rhn.taskomatic.task.gatherer.test;
 
+import com.redhat.rhn.common.conf.Config;
+import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.server.Server;
 import com.redhat.rhn.domain.server.ServerFactory;
@@ -58,6 +60,22 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         assertNotNull(host.getServerInfo());
     }
 
+    /**
+     * Tests that a host reported twice under different names gets a single Server.
+     */
+    public void testHostReportedTwiceCreatesOneServer() {
+        Map<String, HostJson> data = new HashMap<>();
+        data.putAll(createHostData("esxi_host_1_id", null));
+        data.putAll(createHostData("esxi_host_1_id", null));
+
+        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+
+        assertEquals(1, virtualHostManager.getServers().size());
+        Server host = ServerFactory.lookupForeignSystemByDigitalServerId("101-esxi_host_1_id");
+        assertContains(virtualHostManager.getServers(), host);
+        assertNotNull(VirtualInstanceFactory.getInstance().lookupHostVirtInstanceByHostId(host.getId()));
+    }
+
     /**
      * Tests that the VirtualHostManagerProcessor creates a new VirtualInstance entity
      * for a host reported from gatherer.
@@ -248,6 +266,25 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         assertEquals("new name", guest.getName());
     }
 
+    /**
+     * Tests that a guest reported again without changes keeps its VirtualInstance.
+     */
+    public void testGuestUnchangedKept() {
+        Map<String, HostJson> data = createHostData("my-host-id",
+                pairsToMap("my vm", "5ff5fbb4fee24de0a0a6bd5d5e0e3b38"));
+        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        VirtualInstance guest = VirtualInstanceFactory.getInstance()
+                .lookupVirtualInstanceByUuid("5ff5fbb4fee24de0a0a6bd5d5e0e3b38").iterator().next();
+
+        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+
+        List<VirtualInstance> guests = VirtualInstanceFactory.getInstance()
+                .lookupVirtualInstanceByUuid("5ff5fbb4fee24de0a0a6bd5d5e0e3b38");
+        assertEquals(1, guests.size());
+        assertEquals(guest.getId(), guests.get(0).getId());
+        assertEquals("my vm", guests.get(0).getName());
+    }
+
     /**
      * When the state of the guest virtual instance was other than 'unknown', the update
      * should set it to 'unknown'.
@@ -588,6 +625,44 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
                 .findFirst().isPresent());
     }
 
+    /**
+     * Tests that hosts processed in several committed chunks are all mapped, and that
+     * servers not reported anymore are unlinked.
+     *
+     * @throws Exception - if anything goes wrong
+     */
+    public void testProcessInChunks() throws Exception {
+        Server staleHost = ServerTestUtils.createForeignSystem(user, "101-stale_host_id");
+        virtualHostManager.addServer(staleHost);
+
+        Map<String, HostJson> data = new HashMap<>();
+        data.putAll(createHostData("chunk_host_1_id", pairsToMap("vm1", "c0a2e0d4e5f84e1c9d1b2f3a4b5c6d7e")));
+        data.putAll(createHostData("chunk_host_2_id", pairsToMap("vm2", "d1b3f1e5f6a94f2d8e2c3a4b5c6d7e8f")));
+        data.putAll(createHostData("chunk_host_3_id", null));
+
+        Config.get().setString(ConfigDefaults.VHM_RECONCILE_CHUNK_SIZE, "1");
+        try {
+            new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+            commitHappened();
+        }
+        finally {
+            Config.get().remove(ConfigDefaults.VHM_RECONCILE_CHUNK_SIZE);
+        }
+
+        assertFalse(virtualHostManager.getServers().contains(staleHost));
+        assertEquals(3, virtualHostManager.getServers().size());
+        for (String id : new String[] {"chunk_host_1_id", "chunk_host_2_id", "chunk_host_3_id"}) {
+            Server host = ServerFactory.lookupForeignSystemByDigitalServerId("101-" + id);
+            assertNotNull(host);
+            assertContains(virtualHostManager.getServers(), host);
+        }
+        Server host1 = ServerFactory.lookupForeignSystemByDigitalServerId("101-chunk_host_1_id");
+        List<VirtualInstance> guests = VirtualInstanceFactory.getInstance()
+                .lookupVirtualInstanceByUuid("c0a2e0d4e5f84e1c9d1b2f3a4b5c6d7e");
+        assertEquals(1, guests.size());
+        assertEquals(host1, guests.get(0).getHostSystem());
+    }
+
 
     /**
      * Creates a map representing the parsed result from gatherer run on one virtual host
@@ -38,6 +38,9 @@ import java.util.Map;
  */
 public class ChannelRepodataDriver implements QueueDriver {
 
+    /* Number of candidates read from the database at once */
+    private static final int CANDIDATE_FETCH_SIZE = 100;
+
     private Logger logger = null;
 
     /**
@@ -87,6 +90,17 @@ public class ChannelRepodataDriver implements QueueDriver {
         return retval;
     }
 
+    /**
+     * Reads the candidates from a cursor, a few at a time.
+     * @return Returns an iterator over the candidates
+     */
+    @Override
+    public Iterator getCandidateIterator() {
+        SelectMode select = ModeFactory.getMode(TaskConstants.MODE_NAME,
+                TaskConstants.TASK_QUERY_REPOMD_DRIVER_QUERY);
+        return select.stream(new HashMap<String, Object>(), CANDIDATE_FETCH_SIZE);
+    }
+
     /**
      * @return Returns Logger
      */
@@ -22,7 +22,6 @@ import java.io.OutputStream;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.zip.GZIPOutputStream;
 
 /**
  *
@@ -37,7 +36,7 @@ public class CompressingDigestOutputWriter extends OutputStream {
     private BufferedOutputStream bufferedStream;
 
     /**
-     *
+     * Compresses with the configured repository metadata compression.
      * @param stream The stream to compress
      * @param checksumAlgo checksum algorithm
      * @throws NoSuchAlgorithmException nosuchalgorithmexception
@@ -45,9 +44,22 @@ public class CompressingDigestOutputWriter extends OutputStream {
      */
     public CompressingDigestOutputWriter(OutputStream stream, String checksumAlgo)
                                         throws NoSuchAlgorithmException, IOException {
+        this(stream, checksumAlgo, RepomdCompression.configured());
+    }
+
+    /**
+     *
+     * @param stream The stream to compress
+     * @param checksumAlgo checksum algorithm
+     * @param compression the compression to use
+     * @throws NoSuchAlgorithmException nosuchalgorithmexception
+     * @throws IOException ioexception
+     */
+    public CompressingDigestOutputWriter(OutputStream stream, String checksumAlgo,
+            RepomdCompression compression) throws NoSuchAlgorithmException, IOException {
             compressedDigestStream = new DigestOutputStream(stream,
                     MessageDigest.getInstance(checksumAlgo));
-            compressedStream = new GZIPOutputStream(compressedDigestStream);
+            compressedStream = compression.compress(compressedDigestStream);
             uncompressedDigestStream = new DigestOutputStream(compressedStream,
                     MessageDigest.getInstance(checksumAlgo));
             bufferedStream = new BufferedOutputStream(uncompressedDigestStream);
@@ -71,6 +83,17 @@ public class CompressingDigestOutputWriter extends OutputStream {
         bufferedStream.write(b);
     }
 
+    /**
+     * write stream with byte range
+     * @param b byte
+     * @param off offset of the first byte to write
+     * @param len number of bytes to write
+     * @throws IOException ioexception
+     */
+    public void write(byte[] b, int off, int len) throws IOException {
+        bufferedStream.write(b, off, len);
+    }
+
     /**
      * flush stream
      * @throws IOException ioexception
@@ -18,7 +18,7 @@ import java.io.File;
 import java.util.Calendar;
 import java.util.Date;
 
-import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.DataResultIterator;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.domain.channel.Channel;
@@ -90,12 +90,12 @@ public class DebRepositoryWriter extends RepositoryWriter {
         log.info("Generating new DEB repository for channel " + channel.getLabel());
         Date start = new Date();
         DebPackageWriter writer = new DebPackageWriter(channel, prefix);
-        // TODO: is it possible to make this batched to reduce memory requirements
-        // like in RpmReporsitoryWriter?
-        DataResult<PackageDto> packages = TaskManager.getChannelPackageDtos(channel);
-        packages.elaborate();
-        for (PackageDto pkgDto : packages) {
-            writer.addPackage(pkgDto);
+        // stream the packages and batch the elaboration to reduce memory requirements
+        try (DataResultIterator<PackageDto> packages =
+                TaskManager.streamChannelPackageDtos(channel, 1000)) {
+            while (packages.hasNext()) {
+                writer.addPackage(packages.next());
+            }
         }
         writer.generatePackagesGz();
 
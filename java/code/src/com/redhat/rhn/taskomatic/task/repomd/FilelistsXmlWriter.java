@@ -88,7 +88,7 @@ public class FilelistsXmlWriter extends RepomdWriter {
             String xml = pkgDto.getFilelistXml();
             if (ConfigDefaults.get().useDBRepodata() && !StringUtils.isEmpty(xml)) {
                 if (xml != null) {
-                    handler.addCharacters(xml);
+                    addFragment(xml);
                     return;
                 }
             }
@@ -104,7 +104,7 @@ public class FilelistsXmlWriter extends RepomdWriter {
 
             String pkg =  st.toString();
             PackageManager.updateRepoFileList(pkgDto.getId(), pkg);
-            handler.addCharacters(pkg);
+            addFragment(pkg);
 
 
         }
@@ -88,7 +88,7 @@ public class OtherXmlWriter extends RepomdWriter {
             String xml = pkgDto.getOtherXml();
             if (ConfigDefaults.get().useDBRepodata() && !StringUtils.isEmpty(xml)) {
                 if (xml != null) {
-                    handler.addCharacters(xml);
+                    addFragment(xml);
                     return;
                 }
             }
@@ -104,7 +104,7 @@ public class OtherXmlWriter extends RepomdWriter {
 
             String pkg =  st.toString();
             PackageManager.updateRepoOther(pkgDto.getId(), pkg);
-            handler.addCharacters(pkg);
+            addFragment(pkg);
 
         }
         catch (SAXException e) {
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.repomd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip output stream compressing blocks of data in parallel.
+ *
+ * The data is split in fixed size blocks that are compressed concurrently by an
+ * executor, each into a complete gzip member. Members are written in order, so the
+ * output is a multi-member gzip file as produced by pigz or by concatenating gzip
+ * files, which every gzip reader decompresses to the original data.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    private static final int BLOCK_SIZE = 128 * 1024;
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int maxPending;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int count;
+    private boolean empty = true;
+    private boolean closed;
+
+    /**
+     * Creates a stream.
+     * @param outIn the stream the compressed data is written to
+     * @param executorIn the executor running the compression of the blocks
+     * @param maxPendingIn maximum number of blocks being compressed at the same time
+     */
+    public ParallelGzipOutputStream(OutputStream outIn, ExecutorService executorIn,
+            int maxPendingIn) {
+        out = outIn;
+        executor = executorIn;
+        maxPending = Math.max(1, maxPendingIn);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int b) throws IOException {
+        if (count == block.length) {
+            submitBlock();
+        }
+        block[count++] = (byte) b;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int written = 0;
+        while (written < len) {
+            if (count == block.length) {
+                submitBlock();
+            }
+            int n = Math.min(len - written, block.length - count);
+            System.arraycopy(b, off + written, block, count, n);
+            count += n;
+            written += n;
+        }
+    }
+
+    /**
+     * Compresses the buffered data and waits for all blocks to be written.
+     * @throws IOException if the compression or the underlying stream failed
+     */
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            submitBlock();
+        }
+        while (!pending.isEmpty()) {
+            writeFirstPending();
+        }
+        out.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            if (empty) {
+                // a gzip file needs at least one member, even without data
+                out.write(compress(new byte[0], 0));
+            }
+        }
+        finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (pending.size() >= maxPending) {
+            writeFirstPending();
+        }
+        final byte[] data = block;
+        final int length = count;
+        pending.add(executor.submit(() -> compress(data, length)));
+        block = new byte[BLOCK_SIZE];
+        count = 0;
+        empty = false;
+    }
+
+    private void writeFirstPending() throws IOException {
+        try {
+            out.write(pending.peek().get());
+            pending.poll();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Compression failed", e.getCause());
+        }
+    }
+
+    private static byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream(length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(member)) {
+            gzip.write(data, 0, length);
+        }
+        return member.toByteArray();
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.repomd;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Output stream that hands its data in chunks to a dedicated thread, which writes it
+ * to the target stream. Used to run the compression and digest stage of each metadata
+ * file on its own core while the XML is being generated.
+ *
+ * Data is passed on when a chunk is full or when the stream is flushed, the target
+ * itself is only flushed when this stream is closed. Errors of the target stream are
+ * rethrown to the writing thread on the next write, flush or close.
+ */
+public class PipelinedOutputStream extends OutputStream {
+
+    private static Logger log = Logger.getLogger(PipelinedOutputStream.class);
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int QUEUE_CAPACITY = 16;
+    private static final byte[] END = new byte[0];
+    /* Time to wait for the stage thread to close the target after an abort */
+    private static final long ABORT_TIMEOUT_MILLIS = 10000;
+
+    private final OutputStream target;
+    private final BlockingQueue<byte[]> queue =
+            new ArrayBlockingQueue<byte[]>(QUEUE_CAPACITY);
+    private final Thread worker;
+
+    private byte[] buffer = new byte[CHUNK_SIZE];
+    private int count;
+    private boolean closed;
+
+    private volatile IOException failure;
+    private volatile long byteCount;
+    private volatile long busyNanos;
+
+    /**
+     * Starts the stage writing to the given target.
+     * @param targetIn the stream written by the stage thread, closed with this stream
+     * @param name name of the stage thread
+     */
+    public PipelinedOutputStream(OutputStream targetIn, String name) {
+        target = targetIn;
+        worker = new Thread(this::drain, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length) {
+            handOff();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int written = 0;
+        while (written < len) {
+            if (count == buffer.length) {
+                handOff();
+            }
+            int n = Math.min(len - written, buffer.length - count);
+            System.arraycopy(b, off + written, buffer, count, n);
+            count += n;
+            written += n;
+        }
+    }
+
+    /**
+     * Passes the buffered data on to the stage thread without waiting for it to be
+     * written.
+     * @throws IOException if the target stream failed
+     */
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            handOff();
+        }
+    }
+
+    /**
+     * Passes the remaining data on and waits for the stage thread to write and close
+     * the target stream.
+     * @throws IOException if the target stream failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        put(END);
+        try {
+            worker.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + worker.getName());
+        }
+        checkFailure();
+    }
+
+    /**
+     * Stops the stage thread discarding any pending data, for use when the output is
+     * not needed anymore because of an error. Waits for a limited time for the stage
+     * thread to close the target stream, so that the file can be removed afterwards.
+     */
+    public void abort() {
+        closed = true;
+        worker.interrupt();
+        try {
+            worker.join(ABORT_TIMEOUT_MILLIS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.warn(worker.getName() + " did not stop within " + ABORT_TIMEOUT_MILLIS + " ms");
+        }
+    }
+
+    /**
+     * @return the number of bytes written to the target stream so far
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return the time in milliseconds the stage thread spent writing to the target
+     */
+    public long getBusyMillis() {
+        return busyNanos / 1000000;
+    }
+
+    private void handOff() throws IOException {
+        if (count == buffer.length) {
+            put(buffer);
+            buffer = new byte[CHUNK_SIZE];
+        }
+        else {
+            put(Arrays.copyOf(buffer, count));
+        }
+        count = 0;
+    }
+
+    private void put(byte[] chunk) throws IOException {
+        checkFailure();
+        try {
+            queue.put(chunk);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted writing to " + worker.getName());
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException(worker.getName() + " failed", failure);
+        }
+    }
+
+    private void drain() {
+        try {
+            byte[] chunk = queue.take();
+            while (chunk != END) {
+                // after a failure keep consuming, so that the writer never blocks
+                if (failure == null) {
+                    long start = System.nanoTime();
+                    try {
+                        target.write(chunk);
+                        byteCount += chunk.length;
+                    }
+                    catch (IOException e) {
+                        failure = e;
+                    }
+                    busyNanos += System.nanoTime() - start;
+                }
+                chunk = queue.take();
+            }
+        }
+        catch (InterruptedException e) {
+            // aborted, pending data is discarded
+            queue.clear();
+        }
+        try {
+            long start = System.nanoTime();
+            target.close();
+            busyNanos += System.nanoTime() - start;
+        }
+        catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+}
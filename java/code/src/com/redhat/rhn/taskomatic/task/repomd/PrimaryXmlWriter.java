@@ -92,7 +92,7 @@ public class PrimaryXmlWriter extends RepomdWriter {
             if (ConfigDefaults.get().useDBRepodata() && !StringUtils.isEmpty(xml)) {
 
                 if (xml != null) {
-                    handler.addCharacters(xml);
+                    addFragment(xml);
                     return;
                 }
             }
@@ -114,7 +114,7 @@ public class PrimaryXmlWriter extends RepomdWriter {
 
             String pkg =  st.toString();
             PackageManager.updateRepoPrimary(pkgDto.getId(), pkg);
-            handler.addCharacters(pkg);
+            addFragment(pkg);
 
         }
         catch (SAXException e) {
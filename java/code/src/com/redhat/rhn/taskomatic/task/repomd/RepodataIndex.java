@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.repomd;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ordered index of the package fragments in the primary, filelists and other metadata
+ * files of a channel. For every package, in ascending id order, it records the size in
+ * bytes of its fragment in each of the uncompressed files, so that the files can later
+ * be updated by splicing in only the packages that were added or removed.
+ *
+ * The index is stored next to the metadata files as plain text: the channel checksum
+ * type on the first line, then one line per package with its id and fragment sizes.
+ */
+public class RepodataIndex {
+
+    private static Logger log = Logger.getLogger(RepodataIndex.class);
+
+    private final String checksumType;
+    private final List<long[]> entries = new ArrayList<long[]>();
+    private final Set<Long> packageIds = new HashSet<Long>();
+
+    /**
+     * Creates an empty index.
+     * @param checksumTypeIn checksum type of the channel the files are written for
+     */
+    public RepodataIndex(String checksumTypeIn) {
+        checksumType = checksumTypeIn;
+    }
+
+    /**
+     * Appends a package to the index.
+     * @param packageId the package id, greater than the id of the last package
+     * @param primarySize size of the package fragment in primary.xml
+     * @param filelistsSize size of the package fragment in filelists.xml
+     * @param otherSize size of the package fragment in other.xml
+     */
+    public void add(long packageId, int primarySize, int filelistsSize, int otherSize) {
+        if (!entries.isEmpty() && entries.get(entries.size() - 1)[0] >= packageId) {
+            throw new IllegalArgumentException("Package " + packageId + " out of order");
+        }
+        entries.add(new long[] {packageId, primarySize, filelistsSize, otherSize});
+        packageIds.add(packageId);
+    }
+
+    /**
+     * @return the checksum type of the channel the files were written for
+     */
+    public String getChecksumType() {
+        return checksumType;
+    }
+
+    /**
+     * @return the number of packages in the index
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param packageId a package id
+     * @return true if the package is in the index
+     */
+    public boolean contains(long packageId) {
+        return packageIds.contains(packageId);
+    }
+
+    /**
+     * @param position position in the index
+     * @return the id of the package at the given position
+     */
+    public long getPackageId(int position) {
+        return entries.get(position)[0];
+    }
+
+    /**
+     * @param position position in the index
+     * @return the size of the primary.xml fragment of the package at the given position
+     */
+    public int getPrimarySize(int position) {
+        return (int) entries.get(position)[1];
+    }
+
+    /**
+     * @param position position in the index
+     * @return the size of the filelists.xml fragment of the package at the given position
+     */
+    public int getFilelistsSize(int position) {
+        return (int) entries.get(position)[2];
+    }
+
+    /**
+     * @param position position in the index
+     * @return the size of the other.xml fragment of the package at the given position
+     */
+    public int getOtherSize(int position) {
+        return (int) entries.get(position)[3];
+    }
+
+    /**
+     * Stores the index.
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write(checksumType);
+            writer.newLine();
+            for (long[] entry : entries) {
+                writer.write(entry[0] + " " + entry[1] + " " + entry[2] + " " + entry[3]);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Loads a stored index, if it is usable for a channel with the given checksum type.
+     * @param file the file to read
+     * @param checksumTypeIn the current checksum type of the channel
+     * @return the index, or null if it does not exist, is invalid or was written for
+     * another checksum type
+     */
+    public static RepodataIndex load(File file, String checksumTypeIn) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String type = reader.readLine();
+            if (type == null || !type.equals(checksumTypeIn)) {
+                return null;
+            }
+            RepodataIndex index = new RepodataIndex(type);
+            String line = reader.readLine();
+            while (line != null) {
+                String[] fields = line.split(" ");
+                if (fields.length != 4) {
+                    throw new IOException("Invalid line: " + line);
+                }
+                index.add(Long.parseLong(fields[0]), Integer.parseInt(fields[1]),
+                        Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+                line = reader.readLine();
+            }
+            return index;
+        }
+        catch (IOException | IllegalArgumentException e) {
+            log.warn("Ignoring invalid repodata index " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
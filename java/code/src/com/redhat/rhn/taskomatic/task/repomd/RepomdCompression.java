@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.repomd;
+
+import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.common.util.NamedThreadFactory;
+import com.redhat.rhn.domain.channel.Channel;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression used for the repository metadata files.
+ */
+public enum RepomdCompression {
+
+    /**
+     * Single threaded gzip
+     */
+    GZIP(".gz") {
+        @Override
+        public OutputStream compress(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out);
+        }
+    },
+
+    /**
+     * Multi-member gzip, with blocks compressed in parallel by a shared pool of
+     * java.repodata_compression_threads threads
+     */
+    PARALLEL_GZIP(".gz") {
+        @Override
+        public OutputStream compress(OutputStream out) throws IOException {
+            return new ParallelGzipOutputStream(out, getExecutor(), threads * 2);
+        }
+    },
+
+    /**
+     * zstd, for clients able to read zstd compressed metadata
+     */
+    ZSTD(".zst") {
+        @Override
+        public OutputStream compress(OutputStream out) throws IOException {
+            return new ZstdOutputStream(out);
+        }
+    };
+
+    private static Logger log = Logger.getLogger(RepomdCompression.class);
+
+    private static ExecutorService executor;
+    private static int threads;
+
+    private final String suffix;
+
+    RepomdCompression(String suffixIn) {
+        suffix = suffixIn;
+    }
+
+    /**
+     * Returns the file name suffix of the compressed files, e.g. ".gz".
+     * @return the suffix
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Returns the label of this compression, as used in the configuration and as
+     * stored for channels.
+     * @return the label
+     */
+    public String getLabel() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * Returns the compression with the given label.
+     * @param label the label
+     * @return the compression, empty if the label is unknown
+     */
+    public static Optional<RepomdCompression> lookup(String label) {
+        for (RepomdCompression compression : values()) {
+            if (compression.getLabel().equals(label)) {
+                return Optional.of(compression);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Wraps a stream to compress the data written to it.
+     * @param out the stream receiving the compressed data
+     * @return the compressing stream
+     * @throws IOException if the compressed stream cannot be initialized
+     */
+    public abstract OutputStream compress(OutputStream out) throws IOException;
+
+    /**
+     * Returns the compression configured in java.repodata_compression.
+     * @return the compression, GZIP if the configured value is unknown
+     */
+    public static RepomdCompression configured() {
+        return fromLabel(ConfigDefaults.get().getRepodataCompression());
+    }
+
+    /**
+     * Returns the compression set for a channel, or the configured one if the channel
+     * has none.
+     * @param channel the channel
+     * @return the compression, GZIP if the set value is unknown
+     */
+    public static RepomdCompression forChannel(Channel channel) {
+        String label = channel.getRepodataCompression();
+        return label == null ? configured() : fromLabel(label);
+    }
+
+    private static RepomdCompression fromLabel(String label) {
+        return lookup(label).orElseGet(() -> {
+            log.warn("Unknown repository metadata compression '" + label + "', using gzip");
+            return GZIP;
+        });
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            threads = Math.max(1, ConfigDefaults.get().getRepodataCompressionThreads());
+            executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory("repomd-gzip-"));
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.repomd;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the package fragments of a previously written metadata file, as described by
+ * a {@link RepodataIndex}. The document header is skipped up to the first package, and
+ * every fragment is checked to start a package element, so that a file which does not
+ * match its index is detected.
+ */
+public class RepomdFragmentReader implements Closeable {
+
+    private static final byte[] PACKAGE_START = "<package".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DOCUMENT_END = "</".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+    private static final byte[] ZSTD_MAGIC = {(byte) 0x28, (byte) 0xb5, (byte) 0x2f, (byte) 0xfd};
+
+    private final InputStream in;
+    private boolean startConsumed;
+
+    /**
+     * Opens a reader on an uncompressed metadata document.
+     * @param inIn the document
+     * @throws IOException if the document cannot be read or contains no package
+     */
+    public RepomdFragmentReader(InputStream inIn) throws IOException {
+        in = inIn.markSupported() ? inIn : new BufferedInputStream(inIn);
+        skipHeader();
+    }
+
+    /**
+     * Opens a reader on a gzip or zstd compressed metadata file.
+     * @param file the file
+     * @return the reader
+     * @throws IOException if the file cannot be read, is not compressed with gzip or
+     * zstd or contains no package
+     */
+    public static RepomdFragmentReader open(File file) throws IOException {
+        InputStream stream = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+        try {
+            stream.mark(ZSTD_MAGIC.length);
+            byte[] magic = new byte[ZSTD_MAGIC.length];
+            int read = stream.read(magic);
+            stream.reset();
+            if (read >= GZIP_MAGIC.length &&
+                    Arrays.equals(Arrays.copyOf(magic, GZIP_MAGIC.length), GZIP_MAGIC)) {
+                stream = new GZIPInputStream(stream, 64 * 1024);
+            }
+            else if (read == ZSTD_MAGIC.length && Arrays.equals(magic, ZSTD_MAGIC)) {
+                stream = new ZstdInputStream(stream);
+            }
+            else {
+                throw new IOException("Not a gzip or zstd compressed file: " + file);
+            }
+            return new RepomdFragmentReader(stream);
+        }
+        catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next package fragment.
+     * @param size size of the fragment in bytes
+     * @return the fragment
+     * @throws IOException if the fragment cannot be read or is not a package
+     */
+    public String read(int size) throws IOException {
+        return new String(next(size), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skips the next package fragment.
+     * @param size size of the fragment in bytes
+     * @throws IOException if the fragment cannot be read or is not a package
+     */
+    public void skip(int size) throws IOException {
+        next(size);
+    }
+
+    /**
+     * Checks that all package fragments were consumed.
+     * @throws IOException if more packages follow
+     */
+    public void verifyEnd() throws IOException {
+        if (startConsumed) {
+            throw new IOException("Package fragment left unread");
+        }
+        byte[] end = new byte[DOCUMENT_END.length];
+        readFully(end, 0, end.length);
+        if (!Arrays.equals(end, DOCUMENT_END)) {
+            throw new IOException("Unexpected data after the last package fragment");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private byte[] next(int size) throws IOException {
+        if (size < PACKAGE_START.length) {
+            throw new IOException("Invalid package fragment size " + size);
+        }
+        byte[] fragment = new byte[size];
+        if (startConsumed) {
+            System.arraycopy(PACKAGE_START, 0, fragment, 0, PACKAGE_START.length);
+            readFully(fragment, PACKAGE_START.length, size - PACKAGE_START.length);
+            startConsumed = false;
+        }
+        else {
+            readFully(fragment, 0, size);
+            for (int i = 0; i < PACKAGE_START.length; i++) {
+                if (fragment[i] != PACKAGE_START[i]) {
+                    throw new IOException("Package fragment expected");
+                }
+            }
+        }
+        return fragment;
+    }
+
+    private void skipHeader() throws IOException {
+        int matched = 0;
+        for (int read = 0; read < MAX_HEADER_SIZE; read++) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            if (b == PACKAGE_START[matched]) {
+                matched++;
+            }
+            else {
+                matched = b == PACKAGE_START[0] ? 1 : 0;
+            }
+            if (matched == PACKAGE_START.length) {
+                startConsumed = true;
+                return;
+            }
+        }
+        throw new IOException("No package found in metadata header");
+    }
+
+    private void readFully(byte[] buffer, int offset, int length) throws IOException {
+        int done = 0;
+        while (done < length) {
+            int n = in.read(buffer, offset + done, length - done);
+            if (n < 0) {
+                throw new EOFException("Metadata file shorter than its index");
+            }
+            done += n;
+        }
+    }
+}
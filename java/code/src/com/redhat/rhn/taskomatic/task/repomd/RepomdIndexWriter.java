@@ -38,6 +38,7 @@ public class RepomdIndexWriter {
     private RepomdIndexData group;
     private RepomdIndexData modules;
     private RepomdIndexData products;
+    private String suffix;
 
     /**
      *
@@ -57,6 +58,29 @@ public class RepomdIndexWriter {
             RepomdIndexData susedataDataIn, RepomdIndexData updateinfoIn,
             RepomdIndexData groupIn, RepomdIndexData modulesIn,
             RepomdIndexData productsIn) {
+        this(writerIn, primaryIn, filelistsIn, otherIn, susedataDataIn, updateinfoIn,
+                groupIn, modulesIn, productsIn, RepomdCompression.GZIP.getSuffix());
+    }
+
+    /**
+     *
+     * @param writerIn content writer
+     * @param primaryIn primary.xml data
+     * @param filelistsIn filelists.xml data
+     * @param otherIn other.xml data
+     * @param susedataDataIn susedata.xml data
+     * @param updateinfoIn updateinfo.xml data
+     * @param groupIn group data
+     * @param modulesIn modules data
+     * @param productsIn products data
+     * @param suffixIn file name suffix of the compressed files, e.g. ".zst"
+     */
+    public RepomdIndexWriter(Writer writerIn, RepomdIndexData primaryIn,
+            RepomdIndexData filelistsIn, RepomdIndexData otherIn,
+            RepomdIndexData susedataDataIn, RepomdIndexData updateinfoIn,
+            RepomdIndexData groupIn, RepomdIndexData modulesIn,
+            RepomdIndexData productsIn, String suffixIn) {
+        this.suffix = suffixIn;
 
         this.primary = primaryIn;
         this.filelists = filelistsIn;
@@ -128,7 +152,7 @@ public class RepomdIndexWriter {
         SimpleAttributesImpl attr = new SimpleAttributesImpl();
         attr.addAttribute("type", type);
 
-        String location = type + ".xml.gz";
+        String location = type + ".xml" + suffix;
         // special case for comps file
         if (type.equals("group")) {
             location = "comps.xml";
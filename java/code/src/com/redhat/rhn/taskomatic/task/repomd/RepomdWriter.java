@@ -27,6 +27,7 @@ import org.xml.sax.SAXException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 /**
  *
@@ -49,6 +50,8 @@ public abstract class RepomdWriter {
 
     private static Logger log = Logger.getLogger(RepomdWriter.class);
 
+    private int lastFragmentSize;
+
     /**
      * Constructor takes in a writer
      * @param writer content writer
@@ -85,6 +88,25 @@ public abstract class RepomdWriter {
     }
 
 
+    /**
+     * Adds a package, already serialized as an XML fragment, to the document.
+     * @param xml the package fragment
+     * @throws SAXException SAX exception
+     */
+    protected void addFragment(String xml) throws SAXException {
+        handler.addCharacters(xml);
+        lastFragmentSize = xml.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Returns the size in bytes of the last package fragment added to the document,
+     * encoded in UTF-8 as the metadata files are.
+     * @return the fragment size
+     */
+    public int getLastFragmentSize() {
+        return lastFragmentSize;
+    }
+
     protected SimpleContentHandler getTemporaryHandler(OutputStream st) {
         OutputFormat of = new OutputFormat();
         of.setPreserveSpace(true);
@@ -16,7 +16,7 @@ package com.redhat.rhn.taskomatic.task.repomd;
 
 import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
-import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.DataResultIterator;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.common.util.StringUtil;
@@ -29,6 +29,8 @@ import com.redhat.rhn.manager.rhnpackage.PackageManager;
 import com.redhat.rhn.manager.satellite.SystemCommandExecutor;
 import com.redhat.rhn.manager.task.TaskManager;
 
+import org.xml.sax.SAXException;
+
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
@@ -39,12 +41,17 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.security.DigestInputStream;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  *
@@ -53,19 +60,29 @@ import java.util.Date;
  */
 public class RpmRepositoryWriter extends RepositoryWriter {
 
-    private static final String PRIMARY_FILE = "primary.xml.gz.new";
-    private static final String FILELISTS_FILE = "filelists.xml.gz.new";
-    private static final String OTHER_FILE = "other.xml.gz.new";
+    // compressed files, named after these with the suffix of the compression
+    private static final String PRIMARY_FILE = "primary.xml";
+    private static final String FILELISTS_FILE = "filelists.xml";
+    private static final String OTHER_FILE = "other.xml";
+    private static final String UPDATEINFO_FILE = "updateinfo.xml";
+    private static final String SUSEDATA_FILE = "susedata.xml";
+    private static final String NEW_SUFFIX = ".new";
     private static final String REPOMD_FILE = "repomd.xml.new";
-    private static final String UPDATEINFO_FILE = "updateinfo.xml.gz.new";
     private static final String PRODUCTS_FILE = "products.xml";
-    private static final String SUSEDATA_FILE = "susedata.xml.gz.new";
     private static final String NOREPO_FILE = "noyumrepo.txt";
+    private static final String INDEX_FILE = "repodata.index.new";
+    private static final String INDEX_FILE_NAME = "repodata.index";
+
+    // number of packages fetched, elaborated and handed to the compression at once
+    private static final int BATCH_SIZE = 1000;
+    // above this number of added packages the files are regenerated from scratch
+    private static final int MAX_INCREMENTAL_PACKAGES = 10000;
 
     private static final String GROUP = "groups";
     private static final String MODULES = "modules";
 
     private String checksumtype;
+    private RepomdCompression compression;
 
     /**
      * Constructor takes in pathprefix and mountpoint
@@ -129,6 +146,7 @@ public class RpmRepositoryWriter extends RepositoryWriter {
         if (log.isDebugEnabled()) {
             log.debug("Checksum Type Value: " + this.checksumtype);
         }
+        this.compression = RepomdCompression.forChannel(channel);
 
         // java.security.MessageDigest recognizes:
         // MD2, MD5, SHA-1, SHA-256, SHA-384, SHA-512
@@ -148,96 +166,23 @@ public class RpmRepositoryWriter extends RepositoryWriter {
                 channel.getPackageCount() + " packages, " +
                 channel.getErrataCount() + " errata");
 
-        CompressingDigestOutputWriter primaryFile;
-        CompressingDigestOutputWriter filelistsFile;
-        CompressingDigestOutputWriter otherFile;
-        CompressingDigestOutputWriter susedataFile;
-
-        try {
-            primaryFile = new CompressingDigestOutputWriter(
-                    new FileOutputStream(prefix + PRIMARY_FILE),
-                    checksumAlgo);
-            filelistsFile = new CompressingDigestOutputWriter(
-                    new FileOutputStream(prefix + FILELISTS_FILE),
-                    checksumAlgo);
-            otherFile = new CompressingDigestOutputWriter(
-                    new FileOutputStream(prefix + OTHER_FILE), checksumAlgo);
-            susedataFile = new CompressingDigestOutputWriter(
-                    new FileOutputStream(prefix + SUSEDATA_FILE), checksumAlgo);
-        }
-        catch (IOException e) {
-            throw new RepomdRuntimeException(e);
-        }
-        catch (NoSuchAlgorithmException e) {
-            throw new RepomdRuntimeException(e);
-        }
-
-        BufferedWriter primaryBufferedWriter = new BufferedWriter(
-                new OutputStreamWriter(primaryFile));
-        BufferedWriter filelistsBufferedWriter = new BufferedWriter(
-                new OutputStreamWriter(filelistsFile));
-        BufferedWriter otherBufferedWriter = new BufferedWriter(
-                new OutputStreamWriter(otherFile));
-        BufferedWriter susedataBufferedWriter = new BufferedWriter(
-                new OutputStreamWriter(susedataFile));
-        PrimaryXmlWriter primary = new PrimaryXmlWriter(
-                primaryBufferedWriter);
-        FilelistsXmlWriter filelists = new FilelistsXmlWriter(
-                filelistsBufferedWriter);
-        OtherXmlWriter other = new OtherXmlWriter(otherBufferedWriter);
-        SuseDataXmlWriter susedata = new SuseDataXmlWriter(
-                susedataBufferedWriter);
         Date start = new Date();
-
-        primary.begin(channel);
-        filelists.begin(channel);
-        other.begin(channel);
-        susedata.begin(channel);
-
-        // batch the elaboration so we don't have to hold many thousands of
-        // packages in memory at once
-        final int batchSize = 1000;
-        DataResult<PackageDto> packages = TaskManager.getChannelPackageDtos(channel);
-        for (int i = 0; i < packages.size(); i += batchSize) {
-            DataResult<PackageDto> packageBatch = packages.subList(i, i + batchSize);
-            packageBatch.elaborate();
-            for (PackageDto pkgDto : packageBatch) {
-                // this is a sanity check
-                // package may have been deleted before packageBatch.elaborate()
-                if (pkgDto.getChecksum() == null) {
-                    // channel content changed, we cannot guarantee correct repodata
-                    throw new RepomdRuntimeException("Package with id " + pkgDto.getId() +
-                            " removed from server, interrupting repo generation for " +
-                            channel.getLabel());
-                }
-                primary.addPackage(pkgDto);
-                filelists.addPackage(pkgDto);
-                other.addPackage(pkgDto);
-                susedata.addPackage(pkgDto);
-                try {
-                    primaryFile.flush();
-                    filelistsFile.flush();
-                    otherFile.flush();
-                    susedataFile.flush();
-                }
-                catch (IOException e) {
-                    throw new RepomdRuntimeException(e);
-                }
+        CompressingDigestOutputWriter[] packageFiles = null;
+        if (ConfigDefaults.get().isTaskoIncrementalRepodata()) {
+            RepodataIndex previous = RepodataIndex.load(new File(prefix + INDEX_FILE_NAME),
+                    checksumtype);
+            if (previous != null && previous.size() > 0) {
+                packageFiles = writeChangedPackageFiles(channel, prefix, checksumAlgo,
+                        previous);
             }
         }
-        primary.end();
-        filelists.end();
-        other.end();
-        susedata.end();
-        try {
-            primaryBufferedWriter.close();
-            filelistsBufferedWriter.close();
-            otherBufferedWriter.close();
-            susedataBufferedWriter.close();
-        }
-        catch (IOException e) {
-            throw new RepomdRuntimeException(e);
+        if (packageFiles == null) {
+            packageFiles = writePackageFiles(channel, prefix, checksumAlgo, null, null);
         }
+        CompressingDigestOutputWriter primaryFile = packageFiles[0];
+        CompressingDigestOutputWriter filelistsFile = packageFiles[1];
+        CompressingDigestOutputWriter otherFile = packageFiles[2];
+        CompressingDigestOutputWriter susedataFile = packageFiles[3];
 
         RepomdIndexData primaryData = new RepomdIndexData(primaryFile
                 .getCompressedChecksum(), primaryFile
@@ -294,7 +239,7 @@ public class RpmRepositoryWriter extends RepositoryWriter {
 
         RepomdIndexWriter index = new RepomdIndexWriter(indexFile, primaryData,
                 filelistsData, otherData, susedataData, updateinfoData,
-                groupsData, modulesData, productsData);
+                groupsData, modulesData, productsData, compression.getSuffix());
 
         index.writeRepomdIndex();
 
@@ -319,6 +264,286 @@ public class RpmRepositoryWriter extends RepositoryWriter {
                 (int) (new Date().getTime() - start.getTime()) / 1000 + " seconds");
     }
 
+    /**
+     * Updates the primary, filelists, other and susedata files of a channel by splicing
+     * the packages added since the previous generation into the existing files.
+     * @param channel the channel
+     * @param prefix the directory prefix
+     * @param checksumAlgo the digest algorithm
+     * @param previous the index of the existing files
+     * @return the written files, or null if a full regeneration is needed
+     */
+    private CompressingDigestOutputWriter[] writeChangedPackageFiles(Channel channel,
+            String prefix, String checksumAlgo, RepodataIndex previous) {
+        List<Long> currentIds = TaskManager.getChannelPackageIds(channel);
+        List<Long> addedIds = currentIds.stream()
+                .filter(id -> !previous.contains(id))
+                .collect(Collectors.toList());
+        if (addedIds.size() > MAX_INCREMENTAL_PACKAGES) {
+            return null;
+        }
+        log.info("Updating repository metadata for '" + channel.getLabel() + "': " +
+                addedIds.size() + " packages added, " +
+                (previous.size() - currentIds.size() + addedIds.size()) + " removed");
+
+        Map<Long, PackageDto> added = new HashMap<Long, PackageDto>();
+        for (PackageDto pkgDto : TaskManager.getPackageDtos(addedIds)) {
+            added.put(pkgDto.getId(), pkgDto);
+        }
+        try {
+            return writePackageFiles(channel, prefix, checksumAlgo, previous, added);
+        }
+        catch (RepomdRuntimeException e) {
+            log.warn("Incremental repository metadata update for '" + channel.getLabel() +
+                    "' failed, regenerating all of it: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the primary, filelists, other and susedata files of a channel together
+     * with their index. Every file is compressed and digested on its own thread.
+     * @param channel the channel
+     * @param prefix the directory prefix
+     * @param checksumAlgo the digest algorithm
+     * @param previous the index of the existing files to update, null to write all
+     * packages from scratch
+     * @param added the packages to add to the existing files
+     * @return the written files
+     */
+    private CompressingDigestOutputWriter[] writePackageFiles(Channel channel,
+            String prefix, String checksumAlgo, RepodataIndex previous,
+            Map<Long, PackageDto> added) {
+        CompressingDigestOutputWriter primaryFile;
+        CompressingDigestOutputWriter filelistsFile;
+        CompressingDigestOutputWriter otherFile;
+        CompressingDigestOutputWriter susedataFile;
+
+        try {
+            primaryFile = new CompressingDigestOutputWriter(
+                    new FileOutputStream(newFile(prefix, PRIMARY_FILE)),
+                    checksumAlgo, compression);
+            filelistsFile = new CompressingDigestOutputWriter(
+                    new FileOutputStream(newFile(prefix, FILELISTS_FILE)),
+                    checksumAlgo, compression);
+            otherFile = new CompressingDigestOutputWriter(
+                    new FileOutputStream(newFile(prefix, OTHER_FILE)), checksumAlgo,
+                    compression);
+            susedataFile = new CompressingDigestOutputWriter(
+                    new FileOutputStream(newFile(prefix, SUSEDATA_FILE)), checksumAlgo,
+                    compression);
+        }
+        catch (IOException e) {
+            throw new RepomdRuntimeException(e);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RepomdRuntimeException(e);
+        }
+
+        // compress and digest every file on its own thread, while the XML is
+        // generated from a single pass over the packages on this thread
+        PipelinedOutputStream primaryStage = new PipelinedOutputStream(primaryFile,
+                "repomd " + PRIMARY_FILE + " " + channel.getLabel());
+        PipelinedOutputStream filelistsStage = new PipelinedOutputStream(filelistsFile,
+                "repomd " + FILELISTS_FILE + " " + channel.getLabel());
+        PipelinedOutputStream otherStage = new PipelinedOutputStream(otherFile,
+                "repomd " + OTHER_FILE + " " + channel.getLabel());
+        PipelinedOutputStream susedataStage = new PipelinedOutputStream(susedataFile,
+                "repomd " + SUSEDATA_FILE + " " + channel.getLabel());
+
+        BufferedWriter[] bufferedWriters = new BufferedWriter[] {
+            new BufferedWriter(new OutputStreamWriter(primaryStage, StandardCharsets.UTF_8)),
+            new BufferedWriter(new OutputStreamWriter(filelistsStage, StandardCharsets.UTF_8)),
+            new BufferedWriter(new OutputStreamWriter(otherStage, StandardCharsets.UTF_8)),
+            new BufferedWriter(new OutputStreamWriter(susedataStage, StandardCharsets.UTF_8))
+        };
+        PrimaryXmlWriter primary = new PrimaryXmlWriter(bufferedWriters[0]);
+        FilelistsXmlWriter filelists = new FilelistsXmlWriter(bufferedWriters[1]);
+        OtherXmlWriter other = new OtherXmlWriter(bufferedWriters[2]);
+        SuseDataXmlWriter susedata = new SuseDataXmlWriter(bufferedWriters[3]);
+        RepodataIndex index = new RepodataIndex(checksumtype);
+
+        try {
+            primary.begin(channel);
+            filelists.begin(channel);
+            other.begin(channel);
+            susedata.begin(channel);
+
+            if (previous == null) {
+                // stream the packages and batch the elaboration so we don't have to
+                // hold many thousands of packages in memory at once
+                try (DataResultIterator<PackageDto> packages =
+                        TaskManager.streamChannelPackageDtos(channel, BATCH_SIZE)) {
+                    while (packages.hasNext()) {
+                        PackageDto pkgDto = packages.next();
+                        checkPackage(channel, pkgDto);
+                        primary.addPackage(pkgDto);
+                        filelists.addPackage(pkgDto);
+                        other.addPackage(pkgDto);
+                        susedata.addPackage(pkgDto);
+                        index.add(pkgDto.getId(), primary.getLastFragmentSize(),
+                                filelists.getLastFragmentSize(),
+                                other.getLastFragmentSize());
+                        flushBatch(index, bufferedWriters);
+                    }
+                }
+            }
+            else {
+                spliceAddedPackages(channel, prefix, previous, added, index,
+                        primary, filelists, other, susedata, bufferedWriters);
+            }
+            primary.end();
+            filelists.end();
+            other.end();
+            susedata.end();
+
+            // closing waits for the compression stages to finish
+            for (BufferedWriter bufferedWriter : bufferedWriters) {
+                bufferedWriter.close();
+            }
+            index.write(new File(prefix + INDEX_FILE));
+        }
+        catch (IOException e) {
+            abortStages(primaryStage, filelistsStage, otherStage, susedataStage);
+            throw new RepomdRuntimeException(e);
+        }
+        catch (SAXException e) {
+            abortStages(primaryStage, filelistsStage, otherStage, susedataStage);
+            throw new RepomdRuntimeException(e);
+        }
+        catch (RuntimeException e) {
+            abortStages(primaryStage, filelistsStage, otherStage, susedataStage);
+            throw e;
+        }
+        logStage(channel, newFile(prefix, PRIMARY_FILE), primaryStage);
+        logStage(channel, newFile(prefix, FILELISTS_FILE), filelistsStage);
+        logStage(channel, newFile(prefix, OTHER_FILE), otherStage);
+        logStage(channel, newFile(prefix, SUSEDATA_FILE), susedataStage);
+        return new CompressingDigestOutputWriter[] {primaryFile, filelistsFile, otherFile,
+            susedataFile};
+    }
+
+    /**
+     * Writes the packages of a channel in ascending id order, copying the fragments of
+     * the packages that are already in the existing files and generating the fragments
+     * of the added ones. The susedata entries are always generated, as they depend on
+     * the errata of the channel.
+     */
+    private void spliceAddedPackages(Channel channel, String prefix,
+            RepodataIndex previous, Map<Long, PackageDto> added, RepodataIndex index,
+            PrimaryXmlWriter primary, FilelistsXmlWriter filelists, OtherXmlWriter other,
+            SuseDataXmlWriter susedata, BufferedWriter[] bufferedWriters)
+        throws IOException, SAXException {
+        // the existing files carry the suffix of the current compression, unless it
+        // changed since they were written: then they are missing and all is regenerated
+        try (RepomdFragmentReader oldPrimary =
+                    RepomdFragmentReader.open(new File(file(prefix, PRIMARY_FILE)));
+                RepomdFragmentReader oldFilelists =
+                    RepomdFragmentReader.open(new File(file(prefix, FILELISTS_FILE)));
+                RepomdFragmentReader oldOther =
+                    RepomdFragmentReader.open(new File(file(prefix, OTHER_FILE)));
+                DataResultIterator<PackageDto> packages =
+                    TaskManager.streamChannelPackageBasics(channel, BATCH_SIZE)) {
+            int position = 0;
+            while (packages.hasNext()) {
+                PackageDto basics = packages.next();
+                long id = basics.getId();
+                // skip the removed packages
+                while (position < previous.size() && previous.getPackageId(position) < id) {
+                    oldPrimary.skip(previous.getPrimarySize(position));
+                    oldFilelists.skip(previous.getFilelistsSize(position));
+                    oldOther.skip(previous.getOtherSize(position));
+                    position++;
+                }
+                PackageDto pkgDto = added.get(id);
+                if (pkgDto != null) {
+                    checkPackage(channel, pkgDto);
+                    primary.addPackage(pkgDto);
+                    filelists.addPackage(pkgDto);
+                    other.addPackage(pkgDto);
+                    susedata.addPackage(pkgDto);
+                }
+                else if (position < previous.size() &&
+                        previous.getPackageId(position) == id) {
+                    primary.addFragment(oldPrimary.read(previous.getPrimarySize(position)));
+                    filelists.addFragment(
+                            oldFilelists.read(previous.getFilelistsSize(position)));
+                    other.addFragment(oldOther.read(previous.getOtherSize(position)));
+                    susedata.addPackage(basics);
+                    position++;
+                }
+                else {
+                    throw new RepomdRuntimeException("Package with id " + id +
+                            " added during repo generation for " + channel.getLabel());
+                }
+                index.add(id, primary.getLastFragmentSize(),
+                        filelists.getLastFragmentSize(), other.getLastFragmentSize());
+                flushBatch(index, bufferedWriters);
+            }
+            while (position < previous.size()) {
+                oldPrimary.skip(previous.getPrimarySize(position));
+                oldFilelists.skip(previous.getFilelistsSize(position));
+                oldOther.skip(previous.getOtherSize(position));
+                position++;
+            }
+            oldPrimary.verifyEnd();
+            oldFilelists.verifyEnd();
+            oldOther.verifyEnd();
+        }
+    }
+
+    /**
+     * Sanity check of an elaborated package: the package may have been deleted before
+     * its batch was elaborated
+     */
+    private void checkPackage(Channel channel, PackageDto pkgDto) {
+        if (pkgDto.getChecksum() == null) {
+            // channel content changed, we cannot guarantee correct repodata
+            throw new RepomdRuntimeException("Package with id " + pkgDto.getId() +
+                    " removed from server, interrupting repo generation for " +
+                    channel.getLabel());
+        }
+    }
+
+    /**
+     * Hands a completed batch of packages over to the compression stages.
+     */
+    private void flushBatch(RepodataIndex index, BufferedWriter[] bufferedWriters)
+        throws IOException {
+        if (index.size() % BATCH_SIZE == 0) {
+            for (BufferedWriter bufferedWriter : bufferedWriters) {
+                bufferedWriter.flush();
+            }
+        }
+    }
+
+    /**
+     * Returns the path of a compressed file.
+     */
+    private String file(String prefix, String name) {
+        return prefix + name + compression.getSuffix();
+    }
+
+    /**
+     * Returns the path a compressed file is written to before being renamed.
+     */
+    private String newFile(String prefix, String name) {
+        return file(prefix, name) + NEW_SUFFIX;
+    }
+
+    private void abortStages(PipelinedOutputStream... stages) {
+        for (PipelinedOutputStream stage : stages) {
+            stage.abort();
+        }
+    }
+
+    private void logStage(Channel channel, String fileName, PipelinedOutputStream stage) {
+        log.info("Repository metadata file '" + new File(fileName).getName() + "' for '" +
+                channel.getLabel() + "': " + stage.getByteCount() + " bytes, " +
+                new File(fileName).length() + " bytes compressed, " +
+                stage.getBusyMillis() + " ms compressing");
+    }
+
     /**
      * Deletes existing repo and generates file stating that no repo was generated
      * @param channel the channel to do this for
@@ -441,7 +666,8 @@ public class RpmRepositoryWriter extends RepositoryWriter {
         CompressingDigestOutputWriter updateinfoFile;
         try {
             updateinfoFile = new CompressingDigestOutputWriter(
-                    new FileOutputStream(prefix + UPDATEINFO_FILE), checksumtypeIn);
+                    new FileOutputStream(newFile(prefix, UPDATEINFO_FILE)), checksumtypeIn,
+                    compression);
         }
         catch (FileNotFoundException e) {
             throw new RepomdRuntimeException(e);
@@ -453,7 +679,7 @@ public class RpmRepositoryWriter extends RepositoryWriter {
             throw new RepomdRuntimeException(e);
         }
         BufferedWriter updateinfoBufferedWriter = new BufferedWriter(
-                new OutputStreamWriter(updateinfoFile));
+                new OutputStreamWriter(updateinfoFile, StandardCharsets.UTF_8));
         UpdateInfoWriter updateinfo = new UpdateInfoWriter(
                 updateinfoBufferedWriter);
         updateinfo.getUpdateInfo(channel);
@@ -521,15 +747,15 @@ public class RpmRepositoryWriter extends RepositoryWriter {
      */
     private void renameFiles(String prefix, Long lastModified,
             Boolean doUpdateinfo, Boolean hasProducts) {
-        File primary = new File(prefix + PRIMARY_FILE);
-        File filelists = new File(prefix + FILELISTS_FILE);
-        File other = new File(prefix + OTHER_FILE);
-        File susedata = new File(prefix + SUSEDATA_FILE);
+        File primary = new File(newFile(prefix, PRIMARY_FILE));
+        File filelists = new File(newFile(prefix, FILELISTS_FILE));
+        File other = new File(newFile(prefix, OTHER_FILE));
+        File susedata = new File(newFile(prefix, SUSEDATA_FILE));
         File repomd = new File(prefix + REPOMD_FILE);
 
         File updateinfo = null;
         if (doUpdateinfo) {
-            updateinfo = new File(prefix + UPDATEINFO_FILE);
+            updateinfo = new File(newFile(prefix, UPDATEINFO_FILE));
             updateinfo.setLastModified(lastModified);
         }
         File products = null;
@@ -544,7 +770,7 @@ public class RpmRepositoryWriter extends RepositoryWriter {
         susedata.setLastModified(lastModified);
         repomd.setLastModified(lastModified);
 
-        File renamedupdateinfo = new File(prefix + "updateinfo.xml.gz");
+        File renamedupdateinfo = new File(file(prefix, UPDATEINFO_FILE));
         if (doUpdateinfo) {
             updateinfo.renameTo(renamedupdateinfo);
         }
@@ -566,11 +792,23 @@ public class RpmRepositoryWriter extends RepositoryWriter {
             }
         }
 
-        primary.renameTo(new File(prefix + "primary.xml.gz"));
-        filelists.renameTo(new File(prefix + "filelists.xml.gz"));
-        other.renameTo(new File(prefix + "other.xml.gz"));
-        susedata.renameTo(new File(prefix + "susedata.xml.gz"));
+        primary.renameTo(new File(file(prefix, PRIMARY_FILE)));
+        filelists.renameTo(new File(file(prefix, FILELISTS_FILE)));
+        other.renameTo(new File(file(prefix, OTHER_FILE)));
+        susedata.renameTo(new File(file(prefix, SUSEDATA_FILE)));
         repomd.renameTo(new File(prefix + "repomd.xml"));
+        new File(prefix + INDEX_FILE).renameTo(new File(prefix + INDEX_FILE_NAME));
+
+        // remove the files written with another compression of the channel before
+        for (RepomdCompression previous : RepomdCompression.values()) {
+            if (previous.getSuffix().equals(compression.getSuffix())) {
+                continue;
+            }
+            for (String name : new String[] {PRIMARY_FILE, FILELISTS_FILE, OTHER_FILE,
+                    SUSEDATA_FILE, UPDATEINFO_FILE}) {
+                new File(prefix + name + previous.getSuffix()).delete();
+            }
+        }
     }
 
 }
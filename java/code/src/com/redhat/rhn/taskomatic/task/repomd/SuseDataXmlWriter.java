@@ -101,7 +101,7 @@ public class SuseDataXmlWriter extends RepomdWriter {
             tmpHandler.endDocument();
 
             String pkg =  st.toString();
-            handler.addCharacters(pkg);
+            addFragment(pkg);
         }
         catch (SAXException e) {
             throw new RepomdRuntimeException(e);
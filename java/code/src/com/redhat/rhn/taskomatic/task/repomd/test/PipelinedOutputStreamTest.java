@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.repomd.test;
+
+import com.redhat.rhn.taskomatic.task.repomd.PipelinedOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link PipelinedOutputStream}.
+ */
+public class PipelinedOutputStreamTest extends TestCase {
+
+    public void testWritesAllData() throws Exception {
+        byte[] data = new byte[1024 * 1024 + 17];
+        new Random(42).nextBytes(data);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        PipelinedOutputStream stage = new PipelinedOutputStream(target, "test stage");
+        int off = 0;
+        while (off < data.length) {
+            int len = Math.min(1000, data.length - off);
+            stage.write(data, off, len);
+            off += len;
+            if (off % 7000 == 0) {
+                stage.flush();
+            }
+        }
+        stage.write(1);
+        stage.close();
+
+        byte[] expected = Arrays.copyOf(data, data.length + 1);
+        expected[data.length] = 1;
+        assertTrue(Arrays.equals(expected, target.toByteArray()));
+        assertEquals(expected.length, stage.getByteCount());
+    }
+
+    public void testFailureIsRethrown() throws Exception {
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        PipelinedOutputStream stage = new PipelinedOutputStream(failing, "test stage");
+        stage.write(new byte[10]);
+        try {
+            stage.close();
+            fail("the failure of the target stream should be rethrown");
+        }
+        catch (IOException e) {
+            assertEquals("disk full", e.getCause().getMessage());
+        }
+    }
+
+    public void testAbortWaitsForTheStage() throws Exception {
+        AtomicBoolean targetClosed = new AtomicBoolean();
+        OutputStream slow = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                // slow enough for data to be pending when aborting
+                try {
+                    Thread.sleep(1);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void close() {
+                targetClosed.set(true);
+            }
+        };
+        PipelinedOutputStream stage = new PipelinedOutputStream(slow, "test stage");
+        stage.write(new byte[100]);
+        stage.flush();
+        stage.abort();
+
+        assertTrue(targetClosed.get());
+        // aborting an aborted stage is harmless
+        stage.abort();
+        stage.close();
+    }
+}
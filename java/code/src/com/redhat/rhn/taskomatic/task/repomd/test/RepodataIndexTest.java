@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.repomd.test;
+
+import com.redhat.rhn.taskomatic.task.repomd.RepodataIndex;
+import com.redhat.rhn.taskomatic.task.repomd.RepomdCompression;
+import com.redhat.rhn.taskomatic.task.repomd.RepomdFragmentReader;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link RepodataIndex} and {@link RepomdFragmentReader}.
+ */
+public class RepodataIndexTest extends TestCase {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<metadata xmlns=\"http://linux.duke.edu/metadata/common\" packages=\"3\">";
+    private static final String[] FRAGMENTS = {
+        "<package type=\"rpm\"><name>a</name></package>",
+        "<package type=\"rpm\"><name>b\u00e9</name></package>",
+        "<package type=\"rpm\"><name>c</name></package>"
+    };
+
+    public void testWriteAndLoad() throws Exception {
+        RepodataIndex index = new RepodataIndex("sha256");
+        index.add(10L, 100, 200, 300);
+        index.add(12L, 101, 201, 301);
+
+        File file = File.createTempFile("repodata", ".index");
+        try {
+            index.write(file);
+            RepodataIndex loaded = RepodataIndex.load(file, "sha256");
+            assertEquals(2, loaded.size());
+            assertTrue(loaded.contains(12L));
+            assertFalse(loaded.contains(11L));
+            assertEquals(12L, loaded.getPackageId(1));
+            assertEquals(101, loaded.getPrimarySize(1));
+            assertEquals(201, loaded.getFilelistsSize(1));
+            assertEquals(301, loaded.getOtherSize(1));
+
+            assertNull(RepodataIndex.load(file, "sha1"));
+        }
+        finally {
+            file.delete();
+        }
+        assertNull(RepodataIndex.load(file, "sha256"));
+    }
+
+    public void testUncompressedFileIsRejected() throws Exception {
+        File file = File.createTempFile("primary", ".xml.gz");
+        try {
+            Files.copy(document(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            RepomdFragmentReader.open(file).close();
+            fail("files not compressed with gzip should be rejected");
+        }
+        catch (IOException e) {
+            // expected
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    public void testReadCompressedFragments() throws Exception {
+        for (RepomdCompression compression : RepomdCompression.values()) {
+            File file = File.createTempFile("primary", ".xml" + compression.getSuffix());
+            try {
+                try (OutputStream out = compression.compress(new FileOutputStream(file))) {
+                    IOUtils.copy(document(), out);
+                }
+                try (RepomdFragmentReader reader = RepomdFragmentReader.open(file)) {
+                    for (String fragment : FRAGMENTS) {
+                        assertEquals(fragment, reader.read(size(fragment)));
+                    }
+                    reader.verifyEnd();
+                }
+            }
+            finally {
+                file.delete();
+            }
+        }
+    }
+
+    public void testPackagesMustBeOrdered() {
+        RepodataIndex index = new RepodataIndex("sha256");
+        index.add(10L, 1, 1, 1);
+        try {
+            index.add(10L, 1, 1, 1);
+            fail("packages must be added in ascending id order");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testReadFragments() throws Exception {
+        try (RepomdFragmentReader reader = new RepomdFragmentReader(document())) {
+            assertEquals(FRAGMENTS[0], reader.read(size(FRAGMENTS[0])));
+            reader.skip(size(FRAGMENTS[1]));
+            assertEquals(FRAGMENTS[2], reader.read(size(FRAGMENTS[2])));
+            reader.verifyEnd();
+        }
+    }
+
+    public void testMismatchingIndexIsDetected() throws Exception {
+        try (RepomdFragmentReader reader = new RepomdFragmentReader(document())) {
+            reader.read(size(FRAGMENTS[0]));
+            reader.skip(size(FRAGMENTS[1]) - 1);
+            reader.read(size(FRAGMENTS[2]));
+            fail("a fragment not starting a package should be detected");
+        }
+        catch (IOException e) {
+            // expected
+        }
+
+        try (RepomdFragmentReader reader = new RepomdFragmentReader(document())) {
+            reader.read(size(FRAGMENTS[0]));
+            reader.verifyEnd();
+            fail("unread fragments should be detected");
+        }
+        catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static int size(String fragment) {
+        return fragment.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static ByteArrayInputStream document() {
+        StringBuilder document = new StringBuilder(HEADER);
+        for (String fragment : FRAGMENTS) {
+            document.append(fragment);
+        }
+        document.append("</metadata>");
+        return new ByteArrayInputStream(document.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -14,11 +14,16 @@
  */
 package com.redhat.rhn.taskomatic.task.test;
 
+import com.redhat.rhn.domain.channel.Channel;
+import com.redhat.rhn.domain.channel.test.ChannelFactoryTest;
 import com.redhat.rhn.domain.server.Server;
 import com.redhat.rhn.domain.server.test.ServerFactoryTest;
 import com.redhat.rhn.domain.task.Task;
+import com.redhat.rhn.domain.task.TaskFactory;
 import com.redhat.rhn.manager.errata.ErrataManager;
+import com.redhat.rhn.manager.system.SystemManager;
 import com.redhat.rhn.taskomatic.task.errata.ErrataCacheDriver;
+import com.redhat.rhn.taskomatic.task.errata.ErrataCacheWorker;
 import com.redhat.rhn.testing.BaseTestCaseWithUser;
 
 import org.apache.log4j.Logger;
@@ -51,4 +56,37 @@ public class ErrataCacheDriverTest extends BaseTestCaseWithUser {
         }
         assertEquals(1, candidateCount);
     }
+
+    /**
+     * Test that server tasks are only left to pending channel tasks covering them.
+     *
+     * @throws Exception in case of a problem
+     */
+    public void testGetCandidatesWithChannelTask() throws Exception {
+        Channel channel = ChannelFactoryTest.createTestChannel(user);
+        Server covered = ServerFactoryTest.createTestServer(user);
+        covered = SystemManager.subscribeServerToChannel(user, covered, channel);
+        Server other = ServerFactoryTest.createTestServer(user);
+        TaskFactory.createTask(user.getOrg(), ErrataCacheWorker.BY_CHANNEL, channel.getId());
+        ErrataManager.insertErrataCacheTask(covered);
+        ErrataManager.insertErrataCacheTask(other);
+
+        ErrataCacheDriver driver = new ErrataCacheDriver();
+        driver.setLogger(Logger.getLogger(ErrataCacheDriverTest.class));
+        boolean channelTask = false;
+        boolean coveredTask = false;
+        boolean otherTask = false;
+        for (Task task : driver.getCandidates()) {
+            if (task.getName().equals(ErrataCacheWorker.BY_CHANNEL)) {
+                channelTask |= task.getData().equals(channel.getId());
+            }
+            else if (task.getName().equals(ErrataCacheWorker.FOR_SERVER)) {
+                coveredTask |= task.getData().equals(covered.getId());
+                otherTask |= task.getData().equals(other.getId());
+            }
+        }
+        assertTrue(channelTask);
+        assertFalse(coveredTask);
+        assertTrue(otherTask);
+    }
 }
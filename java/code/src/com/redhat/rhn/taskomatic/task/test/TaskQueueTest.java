@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.test;
+
+import com.redhat.rhn.taskomatic.task.threaded.QueueDriver;
+import com.redhat.rhn.taskomatic.task.threaded.QueueWorker;
+import com.redhat.rhn.taskomatic.task.threaded.TaskQueue;
+
+import org.apache.log4j.Logger;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the TaskQueue class.
+ */
+public class TaskQueueTest extends TestCase {
+
+    public void testWorkersRunAcrossRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TestDriver driver = new TestDriver(release, 2);
+        TaskQueue queue = new TaskQueue("test_queue");
+        queue.setQueueDriver(driver);
+
+        driver.candidates = new ArrayList<>(Arrays.asList(1, 2, 3));
+        queue.run();
+        assertEquals(3, queue.getQueueSize());
+
+        // a second run adds to the same pool while the first workers are still busy
+        driver.candidates = new ArrayList<>(Arrays.asList(4, 5));
+        queue.run();
+        assertEquals(5, queue.getQueueSize());
+
+        release.countDown();
+        queue.waitForEmptyQueue();
+
+        assertEquals(0, queue.getQueueSize());
+        assertEquals(0, queue.getExecutingWorkerCount());
+        assertEquals(5, queue.getCompletedWorkerCount());
+        assertEquals(5.0, sampleValue(queue, "taskomatic_test_queue_worker_duration_seconds_count"));
+        assertEquals(5.0, sampleValue(queue, "taskomatic_test_queue_worker_wait_seconds_count"));
+        assertTrue(driver.maxConcurrent <= 2);
+    }
+
+    public void testCanContinueStopsSubmission() throws Exception {
+        CountDownLatch release = new CountDownLatch(0);
+        TestDriver driver = new TestDriver(release, 1);
+        driver.limit = 2;
+        driver.candidates = new ArrayList<>(Arrays.asList(1, 2, 3, 4));
+        TaskQueue queue = new TaskQueue("test_limit");
+        queue.setQueueDriver(driver);
+
+        queue.run();
+        queue.waitForEmptyQueue();
+
+        assertEquals(2, queue.getCompletedWorkerCount());
+    }
+
+    public void testCandidatesAreReadLazily() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TestDriver driver = new TestDriver(release, 1);
+        driver.limit = 2;
+        driver.candidates = new ArrayList<>(Arrays.asList(1, 2, 3, 4));
+        TaskQueue queue = new TaskQueue("test_lazy");
+        queue.setQueueDriver(driver);
+
+        queue.run();
+
+        assertEquals(2, driver.read);
+        assertTrue(driver.closed);
+        release.countDown();
+        queue.waitForEmptyQueue();
+        assertEquals(2, queue.getCompletedWorkerCount());
+    }
+
+    private static double sampleValue(TaskQueue queue, String sampleName) {
+        List<MetricFamilySamples> families =
+                new ArrayList<>(queue.getRunTimeHistogram().collect());
+        families.addAll(queue.getWaitTimeHistogram().collect());
+        return families.stream()
+                .flatMap(f -> f.samples.stream())
+                .filter(s -> s.name.equals(sampleName))
+                .findFirst().get().value;
+    }
+
+    /**
+     * Iterator the queue is expected to close.
+     */
+    private interface CloseableIterator extends Iterator<Object>, AutoCloseable {
+        void close();
+    }
+
+    /**
+     * Driver handing out a fixed candidate list, whose workers block on a latch.
+     */
+    private static class TestDriver implements QueueDriver {
+
+        private final CountDownLatch release;
+        private final int maxWorkers;
+        private List<Integer> candidates = new ArrayList<>();
+        private int limit = Integer.MAX_VALUE;
+        private int made = 0;
+        private int concurrent = 0;
+        private int maxConcurrent = 0;
+        private int read = 0;
+        private boolean closed = false;
+        private Logger logger = Logger.getLogger(TaskQueueTest.class);
+
+        TestDriver(CountDownLatch releaseIn, int maxWorkersIn) {
+            release = releaseIn;
+            maxWorkers = maxWorkersIn;
+        }
+
+        public void setLogger(Logger loggerIn) {
+            logger = loggerIn;
+        }
+
+        public Logger getLogger() {
+            return logger;
+        }
+
+        public List getCandidates() {
+            return candidates;
+        }
+
+        public Iterator getCandidateIterator() {
+            Iterator<Integer> iterator = candidates.iterator();
+            return new CloseableIterator() {
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                public Object next() {
+                    read++;
+                    return iterator.next();
+                }
+
+                public void close() {
+                    closed = true;
+                }
+            };
+        }
+
+        public int getMaxWorkers() {
+            return maxWorkers;
+        }
+
+        public QueueWorker makeWorker(Object workItem) {
+            made++;
+            return new QueueWorker() {
+                private TaskQueue parent;
+
+                public void setParentQueue(TaskQueue queue) {
+                    parent = queue;
+                }
+
+                public void run() {
+                    parent.workerStarting();
+                    synchronized (TestDriver.this) {
+                        concurrent++;
+                        maxConcurrent = Math.max(maxConcurrent, concurrent);
+                    }
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        synchronized (TestDriver.this) {
+                            concurrent--;
+                        }
+                        parent.workerDone();
+                    }
+                }
+            };
+        }
+
+        public boolean canContinue() {
+            return made < limit;
+        }
+
+        public void initialize() {
+        }
+    }
+}
@@ -16,6 +16,7 @@ package com.redhat.rhn.taskomatic.task.threaded;
 
 import org.apache.log4j.Logger;
 
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -42,6 +43,16 @@ public interface QueueDriver {
      */
     List getCandidates();
 
+    /**
+     * Work items to "prime" the queue, read one at a time while workers are submitted.
+     * Drivers with many candidates can read them from a cursor instead of loading the
+     * whole list; iterators that are {@link AutoCloseable} are closed by the queue.
+     * @return iterator over the work items
+     */
+    default Iterator getCandidateIterator() {
+        return getCandidates().iterator();
+    }
+
     /**
      * Maximum number of worker threads to run
      * @return number of worker threads
@@ -17,26 +17,66 @@ package com.redhat.rhn.taskomatic.task.threaded;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.taskomatic.domain.TaskoRun;
 
-import java.util.List;
+import io.prometheus.client.Histogram;
 
-import EDU.oswego.cs.dl.util.concurrent.Channel;
-import EDU.oswego.cs.dl.util.concurrent.LinkedQueue;
-import EDU.oswego.cs.dl.util.concurrent.PooledExecutor;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Generic threaded queue suitable for use wherever Taskomatic
  * tasks need to process a number of work items in parallel.
+ *
+ * Workers are handed to a long-lived work-stealing pool as soon as they are
+ * created from the candidates, which are read one at a time from the driver, so
+ * processing starts while the rest of the candidates are still being read and
+ * threads are reused across runs.
  * @version $Rev$
  */
 public class TaskQueue {
 
+    /* Upper bounds of the latency histograms, in seconds */
+    private static final double[] LATENCY_BUCKETS =
+        {0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300, 900, 3600};
+
+    private final String name;
     private QueueDriver queueDriver;
-    private PooledExecutor executor = null;
-    private int executingWorkers = 0;
-    private int queueSize = 0;
-    private byte[] emptyQueueWait = new byte[0];
-    private boolean taskQueueDone = true;
+    private ForkJoinPool executor = null;
+    private final AtomicInteger executingWorkers = new AtomicInteger();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicLong completedWorkers = new AtomicLong();
+    private final Object emptyQueueWait = new Object();
     private TaskoRun queueRun = null;
+    private final Histogram waitTime;
+    private final Histogram runTime;
+
+    /**
+     * Constructor
+     * @param nameIn queue name, used for thread and metric names
+     */
+    public TaskQueue(String nameIn) {
+        name = nameIn;
+        waitTime = Histogram.build()
+            .name("taskomatic_" + nameIn + "_worker_wait_seconds")
+            .help(nameIn + " - Time work items spent queued before starting")
+            .buckets(LATENCY_BUCKETS)
+            .create();
+        runTime = Histogram.build()
+            .name("taskomatic_" + nameIn + "_worker_duration_seconds")
+            .help(nameIn + " - Time taken to process work items")
+            .buckets(LATENCY_BUCKETS)
+            .create();
+    }
+
+    /**
+     * Get the queue name
+     * @return queue name
+     */
+    public String getName() {
+        return name;
+    }
 
     /**
      * Store the QueueDriver instance used when run() is called
@@ -58,29 +98,16 @@ public class TaskQueue {
      * Callback all workers should call when starting
      * to process work
      */
-    public synchronized void workerStarting() {
-        executingWorkers++;
+    public void workerStarting() {
+        executingWorkers.incrementAndGet();
     }
 
     /**
      * Callback all workers should call when
      * finished with their work item
      */
-    public synchronized void workerDone() {
-        executingWorkers--;
-        queueSize--;
-        if (executingWorkers < 0) {
-            executingWorkers = 0;
-        }
-        if (queueSize < 0) {
-            queueSize = 0;
-        }
-        if (executingWorkers == 0) {
-            synchronized (emptyQueueWait) {
-                emptyQueueWait.notifyAll();
-            }
-            taskQueueDone = true;
-        }
+    public void workerDone() {
+        executingWorkers.updateAndGet(n -> n > 0 ? n - 1 : 0);
     }
 
     /**
@@ -90,15 +117,39 @@ public class TaskQueue {
      * @return number of currently executing workers
      */
     public int getExecutingWorkerCount() {
-        return executingWorkers;
+        return executingWorkers.get();
     }
 
     /**
-     * Returns the number of workers pending
+     * Returns the number of workers pending, including the executing ones
      * @return number of workers pending
      */
     public int getQueueSize() {
-        return queueSize;
+        return queueSize.get();
+    }
+
+    /**
+     * Returns the number of workers ever completed by this queue
+     * @return number of completed workers
+     */
+    public long getCompletedWorkerCount() {
+        return completedWorkers.get();
+    }
+
+    /**
+     * Returns the histogram of the time workers waited before starting
+     * @return the wait time histogram
+     */
+    public Histogram getWaitTimeHistogram() {
+        return waitTime;
+    }
+
+    /**
+     * Returns the histogram of the time workers took to complete
+     * @return the run time histogram
+     */
+    public Histogram getRunTimeHistogram() {
+        return runTime;
     }
 
     /**
@@ -106,33 +157,31 @@ public class TaskQueue {
      * case there is no new candidates and workers are all done.
      */
     public void run() {
-        shutdownExecutor();
-        Channel workers = new LinkedQueue();
-        List candidates = queueDriver.getCandidates();
-        queueSize += candidates.size();
-        if (queueSize > 0) {
-            queueDriver.getLogger().info("In the queue: " + queueSize);
-        }
-        while (candidates.size() > 0 && queueDriver.canContinue()) {
-            Object candidate = candidates.remove(0);
-            QueueWorker worker = queueDriver.makeWorker(candidate);
-            worker.setParentQueue(this);
-            try {
-                queueDriver.getLogger().debug("Putting worker");
-                workers.put(worker);
-                queueDriver.getLogger().debug("Put worker");
-                unsetTaskQueueDone();
+        Iterator candidates = queueDriver.getCandidateIterator();
+        ForkJoinPool pool = getExecutor();
+        try {
+            while (queueDriver.canContinue() && candidates.hasNext()) {
+                QueueWorker worker = queueDriver.makeWorker(candidates.next());
+                worker.setParentQueue(this);
+                queueDriver.getLogger().debug("Submitting worker");
+                queueSize.incrementAndGet();
+                pool.execute(new TimedWorker(worker));
             }
-            catch (InterruptedException e) {
-                queueDriver.getLogger().error(e);
-                HibernateFactory.commitTransaction();
-                HibernateFactory.closeSession();
-                HibernateFactory.getSession();
-                return;
+        }
+        finally {
+            if (candidates instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) candidates).close();
+                }
+                catch (Exception e) {
+                    queueDriver.getLogger().warn("Error closing candidates", e);
+                }
             }
         }
-        setupQueue(workers);
-        if (isTaskQueueDone()) {
+        if (queueSize.get() > 0) {
+            queueDriver.getLogger().info("In the queue: " + queueSize.get());
+        }
+        if (queueSize.get() == 0) {
             // everything done
             queueDriver.getLogger().debug("Finishing run " + queueRun.getId());
             queueRun.finished();
@@ -149,39 +198,49 @@ public class TaskQueue {
      */
     public void waitForEmptyQueue() throws InterruptedException {
         synchronized (emptyQueueWait) {
-            emptyQueueWait.wait();
+            while (queueSize.get() > 0) {
+                emptyQueueWait.wait();
+            }
         }
     }
 
     void shutdown() {
-        executor.shutdownNow();
-        while (!executor.isTerminatedAfterShutdown()) {
-            try {
-                Thread.sleep(100);
-            }
-            catch (InterruptedException e) {
-                queueDriver.getLogger().error(e);
-                return;
+        ForkJoinPool pool;
+        synchronized (this) {
+            pool = executor;
+            executor = null;
+        }
+        if (pool == null) {
+            return;
+        }
+        pool.shutdownNow();
+        try {
+            while (!pool.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+                queueDriver.getLogger().debug("Waiting for workers to terminate");
             }
         }
+        catch (InterruptedException e) {
+            queueDriver.getLogger().error(e);
+        }
     }
 
-    private void shutdownExecutor() {
-        if (executor != null) {
-            executor.shutdownAfterProcessingCurrentlyQueuedTasks();
-            executor = null;
+    private synchronized ForkJoinPool getExecutor() {
+        if (executor == null) {
+            executor = new ForkJoinPool(queueDriver.getMaxWorkers(),
+                    new TaskThreadFactory(name),
+                    (thread, e) -> queueDriver.getLogger().error(e.getMessage(), e),
+                    true);
         }
+        return executor;
     }
 
-    private void setupQueue(Channel workers) {
-        int maxPoolSize = queueDriver.getMaxWorkers();
-        executor = new PooledExecutor(workers);
-        executor.waitWhenBlocked();
-        executor.setThreadFactory(new TaskThreadFactory());
-        executor.setKeepAliveTime(5000);
-        executor.setMinimumPoolSize(1);
-        executor.setMaximumPoolSize(maxPoolSize);
-        executor.createThreads(maxPoolSize);
+    private void workerFinished() {
+        completedWorkers.incrementAndGet();
+        if (queueSize.updateAndGet(n -> n > 0 ? n - 1 : 0) == 0) {
+            synchronized (emptyQueueWait) {
+                emptyQueueWait.notifyAll();
+            }
+        }
     }
 
     /**
@@ -215,11 +274,28 @@ public class TaskQueue {
         return queueRun;
     }
 
-    private synchronized boolean isTaskQueueDone() {
-        return taskQueueDone;
-    }
+    /**
+     * Runs a worker, keeping the pending count and the latency histograms up to date.
+     */
+    private class TimedWorker implements Runnable {
+
+        private final QueueWorker worker;
+        private final long submitted = System.nanoTime();
 
-    private synchronized void unsetTaskQueueDone() {
-        taskQueueDone = false;
+        TimedWorker(QueueWorker workerIn) {
+            worker = workerIn;
+        }
+
+        public void run() {
+            long started = System.nanoTime();
+            waitTime.observe((started - submitted) / 1e9);
+            try {
+                worker.run();
+            }
+            finally {
+                runTime.observe((System.nanoTime() - started) / 1e9);
+                workerFinished();
+            }
+        }
     }
 }
@@ -14,6 +14,8 @@
  */
 package com.redhat.rhn.taskomatic.task.threaded;
 
+import com.suse.manager.metrics.PrometheusExporter;
+
 import org.apache.log4j.Logger;
 
 import java.util.HashMap;
@@ -70,12 +72,13 @@ public class TaskQueueFactory {
         synchronized (queues) {
             retval = (TaskQueue) queues.get(name);
             if (retval == null) {
-                retval = new TaskQueue();
+                retval = new TaskQueue(name);
                 QueueDriver driver = (QueueDriver) driverClass.newInstance();
                 driver.setLogger(loggerIn);
                 driver.initialize();
                 retval.setQueueDriver(driver);
                 queues.put(name, retval);
+                PrometheusExporter.INSTANCE.registerTaskQueue(retval, "taskomatic_" + name);
             }
         }
         return retval;
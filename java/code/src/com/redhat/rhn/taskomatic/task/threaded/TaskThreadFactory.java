@@ -14,19 +14,31 @@
  */
 package com.redhat.rhn.taskomatic.task.threaded;
 
-import EDU.oswego.cs.dl.util.concurrent.ThreadFactory;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 /**
- * ThreadFactory impl for Taskomatic
+ * ThreadFactory impl for Taskomatic queue pools, creating named daemon threads
  * @version $Rev$
  */
-public class TaskThreadFactory implements ThreadFactory {
+public class TaskThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+    private final String prefix;
+
+    /**
+     * Constructor
+     * @param queueName name of the queue owning the threads
+     */
+    public TaskThreadFactory(String queueName) {
+        prefix = "taskomatic-" + queueName + "-";
+    }
 
     /**
      * {@inheritDoc}
      */
-    public Thread newThread(Runnable task) {
-        Thread retval = new Thread(task);
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread retval = new ForkJoinWorkerThread(pool) { };
+        retval.setName(prefix + retval.getPoolIndex());
         retval.setDaemon(true);
         return retval;
     }
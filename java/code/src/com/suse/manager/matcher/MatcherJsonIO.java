@@ -15,8 +15,13 @@
 
 package com.suse.manager.matcher;
 
+import static java.util.Collections.emptySet;
 import static java.util.Optional.ofNullable;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 import static java.util.stream.Stream.concat;
 import static java.util.stream.Stream.empty;
@@ -31,6 +36,7 @@ import com.redhat.rhn.domain.product.SUSEProduct;
 import com.redhat.rhn.domain.product.SUSEProductFactory;
 import com.redhat.rhn.domain.scc.SCCCachingFactory;
 import com.redhat.rhn.domain.scc.SCCSubscription;
+import com.redhat.rhn.domain.server.InstalledProduct;
 import com.redhat.rhn.domain.server.PinnedSubscription;
 import com.redhat.rhn.domain.server.Server;
 import com.redhat.rhn.domain.server.ServerArch;
@@ -41,6 +47,7 @@ import com.redhat.rhn.manager.entitlement.EntitlementManager;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import com.suse.matcher.json.InputJson;
 import com.suse.matcher.json.MatchJson;
 import com.suse.matcher.json.OutputJson;
@@ -50,10 +57,14 @@ import com.suse.matcher.json.SystemJson;
 import com.suse.matcher.json.VirtualizationGroupJson;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -70,6 +81,9 @@ public class MatcherJsonIO {
     /** (De)serializer instance. */
     private Gson gson;
 
+    /** Serializer instance for the matcher input, without pretty printing. */
+    private Gson compactGson;
+
     /** Cached instance of the s390x ServerArch object. */
     private final ServerArch s390arch;
 
@@ -94,11 +108,11 @@ public class MatcherJsonIO {
      * Constructor
      */
     public MatcherJsonIO() {
-        gson = new GsonBuilder()
+        GsonBuilder builder = new GsonBuilder()
             .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX")
-            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-            .setPrettyPrinting()
-            .create();
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES);
+        compactGson = builder.create();
+        gson = builder.setPrettyPrinting().create();
 
         s390arch = ServerFactory.lookupServerArchByLabel("s390x");
 
@@ -127,25 +141,64 @@ public class MatcherJsonIO {
      * about systems on this Server
      */
     public List<SystemJson> getJsonSystems(boolean includeSelf, String arch) {
-        Stream<SystemJson> systems = ServerFactory.list(true, true).stream()
-            .map(system -> {
-                Long cpus = system.getCpu() == null ? null : system.getCpu().getNrsocket();
-                Set<String> entitlements = system.getEntitlementLabels();
+        return streamJsonSystems(includeSelf, arch).collect(toList());
+    }
+
+    /**
+     * Returns the systems on this Server as a lazy stream. Instead of loading Server
+     * objects and their associations one by one, all data is fetched upfront with a few
+     * set-based projection queries, and SystemJson objects are only created while the
+     * stream is consumed.
+     */
+    @SuppressWarnings("unchecked")
+    private Stream<SystemJson> streamJsonSystems(boolean includeSelf, String arch) {
+        Map<Long, Set<String>> entitlementsByServer = listPairs("Server.listMatcherEntitlements");
+        Map<Long, Set<Long>> guestsByHost = listPairs("Server.listMatcherGuests");
+        Map<Long, Set<Long>> installedProductsByServer = listPairs("Server.listMatcherInstalledProducts");
+        Map<Long, InstalledProduct> installedProducts = SUSEProductFactory.listInstalledProducts().stream()
+                .collect(toMap(InstalledProduct::getId, identity()));
+        List<Object[]> rows = HibernateFactory.getSession()
+                .getNamedQuery("Server.listMatcherSystems")
+                .list();
+
+        Stream<SystemJson> systems = rows.stream()
+            .map(row -> {
+                Long id = (Long) row[0];
+                Long cpus = (Long) row[2];
+                Set<String> entitlements = entitlementsByServer.getOrDefault(id, emptySet());
+                Set<Long> guests = guestsByHost.getOrDefault(id, emptySet());
                 boolean virtualHost = entitlements.contains(EntitlementManager.VIRTUALIZATION_ENTITLED) ||
-                        !system.getGuests().isEmpty();
-                Set<Long> productIds = productIdsForServer(system, entitlements).collect(toSet());
+                        !guests.isEmpty();
+                List<InstalledProduct> serverProducts = installedProductsByServer.getOrDefault(id, emptySet())
+                        .stream()
+                        .map(installedProducts::get)
+                        .filter(Objects::nonNull)
+                        .collect(toList());
+                Set<Long> productIds = productIdsForServer(serverProducts, (Long) row[4], entitlements)
+                        .collect(toSet());
                 return new SystemJson(
-                    system.getId(),
-                    system.getName(),
+                    id,
+                    (String) row[1],
                     cpus == null ? null : cpus.intValue(),
-                    !system.isVirtualGuest(),
+                    !"Y".equals(row[3]),
                     virtualHost,
-                    getVirtualGuests(system),
+                    guests.stream().filter(Objects::nonNull).collect(toSet()),
                     productIds
                 );
             });
 
-        return concat(systems, jsonSystemForSelf(includeSelf, arch)).collect(toList());
+        return concat(systems, jsonSystemForSelf(includeSelf, arch));
+    }
+
+    /**
+     * Runs a named query returning pairs of server ids and values, and groups the values
+     * by server id.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Map<Long, Set<T>> listPairs(String queryName) {
+        List<Object[]> rows = HibernateFactory.getSession().getNamedQuery(queryName).list();
+        return rows.stream()
+                .collect(groupingBy(row -> (Long) row[0], mapping(row -> (T) row[1], toSet())));
     }
 
     private static Set<Long> getVirtualGuests(Server system) {
@@ -210,8 +263,10 @@ public class MatcherJsonIO {
     }
 
     /**
-     * Returns input data for subscription-matcher as a string.
+     * Writes input data for subscription-matcher as compact JSON. Systems are written
+     * as they are created, so that the whole document is never held in memory.
      *
+     * @param out the writer to write the input to, typically the matcher standard input
      * @param includeSelf - true if we want to add the products of the SUMA instance
      *                      running Matcher to the JSON output. Since SUMA Server is not
      *                      typically a SUMA Client at the same time, its system (with
@@ -222,17 +277,34 @@ public class MatcherJsonIO {
      *
      * @param arch - cpu architecture of this SUMA instance. This is important for correct
      *               product ID computation in case includeSelf == true.
-     * @return an object representation of the JSON input for the matcher
+     * @throws IOException if writing fails
      */
-    public String generateMatcherInput(boolean includeSelf, String arch) {
-        return gson.toJson(new InputJson(
-            new Date(),
-            getJsonSystems(includeSelf, arch),
-            getJsonVirtualizationGroups(),
-            getJsonProducts(),
-            getJsonSubscriptions(),
-            getJsonMatches())
-        );
+    public void writeMatcherInput(Writer out, boolean includeSelf, String arch) throws IOException {
+        // same fields and order as InputJson
+        JsonWriter writer = compactGson.newJsonWriter(out);
+        writer.beginObject();
+        writer.name("timestamp");
+        compactGson.toJson(new Date(), Date.class, writer);
+        writer.name("systems");
+        writeArray(writer, streamJsonSystems(includeSelf, arch), SystemJson.class);
+        writer.name("virtualization_groups");
+        writeArray(writer, getJsonVirtualizationGroups().stream(), VirtualizationGroupJson.class);
+        writer.name("products");
+        writeArray(writer, getJsonProducts().stream(), ProductJson.class);
+        writer.name("subscriptions");
+        writeArray(writer, getJsonSubscriptions().stream(), SubscriptionJson.class);
+        writer.name("pinned_matches");
+        writeArray(writer, getJsonMatches().stream(), MatchJson.class);
+        writer.endObject();
+        writer.flush();
+    }
+
+    private <T> void writeArray(JsonWriter writer, Stream<T> elements, Class<T> type) throws IOException {
+        writer.beginArray();
+        for (T element : (Iterable<T>) elements::iterator) {
+            compactGson.toJson(element, type, writer);
+        }
+        writer.endArray();
     }
 
     /**
@@ -303,8 +375,9 @@ public class MatcherJsonIO {
      * (For systems without a SUSE base product, empty stream is returned as we don't
      * require SUSE Manager entitlements for such systems).
      */
-    private Stream<Long> productIdsForServer(Server server, Set<String> entitlements) {
-        List<SUSEProduct> products = productFactory.map(server.getInstalledProducts());
+    private Stream<Long> productIdsForServer(List<InstalledProduct> installedProducts, Long serverArchId,
+            Set<String> entitlements) {
+        List<SUSEProduct> products = productFactory.map(installedProducts);
 
         if (products.stream().noneMatch(SUSEProduct::isBase)) {
             return Stream.empty();
@@ -313,17 +386,17 @@ public class MatcherJsonIO {
         // add SUSE Manager entitlements
         return concat(
             products.stream().map(SUSEProduct::getProductId),
-            entitlementIdsForServer(server, entitlements)
+            entitlementIdsForServer(serverArchId, entitlements)
         );
     }
 
     /**
      * Returns SUSE Manager entitlement product ids for a server.
      */
-    private Stream<Long> entitlementIdsForServer(Server server, Set<String> entitlements) {
+    private Stream<Long> entitlementIdsForServer(Long serverArchId, Set<String> entitlements) {
         if (entitlements.contains(EntitlementManager.SALT_ENTITLED) ||
                 entitlements.contains(EntitlementManager.ENTERPRISE_ENTITLED)) {
-            if (server.getServerArch().equals(s390arch)) {
+            if (s390arch != null && s390arch.getId().equals(serverArchId)) {
                 return productIdsForS390xSystem.stream();
             }
             else if (entitlements.contains(EntitlementManager.VIRTUALIZATION_ENTITLED)) {
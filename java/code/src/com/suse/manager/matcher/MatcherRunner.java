@@ -22,11 +22,16 @@ import com.redhat.rhn.domain.server.PinnedSubscriptionFactory;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -47,6 +52,12 @@ public class MatcherRunner {
      */
     private static Logger logger = Logger.getLogger(MatcherRunner.class);
 
+    /** Time taken to generate the input of the last run, in seconds */
+    private static volatile double lastInputDuration;
+
+    /** Highest sampled heap usage while generating the input of the last run, in bytes */
+    private static volatile long lastInputPeakHeap;
+
     /**
      * Runs subscription-matcher.
      *
@@ -65,14 +76,23 @@ public class MatcherRunner {
         Runtime r = Runtime.getRuntime();
         try {
             Process p = r.exec(args.toArray(new String[0]));
-            PrintWriter stdin = new PrintWriter(p.getOutputStream());
             boolean isISSMaster = IssFactory.getCurrentMaster() == null;
             String arch = System.getProperty("os.arch");
             PinnedSubscriptionFactory.getInstance().cleanStalePins();
-            String s = new MatcherJsonIO().generateMatcherInput(isISSMaster, arch);
-            stdin.println(s);
-            stdin.flush();
-            stdin.close();
+
+            long start = System.nanoTime();
+            HeapSampler heap = new HeapSampler();
+            try (Writer stdin = new BufferedWriter(
+                    new OutputStreamWriter(p.getOutputStream(), StandardCharsets.UTF_8))) {
+                new MatcherJsonIO().writeMatcherInput(stdin, isISSMaster, arch);
+            }
+            finally {
+                heap.stop();
+            }
+            lastInputDuration = (System.nanoTime() - start) / 1e9;
+            lastInputPeakHeap = heap.getMax();
+            logger.info(String.format("Subscription matcher input written in %.1f s, max heap %d MB",
+                    lastInputDuration, lastInputPeakHeap / (1024 * 1024)));
 
             int exitCode = p.waitFor();
             if (exitCode != 0) {
@@ -97,6 +117,69 @@ public class MatcherRunner {
         }
     }
 
+    /**
+     * @return the time taken to generate the input of the last run, in seconds
+     */
+    public static double getLastInputDuration() {
+        return lastInputDuration;
+    }
+
+    /**
+     * @return the highest heap usage of the whole JVM sampled while generating the input
+     * of the last run, in bytes. Short spikes between two samples are missed, and the
+     * garbage not collected yet is counted too
+     */
+    public static long getLastInputPeakHeap() {
+        return lastInputPeakHeap;
+    }
+
+    /**
+     * Samples the heap usage of the JVM at a fixed interval on a daemon thread, keeping
+     * the highest value. The peak usage of the memory pools is not used, as resetting it
+     * would affect other monitoring tools and the peaks of different pools are not
+     * reached at the same time.
+     */
+    private static class HeapSampler {
+
+        private static final long INTERVAL_MILLIS = 100;
+
+        private final AtomicLong max = new AtomicLong();
+        private final Thread thread;
+
+        HeapSampler() {
+            sample();
+            thread = new Thread(this::run, "Matcher Heap Sampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void run() {
+            try {
+                while (true) {
+                    Thread.sleep(INTERVAL_MILLIS);
+                    sample();
+                }
+            }
+            catch (InterruptedException e) {
+                // stopped
+            }
+        }
+
+        private void sample() {
+            max.accumulateAndGet(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+                    Math::max);
+        }
+
+        void stop() {
+            thread.interrupt();
+            sample();
+        }
+
+        long getMax() {
+            return max.get();
+        }
+    }
+
     /**
      * Returns the matcher input data read from file.
      * @param filename the file name
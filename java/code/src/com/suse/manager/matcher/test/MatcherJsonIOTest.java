@@ -17,6 +17,8 @@ import com.redhat.rhn.testing.BaseTestCaseWithUser;
 import com.redhat.rhn.testing.ServerTestUtils;
 import com.redhat.rhn.testing.TestUtils;
 
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.suse.manager.matcher.MatcherJsonIO;
 import com.suse.matcher.json.MatchJson;
 import com.suse.matcher.json.ProductJson;
@@ -26,6 +28,7 @@ import com.suse.matcher.json.VirtualizationGroupJson;
 import com.suse.scc.model.SCCSubscription;
 
 import java.io.File;
+import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
@@ -88,6 +91,8 @@ public class MatcherJsonIOTest extends BaseTestCaseWithUser {
         VirtualInstance refGuest2 = createVirtualInstance(h1, g2, uuid2);
         h1.addGuest(refGuest2);
 
+        HibernateFactory.getSession().flush();
+
         // tell MatcherJsonIO to include self system in the JSON output, which would happen
         // if the running SUMA is an ISS Master
         List<SystemJson> result = new MatcherJsonIO().getJsonSystems(true, AMD64_ARCH);
@@ -137,6 +142,28 @@ public class MatcherJsonIOTest extends BaseTestCaseWithUser {
                 s -> s.getId().equals(MatcherJsonIO.SELF_SYSTEM_ID)));
     }
 
+    public void testWriteMatcherInput() throws Exception {
+        Server server = ServerTestUtils.createTestSystem();
+        HibernateFactory.getSession().flush();
+
+        StringWriter out = new StringWriter();
+        new MatcherJsonIO().writeMatcherInput(out, true, AMD64_ARCH);
+        String json = out.toString();
+        assertFalse(json.contains("\n"));
+
+        JsonObject input = new JsonParser().parse(json).getAsJsonObject();
+        Set<Long> systemIds = new HashSet<>();
+        input.getAsJsonArray("systems")
+                .forEach(s -> systemIds.add(s.getAsJsonObject().get("id").getAsLong()));
+        assertTrue(systemIds.contains(server.getId()));
+        assertTrue(systemIds.contains(MatcherJsonIO.SELF_SYSTEM_ID));
+        assertTrue(input.has("timestamp"));
+        assertTrue(input.has("virtualization_groups"));
+        assertTrue(input.has("products"));
+        assertTrue(input.has("subscriptions"));
+        assertTrue(input.has("pinned_matches"));
+    }
+
     public void testProductsToJson() throws Exception {
         SUSEProductTestUtils.clearAllProducts();
         SUSEProductTestUtils.createVendorSUSEProducts();
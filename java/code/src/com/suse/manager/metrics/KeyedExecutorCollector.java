@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics;
+
+import com.suse.manager.reactor.utils.KeyedExecutor;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collector for a KeyedExecutor, exporting totals and the depth of the busiest keys.
+ */
+public class KeyedExecutorCollector extends Collector {
+
+    /* Only the deepest queues are exported, to keep the number of labels bounded */
+    private static final int MAX_KEYS = 20;
+
+    private KeyedExecutor<?> executor;
+    private String executorId;
+
+    /**
+     * Standard constructor.
+     * @param executorIn a keyed executor
+     * @param executorIdIn a unique ID for the executor
+     */
+    public KeyedExecutorCollector(KeyedExecutor<?> executorIn, String executorIdIn) {
+        this.executor = executorIn;
+        this.executorId = executorIdIn;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> out = new ArrayList<>();
+
+        out.add(CustomCollectorUtils.gaugeFor("keys_active",
+                "Number of keys with pending tasks", this.executor.getKeyCount(), this.executorId));
+        out.add(CustomCollectorUtils.gaugeFor("tasks_pending",
+                "Number of tasks waiting or running", this.executor.getPendingCount(), this.executorId));
+        out.add(CustomCollectorUtils.counterFor("task_count",
+                "Number of tasks ever submitted", this.executor.getSubmittedCount(), this.executorId));
+        out.add(CustomCollectorUtils.counterFor("completed_task_count",
+                "Number of tasks ever completed", this.executor.getCompletedCount(), this.executorId));
+
+        GaugeMetricFamily depths = new GaugeMetricFamily(this.executorId + "_key_queue_depth",
+                this.executorId + " - Number of queued tasks for the busiest keys",
+                Collections.singletonList("key"));
+        this.executor.getDeepestQueues(MAX_KEYS).forEach((key, depth) ->
+                depths.addMetric(Collections.singletonList(String.valueOf(key)), depth));
+        out.add(depths);
+
+        return out;
+    }
+}
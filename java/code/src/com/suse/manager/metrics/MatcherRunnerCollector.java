@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics;
+
+import com.suse.manager.matcher.MatcherRunner;
+
+import io.prometheus.client.Collector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.suse.manager.metrics.CustomCollectorUtils.gaugeFor;
+
+/**
+ * Collector for the subscription matcher runs, exporting the cost of generating the matcher input.
+ */
+public class MatcherRunnerCollector extends Collector {
+
+    private String matcherId;
+
+    /**
+     * Standard constructor.
+     * @param matcherIdIn a unique ID for the matcher
+     */
+    public MatcherRunnerCollector(String matcherIdIn) {
+        this.matcherId = matcherIdIn;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> out = new ArrayList<>();
+
+        out.add(gaugeFor("matcher_input_duration_seconds",
+                "Time taken to generate the input of the last run",
+                MatcherRunner.getLastInputDuration(),
+                this.matcherId));
+        out.add(gaugeFor("matcher_input_peak_heap_bytes",
+                "Highest JVM heap usage sampled every 100 ms while generating the input of the last run",
+                MatcherRunner.getLastInputPeakHeap(),
+                this.matcherId));
+        return out;
+    }
+}
@@ -15,6 +15,9 @@
 package com.suse.manager.metrics;
 
 import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.common.messaging.ShardedMessageDispatcher;
+import com.redhat.rhn.taskomatic.task.threaded.TaskQueue;
+import com.suse.manager.reactor.utils.KeyedExecutor;
 import io.prometheus.client.exporter.HTTPServer;
 import org.apache.log4j.Logger;
 import org.quartz.Scheduler;
@@ -61,6 +64,28 @@ public enum PrometheusExporter {
         }
     }
 
+    /**
+     * Registers a keyed executor for monitoring.
+     * @param executor a keyed executor
+     * @param executorId a unique ID for the executor
+     */
+    public void registerKeyedExecutor(KeyedExecutor<?> executor, String executorId) {
+        if (ENABLED) {
+            new KeyedExecutorCollector(executor, executorId).register();
+        }
+    }
+
+    /**
+     * Registers a sharded message dispatcher for monitoring.
+     * @param dispatcher a sharded message dispatcher
+     * @param dispatcherId a unique ID for the dispatcher
+     */
+    public void registerShardedMessageDispatcher(ShardedMessageDispatcher dispatcher, String dispatcherId) {
+        if (ENABLED) {
+            new ShardedMessageDispatcherCollector(dispatcher, dispatcherId).register();
+        }
+    }
+
     /**
      * Registers a Scheduler for monitoring.
      * @param scheduler a scheduler
@@ -71,4 +96,25 @@ public enum PrometheusExporter {
             new SchedulerCollector(scheduler, schedulerId).register();
         }
     }
+
+    /**
+     * Registers a Taskomatic queue for monitoring.
+     * @param queue a task queue
+     * @param queueId a unique ID for the queue
+     */
+    public void registerTaskQueue(TaskQueue queue, String queueId) {
+        if (ENABLED) {
+            new TaskQueueCollector(queue, queueId).register();
+        }
+    }
+
+    /**
+     * Registers the subscription matcher runs for monitoring.
+     * @param matcherId a unique ID for the matcher
+     */
+    public void registerMatcherRunner(String matcherId) {
+        if (ENABLED) {
+            new MatcherRunnerCollector(matcherId).register();
+        }
+    }
 }
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics;
+
+import com.redhat.rhn.common.messaging.ShardedMessageDispatcher;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collector for a ShardedMessageDispatcher. The totals are exported with the names used
+ * for the thread pool of the single queue dispatcher, so that both modes can be monitored
+ * the same way.
+ */
+public class ShardedMessageDispatcherCollector extends Collector {
+
+    private ShardedMessageDispatcher dispatcher;
+    private String dispatcherId;
+
+    /**
+     * Standard constructor.
+     * @param dispatcherIn a sharded message dispatcher
+     * @param dispatcherIdIn a unique ID for the dispatcher
+     */
+    public ShardedMessageDispatcherCollector(ShardedMessageDispatcher dispatcherIn, String dispatcherIdIn) {
+        this.dispatcher = dispatcherIn;
+        this.dispatcherId = dispatcherIdIn;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> out = new ArrayList<>();
+
+        out.add(CustomCollectorUtils.counterFor("thread_pool_threads",
+                "Threads total count", this.dispatcher.getShardCount(), this.dispatcherId));
+        out.add(CustomCollectorUtils.gaugeFor("thread_pool_threads_active",
+                "Active threads count", this.dispatcher.getActiveCount(), this.dispatcherId));
+        out.add(CustomCollectorUtils.counterFor("thread_pool_task_count",
+                "Number of tasks ever submitted", this.dispatcher.getSubmittedCount(), this.dispatcherId));
+        out.add(CustomCollectorUtils.counterFor("thread_pool_completed_task_count",
+                "Number of tasks ever completed", this.dispatcher.getCompletedCount(), this.dispatcherId));
+        out.add(CustomCollectorUtils.counterFor("discarded_task_count",
+                "Number of tasks dropped because of full shards", this.dispatcher.getDiscardedCount(),
+                this.dispatcherId));
+
+        GaugeMetricFamily pending = new GaugeMetricFamily(this.dispatcherId + "_shard_tasks_pending",
+                this.dispatcherId + " - Number of tasks waiting in each shard",
+                Collections.singletonList("shard"));
+        for (int shard = 0; shard < this.dispatcher.getShardCount(); shard++) {
+            pending.addMetric(Collections.singletonList(String.valueOf(shard)),
+                    this.dispatcher.getPendingCount(shard));
+        }
+        out.add(pending);
+
+        return out;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics;
+
+import com.redhat.rhn.taskomatic.task.threaded.TaskQueue;
+
+import io.prometheus.client.Collector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collector for a Taskomatic queue, exporting its depth, throughput and latency histograms.
+ */
+public class TaskQueueCollector extends Collector {
+
+    private TaskQueue queue;
+    private String queueId;
+
+    /**
+     * Standard constructor.
+     * @param queueIn a task queue
+     * @param queueIdIn a unique ID for the queue
+     */
+    public TaskQueueCollector(TaskQueue queueIn, String queueIdIn) {
+        this.queue = queueIn;
+        this.queueId = queueIdIn;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> out = new ArrayList<>();
+
+        out.add(CustomCollectorUtils.gaugeFor("workers_pending",
+                "Number of work items waiting or running", this.queue.getQueueSize(), this.queueId));
+        out.add(CustomCollectorUtils.gaugeFor("workers_executing",
+                "Number of work items currently running", this.queue.getExecutingWorkerCount(), this.queueId));
+        out.add(CustomCollectorUtils.counterFor("completed_worker_count",
+                "Number of work items ever completed", this.queue.getCompletedWorkerCount(), this.queueId));
+        out.addAll(this.queue.getWaitTimeHistogram().collect());
+        out.addAll(this.queue.getRunTimeHistogram().collect());
+
+        return out;
+    }
+}
@@ -17,6 +17,7 @@ package com.suse.manager.reactor;
 import com.redhat.rhn.common.messaging.JavaMailException;
 import com.redhat.rhn.common.messaging.MessageQueue;
 import com.redhat.rhn.domain.server.MinionServerFactory;
+import com.redhat.rhn.domain.server.ServerCheckinAccumulator;
 import com.redhat.rhn.manager.action.ActionManager;
 import com.redhat.rhn.taskomatic.TaskomaticApiException;
 import com.suse.manager.reactor.messaging.ApplyStatesEventMessage;
@@ -36,6 +37,8 @@ import com.suse.manager.reactor.messaging.VirtpollerBeaconEventMessage;
 import com.suse.manager.reactor.messaging.VirtpollerBeaconEventMessageAction;
 import com.suse.manager.reactor.messaging.SystemIdGenerateEventMessage;
 import com.suse.manager.reactor.messaging.SystemIdGenerateEventMessageAction;
+import com.suse.manager.reactor.utils.KeyedExecutor;
+import com.suse.manager.metrics.PrometheusExporter;
 import com.suse.manager.utils.MailHelper;
 import com.suse.manager.webui.services.impl.SaltService;
 import com.suse.manager.webui.utils.salt.custom.VirtpollerData;
@@ -51,8 +54,9 @@ import org.apache.log4j.Logger;
 
 import javax.websocket.CloseReason;
 import java.io.IOException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Salt event reactor.
@@ -71,9 +75,9 @@ public class SaltReactor implements EventListener {
     // Indicate that the reactor has been stopped
     private volatile boolean isStopped = false;
 
-    // Executor service for handling incoming events
-    private final ExecutorService executorService =
-            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    // Executor for handling incoming events: serial per minion, parallel across minions
+    private final KeyedExecutor<String> executor =
+            new KeyedExecutor<>(Runtime.getRuntime().availableProcessors());
 
     // Reconnecting time (in seconds) to Salt event bus
     private static final int DELAY_TIME_SECONDS = 5;
@@ -104,6 +108,9 @@ public class SaltReactor implements EventListener {
 
         MessageQueue.publish(new RefreshGeneratedSaltFilesEventMessage());
 
+        PrometheusExporter.INSTANCE.registerThreadPool(executor.getPool(), "salt_reactor");
+        PrometheusExporter.INSTANCE.registerKeyedExecutor(executor, "salt_reactor_minions");
+
         connectToEventStream();
 
         SaltService.INSTANCE.setReactor(this);
@@ -114,6 +121,18 @@ public class SaltReactor implements EventListener {
      */
     public void stop() {
         isStopped = true;
+        executor.shutdown();
+        // check-ins of the handlers still running are flushed too
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("Salt event handlers did not complete within 1 minute");
+            }
+        }
+        catch (InterruptedException e) {
+            LOG.warn("Interrupted while awaiting termination of salt event handlers");
+            Thread.currentThread().interrupt();
+        }
+        ServerCheckinAccumulator.INSTANCE.flush();
         if (eventStream != null) {
             try {
                 eventStream.close();
@@ -192,13 +211,38 @@ public class SaltReactor implements EventListener {
             LOG.trace("Event: " + event.getTag() + " -> " + event.getData());
         }
 
-        // Setup handlers for different event types
-        Runnable runnable =
-                MinionStartEvent.parse(event).map(this::onMinionStartEvent).orElseGet(() ->
-                JobReturnEvent.parse(event).map(this::onJobReturnEvent).orElseGet(() ->
-                BeaconEvent.parse(event).map(this::onBeaconEvent).orElseGet(() ->
-                SystemIdGenerateEvent.parse(event).map(this::onSystemIdGenerateEvent).orElse(() -> { }))));
-        executorService.submit(runnable);
+        // Setup handlers for different event types, events are keyed by minion id
+        boolean handled =
+                submit(MinionStartEvent.parse(event), e -> (String) e.getData().get("id"),
+                        this::onMinionStartEvent) ||
+                submit(JobReturnEvent.parse(event), JobReturnEvent::getMinionId,
+                        this::onJobReturnEvent) ||
+                submit(BeaconEvent.parse(event), BeaconEvent::getMinionId,
+                        this::onBeaconEvent) ||
+                submit(SystemIdGenerateEvent.parse(event), SystemIdGenerateEvent::getMinionId,
+                        this::onSystemIdGenerateEvent);
+        if (!handled && LOG.isTraceEnabled()) {
+            LOG.trace("Ignoring event: " + event.getTag());
+        }
+    }
+
+    /**
+     * Submits the handler for a parsed event, so that events of the same minion are
+     * handled one at a time in the order they arrive.
+     *
+     * @param parsed the parsed event, if the event is of the expected type
+     * @param minionId function returning the minion id of the event
+     * @param handler function returning the event handler runnable
+     * @param <T> the event type
+     * @return true if the event was of the expected type and has been submitted
+     */
+    private <T> boolean submit(Optional<T> parsed, Function<T, String> minionId,
+            Function<T, Runnable> handler) {
+        return parsed.map(e -> {
+            String key = minionId.apply(e);
+            executor.execute(key != null ? key : "", handler.apply(e));
+            return true;
+        }).orElse(false);
     }
 
     /**
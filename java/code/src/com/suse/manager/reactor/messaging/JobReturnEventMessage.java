@@ -14,7 +14,7 @@
  */
 package com.suse.manager.reactor.messaging;
 
-import com.redhat.rhn.common.messaging.EventMessage;
+import com.redhat.rhn.common.messaging.KeyedEventMessage;
 
 import com.suse.salt.netapi.event.JobReturnEvent;
 
@@ -22,7 +22,7 @@ import com.suse.salt.netapi.event.JobReturnEvent;
  * Event message to handle job return events via the MessageQueue as we get them from the
  * salt event bus.
  */
-public class JobReturnEventMessage implements EventMessage {
+public class JobReturnEventMessage implements KeyedEventMessage {
 
     /* The underlying job return event as we get it from salt */
     private JobReturnEvent jobReturnEvent;
@@ -66,4 +66,13 @@ public class JobReturnEventMessage implements EventMessage {
     public String toString() {
         return "JobReturnEventMessage[minionId: " + jobReturnEvent.getMinionId() + "]";
     }
+
+    /**
+     * Events are keyed by minion, so that they are processed in order for each minion.
+     * @return the minion id
+     */
+    @Override
+    public Object getDispatchKey() {
+        return jobReturnEvent.getMinionId();
+    }
 }
@@ -23,7 +23,9 @@ import com.redhat.rhn.common.messaging.EventMessage;
 import com.redhat.rhn.domain.action.Action;
 import com.redhat.rhn.domain.action.ActionFactory;
 import com.redhat.rhn.domain.action.server.ServerAction;
+import com.redhat.rhn.domain.server.MinionDirectory;
 import com.redhat.rhn.domain.server.MinionServerFactory;
+import com.redhat.rhn.domain.server.ServerCheckinAccumulator;
 import com.redhat.rhn.domain.server.VirtualInstance;
 import com.redhat.rhn.frontend.events.AbstractDatabaseAction;
 import com.redhat.rhn.domain.server.MinionServer;
@@ -158,18 +160,18 @@ public class JobReturnEventMessageAction extends AbstractDatabaseAction {
             });
         });
 
-        // For all jobs: update minion last checkin
+        // For all jobs: update minion last checkin (buffered and written in bulk)
         Optional<MinionServer> minion = MinionServerFactory.findByMinionId(
                 jobReturnEvent.getMinionId());
         if (minion.isPresent()) {
             MinionServer m = minion.get();
-            m.updateServerInfo();
+            ServerCheckinAccumulator.INSTANCE.checkin(m);
             // for s390 update the host as well
             if (m.getCpu() != null &&
                 CpuArchUtil.isS390(m.getCpu().getArch().getLabel())) {
                 VirtualInstance virtInstance = m.getVirtualInstance();
                 if (virtInstance != null && virtInstance.getHostSystem() != null) {
-                    virtInstance.getHostSystem().updateServerInfo();
+                    ServerCheckinAccumulator.INSTANCE.checkin(virtInstance.getHostSystem());
                 }
             }
         }
@@ -290,7 +292,11 @@ public class JobReturnEventMessageAction extends AbstractDatabaseAction {
 
     private boolean refreshPackagesIfNeeded(JobReturnEvent jobReturnEvent, String function,
                                                             Optional<JsonElement> jobResult) {
-        return MinionServerFactory.findByMinionId(jobReturnEvent.getMinionId())
+        if (!jobResult.isPresent()) {
+            return false;
+        }
+        return MinionDirectory.INSTANCE.get(jobReturnEvent.getMinionId())
+            .flatMap(entry -> MinionServerFactory.lookupById(entry.getServerId()))
             .flatMap(minionServer ->
                 jobResult.map(result -> {
                     try {
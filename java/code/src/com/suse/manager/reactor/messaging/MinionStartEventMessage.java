@@ -14,12 +14,12 @@
  */
 package com.suse.manager.reactor.messaging;
 
-import com.redhat.rhn.common.messaging.EventMessage;
+import com.redhat.rhn.common.messaging.KeyedEventMessage;
 
 /**
  * Event message to handle what needs to be done during minion start.
  */
-public class MinionStartEventMessage implements EventMessage {
+public class MinionStartEventMessage implements KeyedEventMessage {
 
     private final String minionId;
 
@@ -51,4 +51,13 @@ public class MinionStartEventMessage implements EventMessage {
     public String toString() {
         return "MinionStartEventMessage[minionId: " + minionId + "]";
     }
+
+    /**
+     * Events are keyed by minion, so that they are processed in order for each minion.
+     * @return the minion id
+     */
+    @Override
+    public Object getDispatchKey() {
+        return minionId;
+    }
 }
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.reactor.messaging;
+
+import com.redhat.rhn.common.messaging.EventDatabaseMessage;
+
+import org.hibernate.Transaction;
+
+/**
+ * Trigger the regeneration of the pillars scheduled via
+ * {@link com.suse.manager.webui.services.SaltStateGeneratorService#schedulePillarRegeneration}.
+ * Execution of the action will wait until the scheduling transaction has been committed as
+ * we are implementing {@link EventDatabaseMessage}.
+ */
+public class RegeneratePillarEventMessage implements EventDatabaseMessage {
+
+    private final Transaction transaction;
+
+    /**
+     * Constructor for creating a {@link RegeneratePillarEventMessage}.
+     *
+     * @param transactionIn the transaction that scheduled the regeneration
+     */
+    public RegeneratePillarEventMessage(Transaction transactionIn) {
+        this.transaction = transactionIn;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getUserId() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toText() {
+        return toString();
+    }
+}
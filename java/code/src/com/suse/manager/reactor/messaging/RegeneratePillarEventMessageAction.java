@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.reactor.messaging;
+
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.common.messaging.EventMessage;
+import com.redhat.rhn.domain.server.MinionServer;
+import com.redhat.rhn.frontend.events.AbstractDatabaseAction;
+
+import com.suse.manager.utils.MinionServerUtils;
+import com.suse.manager.webui.services.SaltStateGeneratorService;
+import com.suse.manager.webui.services.impl.SaltService;
+import com.suse.salt.netapi.datatypes.target.MinionList;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Event message handler for {@link RegeneratePillarEventMessage}: regenerates all the
+ * pillars pending regeneration at once and refreshes the pillar data of their minions.
+ */
+public class RegeneratePillarEventMessageAction extends AbstractDatabaseAction {
+
+    /* Logger for this class */
+    private static final Logger LOG = Logger.getLogger(RegeneratePillarEventMessageAction.class);
+
+    // Reference to the SaltService instance
+    private final SaltService saltService;
+
+    /**
+     * Default constructor.
+     */
+    public RegeneratePillarEventMessageAction() {
+        this(SaltService.INSTANCE);
+    }
+
+    /**
+     * Constructor taking a {@link SaltService} instance.
+     *
+     * @param saltServiceIn the salt service to use
+     */
+    public RegeneratePillarEventMessageAction(SaltService saltServiceIn) {
+        saltService = saltServiceIn;
+    }
+
+    @Override
+    protected void doExecute(EventMessage msg) {
+        Map<Boolean, List<Long>> minionIds =
+                SaltStateGeneratorService.INSTANCE.takePendingPillarRegenerations();
+        if (minionIds.values().stream().allMatch(List::isEmpty)) {
+            // already taken by the event of an earlier transaction
+            return;
+        }
+        List<MinionServer> minions = new ArrayList<>();
+        minionIds.forEach((refreshAccessTokens, ids) -> {
+            if (!ids.isEmpty()) {
+                minions.addAll(SaltStateGeneratorService.INSTANCE.generatePillars(ids, refreshAccessTokens));
+            }
+        });
+        List<String> refreshMinionIds = minions.stream()
+                .filter(minion -> !MinionServerUtils.isSshPushMinion(minion))
+                .map(MinionServer::getMinionId)
+                .collect(Collectors.toList());
+
+        // refreshed access tokens have to be visible before minions use the new pillar
+        HibernateFactory.commitTransaction();
+        if (!refreshMinionIds.isEmpty()) {
+            LOG.debug("Refreshing pillar data of " + refreshMinionIds.size() + " minions");
+            saltService.refreshPillar(new MinionList(refreshMinionIds));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canRunConcurrently() {
+        return true;
+    }
+}
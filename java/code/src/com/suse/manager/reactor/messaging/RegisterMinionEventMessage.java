@@ -14,12 +14,12 @@
  */
 package com.suse.manager.reactor.messaging;
 
-import com.redhat.rhn.common.messaging.EventMessage;
+import com.redhat.rhn.common.messaging.KeyedEventMessage;
 
 /**
  * Event for triggering creation of system records for salt minions.
  */
-public class RegisterMinionEventMessage implements EventMessage {
+public class RegisterMinionEventMessage implements KeyedEventMessage {
 
     private String minionId;
 
@@ -67,4 +67,13 @@ public class RegisterMinionEventMessage implements EventMessage {
     public String toString() {
         return "RegisterMinionEvent[minionId: " + minionId + "]";
     }
+
+    /**
+     * Events are keyed by minion, so that they are processed in order for each minion.
+     * @return the minion id
+     */
+    @Override
+    public Object getDispatchKey() {
+        return minionId;
+    }
 }
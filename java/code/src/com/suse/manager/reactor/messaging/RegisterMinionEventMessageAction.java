@@ -35,6 +35,7 @@ import com.redhat.rhn.domain.product.SUSEProductChannel;
 import com.redhat.rhn.domain.product.SUSEProductFactory;
 import com.redhat.rhn.domain.role.RoleFactory;
 import com.redhat.rhn.domain.server.ContactMethod;
+import com.redhat.rhn.domain.server.MinionDirectory;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionServerFactory;
 import com.redhat.rhn.domain.server.Server;
@@ -180,6 +181,8 @@ public class RegisterMinionEventMessageAction extends AbstractDatabaseAction {
                 registeredMinion.setName(minionId);
                 registeredMinion.setMinionId(minionId);
                 ServerFactory.save(registeredMinion);
+                MinionDirectory.INSTANCE.invalidate(oldMinionId);
+                MinionDirectory.INSTANCE.invalidate(minionId);
                 addHistoryEvent(registeredMinion, "Duplicate Machine ID", "Minion '" +
                         oldMinionId + "' has been updated to '" + minionId + "'");
 
@@ -398,6 +401,7 @@ public class RegisterMinionEventMessageAction extends AbstractDatabaseAction {
             }
         }
         finally {
+            MinionDirectory.INSTANCE.invalidate(minionId);
             if (MinionPendingRegistrationService.containsMinion(minionId)) {
                 MinionPendingRegistrationService.removeMinion(minionId);
             }
@@ -31,11 +31,16 @@ import com.redhat.rhn.domain.action.server.ServerAction;
 import com.redhat.rhn.domain.action.test.ActionFactoryTest;
 import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.channel.test.ChannelFactoryTest;
+import com.redhat.rhn.domain.errata.Errata;
+import com.redhat.rhn.domain.errata.test.ErrataFactoryTest;
 import com.redhat.rhn.domain.image.ImageInfo;
 import com.redhat.rhn.domain.image.ImageInfoFactory;
 import com.redhat.rhn.domain.image.ImageProfile;
 import com.redhat.rhn.domain.image.ImageStore;
 import com.redhat.rhn.domain.product.test.SUSEProductTestUtils;
+import com.redhat.rhn.domain.rhnpackage.Package;
+import com.redhat.rhn.domain.rhnpackage.PackageFactory;
+import com.redhat.rhn.domain.rhnpackage.test.PackageTest;
 import com.redhat.rhn.domain.server.InstalledPackage;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionServerFactory;
@@ -45,9 +50,11 @@ import com.redhat.rhn.domain.server.VirtualInstanceFactory;
 import com.redhat.rhn.domain.server.test.MinionServerFactoryTest;
 import com.redhat.rhn.domain.token.ActivationKey;
 import com.redhat.rhn.domain.user.User;
+import com.redhat.rhn.frontend.dto.ErrataCacheDto;
 import com.redhat.rhn.manager.action.ActionChainManager;
 import com.redhat.rhn.manager.action.ActionManager;
 import com.redhat.rhn.manager.entitlement.EntitlementManager;
+import com.redhat.rhn.manager.errata.cache.ErrataCacheManager;
 import com.redhat.rhn.manager.system.SystemManager;
 import com.redhat.rhn.taskomatic.TaskomaticApi;
 import com.redhat.rhn.taskomatic.TaskomaticApiException;
@@ -397,6 +404,68 @@ public class JobReturnEventMessageActionTest extends JMockBaseTestCaseWithUser {
         assertEquals(3, minion.getPackages().size());
     }
 
+    /**
+     * Test the processing of packages.profileupdate job return events on a minion
+     * whose packages are not loaded, so that only the difference is written with
+     * batched statements.
+     *
+     * @throws Exception in case of an error
+     */
+    public void testPackagesProfileUpdateBulk() throws Exception {
+        MinionServer minion = MinionServerFactoryTest.createTestMinionServer(user);
+        minion.setMinionId("minionsles12-suma3pg.vagrant.local");
+        Action action = ActionFactoryTest.createAction(
+                user, ActionFactory.TYPE_PACKAGES_REFRESH_LIST);
+        action.addServerAction(ActionFactoryTest.createServerAction(minion, action));
+        Long minionId = minion.getId();
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+
+        JobReturnEventMessageAction messageAction = new JobReturnEventMessageAction();
+        messageAction.doExecute(new JobReturnEventMessage(JobReturnEvent
+                .parse(getJobReturnEvent("packages.profileupdate.json", action.getId()))
+                .get()));
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+
+        minion = MinionServerFactory.lookupById(minionId).get();
+        Map<String, String> versions = minion.getPackages().stream().collect(Collectors.toMap(
+                pkg -> pkg.getName().getName(), pkg -> pkg.getEvr().getVersion()));
+        assertEquals(3, versions.size());
+        assertEquals("4.2", versions.get("bash"));
+        assertEquals("2016c", versions.get("timezone-java"));
+        HibernateFactory.getSession().clear();
+
+        // stale errata cache entries: only the one of a changed package is recomputed
+        Errata errata = ErrataFactoryTest.createTestErrata(user.getOrg().getId());
+        Package removedPackage = PackageTest.createTestPackage(user.getOrg());
+        removedPackage.setPackageName(PackageFactory.lookupOrCreatePackageByName("timezone-java"));
+        Package otherPackage = PackageTest.createTestPackage(user.getOrg());
+        HibernateFactory.getSession().flush();
+        ErrataCacheManager.insertNeededErrataCache(minionId, errata.getId(), removedPackage.getId());
+        ErrataCacheManager.insertNeededErrataCache(minionId, errata.getId(), otherPackage.getId());
+        HibernateFactory.getSession().clear();
+
+        // aaa_base is identical, bash was updated, timezone-java is gone and java is new
+        messageAction.doExecute(new JobReturnEventMessage(JobReturnEvent
+                .parse(getJobReturnEvent("packages.profileupdate.updated.json", action.getId()))
+                .get()));
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+
+        minion = MinionServerFactory.lookupById(minionId).get();
+        versions = minion.getPackages().stream().collect(Collectors.toMap(
+                pkg -> pkg.getName().getName(), pkg -> pkg.getEvr().getVersion()));
+        assertEquals(3, versions.size());
+        assertEquals("13.2+git20140911.61c1681", versions.get("aaa_base"));
+        assertEquals("500", versions.get("bash"));
+        assertEquals("1.6", versions.get("java"));
+
+        List<ErrataCacheDto> neededCache = ErrataCacheManager.packagesNeedingUpdates(minionId);
+        assertEquals(1, neededCache.size());
+        assertEquals(otherPackage.getId(), neededCache.get(0).getPackageId());
+    }
+
     public void testPackagesProfileUpdateLivePatching() throws Exception {
         MinionServer minion = MinionServerFactoryTest.createTestMinionServer(user);
         minion.setMinionId("minionsles12-suma3pg.vagrant.local");
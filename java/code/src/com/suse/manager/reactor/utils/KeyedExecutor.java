@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.reactor.utils;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Executor running tasks that share a key serially and in submission order, while tasks
+ * with different keys run in parallel on a shared thread pool.
+ *
+ * Each key with pending tasks holds a slot in the pool for one task at a time, then
+ * yields so that busy keys do not starve the others.
+ *
+ * @param <K> the key type
+ */
+public class KeyedExecutor<K> {
+
+    private static final Logger LOG = Logger.getLogger(KeyedExecutor.class);
+
+    private final ThreadPoolExecutor pool;
+    private final ConcurrentMap<K, KeyQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+
+    /**
+     * Creates an executor backed by a fixed size thread pool.
+     * @param threads the number of threads
+     */
+    public KeyedExecutor(int threads) {
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+    }
+
+    /**
+     * Submits a task to be run after all tasks previously submitted with the same key.
+     * @param key the key
+     * @param task the task
+     */
+    public void execute(K key, Runnable task) {
+        KeyQueue queue;
+        boolean schedule;
+        while (true) {
+            queue = queues.computeIfAbsent(key, KeyQueue::new);
+            synchronized (queue) {
+                if (queue.retired) {
+                    // the queue was drained and removed in the meantime, get a new one
+                    continue;
+                }
+                queue.tasks.add(task);
+                schedule = !queue.scheduled;
+                queue.scheduled = true;
+            }
+            break;
+        }
+        submittedCount.incrementAndGet();
+        if (schedule) {
+            pool.execute(queue);
+        }
+    }
+
+    /**
+     * Stops accepting new tasks. Running tasks complete, queued ones are discarded.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Waits for the running tasks to complete after a shutdown.
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if the executor terminated, false if the timeout elapsed before
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * @return the underlying thread pool
+     */
+    public ThreadPoolExecutor getPool() {
+        return pool;
+    }
+
+    /**
+     * @return the number of keys with pending or running tasks
+     */
+    public int getKeyCount() {
+        return queues.size();
+    }
+
+    /**
+     * @return the number of tasks waiting to be run, over all keys
+     */
+    public long getPendingCount() {
+        return submittedCount.get() - completedCount.get();
+    }
+
+    /**
+     * @return the number of tasks ever submitted
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * @return the number of tasks ever completed
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Returns the queue depth of the keys with the most pending tasks.
+     * @param limit the maximum number of keys to return
+     * @return key to number of queued tasks, deepest first
+     */
+    public Map<K, Integer> getDeepestQueues(int limit) {
+        Map<K, Integer> depths = new HashMap<>();
+        for (KeyQueue queue : queues.values()) {
+            synchronized (queue) {
+                depths.put(queue.key, queue.tasks.size());
+            }
+        }
+        List<Map.Entry<K, Integer>> sorted = depths.entrySet().stream()
+                .sorted(Collections.reverseOrder(Comparator.comparing(Map.Entry::getValue)))
+                .limit(limit)
+                .collect(Collectors.toList());
+        Map<K, Integer> result = new LinkedHashMap<>();
+        sorted.forEach(e -> result.put(e.getKey(), e.getValue()));
+        return result;
+    }
+
+    /**
+     * Pending tasks for a single key. Runs one task per turn in the pool.
+     */
+    private class KeyQueue implements Runnable {
+
+        private final K key;
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean retired;
+
+        KeyQueue(K keyIn) {
+            key = keyIn;
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            synchronized (this) {
+                task = tasks.poll();
+            }
+            if (task != null) {
+                try {
+                    task.run();
+                }
+                catch (Throwable t) {
+                    LOG.error("Error executing task for key " + key, t);
+                }
+                finally {
+                    completedCount.incrementAndGet();
+                }
+            }
+            reschedule();
+        }
+
+        private void reschedule() {
+            synchronized (this) {
+                if (tasks.isEmpty()) {
+                    scheduled = false;
+                    retired = true;
+                    queues.remove(key, this);
+                    return;
+                }
+            }
+            try {
+                pool.execute(this);
+            }
+            catch (RejectedExecutionException e) {
+                LOG.warn("Executor is shut down, discarding pending tasks for key " + key);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.reactor.utils.test;
+
+import com.suse.manager.reactor.utils.KeyedExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link KeyedExecutor}.
+ */
+public class KeyedExecutorTest extends TestCase {
+
+    private KeyedExecutor<String> executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        executor = new KeyedExecutor<>(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdown();
+        super.tearDown();
+    }
+
+    public void testOrderPerKey() throws Exception {
+        int keys = 10;
+        int tasksPerKey = 100;
+        Map<String, List<Integer>> results = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(keys * tasksPerKey);
+
+        for (int i = 0; i < tasksPerKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                String key = "minion" + k;
+                int sequence = i;
+                executor.execute(key, () -> {
+                    results.computeIfAbsent(key, x -> Collections.synchronizedList(new ArrayList<>()))
+                            .add(sequence);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(keys, results.size());
+        for (List<Integer> sequence : results.values()) {
+            assertEquals(tasksPerKey, sequence.size());
+            for (int i = 0; i < tasksPerKey; i++) {
+                assertEquals(Integer.valueOf(i), sequence.get(i));
+            }
+        }
+    }
+
+    public void testSameKeyNeverRunsConcurrently() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(50);
+
+        for (int i = 0; i < 50; i++) {
+            executor.execute("minion", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(1);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+
+    public void testDifferentKeysRunInParallel() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        for (String key : new String[] {"minion1", "minion2"}) {
+            executor.execute(key, () -> {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        // both tasks must be running at the same time
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    public void testQueueDepths() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        executor.execute("busy", () -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            executor.execute("busy", () -> { });
+        }
+
+        Map<String, Integer> depths = executor.getDeepestQueues(10);
+        assertEquals(Integer.valueOf(3), depths.get("busy"));
+        assertEquals(1, executor.getKeyCount());
+        assertEquals(4, executor.getPendingCount());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (executor.getKeyCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, executor.getKeyCount());
+        assertEquals(0, executor.getPendingCount());
+        assertEquals(4, executor.getCompletedCount());
+    }
+
+    public void testFailingTaskDoesNotBlockKey() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute("minion", () -> {
+            throw new RuntimeException("expected");
+        });
+        executor.execute("minion", done::countDown);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+}
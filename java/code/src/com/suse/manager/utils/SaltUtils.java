@@ -65,6 +65,7 @@ import com.redhat.rhn.domain.server.ServerFactory;
 import com.redhat.rhn.manager.action.ActionManager;
 import com.redhat.rhn.manager.audit.ScapManager;
 import com.redhat.rhn.manager.errata.ErrataManager;
+import com.redhat.rhn.manager.errata.cache.ErrataCacheManager;
 import com.redhat.rhn.manager.system.SystemManager;
 import com.redhat.rhn.taskomatic.TaskomaticApi;
 import com.redhat.rhn.taskomatic.TaskomaticApiException;
@@ -128,8 +129,10 @@ import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.Timestamp;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -1156,9 +1159,8 @@ public class SaltUtils {
             PkgProfileUpdateSlsResult result) {
         Instant start = Instant.now();
 
-        HibernateFactory.doWithoutAutoFlushing(() -> {
-            updatePackages(server, result);
-        });
+        Optional<List<Long>> changedNameIds = HibernateFactory.doWithoutAutoFlushing(
+                () -> updatePackages(server, result));
 
         Optional.ofNullable(result.getListProducts())
                 .map(products -> products.getChanges().getRet())
@@ -1220,26 +1222,30 @@ public class SaltUtils {
                     " (" + duration + " seconds)");
         }
 
-        // Trigger update of errata cache for this server
-        ErrataManager.insertErrataCacheTask(server);
+        // Update the errata cache of the changed packages, or trigger its update for
+        // the whole server if these are not known
+        if (changedNameIds.isPresent()) {
+            ErrataCacheManager.updateNeededCacheForServerPackages(server.getId(),
+                    changedNameIds.get());
+        }
+        else {
+            ErrataManager.insertErrataCacheTask(server);
+        }
     }
 
     /**
-     * Updates a minion's packages with the result coming from Salt
+     * Updates a minion's packages with the result coming from Salt.
+     *
+     * Unless the packages of the minion were already loaded, only the difference
+     * is written, with batched statements that bypass Hibernate.
      *
      * @param server a Server object corresponding to a minion
      * @param result the result from the package profile update state
+     * @return the ids of the package names that were installed, removed or updated,
+     * or empty if the packages were updated through Hibernate
      */
-    private static void updatePackages(MinionServer server,
+    private static Optional<List<Long>> updatePackages(MinionServer server,
             PkgProfileUpdateSlsResult result) {
-        Set<InstalledPackage> packages = server.getPackages();
-
-        Map<String, InstalledPackage> oldPackageMap = packages.stream()
-            .collect(Collectors.toMap(
-                    SaltUtils::packageToKey,
-                    Function.identity()
-             ));
-
         Map<String, Map.Entry<String, Pkg.Info>> newPackageMap =
             result.getInfoInstalled().getChanges().getRet()
                 .entrySet().stream()
@@ -1256,6 +1262,64 @@ public class SaltUtils {
                         Function.identity()
                 ));
 
+        if (Hibernate.isInitialized(server.getPackages())) {
+            updatePackagesInSession(server, newPackageMap);
+            return Optional.empty();
+        }
+
+        Map<String, Map<String, Object>> oldPackageMap =
+            ServerFactory.listInstalledPackageIds(server).stream()
+                .collect(Collectors.toMap(
+                        SaltUtils::packageRowToKey,
+                        Function.identity()
+                ));
+
+        List<Map<String, Object>> removed = oldPackageMap.entrySet().stream()
+            .filter(e -> !newPackageMap.containsKey(e.getKey()))
+            .map(Map.Entry::getValue)
+            .collect(Collectors.toList());
+        List<Map.Entry<String, Pkg.Info>> added = newPackageMap.entrySet().stream()
+            .filter(e -> !oldPackageMap.containsKey(e.getKey()))
+            .map(Map.Entry::getValue)
+            .collect(Collectors.toList());
+        if (removed.isEmpty() && added.isEmpty()) {
+            return Optional.of(Collections.emptyList());
+        }
+
+        ServerFactory.removeInstalledPackages(server, removed);
+        ServerFactory.addInstalledPackages(server, added.stream()
+            .map(e -> packageToRow(e.getKey(), e.getValue()))
+            .collect(Collectors.toList()));
+
+        Set<Long> changedNameIds = removed.stream()
+            .map(row -> (Long) row.get("name_id"))
+            .collect(Collectors.toSet());
+        if (!added.isEmpty()) {
+            Map<String, Long> nameIds = ServerFactory.listInstalledPackageNameIds(server);
+            added.stream()
+                .map(e -> nameIds.get(e.getKey()))
+                .filter(Objects::nonNull)
+                .forEach(changedNameIds::add);
+        }
+        return Optional.of(new ArrayList<>(changedNameIds));
+    }
+
+    /**
+     * Updates the already loaded packages of a minion through Hibernate.
+     *
+     * @param server a Server object corresponding to a minion
+     * @param newPackageMap the packages from Salt by key
+     */
+    private static void updatePackagesInSession(MinionServer server,
+            Map<String, Map.Entry<String, Pkg.Info>> newPackageMap) {
+        Set<InstalledPackage> packages = server.getPackages();
+
+        Map<String, InstalledPackage> oldPackageMap = packages.stream()
+            .collect(Collectors.toMap(
+                    SaltUtils::packageToKey,
+                    Function.identity()
+             ));
+
         Collection<InstalledPackage> unchanged = oldPackageMap.entrySet().stream().filter(
             e -> newPackageMap.containsKey(e.getKey())
         ).map(Map.Entry::getValue).collect(Collectors.toList());
@@ -1270,6 +1334,44 @@ public class SaltUtils {
         packages.addAll(added);
     }
 
+    /**
+     * Returns the key of an installed package as listed by
+     * {@link ServerFactory#listInstalledPackageIds(Server)}, equal to the one of
+     * {@link #packageToKey(InstalledPackage)}.
+     *
+     * @param row the package
+     * @return the key
+     */
+    private static String packageRowToKey(Map<String, Object> row) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(row.get("name"));
+        sb.append("-");
+        sb.append(new PackageEvr((String) row.get("epoch"), (String) row.get("version"),
+                (String) row.get("release")).toString());
+        sb.append(".");
+        sb.append(Optional.ofNullable(row.get("arch")).orElse("unknown"));
+        return sb.toString();
+    }
+
+    /**
+     * Returns the parameters to add a package returned by Salt with
+     * {@link ServerFactory#addInstalledPackages(Server, Collection)}.
+     *
+     * @param name the package name
+     * @param info the package info
+     * @return the parameters
+     */
+    private static Map<String, Object> packageToRow(String name, Pkg.Info info) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("name", name);
+        row.put("epoch", info.getEpoch().orElse(null));
+        row.put("version", info.getVersion().get());
+        row.put("release", info.getRelease().orElse("0"));
+        row.put("arch", info.getArchitecture().get());
+        row.put("installtime", new Timestamp(info.getInstallDateUnixTime().get() * 1000));
+        return row;
+    }
+
     /**
      * Returns a key string that uniquely identifies an installed package (as a
      * Hibernated object)
@@ -20,9 +20,12 @@ import com.redhat.rhn.domain.channel.AccessTokenFactory;
 import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.channel.ChannelFactory;
 import com.redhat.rhn.domain.channel.Comps;
+import com.redhat.rhn.domain.rhnpackage.ChannelPackagePathIndex;
 import com.redhat.rhn.domain.rhnpackage.Package;
 import com.redhat.rhn.domain.rhnpackage.PackageFactory;
 
+import com.suse.manager.webui.utils.DownloadTokenCache;
+import com.suse.manager.webui.utils.DownloadTokenCache.ValidatedToken;
 import com.suse.manager.webui.utils.TokenBuilder;
 import com.suse.utils.Opt;
 
@@ -61,6 +64,8 @@ public class DownloadController {
             .setVerificationKey(KEY)
             .build();
 
+    private static final String REPODATA_PATH = "/var/cache/rhn/repodata";
+
     // cached value to avoid multiple calls
     private static final String MOUNT_POINT_PATH = Config.get()
             .getString(ConfigDefaults.MOUNT_POINT);
@@ -95,7 +100,7 @@ public class DownloadController {
         String channelLabel = request.params(":channel");
         String filename = request.params(":file");
 
-        File file = new File(new File("/var/cache/rhn/repodata", channelLabel),
+        File file = new File(new File(REPODATA_PATH, channelLabel),
                 filename).getAbsoluteFile();
 
         if (!file.exists() && (filename.endsWith(".asc") || filename.endsWith(".key"))) {
@@ -176,15 +181,25 @@ public class DownloadController {
             validateToken(token, channel, basename);
         }
 
-        Package pkg = PackageFactory.lookupByChannelLabelNevra(
-                channel, name, version, release, null, arch);
-        if (pkg == null) {
-            halt(HttpStatus.SC_NOT_FOUND,
-                 String.format("%s not found in %s", basename, channel));
-        }
+        // the index of the channel is rebuilt whenever its repository metadata changes,
+        // packages not yet in the metadata are looked up in the database. A package
+        // removed from the channel is still served until repomd.xml is regenerated, as
+        // clients only learn about the removal from the new metadata anyway
+        long contentVersion = new File(new File(REPODATA_PATH, channel), "repomd.xml").lastModified();
+        String packagePath = ChannelPackagePathIndex.INSTANCE.getPath(channel,
+                PackageFactory.nvraFileName(name, version, release, arch), contentVersion)
+                .orElseGet(() -> {
+                    Package pkg = PackageFactory.lookupByChannelLabelNevra(
+                            channel, name, version, release, null, arch);
+                    if (pkg == null) {
+                        halt(HttpStatus.SC_NOT_FOUND,
+                             String.format("%s not found in %s", basename, channel));
+                    }
+                    return pkg.getPath();
+                });
 
         File file = new File(Config.get().getString(ConfigDefaults.MOUNT_POINT),
-                pkg.getPath()).getAbsoluteFile();
+                packagePath).getAbsoluteFile();
 
         return downloadFile(request, response, file);
     }
@@ -215,13 +230,37 @@ public class DownloadController {
     }
 
     /**
-     * Validate a given token for a given channel.
+     * Validate a given token for a given channel. Tokens already validated are taken
+     * from the {@link DownloadTokenCache}.
      *
      * @param token the token to validate
      * @param channel the channel
      * @param filename the filename
      */
     private static void validateToken(String token, String channel, String filename) {
+        ValidatedToken validated = DownloadTokenCache.INSTANCE.get(token)
+                .orElseGet(() -> verifyToken(token, channel, filename));
+
+        // enforce channel claim
+        if (Opt.fold(validated.getChannels(), () -> false, channels -> !channels.contains(channel))) {
+            halt(HttpStatus.SC_FORBIDDEN, "Token does not provide access to channel " + channel);
+        }
+
+        // enforce org claim
+        if (!validated.isAccessible(channel, label -> ChannelFactory.isAccessibleBy(label, validated.getOrgId()))) {
+            halt(HttpStatus.SC_FORBIDDEN, "Token does not provide access to channel %s" + channel);
+        }
+    }
+
+    /**
+     * Check the signature and the claims of a token and remember them.
+     *
+     * @param token the token to validate
+     * @param channel the channel
+     * @param filename the filename
+     * @return the claims of the token
+     */
+    private static ValidatedToken verifyToken(String token, String channel, String filename) {
         AccessTokenFactory.lookupByToken(token).ifPresent(obj -> {
             if (!obj.getValid()) {
                 halt(HttpStatus.SC_FORBIDDEN, "This token is not valid");
@@ -230,27 +269,24 @@ public class DownloadController {
         try {
             JwtClaims claims = JWT_CONSUMER.processToClaims(token);
 
-            // enforce channel claim
             Optional<List<String>> channelClaim = Optional.ofNullable(claims.getStringListClaimValue("onlyChannels"))
                     // new versions of getStringListClaimValue() return an empty list instead of null
                     .filter(l -> !l.isEmpty());
-            if (Opt.fold(channelClaim, () -> false, channels -> !channels.contains(channel))) {
-                halt(HttpStatus.SC_FORBIDDEN, "Token does not provide access to channel " + channel);
-            }
-
-            // enforce org claim
             Optional<Long> orgClaim = Optional.ofNullable(claims.getClaimValue("org", Long.class));
-            Opt.consume(orgClaim, () -> {
+            if (!orgClaim.isPresent()) {
                 halt(HttpStatus.SC_BAD_REQUEST, "Token does not specify the organization");
-            }, orgId -> {
-                if (!ChannelFactory.isAccessibleBy(channel, orgId)) {
-                    halt(HttpStatus.SC_FORBIDDEN, "Token does not provide access to channel %s" + channel);
-                }
-            });
+            }
+            long expiration = claims.getExpirationTime() != null ?
+                    claims.getExpirationTime().getValueInMillis() : Long.MAX_VALUE;
+
+            ValidatedToken validated = new ValidatedToken(orgClaim.get(), channelClaim, expiration);
+            DownloadTokenCache.INSTANCE.put(token, validated);
+            return validated;
         }
         catch (InvalidJwtException | MalformedClaimException e) {
             halt(HttpStatus.SC_FORBIDDEN,
                  String.format("Token is not valid to access %s in %s: %s", filename, channel, e.getMessage()));
+            return null;
         }
     }
 
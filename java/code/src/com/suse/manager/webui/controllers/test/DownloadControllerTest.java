@@ -358,6 +358,38 @@ public class DownloadControllerTest extends BaseTestCaseWithUser {
         }
     }
 
+    /**
+     * Tests that a token revoked after a download does not give access anymore.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    public void testTokenRevokedAfterDownload() throws Exception {
+        MinionServer testMinionServer = MinionServerFactoryTest.createTestMinionServer(user);
+        testMinionServer.getChannels().add(channel);
+        AccessTokenFactory.refreshTokens(testMinionServer);
+        AccessToken token = testMinionServer.getAccessTokens().iterator().next();
+
+        Map<String, String> params = new HashMap<>();
+        params.put(token.getToken(), "");
+        assertNotNull(DownloadController.downloadPackage(getMockRequestWithParams(params), response));
+        assertEquals(packageFile.getAbsolutePath(), response.raw().getHeader("X-Sendfile"));
+
+        // the minion does not need the token anymore
+        testMinionServer.getChannels().remove(channel);
+        AccessTokenFactory.refreshTokens(testMinionServer);
+        assertFalse(token.getValid());
+
+        Response otherResponse = RequestResponseFactory.create(new RhnMockHttpServletResponse());
+        try {
+            DownloadController.downloadPackage(getMockRequestWithParams(params), otherResponse);
+            fail(String.format("%s should halt 403 if the token was revoked",
+                    DownloadController.class.getSimpleName()));
+        } catch (spark.HaltException e) {
+            assertEquals(403, e.getStatusCode());
+            assertNull(otherResponse.raw().getHeader("X-Sendfile"));
+        }
+    }
+
     /**
      * Test a download with a correct channel in the token and the token
      * in a query param.
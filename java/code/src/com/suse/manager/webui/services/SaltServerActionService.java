@@ -26,6 +26,7 @@ import static java.util.Optional.ofNullable;
 import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.common.util.NamedThreadFactory;
 import com.redhat.rhn.domain.action.Action;
 import com.redhat.rhn.domain.action.ActionChain;
 import com.redhat.rhn.domain.action.ActionChainEntry;
@@ -144,10 +145,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
 /**
  * Takes {@link Action} objects to be executed via salt.
  */
@@ -158,6 +166,13 @@ public class SaltServerActionService {
 
     /* Logger for this class */
     private static final Logger LOG = Logger.getLogger(SaltServerActionService.class);
+
+    /* Number of minions targeted by one asynchronous Salt call */
+    private static final int MINION_BATCH_SIZE = 500;
+
+    /* Number of asynchronous Salt calls published at the same time */
+    private static final int PUBLISH_THREADS = 4;
+
     public static final String PACKAGES_PKGINSTALL = "packages.pkginstall";
     private static final String PACKAGES_PKGDOWNLOAD = "packages.pkgdownload";
     public static final String PACKAGES_PATCHINSTALL = "packages.patchinstall";
@@ -187,6 +202,42 @@ public class SaltServerActionService {
     private SaltUtils saltUtils = SaltUtils.INSTANCE;
     private boolean skipCommandScriptPerms;
 
+    /* Executors for publishing Salt calls and for running actions on ssh-push minions,
+     * created on first use and stopped by shutdown() */
+    private ExecutorService publishExecutor;
+    private ExecutorService sshExecutor;
+
+    private synchronized ExecutorService getPublishExecutor() {
+        if (publishExecutor == null) {
+            publishExecutor = Executors.newFixedThreadPool(PUBLISH_THREADS,
+                    new NamedThreadFactory("salt-action-publish-"));
+        }
+        return publishExecutor;
+    }
+
+    private synchronized ExecutorService getSSHExecutor() {
+        if (sshExecutor == null) {
+            sshExecutor = Executors.newFixedThreadPool(ConfigDefaults.get().getSaltSSHActionThreads(),
+                    new NamedThreadFactory("salt-ssh-action-"));
+        }
+        return sshExecutor;
+    }
+
+    /**
+     * Stops the threads publishing Salt calls and running actions on ssh-push minions,
+     * once the submitted work is done.
+     */
+    public synchronized void shutdown() {
+        if (publishExecutor != null) {
+            publishExecutor.shutdown();
+            publishExecutor = null;
+        }
+        if (sshExecutor != null) {
+            sshExecutor.shutdown();
+            sshExecutor = null;
+        }
+    }
+
     private Action unproxy(Action entity) {
         Hibernate.initialize(entity);
         if (entity instanceof HibernateProxy) {
@@ -325,12 +376,6 @@ public class SaltServerActionService {
 
 
 
-    private Optional<ServerAction> serverActionFor(Action actionIn, MinionServer minion) {
-        return actionIn.getServerActions().stream()
-                .filter(sa -> sa.getServerId().equals(minion.getId()))
-                .findFirst();
-    }
-
     /**
      * Execute a given {@link Action} via salt.
      *
@@ -377,37 +422,82 @@ public class SaltServerActionService {
                 results = execute(actionIn, call, targetMinions, forcePackageListRefresh,
                         isStagingJob);
 
-                results.get(true).forEach(minionServer -> {
-                    serverActionFor(actionIn, minionServer).ifPresent(serverAction -> {
-                        if (LOG.isDebugEnabled()) {
-                            LOG.debug("Asynchronous call on minion: " +
-                                    minionServer.getMinionId());
-                        }
-                        if (!isStagingJob) {
-                            serverAction.setStatus(ActionFactory.STATUS_PICKED_UP);
-                            ActionFactory.save(serverAction);
-                        }
-                    });
-                });
+                if (LOG.isDebugEnabled()) {
+                    results.get(true).forEach(minionServer ->
+                            LOG.debug("Asynchronous call on minion: " + minionServer.getMinionId()));
+                }
+                results.get(false).forEach(minionServer ->
+                        LOG.warn("Failed to schedule action for minion: " + minionServer.getMinionId()));
 
-                results.get(false).forEach(minionServer -> {
-                    serverActionFor(actionIn, minionServer).ifPresent(serverAction -> {
-                        LOG.warn("Failed to schedule action for minion: " +
-                                minionServer.getMinionId());
-                        if (!isStagingJob) {
-                            serverAction.setCompletionTime(new Date());
-                            serverAction.setResultCode(-1L);
-                            serverAction.setResultMsg("Failed to schedule action.");
-                            serverAction.setStatus(ActionFactory.STATUS_FAILED);
-                            ActionFactory.save(serverAction);
-                        }
-                    });
-                });
+                if (!isStagingJob) {
+                    ActionFactory.pickUpServerActions(actionIn, serverIds(results.get(true)));
+                    ActionFactory.failServerActions(actionIn, serverIds(results.get(false)),
+                            "Failed to schedule action.");
+                }
             }
         }
 
-        for (MinionServer sshMinion: sshPushMinions) {
-            executeSSHAction(actionIn, sshMinion);
+        executeSSHActions(actionIn, sshPushMinions);
+    }
+
+    private static List<Long> serverIds(List<MinionServer> minions) {
+        return minions.stream().map(MinionServer::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Execute an action on ssh-push minions, in parallel if there is more than one.
+     * Parallel executions use their own Hibernate sessions and only start once the
+     * current transaction has been committed by the caller, so that they neither see
+     * uncommitted data nor race with changes of the caller to the same server actions.
+     * They are not waited for.
+     *
+     * @param actionIn the action to be executed
+     * @param sshMinions minions on which the action will be executed
+     */
+    private void executeSSHActions(Action actionIn, List<MinionServer> sshMinions) {
+        if (sshMinions.size() <= 1 || !commitTransaction || !HibernateFactory.inTransaction()) {
+            for (MinionServer sshMinion : sshMinions) {
+                executeSSHAction(actionIn, sshMinion);
+            }
+            return;
+        }
+
+        Long actionId = actionIn.getId();
+        List<Long> minionIds = serverIds(sshMinions);
+        HibernateFactory.getSession().getTransaction().registerSynchronization(
+                new Synchronization() {
+                    @Override
+                    public void beforeCompletion() {
+                        // nothing to do
+                    }
+
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != Status.STATUS_COMMITTED) {
+                            LOG.warn("Not executing action " + actionId +
+                                    " on ssh-push minions, the transaction was rolled back");
+                            return;
+                        }
+                        ExecutorService executor = getSSHExecutor();
+                        minionIds.forEach(minionId ->
+                                executor.submit(() -> executeSSHAction(actionId, minionId)));
+                    }
+                });
+    }
+
+    private void executeSSHAction(Long actionId, Long minionId) {
+        try {
+            Action action = ActionFactory.lookupById(actionId);
+            MinionServerFactory.lookupById(minionId)
+                    .ifPresent(minion -> executeSSHAction(action, minion));
+            HibernateFactory.commitTransaction();
+        }
+        catch (RuntimeException e) {
+            LOG.error("Error executing action " + actionId + " on ssh-push minion " + minionId, e);
+            HibernateFactory.rollbackTransaction();
+        }
+        finally {
+            HibernateFactory.closeSession();
         }
     }
 
@@ -1556,25 +1646,39 @@ public class SaltServerActionService {
                     minionIds.stream().collect(Collectors.joining(", ")));
         }
 
-        try {
-            Map<Boolean, List<MinionServer>> result = new HashMap<>();
-
-            List<String> results = SaltService.INSTANCE
-                    .callAsync(call.withMetadata(metadata), new MinionList(minionIds))
-                    .getMinions();
-
-            result = minions.stream().collect(Collectors
-                    .partitioningBy(minion -> results.contains(minion.getMinionId())));
-
-            return result;
+        // publish the call to batches of minions concurrently
+        LocalCall<?> callWithMetadata = call.withMetadata(metadata);
+        List<Future<List<String>>> batches = new ArrayList<>();
+        for (int i = 0; i < minionIds.size(); i += MINION_BATCH_SIZE) {
+            MinionList target = new MinionList(
+                    minionIds.subList(i, Math.min(i + MINION_BATCH_SIZE, minionIds.size())));
+            batches.add(getPublishExecutor().submit(() ->
+                    SaltService.INSTANCE.callAsync(callWithMetadata, target).getMinions()));
         }
-        catch (SaltException ex) {
-            LOG.debug("Failed to execute action: " + ex.getMessage());
-            Map<Boolean, List<MinionServer>> result = new HashMap<>();
-            result.put(true, Collections.emptyList());
-            result.put(false, minions);
-            return result;
+
+        Set<String> results = new HashSet<>();
+        for (Future<List<String>> batch : batches) {
+            try {
+                results.addAll(batch.get());
+            }
+            catch (ExecutionException e) {
+                // minions of the batch are reported as not scheduled
+                if (e.getCause() instanceof SaltException) {
+                    LOG.debug("Failed to execute action: " + e.getCause().getMessage());
+                }
+                else {
+                    LOG.error("Error executing action: " + actionIn.getId(), e.getCause());
+                }
+            }
+            catch (InterruptedException e) {
+                LOG.debug("Interrupted while executing action: " + actionIn.getId());
+                Thread.currentThread().interrupt();
+                break;
+            }
         }
+
+        return minions.stream().collect(Collectors
+                .partitioningBy(minion -> results.contains(minion.getMinionId())));
     }
 
     /**
@@ -1597,9 +1701,9 @@ public class SaltServerActionService {
         }
 
         try {
-            List<String> results = SaltService.INSTANCE
+            Set<String> results = new HashSet<>(SaltService.INSTANCE
                     .callAsync(call.withMetadata(metadata), new MinionList(minionIds))
-                    .getMinions();
+                    .getMinions());
 
             Map<Boolean, ? extends Collection<MinionServer>> result = minions.stream().collect(Collectors
                     .partitioningBy(minion -> results.contains(minion.getMinionId())));
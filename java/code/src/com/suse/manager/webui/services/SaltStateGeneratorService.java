@@ -24,12 +24,14 @@ import static com.suse.manager.webui.utils.SaltFileUtils.defaultExtension;
 
 import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.common.messaging.MessageQueue;
+import com.redhat.rhn.common.util.NamedThreadFactory;
 import com.redhat.rhn.domain.channel.AccessToken;
 import com.redhat.rhn.domain.channel.AccessTokenFactory;
 import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.config.ConfigChannel;
 import com.redhat.rhn.domain.org.Org;
-import com.redhat.rhn.domain.server.ManagedServerGroup;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionServerFactory;
 import com.redhat.rhn.domain.server.Server;
@@ -43,25 +45,32 @@ import com.redhat.rhn.domain.state.StateFactory;
 import com.redhat.rhn.domain.state.StateRevision;
 import com.redhat.rhn.domain.user.User;
 
+import com.suse.manager.reactor.messaging.RegeneratePillarEventMessage;
 import com.suse.manager.utils.MachinePasswordUtils;
 import com.suse.manager.webui.controllers.StatesAPI;
 import com.suse.manager.webui.utils.SaltConfigChannelState;
 import com.suse.manager.webui.utils.SaltPillar;
 
 import org.apache.log4j.Logger;
+import org.hibernate.Transaction;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Service to manage the Salt states generated by Suse Manager.
@@ -97,6 +106,29 @@ public enum SaltStateGeneratorService {
 
     private Path pillarDataPath;
 
+    /* Number of threads writing pillar files */
+    private static final int PILLAR_WRITER_THREADS = 4;
+
+    // minions waiting for pillar regeneration, with the transaction that scheduled it
+    private final Map<Long, PendingPillar> pendingPillars = new ConcurrentHashMap<>();
+
+    // writes the pillar files of many minions, created on first use
+    private ExecutorService pillarWriter;
+
+    /**
+     * A pending pillar regeneration: the transaction that last scheduled it, and whether
+     * any of the requests asked for access tokens to be refreshed.
+     */
+    private static class PendingPillar {
+        private final Transaction transaction;
+        private final boolean refreshAccessTokens;
+
+        PendingPillar(Transaction transactionIn, boolean refreshAccessTokensIn) {
+            transaction = transactionIn;
+            refreshAccessTokens = refreshAccessTokensIn;
+        }
+    }
+
     SaltStateGeneratorService() {
         suseManagerStatesFilesRoot = Paths.get(SUMA_STATE_FILES_ROOT_PATH);
         pillarDataPath = Paths.get(SUMA_PILLAR_DATA_PATH);
@@ -125,24 +157,131 @@ public enum SaltStateGeneratorService {
             AccessTokenFactory.refreshTokens(minion, tokensToActivate);
         }
 
-        List<ManagedServerGroup> groups = ServerGroupFactory.listManagedGroups(minion);
-        List<String> addonGroupTypes =
-                ServerGroupFactory.listEntitlementGroups(minion).stream().flatMap(group -> {
-                    if (group.getGroupType() != null) {
-                        return Stream.of(group.getGroupType().getLabel());
-                    }
-                    else {
-                        return Stream.empty();
-                    }
-                }).collect(Collectors.toList());
-
-        List<Long> groupIds = groups.stream()
-                .map(ServerGroup::getId).collect(Collectors.toList());
+        List<ServerGroup> groups = new ArrayList<>(ServerGroupFactory.listManagedGroups(minion));
+        groups.addAll(ServerGroupFactory.listEntitlementGroups(minion));
+        writePillar(getServerPillarFileName(minion), createPillar(minion, groups));
+    }
+
+    /**
+     * Generate the pillars of many minions at once. Their groups are queried together,
+     * and the files are written in parallel.
+     * @param minionIds ids of the minions
+     * @param refreshAccessTokens if access tokens should be refreshed first
+     * @return the minions the pillar was generated for
+     */
+    public List<MinionServer> generatePillars(List<Long> minionIds, boolean refreshAccessTokens) {
+        List<MinionServer> minions = MinionServerFactory.lookupByIdsWithPillarData(minionIds);
+        LOG.debug("Generating pillar files for " + minions.size() + " minions");
+
+        if (refreshAccessTokens) {
+            minions.forEach(minion -> AccessTokenFactory.refreshTokens(minion, Collections.emptySet()));
+        }
+
+        Map<Long, List<ServerGroup>> groups = ServerGroupFactory.listServerGroups(
+                minions.stream().map(MinionServer::getId).collect(Collectors.toList()));
+        // the pillars are created here as the Hibernate session must not be shared,
+        // only the files are written by several threads
+        Map<String, SaltPillar> pillars = new HashMap<>();
+        minions.forEach(minion -> pillars.put(getServerPillarFileName(minion), createPillar(minion,
+                groups.getOrDefault(minion.getId(), Collections.emptyList()))));
+        List<Future<?>> writes = new ArrayList<>();
+        pillars.forEach((fileName, pillar) ->
+                writes.add(getPillarWriter().submit(() -> writePillar(fileName, pillar))));
+        for (Future<?> write : writes) {
+            try {
+                write.get();
+            }
+            catch (ExecutionException e) {
+                LOG.error("Error writing pillar file", e.getCause());
+            }
+            catch (InterruptedException e) {
+                LOG.debug("Interrupted while writing pillar files");
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return minions;
+    }
+
+    private synchronized ExecutorService getPillarWriter() {
+        if (pillarWriter == null) {
+            pillarWriter = Executors.newFixedThreadPool(PILLAR_WRITER_THREADS,
+                    new NamedThreadFactory("pillar-writer-"));
+        }
+        return pillarWriter;
+    }
+
+    /**
+     * Schedule the regeneration of the pillars of the given minions, followed by a refresh
+     * of their pillar data, without refreshing their access tokens.
+     * @param minionIds ids of the minions
+     * @see #schedulePillarRegeneration(Collection, boolean)
+     */
+    public void schedulePillarRegeneration(Collection<Long> minionIds) {
+        schedulePillarRegeneration(minionIds, false);
+    }
+
+    /**
+     * Schedule the regeneration of the pillars of the given minions, followed by a refresh
+     * of their pillar data. Regeneration happens once the current transaction is over, and
+     * minions scheduled several times in the meanwhile are regenerated only once, with
+     * their access tokens refreshed if any of the requests asked for it.
+     * @param minionIds ids of the minions
+     * @param refreshAccessTokens if access tokens should be refreshed first
+     */
+    public void schedulePillarRegeneration(Collection<Long> minionIds, boolean refreshAccessTokens) {
+        Transaction transaction = HibernateFactory.getSession().getTransaction();
+        boolean scheduled = false;
+        for (Long minionId : minionIds) {
+            PendingPillar previous;
+            PendingPillar pending;
+            // merge with the pending request, retrying if it changed in the meanwhile
+            do {
+                previous = pendingPillars.get(minionId);
+                pending = new PendingPillar(transaction,
+                        refreshAccessTokens || previous != null && previous.refreshAccessTokens);
+            } while (previous == null ? pendingPillars.putIfAbsent(minionId, pending) != null :
+                    !pendingPillars.replace(minionId, previous, pending));
+            scheduled |= previous == null || previous.transaction != transaction;
+        }
+        if (scheduled) {
+            MessageQueue.publish(new RegeneratePillarEventMessage(transaction));
+        }
+    }
+
+    /**
+     * Take the minions scheduled for pillar regeneration whose scheduling transaction
+     * is over. Minions scheduled again by a transaction that is still running are left
+     * for the event of that transaction.
+     * @return ids of the minions, partitioned by whether their access tokens should be
+     * refreshed
+     */
+    public Map<Boolean, List<Long>> takePendingPillarRegenerations() {
+        Map<Boolean, List<Long>> minionIds = new HashMap<>();
+        minionIds.put(true, new ArrayList<>());
+        minionIds.put(false, new ArrayList<>());
+        pendingPillars.forEach((minionId, pending) -> {
+            if (!pending.transaction.isActive() && pendingPillars.remove(minionId, pending)) {
+                minionIds.get(pending.refreshAccessTokens).add(minionId);
+            }
+        });
+        return minionIds;
+    }
+
+    private SaltPillar createPillar(MinionServer minion, List<ServerGroup> groups) {
+        Long[] groupIds = groups.stream()
+                .filter(group -> group.getGroupType() == null)
+                .map(ServerGroup::getId)
+                .toArray(Long[]::new);
+        String[] addonGroupTypes = groups.stream()
+                .filter(group -> group.getGroupType() != null)
+                .map(group -> group.getGroupType().getLabel())
+                .toArray(String[]::new);
+
         SaltPillar pillar = new SaltPillar();
         pillar.add("org_id", minion.getOrg().getId());
-        pillar.add("group_ids", groupIds.toArray(new Long[groupIds.size()]));
-        pillar.add("addon_group_types",
-                addonGroupTypes.toArray(new String[addonGroupTypes.size()]));
+        pillar.add("group_ids", groupIds);
+        pillar.add("addon_group_types", addonGroupTypes);
         pillar.add("contact_method", minion.getContactMethod().getLabel());
         pillar.add("mgr_server", getChannelHost(minion));
         pillar.add("machine_password", MachinePasswordUtils.machinePassword(minion));
@@ -173,12 +312,13 @@ public enum SaltStateGeneratorService {
         if (!beaconConfig.isEmpty()) {
             pillar.add("beacons", beaconConfig);
         }
+        return pillar;
+    }
 
+    private void writePillar(String fileName, SaltPillar pillar) {
         try {
             Files.createDirectories(pillarDataPath);
-            Path filePath = pillarDataPath.resolve(
-                    getServerPillarFileName(minion)
-            );
+            Path filePath = pillarDataPath.resolve(fileName);
             com.suse.manager.webui.utils.SaltStateGenerator saltStateGenerator =
                     new com.suse.manager.webui.utils.SaltStateGenerator(filePath.toFile());
             saltStateGenerator.generate(pillar);
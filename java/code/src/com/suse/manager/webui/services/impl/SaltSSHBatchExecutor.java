@@ -0,0 +1,235 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.webui.services.impl;
+
+import com.redhat.rhn.common.util.NamedThreadFactory;
+
+import com.suse.salt.netapi.errors.GenericError;
+import com.suse.salt.netapi.exception.SaltException;
+import com.suse.salt.netapi.results.Result;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a salt-ssh call on many minions as concurrent batches, each batch being one
+ * salt-ssh execution with its own roster.
+ *
+ * At most a fixed number of batches run at the same time, and at most a (smaller)
+ * number of them go through the same proxy. Minions reached directly are only limited by
+ * the overall number of batches. Every minion gets its own future, which
+ * is completed as soon as its batch returns, so that callers can handle results
+ * while other batches are still running. Minions whose batch does not return before
+ * the deadline are completed with an error.
+ */
+public class SaltSSHBatchExecutor {
+
+    private static final Logger LOG = Logger.getLogger(SaltSSHBatchExecutor.class);
+
+    /** Key of the minions reached directly, without any proxy. */
+    public static final String DIRECT = "";
+
+    /**
+     * A salt-ssh call on one batch of minions.
+     * @param <R> result type of the salt function
+     */
+    @FunctionalInterface
+    public interface BatchCall<R> {
+
+        /**
+         * Runs the call on the given minions.
+         * @param minionIds the minions of the batch
+         * @return the results by minion id
+         * @throws SaltException if the salt-ssh execution fails
+         */
+        Map<String, Result<R>> call(List<String> minionIds) throws SaltException;
+    }
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService deadlineTimer;
+    private final int concurrency;
+    private final int batchSize;
+    private final int proxyConcurrency;
+
+    /**
+     * Standard constructor.
+     * @param concurrencyIn number of batches running at the same time
+     * @param batchSizeIn maximum number of minions per batch
+     * @param proxyConcurrencyIn number of batches running at the same time behind
+     * the same proxy
+     */
+    public SaltSSHBatchExecutor(int concurrencyIn, int batchSizeIn, int proxyConcurrencyIn) {
+        this.executor = Executors.newFixedThreadPool(concurrencyIn,
+                new NamedThreadFactory("salt-ssh-batch-"));
+        this.deadlineTimer = Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory("salt-ssh-deadline-"));
+        this.concurrency = concurrencyIn;
+        this.batchSize = batchSizeIn;
+        this.proxyConcurrency = proxyConcurrencyIn;
+    }
+
+    /**
+     * Runs a call on the given minions in batches, without waiting for it.
+     *
+     * @param minionsByProxy the minion ids, grouped by the proxy they are reached
+     * through (minions reached directly are grouped under {@link #DIRECT})
+     * @param call the call to run on each batch
+     * @param deadlineSeconds seconds after the start of a batch after which its
+     * minions are given up, 0 for no deadline
+     * @param <R> result type of the salt function
+     * @return futures of the results by minion id, a future completing with null
+     * when salt-ssh did not return anything for its minion
+     */
+    public <R> Map<String, CompletableFuture<Result<R>>> submit(
+            Map<String, List<String>> minionsByProxy, BatchCall<R> call, int deadlineSeconds) {
+        Map<String, CompletableFuture<Result<R>>> futures = new HashMap<>();
+        minionsByProxy.values().forEach(minionIds ->
+                minionIds.forEach(minionId -> futures.put(minionId, new CompletableFuture<>())));
+
+        minionsByProxy.forEach((proxy, minionIds) -> {
+            Queue<List<String>> batches = new LinkedList<>(partition(minionIds));
+            int limit = DIRECT.equals(proxy) ? concurrency : proxyConcurrency;
+            for (int i = 0; i < limit && !batches.isEmpty(); i++) {
+                runNext(batches, call, futures, deadlineSeconds);
+            }
+        });
+        return futures;
+    }
+
+    /**
+     * Runs a call on the given minions in batches and waits for all of them. A call
+     * that fits in one batch and has no deadline is run in the calling thread.
+     *
+     * @param minionsByProxy the minion ids, grouped by the proxy they are reached
+     * through (minions reached directly are grouped under {@link #DIRECT})
+     * @param call the call to run on each batch
+     * @param deadlineSeconds seconds after the start of a batch after which its
+     * minions are given up, 0 for no deadline
+     * @param <R> result type of the salt function
+     * @return the results by minion id
+     * @throws SaltException if the call fails on a batch
+     */
+    public <R> Map<String, Result<R>> call(Map<String, List<String>> minionsByProxy,
+            BatchCall<R> call, int deadlineSeconds) throws SaltException {
+        List<String> minionIds = minionsByProxy.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        if (minionIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (minionIds.size() <= batchSize && deadlineSeconds <= 0) {
+            return call.call(minionIds);
+        }
+
+        Map<String, CompletableFuture<Result<R>>> futures =
+                submit(minionsByProxy, call, deadlineSeconds);
+        Map<String, Result<R>> results = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<Result<R>>> entry : futures.entrySet()) {
+            try {
+                Result<R> result = entry.getValue().join();
+                if (result != null) {
+                    results.put(entry.getKey(), result);
+                }
+            }
+            catch (RuntimeException e) {
+                if (e.getCause() instanceof SaltException) {
+                    throw (SaltException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return the executor batches are run on, for salt-ssh calls that cannot be split
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Stops the threads once the running batches are done.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        deadlineTimer.shutdown();
+    }
+
+    private <R> void runNext(Queue<List<String>> batches, BatchCall<R> call,
+            Map<String, CompletableFuture<Result<R>>> futures, int deadlineSeconds) {
+        List<String> batch;
+        synchronized (batches) {
+            batch = batches.poll();
+        }
+        if (batch == null) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            // minions already given up (e.g. cancelled by the caller) are not called
+            List<String> minionIds = batch.stream()
+                    .filter(minionId -> !futures.get(minionId).isDone())
+                    .collect(Collectors.toList());
+            if (!minionIds.isEmpty()) {
+                runBatch(minionIds, call, futures, deadlineSeconds);
+            }
+        }, executor).whenComplete((v, e) -> runNext(batches, call, futures, deadlineSeconds));
+    }
+
+    private <R> void runBatch(List<String> minionIds, BatchCall<R> call,
+            Map<String, CompletableFuture<Result<R>>> futures, int deadlineSeconds) {
+        ScheduledFuture<?> deadline = deadlineSeconds > 0 ?
+                deadlineTimer.schedule(() -> minionIds.forEach(minionId ->
+                        futures.get(minionId).complete(Result.error(new GenericError(
+                                "salt-ssh did not return within " + deadlineSeconds + " seconds")))),
+                        deadlineSeconds, TimeUnit.SECONDS) :
+                null;
+        try {
+            Map<String, Result<R>> results = call.call(minionIds);
+            minionIds.forEach(minionId -> futures.get(minionId).complete(results.get(minionId)));
+        }
+        catch (SaltException | RuntimeException e) {
+            LOG.error("Error calling salt-ssh on " + minionIds.size() + " minions", e);
+            minionIds.forEach(minionId -> futures.get(minionId).completeExceptionally(e));
+        }
+        finally {
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+        }
+    }
+
+    private List<List<String>> partition(List<String> minionIds) {
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < minionIds.size(); i += batchSize) {
+            batches.add(minionIds.subList(i, Math.min(i + batchSize, minionIds.size())));
+        }
+        return batches;
+    }
+}
@@ -17,6 +17,7 @@ package com.suse.manager.webui.services.impl;
 import com.redhat.rhn.common.CommonConstants;
 import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.domain.server.MinionDirectory;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionServerFactory;
 import com.redhat.rhn.domain.server.Server;
@@ -51,7 +52,6 @@ import com.suse.salt.netapi.results.SSHResult;
 import com.suse.salt.netapi.utils.Xor;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.ObjectUtils;
-import org.apache.commons.collections.map.HashedMap;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.StrSubstitutor;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -75,11 +75,8 @@ import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 import java.util.Set;
 import java.util.concurrent.TimeoutException;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -134,7 +131,7 @@ public class SaltSSHService {
     // Shared salt client instance
     private final SaltClient saltClient;
 
-    private Executor asyncSaltSSHExecutor;
+    private final SaltSSHBatchExecutor batchExecutor;
 
     private SaltActionChainGeneratorService saltActionChainGeneratorService;
 
@@ -145,9 +142,11 @@ public class SaltSSHService {
      */
     public SaltSSHService(SaltClient saltClientIn, SaltActionChainGeneratorService saltActionChainGeneratorServiceIn) {
         this.saltClient = saltClientIn;
-        // use a small fixed pool so we don't overwhelm the salt-api
-        // with salt-ssh executions
-        this.asyncSaltSSHExecutor = Executors.newFixedThreadPool(3);
+        // bounded, so that we don't overwhelm the salt-api with salt-ssh executions
+        this.batchExecutor = new SaltSSHBatchExecutor(
+                ConfigDefaults.get().getSaltSSHConcurrency(),
+                ConfigDefaults.get().getSaltSSHBatchSize(),
+                ConfigDefaults.get().getSaltSSHProxyConcurrency());
         this.saltActionChainGeneratorService = saltActionChainGeneratorServiceIn;
     }
 
@@ -164,7 +163,7 @@ public class SaltSSHService {
      * Synchronously executes a salt function on given minion list using salt-ssh.
      *
      * Before the execution, this method creates an one-time roster corresponding to targets
-     * in given minion list.
+     * in given minion list. Large minion lists are split in concurrent batches.
      *
      * @param call the salt call
      * @param target the minion list target
@@ -181,8 +180,11 @@ public class SaltSSHService {
                     Optional.ofNullable((Integer) call.getPayload().get("timeout")) :
                     getSshPushTimeout();
         SaltRoster roster = prepareSaltRoster(target, sshTimeout);
-        return unwrapSSHReturn(
-                callSyncSSHInternal(call, target, roster, false, isSudoUser(getSSHUser()), extraFileRefs));
+        boolean sudo = isSudoUser(getSSHUser());
+        return batchExecutor.call(minionsByProxy(target),
+                batch -> unwrapSSHReturn(callSyncSSHInternal(call, new MinionList(batch),
+                        roster.subset(batch), false, sudo, extraFileRefs)),
+                hostDeadline(call));
     }
 
     /**
@@ -205,6 +207,12 @@ public class SaltSSHService {
     private SaltRoster prepareSaltRoster(MinionList target, Optional<Integer> sshTimeout) {
         SaltRoster roster = new SaltRoster();
 
+        // registered minions are resolved in one go instead of one query per minion
+        List<String> registered = target.getTarget().stream()
+                .filter(mid -> !MinionPendingRegistrationService.containsSSHMinion(mid))
+                .collect(Collectors.toList());
+        Map<String, MinionDirectory.MinionEntry> entries = MinionDirectory.INSTANCE.getAll(registered);
+
         // these values are mostly fixed, which should change when we allow configuring
         // per-minionserver
         target.getTarget().stream()
@@ -225,25 +233,21 @@ public class SaltSSHService {
                     });
                 }
                 else {
-                    Optional<MinionServer> minionOpt = MinionServerFactory.
-                            findByMinionId(mid);
-                    minionOpt.ifPresent(minion -> {
-                        List<String> proxyPath = proxyPathToHostnames(
-                                minion.getServerPaths(), Optional.empty());
+                    MinionDirectory.MinionEntry minion = entries.get(mid);
+                    if (minion != null) {
+                        List<String> proxyPath = minion.getProxyPath();
                         roster.addHost(mid, getSSHUser(), Optional.empty(),
                                 Optional.of(SSH_PUSH_PORT),
-                                remotePortForwarding(
-                                        proxyPath, minion.getContactMethod().getLabel()
-                                ),
+                                remotePortForwarding(proxyPath, minion.getContactMethod()),
                                 sshProxyCommandOption(proxyPath,
-                                        minion.getContactMethod().getLabel(),
+                                        minion.getContactMethod(),
                                         minion.getMinionId()
                                 ),
                                 sshTimeout,
-                                minionOpts(mid, minion.getContactMethod().getLabel())
+                                minionOpts(mid, minion.getContactMethod())
                         );
-                    });
-                    if (!minionOpt.isPresent()) {
+                    }
+                    else {
                         LOG.error("Minion id='" + mid + "' not found in the database");
                     }
                 }
@@ -266,7 +270,8 @@ public class SaltSSHService {
     }
 
     /**
-     * Executes salt-ssh calls in another thread and returns {@link CompletionStage}s.
+     * Executes salt-ssh calls in concurrent batches and returns {@link CompletionStage}s,
+     * each of them completing as soon as the batch of its minion returns.
      * @param call the salt call
      * @param target the minion list target
      * @param <R> result type of the salt function
@@ -278,52 +283,58 @@ public class SaltSSHService {
             LocalCall<R> call, MinionList target, CompletableFuture<GenericError> cancel,
             Optional<String> extraFilerefs) {
         SaltRoster roster = prepareSaltRoster(target, getSshPushTimeout());
-        Map<String, CompletableFuture<Result<R>>> futures = new HashedMap();
-        target.getTarget().forEach(minionId ->
-                futures.put(minionId, new CompletableFuture<>())
-        );
-        CompletableFuture<Map<String, Result<R>>> asyncCallFuture =
-                CompletableFuture.supplyAsync(() -> {
-                    try {
-                        return unwrapSSHReturn(
-                                callSyncSSHInternal(call, target, roster,
-                                        false, isSudoUser(getSSHUser()),
-                                        extraFilerefs));
-                    }
-                    catch (SaltException e) {
-                        LOG.error("Error calling async salt-ssh minions", e);
-                        throw new RuntimeException(e);
-                    }
-                }, asyncSaltSSHExecutor);
-
-        asyncCallFuture.whenComplete((executionResult, err) ->
-                futures.forEach((minionId, future) -> {
-                    if (err == null) {
-                        future.complete(executionResult.get(minionId));
-                    }
-                    else {
-                        future.completeExceptionally(err);
-                    }
-                })
-        );
-        cancel.whenComplete((v, e) -> {
+        boolean sudo = isSudoUser(getSSHUser());
+        Map<String, CompletableFuture<Result<R>>> futures = batchExecutor.submit(
+                minionsByProxy(target),
+                batch -> unwrapSSHReturn(callSyncSSHInternal(call, new MinionList(batch),
+                        roster.subset(batch), false, sudo, extraFilerefs)),
+                hostDeadline(call));
+
+        cancel.whenComplete((v, e) -> futures.values().forEach(future -> {
             if (v != null) {
-                Map<String, Result<R>> error = target.getTarget().stream()
-                        .collect(Collectors.toMap(
-                                Function.identity(),
-                                minionId -> Result.error(v)));
-                asyncCallFuture.complete(error);
+                future.complete(Result.error(v));
             }
             else if (e != null) {
-                asyncCallFuture.completeExceptionally(e);
+                future.completeExceptionally(e);
             }
-        });
+        }));
         return futures.entrySet().stream().collect(Collectors.toMap(
                 Map.Entry::getKey,
                 e -> (CompletionStage<Result<R>>) e.getValue()
         ));
     }
 
+    /**
+     * Groups minions by the first proxy they are reached through, minions reached
+     * directly being grouped under {@link SaltSSHBatchExecutor#DIRECT}.
+     */
+    private static Map<String, List<String>> minionsByProxy(MinionList target) {
+        Map<String, MinionDirectory.MinionEntry> entries =
+                MinionDirectory.INSTANCE.getAll(target.getTarget());
+        return target.getTarget().stream().distinct().collect(Collectors.groupingBy(mid -> {
+            List<String> proxyPath = MinionPendingRegistrationService.get(mid)
+                    .flatMap(MinionPendingRegistrationService.PendingMinion::getProxyPath)
+                    .orElseGet(() -> Optional.ofNullable(entries.get(mid))
+                            .map(MinionDirectory.MinionEntry::getProxyPath)
+                            .orElse(Collections.emptyList()));
+            return proxyPath.isEmpty() ? SaltSSHBatchExecutor.DIRECT : proxyPath.get(0);
+        }, LinkedHashMap::new, Collectors.toList()));
+    }
+
+    /**
+     * Seconds after which minions of a call are given up. Calls with their own timeout
+     * (e.g. presence pings) are not waited for much longer than that.
+     */
+    private static int hostDeadline(LocalCall<?> call) {
+        int deadline = ConfigDefaults.get().getSaltSSHHostDeadline();
+        Object timeout = call.getPayload().get("timeout");
+        if (timeout instanceof Integer) {
+            int callDeadline = 2 * (Integer) timeout;
+            return deadline > 0 ? Math.min(deadline, callDeadline) : callDeadline;
+        }
+        return deadline;
+    }
+
     /**
      * @param serverPaths a set ot {@link ServerPath}
      * @param lastProxy the last proxy in the chain
@@ -704,7 +715,7 @@ public class SaltSSHService {
                 LOG.error("Error matching salt-ssh minions", e);
                 throw new RuntimeException(e);
             }
-        }, asyncSaltSSHExecutor);
+        }, batchExecutor.getExecutor());
         cancel.whenComplete((v, e) -> {
             if (v != null) {
                 Result<Boolean> error = Result.error(v);
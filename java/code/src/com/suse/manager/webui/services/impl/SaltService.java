@@ -15,14 +15,13 @@
 package com.suse.manager.webui.services.impl;
 
 import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.domain.server.MinionDirectory;
 import com.redhat.rhn.domain.server.MinionServer;
-import com.redhat.rhn.domain.server.MinionServerFactory;
 import com.redhat.rhn.domain.server.ServerFactory;
 import com.redhat.rhn.manager.audit.scap.file.ScapFileManager;
 
 import com.google.gson.reflect.TypeToken;
 import com.suse.manager.reactor.SaltReactor;
-import com.suse.manager.utils.MinionServerUtils;
 import com.suse.manager.webui.controllers.utils.ContactMethodUtil;
 import com.suse.manager.webui.services.SaltActionChainGeneratorService;
 import com.suse.manager.webui.services.impl.runner.MgrK8sRunner;
@@ -95,7 +94,6 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -134,13 +132,6 @@ public class SaltService {
     // executing salt-ssh calls
     private final SaltSSHService saltSSHService;
 
-    private static final Predicate<? super String> SALT_MINION_PREDICATE = (mid) ->
-            MinionPendingRegistrationService.containsSSHMinion(mid) ||
-                        MinionServerFactory
-                                .findByMinionId(mid)
-                                .filter(m -> MinionServerUtils.isSshPushMinion(m))
-                                .isPresent();
-
     private static final String CLEANUP_MINION_SALT_STATE = "cleanup_minion";
     protected static final String MINION_UNREACHABLE_ERROR = "minion_unreachable";
 
@@ -770,8 +761,13 @@ public class SaltService {
      */
     public static Map<Boolean, List<String>> partitionMinionsByContactMethod(
             Collection<String> minionIds) {
+        Map<String, MinionDirectory.MinionEntry> entries = MinionDirectory.INSTANCE.getAll(minionIds);
         return minionIds.stream()
-                .collect(Collectors.partitioningBy(SALT_MINION_PREDICATE));
+                .collect(Collectors.partitioningBy(mid ->
+                        MinionPendingRegistrationService.containsSSHMinion(mid) ||
+                        Optional.ofNullable(entries.get(mid))
+                                .filter(m -> ContactMethodUtil.isSSHPushContactMethod(m.getContactMethod()))
+                                .isPresent()));
     }
 
     /**
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.webui.services.impl.test;
+
+import com.suse.manager.webui.services.impl.SaltSSHBatchExecutor;
+import com.suse.salt.netapi.results.Result;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link SaltSSHBatchExecutor}.
+ */
+public class SaltSSHBatchExecutorTest extends TestCase {
+
+    private SaltSSHBatchExecutor executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        executor = new SaltSSHBatchExecutor(4, 10, 1);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdown();
+        super.tearDown();
+    }
+
+    private static List<String> minions(String prefix, int count) {
+        List<String> minionIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            minionIds.add(prefix + i);
+        }
+        return minionIds;
+    }
+
+    private static Map<String, Result<String>> echo(List<String> minionIds) {
+        return minionIds.stream().collect(Collectors.toMap(id -> id, Result::success));
+    }
+
+    private static void await(CountDownLatch latch) {
+        await(latch, 10000);
+    }
+
+    private static void await(CountDownLatch latch, long millis) {
+        try {
+            latch.await(millis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void testCallReturnsAllMinions() throws Exception {
+        AtomicInteger batches = new AtomicInteger();
+        Map<String, List<String>> byProxy = new LinkedHashMap<>();
+        byProxy.put(SaltSSHBatchExecutor.DIRECT, minions("direct", 25));
+        byProxy.put("proxy1", minions("proxied", 15));
+
+        Map<String, Result<String>> results = executor.call(byProxy, minionIds -> {
+            assertTrue(minionIds.size() <= 10);
+            batches.incrementAndGet();
+            return echo(minionIds);
+        }, 0);
+
+        assertEquals(40, results.size());
+        assertEquals("direct3", results.get("direct3").result().get());
+        assertEquals(5, batches.get());
+    }
+
+    public void testProxyConcurrency() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Map<String, List<String>> byProxy = new HashMap<>();
+        byProxy.put("proxy1", minions("minion", 50));
+
+        executor.call(byProxy, minionIds -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            await(new CountDownLatch(1), 10);
+            running.decrementAndGet();
+            return echo(minionIds);
+        }, 0);
+
+        assertEquals(1, maxRunning.get());
+    }
+
+    public void testDirectMinionsUseOverallConcurrency() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(4);
+        Map<String, List<String>> byProxy = new HashMap<>();
+        byProxy.put(SaltSSHBatchExecutor.DIRECT, minions("minion", 50));
+
+        executor.call(byProxy, minionIds -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            await(started);
+            running.decrementAndGet();
+            return echo(minionIds);
+        }, 0);
+
+        assertEquals(4, maxRunning.get());
+    }
+
+    public void testResultsStreamPerBatch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, List<String>> byProxy = new HashMap<>();
+        byProxy.put("proxy1", minions("fast", 5));
+        byProxy.put("proxy2", minions("slow", 5));
+
+        Map<String, CompletableFuture<Result<String>>> futures = executor.submit(byProxy,
+                minionIds -> {
+                    if (minionIds.get(0).startsWith("slow")) {
+                        await(release);
+                    }
+                    return echo(minionIds);
+                }, 0);
+
+        assertEquals("fast0", futures.get("fast0").get(10, TimeUnit.SECONDS).result().get());
+        assertFalse(futures.get("slow0").isDone());
+        release.countDown();
+        assertEquals("slow0", futures.get("slow0").get(10, TimeUnit.SECONDS).result().get());
+    }
+
+    public void testDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, List<String>> byProxy = new HashMap<>();
+        byProxy.put(SaltSSHBatchExecutor.DIRECT, minions("minion", 3));
+
+        Map<String, CompletableFuture<Result<String>>> futures = executor.submit(byProxy,
+                minionIds -> {
+                    await(release);
+                    return echo(minionIds);
+                }, 1);
+
+        Result<String> result = futures.get("minion0").get(10, TimeUnit.SECONDS);
+        assertTrue(result.error().isPresent());
+        release.countDown();
+    }
+
+    public void testDeadlineSingleBatch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, List<String>> byProxy = new HashMap<>();
+        byProxy.put(SaltSSHBatchExecutor.DIRECT, minions("minion", 3));
+
+        Map<String, Result<String>> results = executor.call(byProxy, minionIds -> {
+            await(release);
+            return echo(minionIds);
+        }, 1);
+
+        assertTrue(results.get("minion0").error().isPresent());
+        release.countDown();
+    }
+}
@@ -17,6 +17,8 @@ package com.suse.manager.webui.services.test;
 import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.common.messaging.MessageAction;
+import com.redhat.rhn.common.messaging.MessageQueue;
 import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.config.ConfigChannel;
 import com.redhat.rhn.domain.config.ConfigurationFactory;
@@ -34,6 +36,7 @@ import com.redhat.rhn.testing.ChannelTestUtils;
 import com.redhat.rhn.testing.ConfigTestUtils;
 import com.redhat.rhn.testing.ServerTestUtils;
 import com.redhat.rhn.testing.TestUtils;
+import com.suse.manager.reactor.messaging.RegeneratePillarEventMessage;
 import com.suse.manager.webui.services.ConfigChannelSaltManager;
 import com.suse.manager.webui.services.SaltStateGeneratorService;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -46,6 +49,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static com.suse.manager.webui.utils.SaltFileUtils.defaultExtension;
@@ -254,6 +260,79 @@ public class SaltStateGeneratorServiceTest extends BaseTestCaseWithUser {
         assertEquals(proxyHostname, channelFromFile.get("host"));
     }
 
+    public void testGeneratePillars() throws Exception {
+        ServerGroup group = ServerGroupTest.createTestServerGroup(user.getOrg(), null);
+        Channel channel = ChannelTestUtils.createBaseChannel(user);
+        MinionServer minion1 = MinionServerFactoryTest.createTestMinionServer(user);
+        MinionServer minion2 = MinionServerFactoryTest.createTestMinionServer(user);
+        for (MinionServer minion : Arrays.asList(minion1, minion2)) {
+            ServerFactory.addServerToGroup(minion, group);
+            minion.addChannel(channel);
+            ServerFactory.save(minion);
+        }
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+
+        List<MinionServer> minions = SaltStateGeneratorService.INSTANCE.generatePillars(
+                Arrays.asList(minion1.getId(), minion2.getId()), true);
+        assertEquals(2, minions.size());
+
+        for (MinionServer minion : minions) {
+            Path filePath = tmpPillarRoot.resolve(
+                    PILLAR_DATA_FILE_PREFIX + "_" +
+                    minion.getMinionId() + "." +
+                    PILLAR_DATA_FILE_EXT);
+            assertTrue(Files.exists(filePath));
+
+            Map<String, Object> map;
+            try (FileInputStream fi = new FileInputStream(filePath.toFile())) {
+                map = new Yaml().loadAs(fi, Map.class);
+            }
+            List<Integer> groups = (List<Integer>) map.get("group_ids");
+            assertContains(groups.stream().map(id -> new Long((int) id))
+                    .collect(Collectors.toList()), group.getId());
+            Map<String, Object> channels = (Map<String, Object>) map.get("channels");
+            assertEquals(1, channels.size());
+            assertTrue(channels.containsKey(channel.getLabel()));
+        }
+    }
+
+    public void testDuplicatePillarRegenerationsCollapse() throws Exception {
+        CountDownLatch published = new CountDownLatch(1);
+        AtomicInteger events = new AtomicInteger();
+        MessageAction counter = msg -> {
+            events.incrementAndGet();
+            published.countDown();
+        };
+        MessageQueue.registerAction(counter, RegeneratePillarEventMessage.class);
+        try {
+            SaltStateGeneratorService.INSTANCE.schedulePillarRegeneration(Arrays.asList(-1L, -2L));
+            SaltStateGeneratorService.INSTANCE.schedulePillarRegeneration(Arrays.asList(-2L), true);
+            SaltStateGeneratorService.INSTANCE.schedulePillarRegeneration(Arrays.asList(-1L, -2L));
+
+            // nothing is taken while the scheduling transaction is running
+            Map<Boolean, List<Long>> pending =
+                    SaltStateGeneratorService.INSTANCE.takePendingPillarRegenerations();
+            assertTrue(pending.get(true).isEmpty());
+            assertTrue(pending.get(false).isEmpty());
+
+            HibernateFactory.rollbackTransaction();
+            pending = SaltStateGeneratorService.INSTANCE.takePendingPillarRegenerations();
+            assertEquals(Arrays.asList(-2L), pending.get(true));
+            assertEquals(Arrays.asList(-1L), pending.get(false));
+
+            pending = SaltStateGeneratorService.INSTANCE.takePendingPillarRegenerations();
+            assertTrue(pending.get(true).isEmpty());
+            assertTrue(pending.get(false).isEmpty());
+
+            assertTrue(published.await(10, TimeUnit.SECONDS));
+            assertEquals(1, events.get());
+        }
+        finally {
+            MessageQueue.deRegisterAction(counter, RegeneratePillarEventMessage.class);
+        }
+    }
+
     public void testGenerateServerConfigState() throws Exception {
         MinionServer minion = MinionServerFactoryTest.createTestMinionServer(user);
 
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.webui.utils;
+
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import javax.transaction.Synchronization;
+
+/**
+ * In-memory cache of the channel access tokens that were successfully validated by the
+ * download endpoint, so that serving a package to a client whose token was already
+ * checked needs neither a signature check nor a query.
+ *
+ * Entries must be invalidated when a token is revoked. As other processes (e.g.
+ * Taskomatic) can revoke tokens too, entries also expire after a short time, and never
+ * outlive the expiration of the token itself.
+ */
+public enum DownloadTokenCache {
+    INSTANCE;
+
+    /* Time after which a token is validated again */
+    private static final long TTL_MILLIS = 60_000L;
+
+    /* Maximum number of tokens kept */
+    private static final int MAX_ENTRIES = 50_000;
+
+    /**
+     * The claims of a validated token.
+     */
+    public static class ValidatedToken {
+        private final Long orgId;
+        private final Optional<List<String>> channels;
+        private final long expires;
+        private final Map<String, Boolean> accessibleChannels = new ConcurrentHashMap<>();
+
+        /**
+         * Standard constructor.
+         * @param orgIdIn the organization the token was issued by
+         * @param channelsIn the labels of the channels the token gives access to, empty
+         * if it gives access to all the channels of the organization
+         * @param tokenExpiresIn expiration time of the token in milliseconds since the
+         * epoch, {@link Long#MAX_VALUE} if it does not expire
+         */
+        public ValidatedToken(Long orgIdIn, Optional<List<String>> channelsIn, long tokenExpiresIn) {
+            this.orgId = orgIdIn;
+            this.channels = channelsIn;
+            this.expires = Math.min(System.currentTimeMillis() + TTL_MILLIS, tokenExpiresIn);
+        }
+
+        /**
+         * @return the organization the token was issued by
+         */
+        public Long getOrgId() {
+            return orgId;
+        }
+
+        /**
+         * @return the labels of the channels the token gives access to, empty if it
+         * gives access to all the channels of the organization
+         */
+        public Optional<List<String>> getChannels() {
+            return channels;
+        }
+
+        /**
+         * Returns whether the organization of the token can access a channel, checking
+         * it only once per channel.
+         * @param channel the channel label
+         * @param check the check to run when the channel was not checked yet
+         * @return true if the channel is accessible
+         */
+        public boolean isAccessible(String channel, Predicate<String> check) {
+            return accessibleChannels.computeIfAbsent(channel, check::test);
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expires;
+        }
+    }
+
+    private final Map<String, ValidatedToken> tokens = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a validated token, unless it expired.
+     * @param token the token
+     * @return the validated token, or empty if it has to be validated
+     */
+    public Optional<ValidatedToken> get(String token) {
+        ValidatedToken validated = tokens.get(token);
+        if (validated == null) {
+            return Optional.empty();
+        }
+        if (validated.isExpired(System.currentTimeMillis())) {
+            tokens.remove(token, validated);
+            return Optional.empty();
+        }
+        return Optional.of(validated);
+    }
+
+    /**
+     * Remembers a validated token.
+     * @param token the token
+     * @param validated its claims
+     */
+    public void put(String token, ValidatedToken validated) {
+        if (tokens.size() >= MAX_ENTRIES) {
+            long now = System.currentTimeMillis();
+            tokens.values().removeIf(entry -> entry.isExpired(now));
+            if (tokens.size() >= MAX_ENTRIES) {
+                tokens.clear();
+            }
+        }
+        tokens.put(token, validated);
+    }
+
+    /**
+     * Forgets a token. Tokens revoked in a transaction are forgotten with
+     * {@link #invalidateAfterTransaction(String)} instead.
+     * @param token the token
+     */
+    public void invalidate(String token) {
+        if (token != null) {
+            tokens.remove(token);
+        }
+    }
+
+    /**
+     * Forgets a token now and again once the current transaction is over, to be called
+     * whenever it is revoked in that transaction. Until the transaction commits, a
+     * concurrent download can still validate the token against the database and cache
+     * it again.
+     * @param token the token
+     */
+    public void invalidateAfterTransaction(String token) {
+        if (token == null) {
+            return;
+        }
+        invalidate(token);
+        if (HibernateFactory.inTransaction()) {
+            HibernateFactory.getSession().getTransaction().registerSynchronization(
+                    new Synchronization() {
+                        @Override
+                        public void beforeCompletion() {
+                            // nothing to do
+                        }
+
+                        @Override
+                        public void afterCompletion(int status) {
+                            invalidate(token);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Forgets all tokens.
+     */
+    public void invalidateAll() {
+        tokens.clear();
+    }
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collection;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -66,6 +67,20 @@ public class SaltRoster {
         data.put(host, hostData);
     }
 
+    /**
+     * Returns a roster with the given hosts of this roster only.
+     *
+     * @param hosts the hosts to keep
+     * @return the new roster
+     */
+    public SaltRoster subset(Collection<String> hosts) {
+        SaltRoster roster = new SaltRoster();
+        hosts.stream()
+                .filter(data::containsKey)
+                .forEach(host -> roster.data.put(host, data.get(host)));
+        return roster;
+    }
+
     /**
      * Persist this roster in a temporary file.
      *
@@ -20,6 +20,9 @@ import com.redhat.rhn.domain.scc.SCCRepository;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import com.suse.scc.model.SCCOrder;
 import com.suse.scc.model.SCCProduct;
 import com.suse.scc.model.SCCSubscription;
@@ -28,49 +31,100 @@ import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.log4j.Logger;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.lang.reflect.Type;
 import java.net.NoRouteToHostException;
-import java.util.LinkedList;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Class representation of a connection to SCC for issuing API requests.
+ *
+ * List calls fetch the first page of results, and then all of the remaining pages at
+ * the same time when the Link header tells how many there are. Every response is saved
+ * in the logging directory together with its validators (ETag and Last-Modified), so that
+ * the next request for the same page is conditional and an unchanged page is read back
+ * from the saved response instead of being downloaded again. The first page is always
+ * requested unconditionally, so that the number of pages is taken from a live response.
  */
 public class SCCWebClient implements SCCClient {
 
+    /** The logger. */
+    private static final Logger LOG = Logger.getLogger(SCCWebClient.class);
+
+    /** Parser of SCC responses, thread-safe. */
+    private static final Gson GSON = new GsonBuilder()
+            .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX")
+            .create();
+
+    /** Matches the page number in a page URL. */
+    private static final Pattern PAGE_PATTERN = Pattern.compile("(.*[?&]page=)(\\d+)(&.*)?");
+
+    /** Suffix of the files keeping the validators of a saved response. */
+    private static final String HEADERS_SUFFIX = ".headers";
+
+    /** Response headers saved next to a response. */
+    private static final String[] SAVED_HEADERS = {"ETag", "Last-Modified"};
+
     /** The config object. */
     private final SCCConfig config;
 
     /** Adapter object for handling HTTP requests. */
     private final HttpClientAdapter httpClient;
 
+    /** Number of pages fetched at the same time. */
+    private final int pageConcurrency;
+
+    /** Matches the next and last page URLs in a Link header. */
+    private final Pattern nextPattern;
+    private final Pattern lastPattern;
+
     /**
      *  Represents a partial result with a pointer to the next one.
      *
      * @param <T> the generic type
      */
-    private class PaginatedResult<T> {
+    private static class PaginatedResult<T> {
 
         /** The result. */
-        private final T result;
+        private final List<T> result;
 
         /** The next url. */
         private final String nextUrl;
 
+        /** The last url. */
+        private final String lastUrl;
+
         /**
          * Instantiates a new paginated result.
          *
          * @param resultIn the result in
          * @param nextUrlIn the next url in
+         * @param lastUrlIn the last url in
          */
-        PaginatedResult(T resultIn, String nextUrlIn) {
+        PaginatedResult(List<T> resultIn, String nextUrlIn, String lastUrlIn) {
             result = resultIn;
             nextUrl = nextUrlIn;
+            lastUrl = lastUrlIn;
         }
     }
 
@@ -80,7 +134,11 @@ public class SCCWebClient implements SCCClient {
      */
     public SCCWebClient(SCCConfig configIn) {
         config = configIn;
-        httpClient = new HttpClientAdapter();
+        pageConcurrency = ConfigDefaults.get().getSCCPageConcurrency();
+        httpClient = new HttpClientAdapter(pageConcurrency);
+        String quotedUrl = Pattern.quote(config.getUrl().toString());
+        nextPattern = Pattern.compile(".*<" + quotedUrl + "(.*?)>; rel=\"next\".*");
+        lastPattern = Pattern.compile(".*<" + quotedUrl + "(.*?)>; rel=\"last\".*");
     }
 
     /**
@@ -120,41 +178,137 @@ public class SCCWebClient implements SCCClient {
     }
 
     /**
-     * Perform a GET request and parse the result into list of given {@link Class}.
+     * Perform a GET request and parse the result into list of given {@link Class},
+     * following pagination.
      *
      * @param <T> the generic type
      * @param endpoint the GET request endpoint
-     * @param resultType the type of the result
-     * @return object of type given by resultType
+     * @param resultType the type of the list elements
+     * @return list of objects of type given by resultType
      * @throws SCCClientException if the request was not successful
      */
     private <T> List<T> getList(String endpoint, Type resultType)
             throws SCCClientException {
-        List<T> result = new LinkedList<T>();
-        PaginatedResult<List<T>> partialResult;
-        do {
-            partialResult = request(endpoint, SCCClientUtils.toListType(resultType), "GET");
+        PaginatedResult<T> partialResult = request(endpoint, resultType, "GET", false);
+        List<T> result = new ArrayList<>(partialResult.result);
+
+        // pages known from the first response can be requested conditionally: a
+        // "304 Not Modified" response does not need to tell whether more pages follow
+        List<String> pageUrls = getRemainingPageUrls(partialResult);
+        if (!pageUrls.isEmpty()) {
+            List<PaginatedResult<T>> pages = requestAll(pageUrls, resultType);
+            pages.forEach(page -> result.addAll(page.result));
+            // pages added since the first request are followed one by one
+            partialResult = pages.get(pages.size() - 1);
+        }
+
+        while (partialResult.nextUrl != null) {
+            partialResult = request(partialResult.nextUrl, resultType, "GET", false);
             result.addAll(partialResult.result);
-            endpoint = partialResult.nextUrl;
-        } while (partialResult.nextUrl != null);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the URLs of the pages following a first page, when they can be computed
+     * from its next and last page URLs.
+     *
+     * @param firstPage the first page
+     * @return the page URLs, or an empty list if they are not known
+     */
+    private List<String> getRemainingPageUrls(PaginatedResult<?> firstPage) {
+        List<String> result = new ArrayList<>();
+        if (firstPage.nextUrl == null || firstPage.lastUrl == null) {
+            return result;
+        }
+        Matcher next = PAGE_PATTERN.matcher(firstPage.nextUrl);
+        Matcher last = PAGE_PATTERN.matcher(firstPage.lastUrl);
+        if (!next.matches() || !last.matches() || !next.group(1).equals(last.group(1))) {
+            return result;
+        }
+        String suffix = next.group(3) != null ? next.group(3) : "";
+        int lastPage = Integer.parseInt(last.group(2));
+        for (int page = Integer.parseInt(next.group(2)); page <= lastPage; page++) {
+            result.add(next.group(1) + page + suffix);
+        }
         return result;
     }
 
     /**
-     * Perform HTTP request and parse the result into a given result type.
+     * Perform conditional GET requests for the given pages, at the same time if allowed.
+     *
+     * @param <T> the generic type
+     * @param endpoints the page endpoints
+     * @param resultType the type of the list elements
+     * @return the pages, in the order of the endpoints
+     * @throws SCCClientException if any of the requests was not successful
+     */
+    private <T> List<PaginatedResult<T>> requestAll(List<String> endpoints, Type resultType)
+            throws SCCClientException {
+        if (endpoints.size() == 1 || pageConcurrency == 1) {
+            List<PaginatedResult<T>> result = new ArrayList<>();
+            for (String endpoint : endpoints) {
+                result.add(request(endpoint, resultType, "GET", true));
+            }
+            return result;
+        }
+
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.min(pageConcurrency, endpoints.size()));
+        try {
+            List<Callable<PaginatedResult<T>>> calls = new ArrayList<>();
+            for (String endpoint : endpoints) {
+                calls.add(() -> request(endpoint, resultType, "GET", true));
+            }
+            List<PaginatedResult<T>> result = new ArrayList<>();
+            for (Future<PaginatedResult<T>> future : executor.invokeAll(calls)) {
+                result.add(future.get());
+            }
+            return result;
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof SCCClientException) {
+                throw (SCCClientException) e.getCause();
+            }
+            throw new SCCClientException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SCCClientException(e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Perform HTTP request and parse the result into a list of given result type.
      *
      * @param <T> the generic type
      * @param endpoint the endpoint
-     * @param resultType the type of the result
+     * @param resultType the type of the list elements
      * @param method the HTTP method to use
-     * @return object of type given by resultType
+     * @param conditional true to skip downloading a page that did not change since it
+     * was saved
+     * @return list of objects of type given by resultType
      * @throws SCCClientException in case of a problem
      */
-    private <T> PaginatedResult<T> request(String endpoint, Type resultType, String method)
-            throws SCCClientException {
+    private <T> PaginatedResult<T> request(String endpoint, Type resultType, String method,
+            boolean conditional) throws SCCClientException {
         Reader streamReader = null;
         HttpRequestBase request = SCCRequestFactory.getInstance().initRequest(
                 method, endpoint, config);
+        File logFile = new File(config.getLoggingDir(),
+                SCCClientUtils.getLogFilename(request.getURI(), config.getUsername()));
+        File headersFile = new File(logFile.getPath() + HEADERS_SUFFIX);
+        Properties savedHeaders = conditional ? loadHeaders(logFile, headersFile) :
+                new Properties();
+        if (savedHeaders.getProperty("ETag") != null) {
+            request.setHeader("If-None-Match", savedHeaders.getProperty("ETag"));
+        }
+        if (savedHeaders.getProperty("Last-Modified") != null) {
+            request.setHeader("If-Modified-Since", savedHeaders.getProperty("Last-Modified"));
+        }
         try {
             // Connect and parse the response on success
             HttpResponse response = httpClient.executeRequest(request,
@@ -162,28 +316,31 @@ public class SCCWebClient implements SCCClient {
 
             int responseCode = response.getStatusLine().getStatusCode();
 
+            Properties headers = new Properties();
+            for (String name : SAVED_HEADERS) {
+                Header header = response.getFirstHeader(name);
+                if (header != null) {
+                    headers.setProperty(name, header.getValue());
+                }
+            }
+
             if (responseCode == HttpStatus.SC_OK) {
+                // the saved response is being replaced
+                headersFile.delete();
                 streamReader = SCCClientUtils.getLoggingReader(request.getURI(), response,
                         config.getUsername(), config.getLoggingDir());
-
-                // Parse result type from JSON
-                Gson gson = new GsonBuilder()
-                        .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX")
-                        .create();
-                T result = gson.fromJson(streamReader, resultType);
-
-                String nextUrl = null;
-                Header linkHeader = response.getFirstHeader("Link");
-                if (linkHeader != null) {
-                    String linkHeaderValue = linkHeader.getValue();
-                    Matcher m = Pattern
-                            .compile(".*<" + config.getUrl() + "(.*?)>; rel=\"next\".*")
-                            .matcher(linkHeaderValue);
-                    if (m.matches()) {
-                        nextUrl = m.group(1);
-                    }
+                List<T> result = parseList(streamReader, resultType);
+                saveHeaders(headers, headersFile);
+                return paginatedResult(result, response);
+            }
+            else if (responseCode == HttpStatus.SC_NOT_MODIFIED && !savedHeaders.isEmpty()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Using unchanged " + logFile + " for " + request.getURI());
                 }
-                return new PaginatedResult<T>(result, nextUrl);
+                streamReader = new BufferedReader(new InputStreamReader(
+                        new FileInputStream(logFile), StandardCharsets.UTF_8));
+                List<T> result = parseList(streamReader, resultType);
+                return paginatedResult(result, response);
             }
             else {
                 // Request was not successful
@@ -204,4 +361,99 @@ public class SCCWebClient implements SCCClient {
             SCCClientUtils.closeQuietly(streamReader);
         }
     }
+
+    /**
+     * Parse a JSON array one element at a time.
+     *
+     * @param <T> the generic type
+     * @param reader the JSON reader
+     * @param resultType the type of the array elements
+     * @return the list of parsed elements
+     * @throws IOException if reading fails or the JSON is not an array
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> parseList(Reader reader, Type resultType) throws IOException {
+        TypeAdapter<T> adapter = (TypeAdapter<T>) GSON.getAdapter(TypeToken.get(resultType));
+        JsonReader jsonReader = new JsonReader(reader);
+        List<T> result = new ArrayList<>();
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            result.add(adapter.read(jsonReader));
+        }
+        jsonReader.endArray();
+        return result;
+    }
+
+    /**
+     * Build a partial result, getting the next and last page URLs from the Link header
+     * of the response.
+     *
+     * @param <T> the generic type
+     * @param result the parsed result
+     * @param response the HTTP response
+     * @return the partial result
+     */
+    private <T> PaginatedResult<T> paginatedResult(List<T> result, HttpResponse response) {
+        String nextUrl = null;
+        String lastUrl = null;
+        Header linkHeader = response.getFirstHeader("Link");
+        if (linkHeader != null) {
+            String linkHeaderValue = linkHeader.getValue();
+            Matcher m = nextPattern.matcher(linkHeaderValue);
+            if (m.matches()) {
+                nextUrl = m.group(1);
+            }
+            m = lastPattern.matcher(linkHeaderValue);
+            if (m.matches()) {
+                lastUrl = m.group(1);
+            }
+        }
+        return new PaginatedResult<T>(result, nextUrl, lastUrl);
+    }
+
+    /**
+     * Load the validators of a saved response.
+     *
+     * @param logFile the saved response
+     * @param headersFile the file containing the response headers
+     * @return the saved headers, empty if there is no usable saved response
+     */
+    private static Properties loadHeaders(File logFile, File headersFile) {
+        Properties result = new Properties();
+        if (!logFile.isFile() || !headersFile.isFile()) {
+            return result;
+        }
+        try (InputStream in = new FileInputStream(headersFile)) {
+            result.load(in);
+        }
+        catch (IOException e) {
+            LOG.warn("Could not read " + headersFile + ", ignoring it", e);
+            result.clear();
+        }
+        if (result.getProperty("ETag") == null &&
+                result.getProperty("Last-Modified") == null) {
+            result.clear();
+        }
+        return result;
+    }
+
+    /**
+     * Save the headers of a response that was fully read.
+     *
+     * @param headers the response headers
+     * @param headersFile the file to save to
+     */
+    private static void saveHeaders(Properties headers, File headersFile) {
+        if (headers.getProperty("ETag") == null &&
+                headers.getProperty("Last-Modified") == null) {
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(headersFile)) {
+            headers.store(out, null);
+        }
+        catch (IOException e) {
+            LOG.warn("Could not write " + headersFile, e);
+            headersFile.delete();
+        }
+    }
 }
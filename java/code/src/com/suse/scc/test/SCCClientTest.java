@@ -21,6 +21,7 @@ import com.redhat.rhn.testing.httpservermock.Responder;
 import com.suse.scc.client.SCCClient;
 import com.suse.scc.client.SCCClientException;
 import com.suse.scc.client.SCCClientFactory;
+import com.suse.scc.model.SCCOrder;
 import com.suse.scc.model.SCCProduct;
 import com.suse.scc.model.SCCSubscription;
 import com.suse.scc.model.SCCSystem;
@@ -32,6 +33,7 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -190,6 +192,118 @@ public class SCCClientTest extends TestCase {
         assertEquals("login1", sys.getLogin());
     }
 
+    /**
+     * Test for {@link SCCWebClient#listOrders()}: pages following the first one are
+     * requested directly and put together in order.
+     */
+    public void testListOrdersPaged() throws Exception {
+        HttpServerMock serverMock = new HttpServerMock();
+        URI uri = serverMock.getURI();
+        SCCRequester<List<SCCOrder>> requester = new SCCRequester<List<SCCOrder>>(uri) {
+            @Override
+            public List<SCCOrder> request(SCCClient scc) throws SCCClientException {
+                return scc.listOrders();
+            }
+        };
+        SCCServerStub stub = new SCCServerStub(uri);
+        List<SCCOrder> orders = serverMock.getResult(requester, stub);
+
+        // Assertions
+        assertEquals(3, orders.size());
+        assertEquals(101, orders.get(0).getOrderNumber());
+        assertEquals(102, orders.get(1).getOrderNumber());
+        assertEquals(103, orders.get(2).getOrderNumber());
+        assertEquals(new Long(203), orders.get(2).getOrderItems().get(0).getSccId());
+
+        List<String> requests = stub.getRequests();
+        assertEquals(3, requests.size());
+        assertEquals("/connect/organizations/orders", requests.get(0));
+        assertTrue(requests.contains("/connect/organizations/orders?page=2"));
+        assertTrue(requests.contains("/connect/organizations/orders?page=3"));
+    }
+
+    /**
+     * Test for {@link SCCWebClient#listRepositories()}: unchanged pages following the
+     * first one are not downloaded again.
+     */
+    public void testListRepositoriesNotModified() throws Exception {
+        File tmpDir = this.createTempDir();
+        try {
+            HttpServerMock firstMock = new HttpServerMock();
+            List<SCCRepository> first = listRepositories(firstMock,
+                    new SCCServerStub(firstMock.getURI()), tmpDir);
+            HttpServerMock secondMock = new HttpServerMock();
+            SCCServerStub stub = new SCCServerStub(secondMock.getURI());
+            List<SCCRepository> second = listRepositories(secondMock, stub, tmpDir);
+
+            // Assertions
+            assertEquals(2, stub.getRequests().size());
+            assertEquals(Collections.singletonList("/connect/organizations/repositories?page=2"),
+                    stub.getNotModified());
+            assertEquals(2, second.size());
+            assertEquals(first.get(0).getSCCId(), second.get(0).getSCCId());
+            assertEquals(new Long(1359), second.get(1).getSCCId());
+            assertEquals(first.get(1).getUrl(), second.get(1).getUrl());
+        }
+        finally {
+            this.removeTempDir(tmpDir);
+        }
+    }
+
+    /**
+     * Test for {@link SCCWebClient#listOrders()}: a page added after an unchanged last
+     * page is not missed.
+     */
+    public void testListOrdersNewPageAfterNotModified() throws Exception {
+        File tmpDir = this.createTempDir();
+        try {
+            HttpServerMock firstMock = new HttpServerMock();
+            List<SCCOrder> first = listOrders(firstMock,
+                    new SCCServerStub(firstMock.getURI(), 2), tmpDir);
+            HttpServerMock secondMock = new HttpServerMock();
+            SCCServerStub stub = new SCCServerStub(secondMock.getURI());
+            List<SCCOrder> second = listOrders(secondMock, stub, tmpDir);
+
+            // Assertions
+            assertEquals(2, first.size());
+            assertEquals(Collections.singletonList("/connect/organizations/orders?page=2"),
+                    stub.getNotModified());
+            assertEquals(3, second.size());
+            assertEquals(102, second.get(1).getOrderNumber());
+            assertEquals(103, second.get(2).getOrderNumber());
+        }
+        finally {
+            this.removeTempDir(tmpDir);
+        }
+    }
+
+    private List<SCCOrder> listOrders(HttpServerMock serverMock, SCCServerStub stub,
+            File loggingDir) throws Exception {
+        SCCRequester<List<SCCOrder>> requester =
+                new SCCRequester<List<SCCOrder>>(serverMock.getURI(),
+                        loggingDir.getAbsolutePath()) {
+                    @Override
+                    public List<SCCOrder> request(SCCClient scc) throws SCCClientException {
+                        return scc.listOrders();
+                    }
+                };
+        return serverMock.getResult(requester, stub);
+    }
+
+    private List<SCCRepository> listRepositories(HttpServerMock serverMock,
+            SCCServerStub stub, File loggingDir) throws Exception {
+        SCCRequester<List<SCCRepository>> requester =
+                new SCCRequester<List<SCCRepository>>(serverMock.getURI(),
+                        loggingDir.getAbsolutePath()) {
+                    @Override
+                    public List<SCCRepository> request(SCCClient scc)
+                        throws SCCClientException {
+                        return scc.listRepositories();
+                    }
+                };
+        return serverMock.getResult(requester, stub);
+    }
+
     // File-based configuration
     private File createTempDir() throws IOException {
         File tmpDir = new File(System.getProperty("java.io.tmpdir") +
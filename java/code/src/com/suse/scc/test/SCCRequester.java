@@ -42,8 +42,16 @@ public abstract class SCCRequester<T> implements Callable<T> {
      * @param uri the server URI
      */
     public SCCRequester(URI uri) {
-        SCCConfig config = new SCCConfig(uri, "user", "password", null, null,
-            System.getProperty("java.io.tmpdir"));
+        this(uri, System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Constructor saving responses to a given directory
+     * @param uri the server URI
+     * @param loggingDir the directory responses are saved to
+     */
+    public SCCRequester(URI uri, String loggingDir) {
+        SCCConfig config = new SCCConfig(uri, "user", "password", null, null, loggingDir);
         scc = new SCCWebClient(config);
     }
 
@@ -21,27 +21,56 @@ import org.apache.commons.io.IOUtils;
 
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import simple.http.Request;
 import simple.http.Response;
 
 /**
  * Service that simulates the SCC API to be used in test-cases.
+ *
+ * Lists are served in pages, page N being requested with a "page=N" query parameter
+ * and read from the test data file of the list with N appended to its name. Responses
+ * carry an ETag, and conditional requests for an unchanged page get a "304 Not Modified"
+ * response without a Link header.
  */
 public class SCCServerStub implements Responder {
 
     /** The uri. */
     private URI uri;
 
+    /** Maximum number of pages served for a list. */
+    private final int maxPages;
+
+    /** Requested URIs, in the order they were received. */
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+    /** URIs answered with "304 Not Modified". */
+    private final List<String> notModified = Collections.synchronizedList(new ArrayList<>());
+
     /**
      * Instantiates a new SCC server stub.
      *
      * @param uriIn the uri
      */
     public SCCServerStub(URI uriIn) {
+        this(uriIn, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Instantiates a new SCC server stub serving only the first pages of lists.
+     *
+     * @param uriIn the uri
+     * @param maxPagesIn the maximum number of pages served for a list
+     */
+    public SCCServerStub(URI uriIn, int maxPagesIn) {
         uri = uriIn;
+        maxPages = maxPagesIn;
     }
 
     /**
@@ -49,30 +78,71 @@ public class SCCServerStub implements Responder {
      */
     @Override
     public void respond(Request request, Response response) {
+        String requestUri = request.getURI();
+        requests.add(requestUri);
+
+        String path = requestUri;
+        int page = 1;
+        int queryStart = requestUri.indexOf("?page=");
+        if (queryStart >= 0) {
+            path = requestUri.substring(0, queryStart);
+            page = Integer.parseInt(requestUri.substring(queryStart + "?page=".length()));
+        }
+        String base = path.replaceFirst("/", "");
+        String filename = base + (page > 1 ? page : "") + ".json";
+        int lastPage = page;
+        while (lastPage < maxPages &&
+                getClass().getResource(base + (lastPage + 1) + ".json") != null) {
+            lastPage++;
+        }
+        String etag = "\"" + filename + "\"";
+
         // Set some respond headers
         response.set("Content-Type", "application/json");
         long time = System.currentTimeMillis();
         response.setDate("Date", time);
         response.setDate("Last-Modified", time);
-        String path = request.getURI();
-        if (!path.endsWith("2")) {
-            response.set("Link",
-                    "<" + uri + path + "2>; rel=\"last\", " +
-                    "<" + uri + path + "2>; rel=\"next\"");
-        }
+        response.set("ETag", etag);
 
-        // Send file content
         try {
-            String filename = path.replaceFirst("/", "") + ".json";
-            URL url = TestUtils.findTestData(filename);
-
-            InputStream in = url.openStream();
             PrintStream out = response.getPrintStream();
-            IOUtils.copy(in, out);
+            if (etag.equals(request.getValue("If-None-Match"))) {
+                notModified.add(requestUri);
+                response.setCode(HttpURLConnection.HTTP_NOT_MODIFIED);
+            }
+            else {
+                if (page < lastPage) {
+                    response.set("Link",
+                            "<" + uri + path + "?page=" + lastPage + ">; rel=\"last\", " +
+                            "<" + uri + path + "?page=" + (page + 1) + ">; rel=\"next\"");
+                }
+                // Send file content
+                URL url = TestUtils.findTestData(filename);
+                InputStream in = url.openStream();
+                IOUtils.copy(in, out);
+            }
             out.close();
         }
         catch (Exception e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Gets the requested URIs.
+     *
+     * @return the URIs, in the order they were received
+     */
+    public List<String> getRequests() {
+        return new ArrayList<>(requests);
+    }
+
+    /**
+     * Gets the URIs answered with "304 Not Modified".
+     *
+     * @return the URIs
+     */
+    public List<String> getNotModified() {
+        return new ArrayList<>(notModified);
+    }
 }
@@ -98,6 +98,7 @@ Requires:       spark-template-jade
 Requires:       statistics
 Requires:       sudo
 Requires:       tomcat-taglibs-standard
+Requires:       zstd-jni
 BuildRequires:  apache-commons-lang
 BuildRequires:  apache-commons-lang3
 BuildRequires:  classmate
@@ -125,6 +126,7 @@ BuildRequires:  salt-netapi-client >= 0.14.0
 BuildRequires:  spark-core
 BuildRequires:  spark-template-jade
 BuildRequires:  velocity
+BuildRequires:  zstd-jni
 %else
 Requires:       cobbler20
 Requires:       jakarta-taglibs-standard
@@ -940,6 +942,7 @@ fi
 %{jardir}/spark-core.jar
 %{jardir}/spark-template-jade.jar
 %{jardir}/simpleclient*.jar
+%{jardir}/zstd-jni.jar
 
 # Hibernate and related
 %{jardir}/hibernate-core-5.jar
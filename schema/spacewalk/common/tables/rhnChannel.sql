@@ -46,6 +46,9 @@ CREATE TABLE rhnChannel
     end_of_life         timestamp with local time zone,
     checksum_type_id    NUMBER CONSTRAINT rhn_channel_checksum_fk
                                 REFERENCES rhnChecksumType(id),
+    repodata_compression VARCHAR2(16)
+                            CONSTRAINT rhn_channel_rc_ck
+                                CHECK (repodata_compression in ('gzip', 'parallel_gzip', 'zstd')),
     receiving_updates   CHAR(1)
                             DEFAULT ('Y') NOT NULL
                             CONSTRAINT rhn_channel_ru_ck
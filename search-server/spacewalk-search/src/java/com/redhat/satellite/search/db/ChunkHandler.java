@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+
+package com.redhat.satellite.search.db;
+
+import java.util.List;
+
+/**
+ * Callback interface for queries loaded in chunks
+ * @param <T> type returned by query
+ * @param <E> exception thrown by the handler
+ *
+ * @version $Rev$
+ */
+public interface ChunkHandler<T, E extends Exception> {
+
+    /**
+     * Called for each chunk of results, in the order of the query
+     * @param chunk results
+     * @throws E something bad happened
+     */
+    void handleChunk(List<T> chunk) throws E;
+}
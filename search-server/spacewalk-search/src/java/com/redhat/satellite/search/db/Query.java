@@ -15,6 +15,8 @@
 
 package com.redhat.satellite.search.db;
 
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSession;
 
 import java.sql.SQLException;
@@ -67,6 +69,67 @@ public class Query<T> {
         return retval;
     }
 
+    /**
+     * Load objects from query in chunks, without keeping all of them in memory. The
+     * statement should set a fetchSize for the rows to be streamed from the database.
+     * @param param query param
+     * @param chunkSize maximum number of objects per chunk
+     * @param handler called with each chunk
+     * @param <E> exception thrown by the handler
+     * @throws SQLException something bad happened
+     * @throws E the handler failed, no further chunk was loaded
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Exception> void loadChunks(Object param, final int chunkSize,
+            final ChunkHandler<T, E> handler) throws SQLException, E {
+        final List<T> chunk = new ArrayList<T>(chunkSize);
+        try {
+            session.select(queryName, param, new ResultHandler() {
+                public void handleResult(ResultContext context) {
+                    chunk.add((T)context.getResultObject());
+                    if (chunk.size() == chunkSize) {
+                        handleChunk(handler, chunk);
+                        chunk.clear();
+                    }
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            // MyBatis wraps what is thrown by the result handler
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof ChunkHandlerException) {
+                    throw (E)t.getCause();
+                }
+            }
+            throw e;
+        }
+        if (!chunk.isEmpty()) {
+            handler.handleChunk(chunk);
+        }
+    }
+
+    private static <T, E extends Exception> void handleChunk(ChunkHandler<T, E> handler,
+            List<T> chunk) {
+        try {
+            handler.handleChunk(chunk);
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new ChunkHandlerException(e);
+        }
+    }
+
+    /**
+     * Carries an exception of a chunk handler out of MyBatis' result handler
+     */
+    private static class ChunkHandlerException extends RuntimeException {
+        ChunkHandlerException(Exception cause) {
+            super(cause);
+        }
+    }
+
     /**
      * Load single object from query
      * @param param query apram
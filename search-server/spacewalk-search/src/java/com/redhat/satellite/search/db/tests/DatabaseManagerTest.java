@@ -1,5 +1,6 @@
 package com.redhat.satellite.search.db.tests;
 
+import com.redhat.satellite.search.db.ChunkHandler;
 import com.redhat.satellite.search.db.DatabaseManager;
 import com.redhat.satellite.search.db.Query;
 import com.redhat.satellite.search.db.models.RhnPackage;
@@ -7,6 +8,7 @@ import com.redhat.satellite.search.tests.BaseTestCase;
 import com.redhat.satellite.search.tests.TestUtil;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class DatabaseManagerTest extends BaseTestCase {
@@ -36,6 +38,23 @@ public class DatabaseManagerTest extends BaseTestCase {
         assertTrue(results.size() > 0);
     }
 
+    public void testChunkQuery() throws SQLException {
+        Query<RhnPackage> query = dm.getQuery("listPackagesFromId");
+        final List<RhnPackage> results = query.loadList((long) 0);
+        query = dm.getQuery("listPackagesFromId");
+        final List<RhnPackage> loaded = new ArrayList<RhnPackage>();
+        query.loadChunks((long) 0, 10, new ChunkHandler<RhnPackage, SQLException>() {
+            public void handleChunk(List<RhnPackage> chunk) {
+                assertTrue(chunk.size() == 10 ||
+                        loaded.size() + chunk.size() == results.size());
+                loaded.addAll(chunk);
+            }
+        });
+        assertEquals(results.size(), loaded.size());
+        assertEquals(results.get(results.size() - 1).getId(),
+                loaded.get(loaded.size() - 1).getId());
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     protected Class[] getComponentClasses() {
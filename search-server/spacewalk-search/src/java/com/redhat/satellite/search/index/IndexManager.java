@@ -25,6 +25,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.fs.FileSystem;
@@ -66,6 +67,8 @@ import com.redhat.satellite.search.rpc.handlers.IndexHandler;
  */
 public class IndexManager {
 
+    /** number of documents indexed between two commits of an open writer */
+    public static final int COMMIT_INTERVAL = 100;
     private static Logger log = Logger.getLogger(IndexManager.class);
     private String indexWorkDir;
     private int maxHits;
@@ -83,6 +86,9 @@ public class IndexManager {
     private Map<String, String> docLocaleLookUp = new TreeMap<String, String>
                                                                                                 (String.CASE_INSENSITIVE_ORDER);
     private Map<String, FetchedSegments> docSegments;
+    private SearcherManager searcherManager = new SearcherManager();
+    // writers opened by indexing runs, by index name
+    private Map<String, IndexWriter> writers = new ConcurrentHashMap<String, IndexWriter>();
     /**
      * Constructor
      *
@@ -154,12 +160,11 @@ public class IndexManager {
     public List<Result> search(String indexName, String query, String lang,
             boolean isFineGrained)
             throws IndexingException, QueryParseException {
-        IndexSearcher searcher = null;
-        IndexReader reader = null;
+        SearcherManager.SharedSearcher shared = null;
         List<Result> retval = null;
         try {
-            reader = getIndexReader(indexName, lang);
-            searcher = getIndexSearcher(indexName, lang);
+            shared = searcherManager.acquire(getIndexPath(indexName, lang));
+            IndexSearcher searcher = shared.getSearcher();
             QueryParser qp = getQueryParser(indexName, lang, isFineGrained);
             Query q = qp.parse(query);
             if (log.isDebugEnabled()) {
@@ -173,7 +178,7 @@ public class IndexManager {
             Set<Term> queryTerms = null;
             try {
                 queryTerms = new HashSet<Term>();
-                Query newQ = q.rewrite(reader);
+                Query newQ = q.rewrite(searcher.getIndexReader());
                 newQ.extractTerms(queryTerms);
             }
             catch (Exception e) {
@@ -200,11 +205,8 @@ public class IndexManager {
         }
         finally {
             try {
-                if (searcher != null) {
-                    searcher.close();
-                }
-                if (reader != null) {
-                    reader.close();
+                if (shared != null) {
+                    searcherManager.release(shared);
                 }
             }
             catch (IOException ex) {
@@ -215,6 +217,76 @@ public class IndexManager {
     }
 
 
+    /**
+     * Open a writer for an index, to be used by all the changes to the index until
+     * {@link #closeWriter(String)} is called. Changes are only visible to searches
+     * after {@link #commitWriter(String)} or {@link #closeWriter(String)}.
+     *
+     * @param indexName index to use
+     * @param lang language.
+     * @throws IndexingException something went wrong opening the writer
+     */
+    public void openWriter(String indexName, String lang)
+        throws IndexingException {
+        try {
+            IndexWriter previous = writers.remove(indexName);
+            if (previous != null) {
+                log.warn("Writer for <" + indexName + "> was not closed, closing it now");
+                previous.close();
+            }
+            writers.put(indexName, getIndexWriter(indexName, lang));
+        }
+        catch (IOException e) {
+            throw new IndexingException(e);
+        }
+    }
+
+    /**
+     * Commit the changes made with the open writer of an index.
+     *
+     * @param indexName index to use
+     * @throws IndexingException something went wrong committing the changes
+     */
+    public void commitWriter(String indexName)
+        throws IndexingException {
+        IndexWriter writer = writers.get(indexName);
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        }
+        catch (IOException e) {
+            throw new IndexingException(e);
+        }
+    }
+
+    /**
+     * Commit the changes made with the open writer of an index and close it.
+     *
+     * @param indexName index to use
+     * @throws IndexingException something went wrong closing the writer
+     */
+    public void closeWriter(String indexName)
+        throws IndexingException {
+        IndexWriter writer = writers.remove(indexName);
+        if (writer == null) {
+            return;
+        }
+        try {
+            try {
+                writer.close();
+            }
+            finally {
+                // unlock it if it is locked.
+                unlockIndex(indexName);
+            }
+        }
+        catch (IOException e) {
+            throw new IndexingException(e);
+        }
+    }
+
     /**
      * Create an empty index if it exists
      *
@@ -263,6 +335,17 @@ public class IndexManager {
     public void addToIndex(String indexName, Document doc, String lang)
         throws IndexingException {
 
+        IndexWriter openWriter = writers.get(indexName);
+        if (openWriter != null) {
+            try {
+                openWriter.addDocument(doc);
+            }
+            catch (IOException e) {
+                throw new IndexingException(e);
+            }
+            return;
+        }
+
         try {
             IndexWriter writer = getIndexWriter(indexName, lang);
             try {
@@ -299,6 +382,18 @@ public class IndexManager {
     public void addUniqueToIndex(String indexName, Document doc,
             String uniqueField, String lang)
         throws IndexingException {
+        IndexWriter openWriter = writers.get(indexName);
+        if (openWriter != null) {
+            // the writer replaces the documents, no need to look for them
+            try {
+                openWriter.deleteDocuments(new Term(uniqueField, doc.get(uniqueField)));
+            }
+            catch (IOException e) {
+                throw new IndexingException(e);
+            }
+            addToIndex(indexName, doc, lang);
+            return;
+        }
         IndexReader reader = null;
         int numFound = 0;
         try {
@@ -345,6 +440,16 @@ public class IndexManager {
         log.info("Removing <" + indexName + "> " + uniqueField + ":" +
                 objectId);
         Term t = new Term(uniqueField, objectId);
+        IndexWriter openWriter = writers.get(indexName);
+        if (openWriter != null) {
+            try {
+                openWriter.deleteDocuments(t);
+            }
+            catch (IOException e) {
+                throw new IndexingException(e);
+            }
+            return;
+        }
         IndexReader reader;
         try {
             reader = getIndexReader(indexName, IndexHandler.DEFAULT_LANG);
@@ -395,14 +500,7 @@ public class IndexManager {
 
     private IndexReader getIndexReader(String indexName, String locale)
             throws CorruptIndexException, IOException {
-        String path = "";
-        if (indexName.compareTo(BuilderFactory.DOCS_TYPE) == 0) {
-            path = indexWorkDir + File.separator +
-                getDocIndexPath(locale);
-        }
-        else {
-            path = indexWorkDir + indexName;
-        }
+        String path = getIndexPath(indexName, locale);
         log.info("IndexManager::getIndexReader(" + indexName + ", " + locale +
                 ") path = " + path);
         File f = new File(path);
@@ -410,20 +508,11 @@ public class IndexManager {
         return retval;
     }
 
-    private IndexSearcher getIndexSearcher(String indexName, String locale)
-            throws CorruptIndexException, IOException {
-        String path = "";
+    private String getIndexPath(String indexName, String locale) throws IOException {
         if (indexName.compareTo(BuilderFactory.DOCS_TYPE) == 0) {
-            path = indexWorkDir + File.separator +
-                getDocIndexPath(locale);
+            return indexWorkDir + File.separator + getDocIndexPath(locale);
         }
-        else {
-            path = indexWorkDir + indexName;
-        }
-        log.info("IndexManager::getIndexSearcher(" + indexName + ", " + locale +
-                ") path = " + path);
-        IndexSearcher retval = new IndexSearcher(path);
-        return retval;
+        return indexWorkDir + indexName;
     }
 
     private QueryParser getQueryParser(String indexName, String lang,
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+
+package com.redhat.satellite.search.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.FSDirectory;
+
+/**
+ * Keeps one shared, open searcher per index directory. A searcher is reopened only
+ * when its index was committed to since it was opened, and the searcher it replaces
+ * is closed once the searches still using it are done.
+ *
+ * @version $Rev$
+ */
+class SearcherManager {
+
+    private static Logger log = Logger.getLogger(SearcherManager.class);
+
+    // current searcher of each index directory, guarded by this
+    private Map<String, SharedSearcher> searchers = new HashMap<String, SharedSearcher>();
+
+    /**
+     * A searcher along with the number of its users, the manager being one of them
+     * as long as it is the current searcher of its index.
+     */
+    static class SharedSearcher {
+        private IndexReader reader;
+        private IndexSearcher searcher;
+        private int refs = 1;
+
+        SharedSearcher(IndexReader readerIn) {
+            reader = readerIn;
+            searcher = new IndexSearcher(readerIn);
+        }
+
+        /**
+         * @return the searcher
+         */
+        IndexSearcher getSearcher() {
+            return searcher;
+        }
+    }
+
+    /**
+     * Returns the current searcher of an index, opening a new one if the index changed.
+     * Every searcher returned must be given back with {@link #release(SharedSearcher)}.
+     * @param path path of the index directory
+     * @return the searcher
+     * @throws IOException if the index could not be opened
+     */
+    synchronized SharedSearcher acquire(String path) throws IOException {
+        SharedSearcher current = searchers.get(path);
+        if (current == null || !current.reader.isCurrent()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Opening searcher for " + path);
+            }
+            SharedSearcher fresh = new SharedSearcher(
+                    IndexReader.open(FSDirectory.getDirectory(new File(path))));
+            searchers.put(path, fresh);
+            if (current != null) {
+                release(current);
+            }
+            current = fresh;
+        }
+        current.refs++;
+        return current;
+    }
+
+    /**
+     * Gives back a searcher, closing it if it was replaced and nobody uses it anymore.
+     * @param shared the searcher
+     * @throws IOException if the searcher could not be closed
+     */
+    synchronized void release(SharedSearcher shared) throws IOException {
+        shared.refs--;
+        if (shared.refs == 0) {
+            try {
+                shared.searcher.close();
+            }
+            finally {
+                shared.reader.close();
+            }
+        }
+    }
+}
@@ -60,6 +60,32 @@ public class IndexManagerTest extends BaseTestCase {
         assertTrue(results.size() >= 1);
     }
 
+    public void testQueryingWithOpenWriter()
+        throws IndexingException, QueryParseException {
+
+        String index = "foo";
+        Map<String, String> meta = new HashMap<String, String>();
+        meta.put("name", "bar");
+        meta.put("desc", "A really nice bar");
+        meta.put("size", "12345");
+        meta.put("dateCreated", "7/13/2007");
+        DocumentBuilder pdb = new PackageDocumentBuilder();
+        Document doc = pdb.buildDocument(new Long(456), meta);
+        indexManager.createIndex(index, "en");
+        indexManager.openWriter(index, "en");
+        try {
+            int before = indexManager.search(index, "name:bar", "en").size();
+            indexManager.addToIndex(index, doc, "en");
+            assertEquals(before, indexManager.search(index, "name:bar", "en").size());
+            indexManager.commitWriter(index);
+            assertEquals(before + 1,
+                    indexManager.search(index, "name:bar", "en").size());
+        }
+        finally {
+            indexManager.closeWriter(index);
+        }
+    }
+
 
     public void StillNeedsWork_testQueryDocs()
         throws IOException, IndexingException, QueryParseException {
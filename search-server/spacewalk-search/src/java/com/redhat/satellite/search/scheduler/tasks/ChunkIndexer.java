@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+
+package com.redhat.satellite.search.scheduler.tasks;
+
+import com.redhat.satellite.search.db.ChunkHandler;
+import com.redhat.satellite.search.index.IndexManager;
+import com.redhat.satellite.search.index.IndexingException;
+
+import org.apache.log4j.Logger;
+import org.quartz.JobExecutionException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Indexes the chunks of records loaded by an index task. The records of a chunk are
+ * indexed in parallel on a pool of threads shared by all the index tasks, then the
+ * chunk is committed and the last record of the chunk is stored as indexed.
+ * @param <T> type of the records
+ *
+ * @version $Rev$
+ */
+abstract class ChunkIndexer<T> implements ChunkHandler<T, JobExecutionException> {
+
+    /** number of records loaded, indexed and committed at once */
+    static final int CHUNK_SIZE = IndexManager.COMMIT_INTERVAL;
+
+    private static Logger log = Logger.getLogger(ChunkIndexer.class);
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                private int count = 0;
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "indexer-" + (++count));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    private IndexManager indexManager;
+    private String indexName;
+
+    /**
+     * Constructor
+     * @param indexManagerIn index manager, with a writer open on the index
+     * @param indexNameIn index to commit
+     */
+    ChunkIndexer(IndexManager indexManagerIn, String indexNameIn) {
+        indexManager = indexManagerIn;
+        indexName = indexNameIn;
+    }
+
+    /**
+     * Builds the document of a record and adds it to the index. Called concurrently
+     * for the records of a chunk.
+     * @param record the record
+     * @throws IndexingException something went wrong indexing the record
+     */
+    protected abstract void indexRecord(T record) throws IndexingException;
+
+    /**
+     * Stores the last record indexed, called once its chunk is committed
+     * @param record last record of the chunk
+     * @throws SQLException something went wrong storing the record
+     */
+    protected abstract void updateLastRecord(T record) throws SQLException;
+
+    /**
+     * {@inheritDoc}
+     */
+    public void handleChunk(List<T> chunk) throws JobExecutionException {
+        try {
+            indexAll(chunk);
+            indexManager.commitWriter(indexName);
+            updateLastRecord(chunk.get(chunk.size() - 1));
+            log.info("Indexed " + chunk.size() + " records in index <" + indexName + ">");
+        }
+        catch (SQLException e) {
+            throw new JobExecutionException(e);
+        }
+        catch (IndexingException e) {
+            throw new JobExecutionException(e);
+        }
+    }
+
+    private void indexAll(List<T> chunk) throws IndexingException {
+        List<Future<Object>> futures = new ArrayList<Future<Object>>(chunk.size());
+        for (final T record : chunk) {
+            futures.add(EXECUTOR.submit(new Callable<Object>() {
+                public Object call() throws IndexingException {
+                    indexRecord(record);
+                    return null;
+                }
+            }));
+        }
+        // wait for every record, none may still be indexed when the chunk is committed
+        Throwable failure = null;
+        for (Future<Object> future : futures) {
+            try {
+                future.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            }
+            catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure instanceof IndexingException) {
+            throw (IndexingException)failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException)failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error)failure;
+        }
+        if (failure != null) {
+            throw new IndexingException(failure);
+        }
+    }
+}
@@ -36,7 +36,6 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -54,30 +53,29 @@ public abstract class GenericIndexTask implements StatefulJob {
     public void execute(JobExecutionContext ctx)
         throws JobExecutionException {
         JobDataMap jobData = ctx.getJobDetail().getJobDataMap();
-        DatabaseManager databaseManager =
+        final DatabaseManager databaseManager =
             (DatabaseManager)jobData.get("databaseManager");
-        IndexManager indexManager =
+        final IndexManager indexManager =
             (IndexManager)jobData.get("indexManager");
 
         try {
             //try to create the index first incase we never actually
             //   have any records (BZ 537502)
             indexManager.createIndex(getIndexName(), lang);
-            List<GenericRecord> data = getRecords(databaseManager);
-            int count = 0;
-            log.info(super.getClass().toString() + "found [" +
-                    data.size() + "] items to index");
-            for (Iterator<GenericRecord> iter = data.iterator(); iter.hasNext();) {
-                GenericRecord current = iter.next();
-                indexRecord(indexManager, current);
-                count++;
-                if (count == 10 || !iter.hasNext()) {
+            indexManager.openWriter(getIndexName(), lang);
+            indexRecords(databaseManager, new ChunkIndexer<GenericRecord>(indexManager,
+                    getIndexName()) {
+                protected void indexRecord(GenericRecord data) throws IndexingException {
+                    GenericIndexTask.this.indexRecord(indexManager, data);
+                }
+
+                protected void updateLastRecord(GenericRecord data) throws SQLException {
                     if (System.getProperties().get("isTesting") == null) {
-                        updateLastRecord(databaseManager, current.getId());
+                        GenericIndexTask.this.updateLastRecord(databaseManager,
+                                data.getId());
                     }
-                    count = 0;
                 }
-            }
+            });
             //
             // Check to see if any records have been deleted from database, so
             // we should delete from our indexes.
@@ -93,6 +91,14 @@ public abstract class GenericIndexTask implements StatefulJob {
         catch (IndexingException e) {
             throw new JobExecutionException(e);
         }
+        finally {
+            try {
+                indexManager.closeWriter(getIndexName());
+            }
+            catch (IndexingException e) {
+                log.error("Unable to close the index writer", e);
+            }
+        }
     }
     /**
      * @param databaseManager
@@ -148,12 +154,12 @@ public abstract class GenericIndexTask implements StatefulJob {
 
     /**
      * @param databaseManager
-     * @return
+     * @param indexer
      */
-    private List<GenericRecord> getRecords(DatabaseManager databaseManager)
-        throws SQLException {
+    private void indexRecords(DatabaseManager databaseManager,
+            ChunkIndexer<GenericRecord> indexer)
+        throws SQLException, JobExecutionException {
         // What was the last object id we indexed?
-        List<GenericRecord> retval = null;
         Query<Long> query = databaseManager.getQuery(getQueryLastRecord());
         Long sid = null;
         try {
@@ -186,14 +192,11 @@ public abstract class GenericIndexTask implements StatefulJob {
             params.put("last_modified", lastRun);
             log.info("GenericIndexTask<" + super.getClass().toString() +
                     " last processed id = " + sid + ", lastRun was " + lastRun);
-            retval = srvrQuery.loadList(params);
-            log.info("GenericIndexTask<" + super.getClass().toString() +
-                    " number of results returned = " + retval.size());
+            srvrQuery.loadChunks(params, ChunkIndexer.CHUNK_SIZE, indexer);
         }
         finally {
             srvrQuery.close();
         }
-        return retval;
     }
 
     /**
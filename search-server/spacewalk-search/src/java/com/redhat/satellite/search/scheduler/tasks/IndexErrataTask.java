@@ -33,8 +33,6 @@ import org.quartz.JobExecutionException;
 import java.sql.SQLException;
 import java.util.Calendar;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 
 
@@ -52,27 +50,25 @@ public class IndexErrataTask implements Job {
     public void execute(JobExecutionContext ctx)
         throws JobExecutionException {
         JobDataMap jobData = ctx.getJobDetail().getJobDataMap();
-        DatabaseManager databaseManager =
+        final DatabaseManager databaseManager =
             (DatabaseManager)jobData.get("databaseManager");
-        IndexManager indexManager =
+        final IndexManager indexManager =
             (IndexManager)jobData.get("indexManager");
 
         try {
+            indexManager.openWriter("errata", lang);
+            indexNewErrata(databaseManager, new ChunkIndexer<Errata>(indexManager,
+                    "errata") {
+                protected void indexRecord(Errata errata) throws IndexingException {
+                    indexErrata(indexManager, errata);
+                }
 
-            List<Errata> errata = getErrata(databaseManager);
-            int count = 0;
-            log.info("found [" + errata.size() + "] errata to index");
-            for (Iterator<Errata> iter = errata.iterator(); iter.hasNext();) {
-                Errata current = iter.next();
-                indexErrata(indexManager, current);
-                count++;
-                if (count == 10 || !iter.hasNext()) {
+                protected void updateLastRecord(Errata errata) throws SQLException {
                     if (System.getProperties().get("isTesting") == null) {
-                        updateLastErrataId(databaseManager, current.getId());
+                        updateLastErrataId(databaseManager, errata.getId());
                     }
-                    count = 0;
                 }
-            }
+            });
         }
         catch (SQLException e) {
             throw new JobExecutionException(e);
@@ -80,6 +76,14 @@ public class IndexErrataTask implements Job {
         catch (IndexingException e) {
             throw new JobExecutionException(e);
         }
+        finally {
+            try {
+                indexManager.closeWriter("errata");
+            }
+            catch (IndexingException e) {
+                log.error("Unable to close the index writer", e);
+            }
+        }
     }
     /**
      * @param databaseManager
@@ -148,12 +152,12 @@ public class IndexErrataTask implements Job {
 
     /**
      * @param databaseManager
-     * @return
+     * @param indexer
      */
-    private List<Errata> getErrata(DatabaseManager databaseManager)
-        throws SQLException {
+    private void indexNewErrata(DatabaseManager databaseManager,
+            ChunkIndexer<Errata> indexer)
+        throws SQLException, JobExecutionException {
 
-        List<Errata> retval = null;
         Query<Long> query = databaseManager.getQuery("getLastErrataId");
         Long eid = null;
         try {
@@ -165,14 +169,14 @@ public class IndexErrataTask implements Job {
         if (eid == null) {
             eid = new Long(0);
         }
+        log.info("indexing errata from id " + eid);
         Query<Errata> errataQuery = databaseManager.getQuery("listErrataFromId");
         try {
-            retval = errataQuery.loadList(eid);
+            errataQuery.loadChunks(eid, ChunkIndexer.CHUNK_SIZE, indexer);
         }
         finally {
             errataQuery.close();
         }
-        return retval;
     }
 
 }
@@ -34,8 +34,6 @@ import org.quartz.JobExecutionException;
 import java.sql.SQLException;
 import java.util.Calendar;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -52,29 +50,28 @@ public class IndexPackagesTask implements Job {
      */
     public void execute(JobExecutionContext ctx) throws JobExecutionException {
         JobDataMap jobData = ctx.getJobDetail().getJobDataMap();
-        DatabaseManager databaseManager =
+        final DatabaseManager databaseManager =
             (DatabaseManager)jobData.get("databaseManager");
-        IndexManager indexManager =
+        final IndexManager indexManager =
             (IndexManager)jobData.get("indexManager");
 
         try {
             if (System.getProperties().get("isTesting") != null) {
                 cleanLastPackage(databaseManager);
             }
-            List<RhnPackage> packages = getPackages(databaseManager);
-            int count = 0;
-            log.info("found [" + packages.size() + "] packages to index");
-            for (Iterator<RhnPackage> iter = packages.iterator(); iter.hasNext();) {
-                RhnPackage current = iter.next();
-                indexPackage(indexManager, current);
-                count++;
-                if (count == 10 || !iter.hasNext()) {
+            indexManager.openWriter("package", lang);
+            indexPackages(databaseManager, new ChunkIndexer<RhnPackage>(indexManager,
+                    "package") {
+                protected void indexRecord(RhnPackage pkg) throws IndexingException {
+                    indexPackage(indexManager, pkg);
+                }
+
+                protected void updateLastRecord(RhnPackage pkg) throws SQLException {
                     if (System.getProperties().get("isTesting") == null) {
-                        updateLastPackageId(databaseManager, current.getId());
+                        updateLastPackageId(databaseManager, pkg.getId());
                     }
-                    count = 0;
                 }
-            }
+            });
         }
         catch (SQLException e) {
             throw new JobExecutionException(e);
@@ -82,6 +79,14 @@ public class IndexPackagesTask implements Job {
         catch (IndexingException e) {
             throw new JobExecutionException(e);
         }
+        finally {
+            try {
+                indexManager.closeWriter("package");
+            }
+            catch (IndexingException e) {
+                log.error("Unable to close the index writer", e);
+            }
+        }
     }
 
     private void cleanLastPackage(DatabaseManager databaseManager) throws SQLException {
@@ -137,9 +142,9 @@ public class IndexPackagesTask implements Job {
         }
     }
 
-    private List<RhnPackage> getPackages(DatabaseManager databaseManager)
-            throws SQLException {
-        List<RhnPackage> retval = null;
+    private void indexPackages(DatabaseManager databaseManager,
+            ChunkIndexer<RhnPackage> indexer)
+            throws SQLException, JobExecutionException {
         Query<Long> query = databaseManager.getQuery("getLastPackageId");
         Long packageId = null;
         try {
@@ -151,13 +156,13 @@ public class IndexPackagesTask implements Job {
         if (packageId == null) {
             packageId = new Long(0);
         }
+        log.info("indexing packages from id " + packageId);
         Query<RhnPackage> pkgQuery = databaseManager.getQuery("listPackagesFromId");
         try {
-            retval = pkgQuery.loadList(packageId);
+            pkgQuery.loadChunks(packageId, ChunkIndexer.CHUNK_SIZE, indexer);
         }
         finally {
             pkgQuery.close();
         }
-        return retval;
     }
 }